@@ -223,7 +223,10 @@ export const validateDate = (date: string) => {
 
 export const validateWall = (wall: Wall) => {
     const features = wall.features ? (wall.features as string).split(',') : [];
-    if (wall == undefined || Object.keys(wall).length !== 2) {
+    if (wall == undefined || Object.keys(wall).length !== (wall.outline === undefined ? 2 : 3)) {
+        return false;
+    }
+    if (wall.outline !== undefined && !validateWallOutline(wall.outline)) {
         return false;
     }
     if (wall.setDate == undefined || wall.setDate.length !== 10 || !validateDate(wall.setDate)) {
@@ -236,6 +239,30 @@ export const validateWall = (wall: Wall) => {
     return validateWallFeatures(features);
 }
 
+// at least three corners, each within the floor plan
+export const validateWallOutline = (outline: string) => {
+    if (typeof outline !== 'string') {
+        return false;
+    }
+    const corners = outline.trim().split(/\s+/);
+    if (corners.length < 3) {
+        return false;
+    }
+    for (const corner of corners) {
+        const xy = corner.split(',');
+        if (xy.length !== 2) {
+            return false;
+        }
+        for (const value of xy) {
+            const number = Number(value);
+            if (value.length === 0 || isNaN(number) || number < 0 || number > 1) {
+                return false;
+            }
+        }
+    }
+    return true;
+}
+
 export const validateWallFeatures = (features: string[]) => {
     const usedFeatures = [] as string[];
     for (const feature of features) {
@@ -325,3 +352,17 @@ export const validateDifficulty = (difficulty: number, difficulties:string[]) =>
     }
     return true;
 }
+
+const MAX_BATCH_IDS = 100;
+
+// Parses the ids query of batched GETs ("a,b,c"), null if it is no valid list of database keys
+export const parseIds = (query: any): string[] | null => {
+    if (typeof query !== 'string') {
+        return null;
+    }
+    const ids = Array.from(new Set(query.split(',').map((id) => id.trim()).filter((id) => id.length > 0)));
+    if (ids.length === 0 || ids.length > MAX_BATCH_IDS || ids.some((id) => /[.#$\[\]\/]/.test(id))) {
+        return null;
+    }
+    return ids;
+}
@@ -13,5 +13,5 @@ export default function (app: Express):void {
     app.use('/walls', WallRoutes)
     app.use('/routes', RouteRoutes);
 
-    //app.use('/streams', StreamRoutes);
+    app.use('/stream', StreamRoutes);
 }
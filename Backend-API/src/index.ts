@@ -23,6 +23,7 @@ admin.initializeApp({
    - Express.json for parsing JSON
    - Validator checks content-type and method
    - Authhandler for authentication
+   - Idempotency replays answers to retried writes
    - Router for handling routes
    - NotFoundHandler for handling 404
    - Errorhandler for error handling
@@ -76,6 +77,45 @@ app.use((req, res, next) => {
     }
 });
 
+// Answers of writes with an Idempotency-Key, per user, so a client that lost the answer and sends
+// the write again gets the first answer instead of applying it twice
+const IDEMPOTENCY_TTL_MS = 24 * 60 * 60 * 1000;
+const MAX_IDEMPOTENCY_ENTRIES = 10000;
+const idempotentAnswers = new Map<string, { status: number, body: any, expires: number }>();
+
+app.use((req, res, next) => {
+    const key = req.headers['idempotency-key'];
+    if (req.method === 'GET' || typeof key !== 'string') {
+        return next();
+    }
+    const id = req.headers.uid + ':' + key;
+    const stored = idempotentAnswers.get(id);
+    if (stored && stored.expires > Date.now()) {
+        return res.status(stored.status).json(stored.body);
+    }
+    const json = res.json.bind(res);
+    res.json = (body: any) => {
+        // server errors did not apply the write, a retry has to run it again
+        if (res.statusCode < 500) {
+            if (idempotentAnswers.size >= MAX_IDEMPOTENCY_ENTRIES) {
+                const now = Date.now();
+                idempotentAnswers.forEach((answer, answerId) => {
+                    if (answer.expires <= now) {
+                        idempotentAnswers.delete(answerId);
+                    }
+                });
+                if (idempotentAnswers.size >= MAX_IDEMPOTENCY_ENTRIES) {
+                    // Map keeps insertion order, the first entry is the oldest
+                    idempotentAnswers.delete(idempotentAnswers.keys().next().value);
+                }
+            }
+            idempotentAnswers.set(id, { status: res.statusCode, body: body, expires: Date.now() + IDEMPOTENCY_TTL_MS });
+        }
+        return json(body);
+    };
+    next();
+});
+
 PathRouter(app);
 
 app.use((_req, _res, next) => {
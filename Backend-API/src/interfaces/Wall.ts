@@ -10,4 +10,6 @@ export enum WallFeatures {
 export default interface Wall {
     setDate?: string;
     features?: string;
+    // corners on the gym's floor plan, "x,y x,y x,y ..." relative to its width and height (0..1)
+    outline?: string;
 }
@@ -3,7 +3,7 @@ import * as admin from 'firebase-admin';
 import APIException from "../APIException";
 import Gym, { Day, Openings } from "../interfaces/Gym";
 import express from "express";
-import { handleFirebaseError, steriliseDayFromInterface, steriliseGym, steriliseOpenings, validateDate, validateDay, validateDayFromInterface, validateDifficulties, validateGym, validateOpenings } from "../HelperFunctions";
+import { handleFirebaseError, parseIds, steriliseDayFromInterface, steriliseGym, steriliseOpenings, validateDate, validateDay, validateDayFromInterface, validateDifficulties, validateGym, validateOpenings } from "../HelperFunctions";
 
 const router = express.Router();
 
@@ -16,14 +16,22 @@ router.use((req, res, next) => {
 
 // All Gym routes
 
-// Get all gyms
+// Get all gyms, or only the gyms in ids (comma separated)
 router.get('/', (req: Request, res: Response, next: NextFunction) => {
     const limit = req.query.limit ? parseInt(req.query.limit as string, 10) : 10;
+    const startAfter = req.query.startAfter ? String(req.query.startAfter) : null;
     if (isNaN(limit) || limit < 1 || limit > 1000) {
         return res.status(400).json({ error: 'Invalid limit' });
     }
 
-    getAllGyms(limit, res, next);
+    if (req.query.ids !== undefined) {
+        const ids = parseIds(req.query.ids);
+        if (ids === null) {
+            return res.status(400).json({ error: 'Invalid ids' });
+        }
+        return getGymsByIds(ids, res, next);
+    }
+    getAllGyms(limit, startAfter, res, next);
 }).all('/', (_req: Request, _res: Response, next: NextFunction) => {
     next(new APIException(405, 'Method not allowed'));
 });
@@ -712,10 +720,30 @@ function getGymById(gymId: string, next: NextFunction, res: Response<any, Record
     });
 }
 
-function getAllGyms(limit: number, res: Response<any, Record<string, any>>, next: NextFunction) {
-    admin.database().ref('/gyms').limitToFirst(limit).once('value', (snapshot: any) => {
+// startAfter is the last gymId of the previous page, used by clients reading more than limit gyms
+function getAllGyms(limit: number, startAfter: string | null, res: Response<any, Record<string, any>>, next: NextFunction) {
+    let gymsQuery = admin.database().ref('/gyms').orderByKey();
+    if (startAfter !== null) {
+        gymsQuery = gymsQuery.startAfter(startAfter);
+    }
+    gymsQuery.limitToFirst(limit).once('value', (snapshot: any) => {
         res.status(200).json({ data: { gyms: snapshot.val() } });
     }, (error: any) => {
         handleFirebaseError(error, res, next, 'Error getting gyms');
     });
 }
+
+// Same envelope as the list, gyms that do not exist are left out
+function getGymsByIds(ids: string[], res: Response<any, Record<string, any>>, next: NextFunction) {
+    Promise.all(ids.map((id) => admin.database().ref('/gyms/' + id).once('value'))).then((snapshots) => {
+        const gyms: { [id: string]: any } = {};
+        snapshots.forEach((snapshot) => {
+            if (snapshot.val() !== null) {
+                gyms[snapshot.key as string] = snapshot.val();
+            }
+        });
+        res.status(200).json({ data: { gyms } });
+    }).catch((err) => {
+        handleFirebaseError(err, res, next, 'Error getting gyms');
+    });
+}
@@ -23,6 +23,7 @@ router.get('/', (req: Request, res: Response, next: NextFunction) => {
     const limit = req.query.limit ? parseInt(req.query.limit as string, 10) : 10;
     const gymId = req.query.gymId ? String(req.query.gymId) : null;
     const wallId = req.query.wallId ? String(req.query.wallId) : null;
+    const startAfter = req.query.startAfter ? String(req.query.startAfter) : null;
 
     if (isNaN(limit) || limit < 1 || limit > 1000) {
         return res.status(400).json({ error: 'Invalid limit' });
@@ -66,7 +67,12 @@ router.get('/', (req: Request, res: Response, next: NextFunction) => {
                     if (wallSnapshot.val() === null) {
                         return res.status(404).json({ error: 'Wall not found' });
                     } else {
-                        admin.database().ref('/routes/' + gymId + '/' + wallId).limitToFirst(limit).once('value', (routesSnapshot: any) => {
+                        // startAfter is the last routeId of the previous page, used by clients paging through a wall
+                        let routesQuery = admin.database().ref('/routes/' + gymId + '/' + wallId).orderByKey();
+                        if (startAfter !== null) {
+                            routesQuery = routesQuery.startAfter(startAfter);
+                        }
+                        routesQuery.limitToFirst(limit).once('value', (routesSnapshot: any) => {
                             if (routesSnapshot.val() === null) {
                                 return res.status(404).json({ error: 'No routes found' });
                             } else {
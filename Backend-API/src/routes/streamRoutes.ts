@@ -8,6 +8,8 @@ import { handleFirebaseError } from "../HelperFunctions";
 
 const router = express.Router();
 
+const HEARTBEAT_INTERVAL_MS = 25000;
+
 router.use((req, res, next) => {
     if (req.headers['content-type'] !== 'text/event-stream') {
         return res.status(415).json({ error: 'Unsupported Media Type' });
@@ -39,13 +41,22 @@ router.get('/users/:uid/', (req: Request, res: Response, next: NextFunction) =>
     });
     res.write('\n');
 
+    // Every snapshot is the full user, so the id only tells a reconnecting client how old its copy is.
+    // The 'value' listener sends the current user right away, no replay from Last-Event-ID needed.
     const stream = admin.database().ref('/users/' + id).on('value', (snapshot) => {
+        res.write('id: ' + Date.now() + '\n');
         res.write('data: ' + JSON.stringify(snapshot.val()) + '\n\n');
     }, (err) => {
         handleFirebaseError(err, res, next, 'Error streaming user');
     });
 
+    // Comment line as heartbeat, lets clients and proxies tell an idle stream from a dead connection
+    const heartbeat = setInterval(() => {
+        res.write(':\n\n');
+    }, HEARTBEAT_INTERVAL_MS);
+
     res.on('close', () => {
+        clearInterval(heartbeat);
         admin.database().ref('/users/' + id).off('value', stream);
         res.end();
     });
@@ -3,7 +3,7 @@ import * as admin from 'firebase-admin';
 import APIException from "../APIException";
 import Wall from "../interfaces/Wall";
 import express from "express";
-import { handleFirebaseError, validateWall, validateWallFeatures } from "../HelperFunctions";
+import { handleFirebaseError, parseIds, validateWall, validateWallFeatures, validateWallOutline } from "../HelperFunctions";
 import { isStaff } from "./gymRoutes";
 
 const router = express.Router();
@@ -36,6 +36,23 @@ router.get('/', (req: Request, res: Response, next: NextFunction) => {
         }, (error: any) => {
             handleFirebaseError(error, res, next, 'Error getting walls');
         });
+    } else if (req.query.ids !== undefined) {
+        // only the walls in ids (comma separated), walls that do not exist are left out
+        const ids = parseIds(req.query.ids);
+        if (ids === null) {
+            return res.status(400).json({ error: 'Invalid ids' });
+        }
+        Promise.all(ids.map((id) => admin.database().ref('/walls/' + gymId + '/' + id).once('value'))).then((snapshots) => {
+            const walls: { [id: string]: any } = {};
+            snapshots.forEach((snapshot) => {
+                if (snapshot.val() !== null) {
+                    walls[snapshot.key as string] = snapshot.val();
+                }
+            });
+            res.status(200).json({ data: { walls } });
+        }).catch((error: any) => {
+            handleFirebaseError(error, res, next, 'Error getting walls');
+        });
     } else {
         admin.database().ref('/gyms/' + gymId).once('value').then((snapshot) => {
             if (snapshot.val() === null) {
@@ -230,6 +247,56 @@ router.patch('/:wallId/feature', (req: Request, res: Response, next: NextFunctio
     next(new APIException(405, 'Method not allowed'));
 });
 
+// Update outline of given wall on the gym's floor plan
+router.patch('/:wallId/outline', (req: Request, res: Response, next: NextFunction) => {
+    const newOutline: string = req.body.outline;
+    const gymId = req.query.gymId ? String(req.query.gymId) : null;
+    const wallId = req.params.wallId;
+    const currentUser = req.headers.uid as string;
+    isStaff(gymId, currentUser).then((isStaffBool: boolean) => {
+        if (isStaffBool || req.headers.admin) {
+            if (gymId === null) {
+                return res.status(400).json({ error: 'Invalid gymId' });
+            }
+            if (!validateWallOutline(newOutline)) {
+                return res.status(400).json({ error: 'Invalid outline' });
+            }
+            admin.database().ref('/gyms/' + gymId).once('value', (snapshotGym: any) => {
+                if (snapshotGym.val() === null) {
+                    return res.status(404).json({ error: 'Gym not found' });
+                } else {
+                    admin.database().ref('/walls/' + gymId + "/" + wallId).once('value', (snapshotWall: any) => {
+                        if (snapshotWall.val() === null) {
+                            return res.status(404).json({ error: 'Wall not found' });
+                        } else {
+                            admin.database().ref('/walls/' + gymId + "/" + wallId).update({ outline: newOutline }).then(() => {
+                                const oldData = snapshotWall.val();
+                                const newData = {
+                                    ...oldData,
+                                    outline: newOutline
+                                };
+                                res.status(200).json({ data: { wall: newData } });
+                            }).catch((error: any) => {
+                                handleFirebaseError(error, res, next, 'Error updating wall');
+                            });
+                        }
+                    }).catch((error: any) => {
+                        handleFirebaseError(error, res, next, 'Error getting wall');
+                    });
+                }
+            }).catch((err) => {
+                handleFirebaseError(err, res, next, 'Error getting gym');
+            });
+        } else {
+            return res.status(403).json({ error: 'Not authorised to update wall' });
+        }
+    }).catch((err) => {
+        handleFirebaseError(err, res, next, 'Error checking if user is staff');
+    });
+}).all('/:wallId/outline', (_req: Request, _res: Response, next: NextFunction) => {
+    next(new APIException(405, 'Method not allowed'));
+});
+
 // Delete wall
 router.delete('/:wallId', (req: Request, res: Response, next: NextFunction) => {
     const gymId = req.query.gymId ? String(req.query.gymId) : null;
@@ -0,0 +1,157 @@
+package com.example.inbloc_app.adapter;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+import android.util.Log;
+import android.widget.FrameLayout;
+
+import androidx.appcompat.view.ContextThemeWrapper;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.inbloc_app.R;
+import com.example.inbloc_app.data.LogoLoader;
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counts allocations over N binds of a recycled row. The rows show logos, the bundled ones and
+ * ones the LogoLoader has in its memory cache. The same view setters are run on their own as a
+ * baseline, whatever the binds allocate on top of that is the adapter's own cost.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GymsAdapterBindAllocationTest {
+
+    private static final int BINDS = 1000;
+    private static final int GYMS = 50;
+    private static final int[] BUNDLED = {R.drawable.logo_felsmeister, R.drawable.logo_blocbuster,
+            R.drawable.logo_zenit, R.drawable.logo_beta};
+    // one-off allocations, e.g. a listener the first bind creates; does not grow with BINDS
+    private static final int SLACK = 16;
+
+    @Test
+    public void bindDoesNotAllocate() throws InterruptedException {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final Context context = new ContextThemeWrapper(instrumentation.getTargetContext(), R.style.Theme_InBlocApp);
+        final String[] names = new String[BUNDLED.length];
+        final String[] cities = new String[BUNDLED.length];
+        for (int i = 0; i < BUNDLED.length; i++) {
+            names[i] = "Bundled " + i;
+            cities[i] = "City " + i;
+        }
+
+        // the bundled logos are decoded in the background, each one changes its row once ready
+        final CountDownLatch bundledReady = new CountDownLatch(BUNDLED.length);
+        final GymsAdapter[] adapter = new GymsAdapter[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                adapter[0] = new GymsAdapter(context, names, cities, BUNDLED);
+                adapter[0].registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                    @Override
+                    public void onItemRangeChanged(int positionStart, int itemCount) {
+                        bundledReady.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue("bundled logos were not decoded", bundledReady.await(10, TimeUnit.SECONDS));
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                LogoLoader logoLoader = LogoLoader.getInstance(context);
+                List<Gyms> gyms = new ArrayList<>();
+                for (int i = 0; i < GYMS; i++) {
+                    Gyms gym = new Gyms();
+                    if (i < BUNDLED.length) {
+                        gym.setId(names[i]);
+                        gym.setName(names[i]);
+                    } else {
+                        gym.setId("gym" + i);
+                        gym.setName("Gym " + i);
+                        logoLoader.putInMemory(gym.getId(), Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888));
+                    }
+                    gym.setCity("City " + i);
+                    gyms.add(gym);
+                }
+
+                final GymsAdapter gymsAdapter = adapter[0];
+                gymsAdapter.setLogoLoader(logoLoader);
+                // cleared first, so the new list is taken right away instead of after a background diff
+                gymsAdapter.submitList(null);
+                gymsAdapter.submitList(gyms);
+                final GymsAdapter.ViewHolder holder = gymsAdapter.onCreateViewHolder(new FrameLayout(context), 0);
+
+                // warm up, the first binds create layouts and resolve drawables; every row has to
+                // show its logo, not the placeholder
+                final Bitmap[] logos = new Bitmap[GYMS];
+                for (int i = 0; i < GYMS; i++) {
+                    gymsAdapter.onBindViewHolder(holder, i);
+                    Drawable logo = holder.logo.getDrawable();
+                    assertTrue("row " + i + " shows no logo", logo instanceof BitmapDrawable);
+                    logos[i] = ((BitmapDrawable) logo).getBitmap();
+                }
+                for (int i = 0; i < BINDS; i++) {
+                    gymsAdapter.onBindViewHolder(holder, i % GYMS);
+                    baselineBind(holder, gymsAdapter.getCurrentList().get(i % GYMS), logos[i % GYMS]);
+                }
+
+                final List<Gyms> current = gymsAdapter.getCurrentList();
+                long baseline = countAllocations(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < BINDS; i++) {
+                            baselineBind(holder, current.get(i % GYMS), logos[i % GYMS]);
+                        }
+                    }
+                });
+                long binds = countAllocations(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < BINDS; i++) {
+                            gymsAdapter.onBindViewHolder(holder, i % GYMS);
+                        }
+                    }
+                });
+
+                Log.i("GymsAdapterBind", "allocations over " + BINDS + " binds: " + binds
+                        + ", view setters alone: " + baseline);
+                assertTrue("bind allocated " + (binds - baseline) + " objects on top of the view setters",
+                        binds - baseline <= SLACK);
+            }
+        });
+    }
+
+    // what onBindViewHolder has to do at minimum for a row with its logo ready
+    private static void baselineBind(GymsAdapter.ViewHolder holder, Gyms gym, Bitmap logo) {
+        holder.gymName.setText(gym.getName());
+        holder.gymDescription.setText(gym.getCity());
+        holder.logo.setImageBitmap(logo);
+        holder.favorite.setImageResource(R.drawable.ic_favorite_border);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long countAllocations(Runnable runnable) {
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        runnable.run();
+        long count = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+        return count;
+    }
+}
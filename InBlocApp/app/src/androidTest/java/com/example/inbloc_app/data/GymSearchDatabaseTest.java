@@ -0,0 +1,74 @@
+package com.example.inbloc_app.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class GymSearchDatabaseTest {
+
+    private GymSearchDatabase database;
+
+    @Before
+    public void setUp() {
+        database = new GymSearchDatabase(InstrumentationRegistry.getInstrumentation().getTargetContext(), null);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    private static Gyms gym(String id, String name, String city) {
+        Gyms gym = new Gyms();
+        gym.setId(id);
+        gym.setName(name);
+        gym.setCity(city);
+        return gym;
+    }
+
+    private List<String> searchIds(String query) {
+        List<String> ids = new ArrayList<>();
+        for (Gyms gym : database.search(query, 10)) {
+            ids.add(gym.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void findsGymsByPrefix() {
+        database.update(Arrays.asList(gym("g1", "Felsmeister", "Bad Oeynhausen"),
+                gym("g2", "Zenit", "Bielefeld")), true);
+
+        assertEquals(Arrays.asList("g1"), searchIds("fels bad"));
+        assertEquals(Arrays.asList("g2"), searchIds("biele"));
+        assertTrue(searchIds("munich").isEmpty());
+    }
+
+    @Test
+    public void aTruncatedListKeepsTheGymsAfterIt() {
+        database.update(Arrays.asList(gym("g1", "Beta", "Bielefeld"), gym("g2", "Blocbuster", "Bielefeld"),
+                gym("g3", "Zenit", "Bielefeld")), true);
+
+        // the first page of a longer list, with one gym renamed
+        database.update(Arrays.asList(gym("g1", "Beta Boulder", "Bielefeld")), false);
+        assertEquals(Arrays.asList("g1", "g2", "g3"), searchIds("bielefeld"));
+        assertEquals(Arrays.asList("g1"), searchIds("boulder"));
+
+        // the whole list again, without g2
+        database.update(Arrays.asList(gym("g1", "Beta Boulder", "Bielefeld"), gym("g3", "Zenit", "Bielefeld")), true);
+        assertEquals(Arrays.asList("g1", "g3"), searchIds("bielefeld"));
+    }
+}
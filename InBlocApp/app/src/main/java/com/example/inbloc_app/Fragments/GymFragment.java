@@ -1,34 +1,61 @@
 package com.example.inbloc_app.Fragments;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
-import androidx.appcompat.app.AppCompatActivity;
-import androidx.appcompat.widget.Toolbar;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
-import android.widget.ListView;
 import android.widget.TextView;
 
-import com.example.inbloc_app.Gym;
 import com.example.inbloc_app.R;
-import com.example.inbloc_app.adapter.GymsAdapter;
+import com.example.inbloc_app.adapter.RoutesAdapter;
+import com.example.inbloc_app.data.BatchLoader;
+import com.example.inbloc_app.data.DetailLoaders;
+import com.example.inbloc_app.data.GymRepository;
+import com.example.inbloc_app.data.LogoLoader;
+import com.example.inbloc_app.data.OfflineStore;
+import com.example.inbloc_app.data.RoutePagingSource;
+import com.example.inbloc_app.data.WallOutlines;
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+import com.example.inbloc_app.view.FloorPlanView;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import retrofit2.Response;
 
 
 public class GymFragment extends Fragment {
 
-    private ListView listView;
+    public static final String ARG_GYM_ID = "gymId";
+    private static final String TAG = "GymFragment";
+    private static final int LOGO_SIZE_DP = 162;
+    private static final int WALLS_LIMIT = 1000;
+
+    private RecyclerView recyclerView;
     private ImageView logo;
     private TextView name;
     private TextView descr;
-    private ImageView gymLayout;
-    GymsAdapter gymsAdapter;
+    private FloorPlanView floorPlan;
+    private RoutePagingSource routePagingSource;
+    private String gymId;
+    // whose routes are listed, null for all
+    private String selectedWallId;
+    private ExecutorService wallsExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -36,31 +63,135 @@ public class GymFragment extends Fragment {
         // Inflate the layout for this fragment
         View view = inflater.inflate(R.layout.fragment_gym, container, false);
 
-        listView = view.findViewById(R.id.listview_gym);
+        recyclerView = view.findViewById(R.id.recView_routes);
         logo = view.findViewById(R.id.gym_logo);
         name = view.findViewById(R.id.gym_name);
         descr = view.findViewById(R.id.gym_description);
-        gymLayout = view.findViewById(R.id.gym_layout);
-
-        ArrayList<String> walls = new ArrayList<>();
-        walls.add("Wall 1");
-        walls.add("Wall 2");
-        walls.add("Wall 3");
-        walls.add("Wall 4");
-        walls.add("Wall 5");
-        walls.add("Wall 6");
-        walls.add("Roof");
-        
+        floorPlan = view.findViewById(R.id.gym_layout);
+
+        gymId = getArguments() != null ? getArguments().getString(ARG_GYM_ID) : null;
+
         name.setText("Felsmeister");
         descr.setText("Bad Oeynhausen");
         logo.setImageResource(R.drawable.logo_felsmeister);
-        gymLayout.setImageResource(R.drawable.felsmeister_layout);
+        floorPlan.setPlan(R.drawable.felsmeister_layout);
+        floorPlan.setOnWallClickListener(new FloorPlanView.OnWallClickListener() {
+            @Override
+            public void onWallClick(String wallId) {
+                // tapping the listed wall again, or beside the walls, lists the whole gym
+                String listed = wallId == null || wallId.equals(selectedWallId) ? null : wallId;
+                if (gymId != null && (listed == null ? selectedWallId != null : !listed.equals(selectedWallId))) {
+                    showRoutes(listed);
+                }
+            }
+        });
+
+        Gyms gym = findGym(gymId);
+        if (gym != null) {
+            showGym(gym);
+        } else if (gymId != null) {
+            // not in the list cache, e.g. opened from search, coalesced with other screens asking for it
+            DetailLoaders.getInstance(requireContext()).gyms().load(gymId, new BatchLoader.Callback<Gyms>() {
+                @Override
+                public void onLoaded(String key, Gyms value) {
+                    if (value != null && getView() != null) {
+                        showGym(value);
+                    }
+                }
 
-        ArrayAdapter arrayAdapter = new ArrayAdapter(getContext(), android.R.layout.simple_list_item_1, walls);
-        listView.setAdapter(arrayAdapter);
+                @Override
+                public void onError(String key, Throwable t) {
+                    Log.i(TAG, "Could not load gym " + key + " " + t);
+                }
+            });
+        }
+
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        if (gymId != null) {
+            showRoutes(null);
+            loadWallOutlines();
+        }
 
 //        logo.setImageResource();
 
         return view;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        LogoLoader.getInstance(requireContext()).cancel(logo);
+        if (routePagingSource != null) {
+            routePagingSource.close();
+            routePagingSource = null;
+        }
+        if (wallsExecutor != null) {
+            wallsExecutor.shutdownNow();
+            wallsExecutor = null;
+        }
+    }
+
+    // Lists the routes of one wall, or of the whole gym for null
+    private void showRoutes(String wallId) {
+        if (routePagingSource != null) {
+            routePagingSource.close();
+        }
+        selectedWallId = wallId;
+        floorPlan.setSelectedWall(wallId);
+        routePagingSource = new RoutePagingSource(ApiUtils.getApiService(),
+                OfflineStore.getInstance(requireContext()), gymId, wallId);
+        recyclerView.setAdapter(new RoutesAdapter(routePagingSource));
+        routePagingSource.start();
+    }
+
+    // The outlines come with the walls, the plan can be moved around without them meanwhile
+    private void loadWallOutlines() {
+        wallsExecutor = Executors.newSingleThreadExecutor(
+                NetworkDispatcher.threadFactory(TAG, NetworkDispatcher.LANE_INTERACTIVE));
+        final String gym = gymId;
+        wallsExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Response<List<Walls>> response = ApiUtils.getApiService()
+                            .getWalls("application/json", gym, WALLS_LIMIT).execute();
+                    if (!response.isSuccessful() || response.body() == null) {
+                        // 404 if the gym has no walls yet
+                        return;
+                    }
+                    final WallOutlines outlines = WallOutlines.of(response.body());
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (getView() != null) {
+                                floorPlan.setWallOutlines(outlines);
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    Log.i(TAG, "Could not load walls of " + gym + " " + e);
+                }
+            }
+        });
+    }
+
+    private void showGym(Gyms gym) {
+        name.setText(gym.getName());
+        descr.setText(gym.getCity());
+        int logoSizePx = Math.round(LOGO_SIZE_DP * getResources().getDisplayMetrics().density);
+        LogoLoader.getInstance(requireContext()).load(gym.getId(), logo, logoSizePx, R.mipmap.ic_launcher);
+    }
+
+    private Gyms findGym(String gymId) {
+        List<Gyms> gyms = GymRepository.getInstance(requireContext()).getCachedGyms();
+        if (gymId == null || gyms == null) {
+            return null;
+        }
+        for (Gyms gym : gyms) {
+            if (gymId.equals(gym.getId())) {
+                return gym;
+            }
+        }
+        return null;
+    }
+}
@@ -7,21 +7,29 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.inbloc_app.HomeActivity;
 import com.example.inbloc_app.R;
+import com.example.inbloc_app.StartupPipeline;
 import com.example.inbloc_app.adapter.GymsAdapter;
+import com.example.inbloc_app.data.LogoLoader;
 import com.example.inbloc_app.retrofit.models.Gyms;
 import com.example.inbloc_app.retrofit.remote.ApiService;
 import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.viewmodel.MyGymsViewModel;
 
 import java.util.List;
 
@@ -31,7 +39,7 @@ import retrofit2.Response;
 
 public class MyGymsFragment extends Fragment{
 
-    private static final String TAG = "";
+    private static final String TAG = "MyGymsFragment";
     private RecyclerView recyclerView;
     private GymsAdapter gymsAdapter;
     private ApiService apiService;
@@ -55,13 +63,49 @@ public class MyGymsFragment extends Fragment{
         name = getResources().getStringArray(R.array.gyms_array);
         loc = getResources().getStringArray(R.array.location_array);
 
-        GymsAdapter adapter = new GymsAdapter(getContext(), name, loc, images);
+        final MyGymsViewModel viewModel = new ViewModelProvider(this).get(MyGymsViewModel.class);
+        List<Gyms> loaded = viewModel.getGyms().getValue();
+        if (loaded == null) {
+            gymsAdapter = new GymsAdapter(getContext(), name, loc, images);
+            // the saved scroll position belongs to the real list, not the bundled gyms
+            gymsAdapter.setStateRestorationPolicy(RecyclerView.Adapter.StateRestorationPolicy.PREVENT);
+        } else {
+            // back from another destination, the list is already in memory
+            gymsAdapter = new GymsAdapter();
+            gymsAdapter.submitList(loaded);
+        }
+        gymsAdapter.setLogoLoader(LogoLoader.getInstance(requireContext()));
         LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        // rows go back to the shared pool when the view is destroyed
+        layoutManager.setRecycleChildrenOnDetach(true);
         recyclerView.setLayoutManager(layoutManager);
-        recyclerView.setAdapter(adapter);
+        if (getActivity() instanceof HomeActivity) {
+            recyclerView.setRecycledViewPool(((HomeActivity) getActivity()).getGymRowPool());
+        }
+        recyclerView.setAdapter(gymsAdapter);
 
+        viewModel.getGyms().observe(getViewLifecycleOwner(), new Observer<List<Gyms>>() {
+            @Override
+            public void onChanged(List<Gyms> gyms) {
+                gymsList = gyms;
+                gymsAdapter.setData(gyms);
+                gymsAdapter.setStateRestorationPolicy(RecyclerView.Adapter.StateRestorationPolicy.ALLOW);
+                if (getActivity() != null) {
+                    StartupPipeline.reportFirstGymList(getActivity());
+                }
+            }
+        });
 
 
+        CheckBox openNow = view.findViewById(R.id.mygyms_open_now);
+        openNow.setChecked(viewModel.isOpenNow());
+        openNow.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                viewModel.setOpenNow(isChecked);
+            }
+        });
+
         Button goToGymBtn = (Button) view.findViewById(R.id.goToFragment2);
         goToGymBtn.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -72,4 +116,10 @@ public class MyGymsFragment extends Fragment{
 
         return view;
     }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        gymsAdapter = null;
+    }
 }
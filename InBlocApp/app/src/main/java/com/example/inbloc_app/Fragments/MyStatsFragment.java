@@ -4,18 +4,182 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.inbloc_app.R;
+import com.example.inbloc_app.data.ClimbStats;
+import com.example.inbloc_app.data.GymRepository;
+import com.example.inbloc_app.data.StatsStore;
+import com.example.inbloc_app.data.UserStream;
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.User;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class MyStatsFragment extends Fragment {
 
+    // weeks shown in the progress line
+    private static final int SHOWN_WEEKS = 12;
+    private static final int BAR_WIDTH = 20;
+    private static final String SPARKS = "\u2581\u2582\u2583\u2584\u2585\u2586\u2587\u2588";
+
+    private TextView status, completed, flashes, avgDifficulty, features, pyramid, progress, gyms;
+
+    // only subscribed between onStart and onStop, so the stream pauses in the background
+    private final UserStream.Observer statsObserver = new UserStream.Observer() {
+        @Override
+        public void onUserUpdated(User user) {
+            showUser(user);
+        }
+
+        @Override
+        public void onConnectionChanged(boolean connected) {
+            if (status != null) {
+                status.setText(connected ? "Live" : "Connecting...");
+            }
+        }
+    };
+
+    // what was climbed on this device, from the precomputed counters
+    private final StatsStore.Observer localObserver = new StatsStore.Observer() {
+        @Override
+        public void onStatsChanged(ClimbStats.Summary summary) {
+            showSummary(summary);
+        }
+    };
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        return inflater.inflate(R.layout.fragment_stats, container, false);
+        View view = inflater.inflate(R.layout.fragment_stats, container, false);
+        status = view.findViewById(R.id.stats_status);
+        completed = view.findViewById(R.id.stats_completed);
+        flashes = view.findViewById(R.id.stats_flashes);
+        avgDifficulty = view.findViewById(R.id.stats_avg_difficulty);
+        features = view.findViewById(R.id.stats_features);
+        pyramid = view.findViewById(R.id.stats_pyramid);
+        progress = view.findViewById(R.id.stats_progress);
+        gyms = view.findViewById(R.id.stats_gyms);
+        showUser(null);
+        return view;
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        FirebaseUser firebaseUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (firebaseUser != null) {
+            UserStream.getInstance(requireContext()).observe(firebaseUser.getUid(), statsObserver);
+        }
+        StatsStore.getInstance(requireContext()).observe(localObserver);
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        UserStream.getInstance(requireContext()).removeObserver(statsObserver);
+        StatsStore.getInstance(requireContext()).removeObserver(localObserver);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        status = completed = flashes = avgDifficulty = features = pyramid = progress = gyms = null;
+    }
+
+    private void showUser(User user) {
+        if (completed == null) {
+            return;
+        }
+        completed.setText("Completed routes: " + (user != null ? user.getCompletedRoutes() : 0));
+        flashes.setText("Flashes: " + (user != null ? user.getFlashes() : 0));
+        avgDifficulty.setText(String.format(Locale.getDefault(), "Average difficulty: %.1f",
+                user != null ? user.getAvgDifficulty() : 0d));
+
+        StringBuilder sb = new StringBuilder();
+        if (user != null && user.getCompletedFeatures() != null) {
+            for (Map.Entry<String, Integer> entry : user.getCompletedFeatures().entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(entry.getKey()).append(' ').append(entry.getValue());
+            }
+        }
+        features.setText(sb);
+    }
+
+    private void showSummary(ClimbStats.Summary summary) {
+        if (pyramid == null) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Grade pyramid on this device");
+        int max = 0;
+        int top = -1;
+        for (int d = 0; d < summary.pyramid.length; d++) {
+            max = Math.max(max, summary.pyramid[d]);
+            if (summary.pyramid[d] > 0) {
+                top = d;
+            }
+        }
+        for (int d = top; d >= 0; d--) {
+            int sends = summary.pyramid[d];
+            sb.append(String.format(Locale.ROOT, "\n%2d  ", d));
+            for (int i = 0, bar = sends * BAR_WIDTH / max; i < Math.max(bar, sends > 0 ? 1 : 0); i++) {
+                sb.append('#');
+            }
+            sb.append(' ').append(sends);
+            if (summary.flashPyramid[d] > 0) {
+                sb.append(" (").append(summary.flashPyramid[d]).append(" flashed)");
+            }
+        }
+        String separator = "\n\n";
+        for (int f = 0; f < summary.sendsByFeature.length; f++) {
+            if (summary.sendsByFeature[f] > 0) {
+                sb.append(separator).append(ClimbStats.FEATURES[f]).append(' ').append(summary.sendsByFeature[f]);
+                separator = ", ";
+            }
+        }
+        pyramid.setText(top < 0 ? "No routes completed on this device yet" : sb);
+
+        int from = summary.sendsByWeek.length - SHOWN_WEEKS;
+        int weekMax = 0;
+        for (int w = from; w < summary.sendsByWeek.length; w++) {
+            weekMax = Math.max(weekMax, summary.sendsByWeek[w]);
+        }
+        StringBuilder weeks = new StringBuilder("Sends per week  ");
+        for (int w = from; w < summary.sendsByWeek.length; w++) {
+            int sends = summary.sendsByWeek[w];
+            weeks.append(sends == 0 ? ' ' : SPARKS.charAt((sends * SPARKS.length() - 1) / weekMax));
+        }
+        int thisWeek = summary.sendsByWeek.length - 1;
+        weeks.append(String.format(Locale.ROOT, "\nThis week %d, average difficulty %.1f",
+                summary.sendsByWeek[thisWeek], summary.avgDifficultyByWeek[thisWeek]));
+        progress.setText(weeks);
+
+        Map<String, String> names = new HashMap<>();
+        List<Gyms> cached = GymRepository.getInstance(requireContext()).getCachedGyms();
+        if (cached != null) {
+            for (Gyms gym : cached) {
+                names.put(gym.getId(), gym.getName());
+            }
+        }
+        StringBuilder perGym = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : summary.sendsByGym.entrySet()) {
+            if (perGym.length() > 0) {
+                perGym.append(", ");
+            }
+            String name = names.get(entry.getKey());
+            perGym.append(name != null ? name : entry.getKey()).append(' ').append(entry.getValue());
+        }
+        gyms.setText(perGym);
     }
 }
@@ -1,21 +1,213 @@
 package com.example.inbloc_app.Fragments;
 
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
 import android.os.Bundle;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.EditText;
 
+import androidx.activity.result.ActivityResultCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.inbloc_app.HomeActivity;
 import com.example.inbloc_app.R;
+import com.example.inbloc_app.adapter.GymsAdapter;
+import com.example.inbloc_app.data.LogoLoader;
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.viewmodel.SearchViewModel;
+
+import java.util.List;
 
 public class SearchFragment extends Fragment {
 
+    private static final String TAG = "SearchFragment";
+    private static final long LOCATION_INTERVAL_MS = 10000;
+    private static final float LOCATION_DISTANCE_M = 50;
+
+    private GymsAdapter gymsAdapter;
+    private SearchViewModel viewModel;
+    private CheckBox nearMe;
+    private boolean listening = false;
+
+    private final LocationListener locationListener = new LocationListener() {
+        @Override
+        public void onLocationChanged(@NonNull Location location) {
+            viewModel.setLocation(location.getLatitude(), location.getLongitude());
+        }
+
+        // abstract before API 30
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+        }
+
+        @Override
+        public void onProviderEnabled(@NonNull String provider) {
+        }
+
+        @Override
+        public void onProviderDisabled(@NonNull String provider) {
+        }
+    };
+
+    private final ActivityResultLauncher<String> locationPermission = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(), new ActivityResultCallback<Boolean>() {
+                @Override
+                public void onActivityResult(Boolean granted) {
+                    if (granted) {
+                        viewModel.setNearMe(true);
+                        startLocationUpdates();
+                    } else if (nearMe != null) {
+                        nearMe.setChecked(false);
+                    }
+                }
+            });
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        return inflater.inflate(R.layout.fragment_search, container, false);
+        View view = inflater.inflate(R.layout.fragment_search, container, false);
+        viewModel = new ViewModelProvider(this).get(SearchViewModel.class);
+
+        RecyclerView recyclerView = view.findViewById(R.id.recView_search);
+        gymsAdapter = new GymsAdapter();
+        gymsAdapter.setLogoLoader(LogoLoader.getInstance(requireContext()));
+        // keeps the saved scroll position until the results are back in the adapter
+        gymsAdapter.setStateRestorationPolicy(RecyclerView.Adapter.StateRestorationPolicy.PREVENT_WHEN_EMPTY);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        if (getActivity() instanceof HomeActivity) {
+            recyclerView.setRecycledViewPool(((HomeActivity) getActivity()).getGymRowPool());
+        }
+        recyclerView.setAdapter(gymsAdapter);
+
+        viewModel.getResults().observe(getViewLifecycleOwner(), new Observer<List<Gyms>>() {
+            @Override
+            public void onChanged(List<Gyms> results) {
+                gymsAdapter.submitList(results);
+            }
+        });
+
+        CheckBox openNow = view.findViewById(R.id.search_open_now);
+        openNow.setChecked(viewModel.isOpenNow());
+        openNow.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                viewModel.setOpenNow(isChecked);
+            }
+        });
+
+        nearMe = view.findViewById(R.id.search_near_me);
+        nearMe.setChecked(viewModel.isNearMe());
+        nearMe.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                if (!isChecked) {
+                    stopLocationUpdates();
+                    viewModel.setNearMe(false);
+                } else if (hasLocationPermission()) {
+                    viewModel.setNearMe(true);
+                    startLocationUpdates();
+                } else {
+                    locationPermission.launch(Manifest.permission.ACCESS_COARSE_LOCATION);
+                }
+            }
+        });
+
+        EditText input = view.findViewById(R.id.search_input);
+        input.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.setQuery(s.toString());
+            }
+        });
+
+        return view;
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        if (viewModel.isNearMe() && hasLocationPermission()) {
+            startLocationUpdates();
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        stopLocationUpdates();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        gymsAdapter = null;
+        nearMe = null;
+    }
+
+    private boolean hasLocationPermission() {
+        return ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_COARSE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    // The last known fix answers right away, updates follow while the fragment is started
+    private void startLocationUpdates() {
+        if (listening) {
+            return;
+        }
+        LocationManager locationManager = (LocationManager) requireContext().getSystemService(Context.LOCATION_SERVICE);
+        try {
+            Location last = locationManager.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
+            if (last == null) {
+                last = locationManager.getLastKnownLocation(LocationManager.PASSIVE_PROVIDER);
+            }
+            if (last != null) {
+                viewModel.setLocation(last.getLatitude(), last.getLongitude());
+            }
+            locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, LOCATION_INTERVAL_MS,
+                    LOCATION_DISTANCE_M, locationListener, Looper.getMainLooper());
+            listening = true;
+        } catch (SecurityException | IllegalArgumentException e) {
+            // permission revoked meanwhile or no network location on this device
+            Log.i(TAG, "No location updates: " + e);
+        }
+    }
+
+    private void stopLocationUpdates() {
+        if (listening) {
+            LocationManager locationManager = (LocationManager) requireContext().getSystemService(Context.LOCATION_SERVICE);
+            locationManager.removeUpdates(locationListener);
+            listening = false;
+        }
     }
 }
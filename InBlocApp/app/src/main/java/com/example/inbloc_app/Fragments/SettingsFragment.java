@@ -1,21 +1,121 @@
 package com.example.inbloc_app.Fragments;
 
+import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.inbloc_app.R;
+import com.example.inbloc_app.retrofit.remote.HttpMetrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Locale;
 
 public class SettingsFragment extends Fragment {
 
+    private static final String TAG = "SettingsFragment";
+
+    private TextView networkSummary;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        return inflater.inflate(R.layout.fragment_settings, container, false);
+        View view = inflater.inflate(R.layout.fragment_settings, container, false);
+        networkSummary = view.findViewById(R.id.settings_network_summary);
+
+        view.findViewById(R.id.settings_network_refresh).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showNetworkSummary();
+            }
+        });
+        view.findViewById(R.id.settings_network_export).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                exportNetworkMetrics();
+            }
+        });
+        view.findViewById(R.id.settings_network_clear).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                HttpMetrics.getInstance().clear();
+                showNetworkSummary();
+            }
+        });
+        return view;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        showNetworkSummary();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        networkSummary = null;
+    }
+
+    // Slowest endpoints first, one block per endpoint
+    private void showNetworkSummary() {
+        if (networkSummary == null) {
+            return;
+        }
+        List<HttpMetrics.EndpointSummary> summaries = HttpMetrics.getInstance().summarize();
+        if (summaries.isEmpty()) {
+            networkSummary.setText("No requests recorded yet");
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (HttpMetrics.EndpointSummary summary : summaries) {
+            sb.append(String.format(Locale.ROOT, "%s  n=%d  errors %.0f%%  cached %.0f%% (304: %d)\n",
+                    summary.endpoint, summary.count, summary.errorRate() * 100, summary.cacheHitRatio() * 100,
+                    summary.notModified));
+            appendPhase(sb, "total", summary, HttpMetrics.PHASE_TOTAL);
+            appendPhase(sb, "dns", summary, HttpMetrics.PHASE_DNS);
+            appendPhase(sb, "connect", summary, HttpMetrics.PHASE_CONNECT);
+            appendPhase(sb, "tls", summary, HttpMetrics.PHASE_TLS);
+            appendPhase(sb, "ttfb", summary, HttpMetrics.PHASE_TTFB);
+            appendPhase(sb, "body", summary, HttpMetrics.PHASE_BODY);
+            sb.append(String.format(Locale.ROOT, "  sent %d B  received %d B\n\n",
+                    summary.requestBytes, summary.responseBytes));
+        }
+        networkSummary.setText(sb);
+    }
+
+    private static void appendPhase(StringBuilder sb, String name, HttpMetrics.EndpointSummary summary, int phase) {
+        if (summary.p50Ms(phase) < 0) {
+            return;
+        }
+        sb.append(String.format(Locale.ROOT, "  %-8s p50 %5d ms  p95 %5d ms\n", name,
+                summary.p50Ms(phase), summary.p95Ms(phase)));
+    }
+
+    // Hands the summary and the raw samples to any app that takes text (mail, drive, ...)
+    private void exportNetworkMetrics() {
+        StringWriter json = new StringWriter();
+        try {
+            HttpMetrics.getInstance().writeJson(json);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not export network metrics", e);
+            Toast.makeText(requireContext(), "Export failed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("application/json");
+        intent.putExtra(Intent.EXTRA_SUBJECT, "InBloc network metrics");
+        intent.putExtra(Intent.EXTRA_TEXT, json.toString());
+        startActivity(Intent.createChooser(intent, "Export network metrics"));
     }
 }
@@ -0,0 +1,23 @@
+package com.example.inbloc_app;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+
+// WorkManager's automatic initializer is removed in the manifest, so it is set up on first use
+// from a StartupPipeline thread instead of on the main thread before the first activity.
+public class InBlocApplication extends Application implements Configuration.Provider {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupPipeline.start(this);
+    }
+
+    @NonNull
+    @Override
+    public Configuration getWorkManagerConfiguration() {
+        return new Configuration.Builder().build();
+    }
+}
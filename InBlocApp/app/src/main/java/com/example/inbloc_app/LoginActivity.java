@@ -12,7 +12,7 @@ import android.widget.Button;
 import android.widget.ProgressBar;
 import android.widget.Toast;
 
-import com.example.inbloc_app.data.Token;
+import com.example.inbloc_app.data.TokenProvider;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
@@ -26,21 +26,24 @@ public class LoginActivity extends AppCompatActivity {
 
     private static final String TAG = "";
     private FirebaseAuth mAuth;
-    static Token token;
     private ProgressBar progressBar;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        getSupportActionBar().hide(); //hides Actionbar
-
         super.onCreate(savedInstanceState);
+        // signed in last time: straight to the gyms, StartupPipeline restores the session meanwhile
+        // and comes back here if there is none
+        if (savedInstanceState == null && StartupPipeline.hasCachedSession(this)) {
+            startActivity(new Intent(this, HomeActivity.class));
+            finish();
+            return;
+        }
+        getSupportActionBar().hide(); //hides Actionbar
         setContentView(R.layout.activity_login);
 
 //        progressBar.findViewById(R.id.progressBar_login);
 //        progressBar.setVisibility(View.INVISIBLE);
 
-        mAuth = FirebaseAuth.getInstance();
-
         Button skipToHomeBtn = (Button) findViewById(R.id.skipButton);
         skipToHomeBtn.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -58,34 +61,33 @@ public class LoginActivity extends AppCompatActivity {
         });
     }
 
-    @Override
-    public void onStart() {
-        super.onStart();
-        // Check if user is signed in (non-null) and update UI accordingly.
-        FirebaseUser currentUser = mAuth.getCurrentUser();
-        if(currentUser != null){
-            currentUser.reload();
+    // FirebaseAuth is only created once it is needed, StartupPipeline checks the saved user
+    private FirebaseAuth auth() {
+        if (mAuth == null) {
+            mAuth = FirebaseAuth.getInstance();
         }
+        return mAuth;
     }
 
     public void signIn(String email, String password){
 
-        mAuth.signInWithEmailAndPassword(email, password)
+        auth().signInWithEmailAndPassword(email, password)
                 .addOnCompleteListener(this, new OnCompleteListener<AuthResult>() {
                     @Override
                     public void onComplete(@NonNull Task<AuthResult> task) {
                         if (task.isSuccessful()) {
                             // Sign in success, update UI with the signed-in user's information
                             Log.i(TAG, "signInWithEmail:success");
-                            FirebaseUser user = mAuth.getCurrentUser();
+                            FirebaseUser user = auth().getCurrentUser();
                             assert user != null;
+                            StartupPipeline.onSignedIn(LoginActivity.this);
                             //TODO ProcessBar
                             user.getIdToken(false).addOnSuccessListener(new OnSuccessListener<GetTokenResult>() {
                                 @Override
                                 public void onSuccess(GetTokenResult getTokenResult) {
-                                    String userID = getTokenResult.getToken();
-                                    Token.setToken(userID);
-                                    Log.i(TAG, "got User Token: " + userID);
+                                    TokenProvider.getInstance().setToken(getTokenResult.getToken(),
+                                            getTokenResult.getExpirationTimestamp());
+                                    Log.i(TAG, "got User Token");
 
                                 }
                             });
@@ -0,0 +1,223 @@
+package com.example.inbloc_app;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.inbloc_app.data.GymRepository;
+import com.example.inbloc_app.data.GymSyncWorker;
+import com.example.inbloc_app.data.TokenProvider;
+import com.example.inbloc_app.data.WriteQueueWorker;
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.RetrofitClient;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Cold start work, kicked off from InBlocApplication.onCreate. Everything that is not needed to
+// draw the first frame runs on STARTUP_THREADS background threads in parallel with the UI:
+// building the OkHttp/Retrofit client, reading the gym list from disk and restoring the Firebase
+// session (including the ID token), then the background sync is scheduled. The login screen is
+// skipped when the last run ended signed in, which is known from a plain SharedPreferences flag
+// without touching Firebase; if the restore then finds no user, the app goes back to the login.
+// Each step is a trace section ("Startup.<step>") and the time to the first gym list is reported
+// with reportFullyDrawn, which is what the :macrobenchmark StartupBenchmark measures.
+public final class StartupPipeline {
+
+    private static final String TAG = "StartupPipeline";
+    private static final String PREFS_NAME = "session";
+    private static final String KEY_SIGNED_IN = "signedIn";
+    private static final String KEY_LAST_RELOAD = "lastReload";
+    private static final int STARTUP_THREADS = 2;
+    // how often the cached Firebase user is checked against the server (disabled, deleted)
+    private static final long RELOAD_INTERVAL_MS = 24 * 60 * 60 * 1000;
+    // time from process start to the first gym list that is logged as too slow
+    static final long FIRST_GYM_LIST_BUDGET_MS = 1500;
+
+    // before API 24 the class loading in Application.onCreate is the closest we get
+    private static final long processStartMs = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+            ? Process.getStartUptimeMillis() : SystemClock.uptimeMillis();
+    private static ExecutorService executor;
+    private static boolean fullyDrawnReported = false;
+
+    private StartupPipeline() {}
+
+    public static synchronized void start(final Context context) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newFixedThreadPool(STARTUP_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setDaemon(true);
+                // below the main thread, startup work must not steal its CPU time
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+        final Context appContext = context.getApplicationContext();
+        // the gym list needs the client, so it runs right after it on the same thread
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                warmNetwork(appContext);
+                warmGymCache(appContext);
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                restoreSession(appContext);
+                scheduleBackgroundWork(appContext);
+            }
+        });
+    }
+
+    // True if the last run ended signed in, cheap enough for the main thread
+    public static boolean hasCachedSession(Context context) {
+        return prefs(context).getBoolean(KEY_SIGNED_IN, false);
+    }
+
+    public static void onSignedIn(Context context) {
+        prefs(context).edit().putBoolean(KEY_SIGNED_IN, true).putLong(KEY_LAST_RELOAD,
+                System.currentTimeMillis()).apply();
+    }
+
+    public static void signOut(Context context) {
+        FirebaseAuth.getInstance().signOut();
+        TokenProvider.getInstance().clear();
+        prefs(context).edit().putBoolean(KEY_SIGNED_IN, false).apply();
+    }
+
+    // Called once the first real gym list is on screen, later calls are ignored
+    public static void reportFirstGymList(Activity activity) {
+        synchronized (StartupPipeline.class) {
+            if (fullyDrawnReported) {
+                return;
+            }
+            fullyDrawnReported = true;
+        }
+        activity.reportFullyDrawn();
+        long elapsed = SystemClock.uptimeMillis() - processStartMs;
+        if (elapsed > FIRST_GYM_LIST_BUDGET_MS) {
+            Log.w(TAG, "First gym list after " + elapsed + " ms, budget is " + FIRST_GYM_LIST_BUDGET_MS + " ms");
+        } else {
+            Log.i(TAG, "First gym list after " + elapsed + " ms");
+        }
+    }
+
+    private static void warmNetwork(Context context) {
+        Trace.beginSection("Startup.warmNetwork");
+        try {
+            RetrofitClient.init(context);
+            ApiUtils.getApiService();
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    // the read itself runs on the repository's executor and traces itself
+    private static void warmGymCache(Context context) {
+        GymRepository.getInstance(context).warmUp();
+    }
+
+    // FirebaseAuth.getInstance reads its persisted state from disk, the token may need the network
+    private static void restoreSession(Context context) {
+        Trace.beginSection("Startup.restoreSession");
+        try {
+            FirebaseAuth auth = FirebaseAuth.getInstance();
+            FirebaseUser user = auth.getCurrentUser();
+            SharedPreferences prefs = prefs(context);
+            if (user == null) {
+                sessionLost(context);
+                return;
+            }
+            prefs.edit().putBoolean(KEY_SIGNED_IN, true).apply();
+            if (System.currentTimeMillis() - prefs.getLong(KEY_LAST_RELOAD, 0) > RELOAD_INTERVAL_MS) {
+                reload(context, auth, user);
+            }
+            try {
+                // the first request then finds a fresh token in memory
+                TokenProvider.getInstance().getToken();
+            } catch (IOException e) {
+                Log.i(TAG, "Could not prefetch ID token " + e);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not restore session", e);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    // Signs the user out locally if the account was disabled or deleted meanwhile. A failure for
+    // any other reason (e.g. offline) keeps the session and tries again on the next start.
+    private static void reload(final Context context, final FirebaseAuth auth, FirebaseUser user) {
+        user.reload().addOnSuccessListener(new OnSuccessListener<Void>() {
+            @Override
+            public void onSuccess(Void unused) {
+                prefs(context).edit().putLong(KEY_LAST_RELOAD, System.currentTimeMillis()).apply();
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception e) {
+                if (auth.getCurrentUser() == null) {
+                    sessionLost(context);
+                } else {
+                    Log.i(TAG, "Could not reload user " + e);
+                }
+            }
+        });
+    }
+
+    // The login was skipped for a session that is gone, send the user back to it
+    private static void sessionLost(final Context context) {
+        SharedPreferences prefs = prefs(context);
+        boolean skippedLogin = prefs.getBoolean(KEY_SIGNED_IN, false);
+        prefs.edit().putBoolean(KEY_SIGNED_IN, false).apply();
+        TokenProvider.getInstance().clear();
+        if (!skippedLogin) {
+            return;
+        }
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                Intent intent = new Intent(context, LoginActivity.class)
+                        .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+                context.startActivity(intent);
+            }
+        });
+    }
+
+    // WorkManager is initialized on demand (see InBlocApplication), this is its first use
+    private static void scheduleBackgroundWork(Context context) {
+        Trace.beginSection("Startup.scheduleBackgroundWork");
+        try {
+            GymSyncWorker.schedule(context);
+            // writes queued before the app was closed
+            WriteQueueWorker.flushWhenOnline(context);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.inbloc_app.adapter;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Decodes the logos shipped as drawables once, scaled down to the size of the list's logo view,
+// on a background thread. get() never decodes on the caller's thread and does not allocate.
+public class BundledLogos {
+
+    public interface Listener {
+        void onLogoReady(int resId);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final Resources resources;
+    private final int targetPx;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // main thread only
+    private final SparseArray<Bitmap> bitmaps = new SparseArray<>();
+    private final SparseBooleanArray pending = new SparseBooleanArray();
+    private Listener listener;
+
+    public BundledLogos(Resources resources, int targetPx) {
+        this.resources = resources;
+        this.targetPx = targetPx;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Returns the scaled logo or null while it is still decoding
+    public Bitmap get(int resId) {
+        Bitmap bitmap = bitmaps.get(resId);
+        if (bitmap == null && !pending.get(resId)) {
+            prefetch(resId);
+        }
+        return bitmap;
+    }
+
+    public void prefetch(final int resId) {
+        if (bitmaps.get(resId) != null || pending.get(resId)) {
+            return;
+        }
+        pending.put(resId, true);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decodeScaled(resources, resId, targetPx);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        pending.delete(resId);
+                        if (bitmap != null) {
+                            bitmaps.put(resId, bitmap);
+                            if (listener != null) {
+                                listener.onLogoReady(resId);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    static Bitmap decodeScaled(Resources resources, int resId, int targetPx) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetPx, targetPx);
+        options.inJustDecodeBounds = false;
+        // density scaling would blow the bitmap up again after subsampling
+        options.inScaled = false;
+        Bitmap sampled = BitmapFactory.decodeResource(resources, resId, options);
+        if (sampled == null) {
+            return null;
+        }
+
+        float scale = Math.min((float) targetPx / sampled.getWidth(), (float) targetPx / sampled.getHeight());
+        if (scale >= 1f) {
+            return sampled;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(sampled, Math.max(1, Math.round(sampled.getWidth() * scale)),
+                Math.max(1, Math.round(sampled.getHeight() * scale)), true);
+        if (scaled != sampled) {
+            sampled.recycle();
+        }
+        return scaled;
+    }
+
+    // Largest power of two that keeps both sides at least as big as the requested size
+    public static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.inbloc_app.adapter;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,42 +12,78 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.example.inbloc_app.Gym;
+import com.example.inbloc_app.Fragments.GymFragment;
 import com.example.inbloc_app.R;
+import com.example.inbloc_app.data.FavoriteGyms;
+import com.example.inbloc_app.data.LogoLoader;
 import com.example.inbloc_app.retrofit.models.Gyms;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class GymsAdapter extends RecyclerView.Adapter<GymsAdapter.ViewHolder> {
+// Backed by one immutable List<Gyms>, updates are diffed on a background thread by ListAdapter
+public class GymsAdapter extends ListAdapter<Gyms, GymsAdapter.ViewHolder> {
+
+    public static final DiffUtil.ItemCallback<Gyms> DIFF_CALLBACK = new DiffUtil.ItemCallback<Gyms>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Gyms oldItem, @NonNull Gyms newItem) {
+            return GymsDiff.sameItem(oldItem, newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Gyms oldItem, @NonNull Gyms newItem) {
+            return GymsDiff.sameContents(oldItem, newItem);
+        }
+    };
+
+    private static final int LOGO_SIZE_DP = 75;
 
     private Context context;
-    private List<Gyms> showGyms = new ArrayList<>();
     public String passGymID;
-    String namesArr[], locsArr[];
-    int images[];
-    Gym g;
+    // logos shipped with the app, keyed by gym name
+    private final Map<String, Integer> bundledLogos = new HashMap<>();
+    // gym id -> stable RecyclerView item id, ids are never reused while the adapter lives
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private FavoriteGyms favorites;
+    private BundledLogos logoBitmaps;
+    private LogoLoader logoLoader;
+    private int logoSizePx;
 
     public GymsAdapter() {
-        super();
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
     }
 
-//    public GymsAdapter(Context context,
-//        this.context = context;
-//        this.showGyms = showGyms;
-//
-//    }
-
+    // Shows the bundled gyms until the real list is submitted
     public GymsAdapter(Context context, String names[], String locs[], int images[]){
-
+        this();
         this.context = context;
-        namesArr = names;
-        locsArr = locs;
-        this.images = images;
+        List<Gyms> bundled = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            Gyms gym = new Gyms();
+            gym.setId(names[i]);
+            gym.setName(names[i]);
+            gym.setCity(locs[i]);
+            bundled.add(gym);
+            bundledLogos.put(names[i], images[i]);
+        }
+        initLogos(context);
+        for (int image : images) {
+            logoBitmaps.prefetch(image);
+        }
+        submitList(Collections.unmodifiableList(bundled));
     }
 
+    // Listeners are created once per holder and look up the bound gym when clicked,
+    // so binding a recycled row allocates nothing. Holders come from a RecycledViewPool shared by
+    // all gym lists, the adapter is therefore looked up at click time instead of kept
     public static class ViewHolder extends RecyclerView.ViewHolder {
 
         public TextView gymName;
@@ -59,6 +97,32 @@ public class GymsAdapter extends RecyclerView.Adapter<GymsAdapter.ViewHolder> {
             gymDescription = itemView.findViewById(R.id.gymslist_description);
             favorite = itemView.findViewById(R.id.gymslist_favorite);
             logo = itemView.findViewById(R.id.gymslist_logo);
+
+            itemView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    int position = getBindingAdapterPosition();
+                    GymsAdapter adapter = (GymsAdapter) getBindingAdapter();
+                    if (position == RecyclerView.NO_POSITION || adapter == null) {
+                        return;
+                    }
+                    Bundle args = new Bundle();
+                    args.putString(GymFragment.ARG_GYM_ID, adapter.getItem(position).getId());
+                    // by destination, the list is shown from both myGyms and search
+                    Navigation.findNavController(view).navigate(R.id.gymFragment, args);
+                }
+            });
+
+            favorite.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    int position = getBindingAdapterPosition();
+                    GymsAdapter adapter = (GymsAdapter) getBindingAdapter();
+                    if (position != RecyclerView.NO_POSITION && adapter != null) {
+                        adapter.toggleFavorite(position);
+                    }
+                }
+            });
         }
     }
 
@@ -66,52 +130,103 @@ public class GymsAdapter extends RecyclerView.Adapter<GymsAdapter.ViewHolder> {
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         context = parent.getContext();
+        initLogos(context);
         return new GymsAdapter.ViewHolder(LayoutInflater.from(context)
         .inflate(R.layout.list_row_gym,parent,false));
     }
 
+    // with a shared pool this adapter may bind holders it never created
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        initLogos(recyclerView.getContext());
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
 
-        holder.gymName.setText(namesArr[position]);
-        holder.gymDescription.setText(locsArr[position]);
-        holder.logo.setImageResource(images[position]);
-        holder.itemView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                Navigation.findNavController(view).navigate(R.id.action_myGyms_to_gymFragment);
-            }
-        });
+        Gyms gyms = getItem(position);
+        holder.gymName.setText(gyms.getName());
+        holder.gymDescription.setText(gyms.getCity());
 
-        holder.favorite.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                holder.favorite.setImageResource(R.drawable.ic_favorite);
+        Integer bundledLogo = bundledLogos.get(gyms.getName());
+        if (bundledLogo == null && logoLoader != null) {
+            logoLoader.load(gyms.getId(), holder.logo, logoSizePx, R.mipmap.ic_launcher);
+        } else {
+            if (logoLoader != null) {
+                logoLoader.cancel(holder.logo);
             }
-        });
-
-//        Gyms gyms = showGyms.get(position);
-//        String gymName = gyms.getName();
-//        String description = gyms.getDescription();
-//
-//        holder.gymName.setText(gymName);
-//        holder.gymDescription.setText(description);
+            Bitmap logo = bundledLogo != null ? logoBitmaps.get(bundledLogo) : null;
+            if (logo != null) {
+                holder.logo.setImageBitmap(logo);
+            } else {
+                // small mipmap placeholder until the scaled logo is decoded
+                holder.logo.setImageResource(R.mipmap.ic_launcher);
+            }
+        }
 
+        holder.favorite.setImageResource(isFavorite(gyms.getId())
+                ? R.drawable.ic_favorite : R.drawable.ic_favorite_border);
     }
 
     @Override
-    public int getItemCount() {
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (logoLoader != null) {
+            logoLoader.cancel(holder.logo);
+        }
+    }
 
-        int len = namesArr.length;
-        return len;
+    // Logos of gyms that are not bundled with the app are only loaded once a loader is set
+    public void setLogoLoader(LogoLoader logoLoader) {
+        this.logoLoader = logoLoader;
     }
 
-    public void setData(List<Gyms> showGyms){
-        this.showGyms = showGyms;
-        notifyDataSetChanged();
+    public boolean isFavorite(String gymId) {
+        return favorites != null && favorites.contains(gymId);
     }
 
-    public Gym getG() {
-        return g;
+    void toggleFavorite(int position) {
+        favorites.toggle(getItem(position).getId());
+        notifyItemChanged(position);
+    }
+
+    private void initLogos(Context context) {
+        if (favorites == null) {
+            favorites = FavoriteGyms.getInstance(context);
+        }
+        if (logoBitmaps != null) {
+            return;
+        }
+        logoSizePx = Math.round(LOGO_SIZE_DP * context.getResources().getDisplayMetrics().density);
+        logoBitmaps = new BundledLogos(context.getResources(), logoSizePx);
+        logoBitmaps.setListener(new BundledLogos.Listener() {
+            @Override
+            public void onLogoReady(int resId) {
+                List<Gyms> current = getCurrentList();
+                for (int i = 0; i < current.size(); i++) {
+                    Integer bundledLogo = bundledLogos.get(current.get(i).getName());
+                    if (bundledLogo != null && bundledLogo == resId) {
+                        notifyItemChanged(i);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String id = getItem(position).getId();
+        Long stableId = stableIds.get(id);
+        if (stableId == null) {
+            stableId = (long) stableIds.size();
+            stableIds.put(id, stableId);
+        }
+        return stableId;
+    }
+
+    // The list must not be modified afterwards, the diff runs against it off the main thread
+    public void setData(List<Gyms> showGyms){
+        submitList(showGyms);
     }
 }
@@ -0,0 +1,30 @@
+package com.example.inbloc_app.adapter;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+// The comparisons behind GymsAdapter.DIFF_CALLBACK. Kept free of Android classes so the
+// benchmark module can measure them on the JVM.
+public final class GymsDiff {
+
+    private GymsDiff() {}
+
+    public static boolean sameItem(Gyms oldItem, Gyms newItem) {
+        return equal(oldItem.getId(), newItem.getId());
+    }
+
+    public static boolean sameContents(Gyms oldItem, Gyms newItem) {
+        return equal(oldItem.getName(), newItem.getName())
+                && equal(oldItem.getCity(), newItem.getCity())
+                && equal(oldItem.getDescription(), newItem.getDescription())
+                && equal(oldItem.getStreet(), newItem.getStreet())
+                && equal(oldItem.getHouseNumber(), newItem.getHouseNumber())
+                && equal(oldItem.getZip(), newItem.getZip())
+                && equal(oldItem.getPhone(), newItem.getPhone())
+                && equal(oldItem.getEmail(), newItem.getEmail())
+                && equal(oldItem.getWebsite(), newItem.getWebsite());
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.inbloc_app.adapter;
+
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.inbloc_app.R;
+import com.example.inbloc_app.data.RoutePagingSource;
+import com.example.inbloc_app.data.StatsStore;
+import com.example.inbloc_app.data.WriteQueue;
+import com.example.inbloc_app.retrofit.models.Route;
+
+// After a failed page a retry row is shown below the routes, tapping it loads the page again
+public class RoutesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements RoutePagingSource.Listener {
+
+    private static final String TAG = "RoutesAdapter";
+    private static final int TYPE_ROUTE = 0;
+    private static final int TYPE_RETRY = 1;
+
+    private final RoutePagingSource source;
+    private boolean showRetry = false;
+    private WriteQueue writeQueue;
+    private StatsStore stats;
+
+    public RoutesAdapter(RoutePagingSource source) {
+        this.source = source;
+        source.setListener(this);
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+
+        public TextView routeName;
+        public TextView features;
+        public TextView difficulty;
+        public CheckBox completed;
+
+        public ViewHolder(@NonNull View itemView, final RoutesAdapter adapter) {
+            super(itemView);
+            routeName = itemView.findViewById(R.id.routeslist_name);
+            features = itemView.findViewById(R.id.routeslist_features);
+            difficulty = itemView.findViewById(R.id.routeslist_difficulty);
+            completed = itemView.findViewById(R.id.routeslist_completed);
+            completed.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        adapter.setCompleted(position, completed.isChecked());
+                    }
+                }
+            });
+        }
+    }
+
+    public static class RetryViewHolder extends RecyclerView.ViewHolder {
+
+        public RetryViewHolder(@NonNull View itemView, final RoutesAdapter adapter) {
+            super(itemView);
+            itemView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    adapter.retry();
+                }
+            });
+        }
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == TYPE_RETRY) {
+            return new RetryViewHolder(LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.list_row_retry, parent, false), this);
+        }
+        if (writeQueue == null) {
+            writeQueue = WriteQueue.getInstance(parent.getContext());
+            stats = StatsStore.getInstance(parent.getContext());
+        }
+        return new RoutesAdapter.ViewHolder(LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.list_row_route, parent, false), this);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return position < source.getItemCount() ? TYPE_ROUTE : TYPE_RETRY;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position) {
+        if (!(viewHolder instanceof ViewHolder)) {
+            return;
+        }
+        ViewHolder holder = (ViewHolder) viewHolder;
+        Route route = source.getItem(position);
+        if (route == null) {
+            // page was evicted and is loading again
+            holder.routeName.setText("...");
+            holder.features.setText("");
+            holder.difficulty.setText("");
+            holder.completed.setEnabled(false);
+            holder.completed.setChecked(false);
+            return;
+        }
+        holder.routeName.setText(route.getId());
+        holder.features.setText(route.getFeatures());
+        holder.difficulty.setText(String.valueOf(route.getDifficulty()));
+        Boolean completed = writeQueue.isCompleted(route.getGymId(), route.getWallId(), route.getId());
+        holder.completed.setEnabled(true);
+        holder.completed.setChecked(completed != null && completed);
+    }
+
+    // Logged right away, the WriteQueue sends it once there is a connection. The stats count it
+    // now as well, with the grade and features the row shows.
+    void setCompleted(int position, boolean completed) {
+        Route route = source.getItem(position);
+        if (route != null) {
+            writeQueue.setCompleted(route.getGymId(), route.getWallId(), route.getId(), completed, false);
+            stats.setCompleted(route, completed, false);
+        }
+    }
+
+    void retry() {
+        if (showRetry) {
+            showRetry = false;
+            notifyItemRemoved(source.getItemCount());
+        }
+        source.retry();
+    }
+
+    @Override
+    public int getItemCount() {
+        return source.getItemCount() + (showRetry ? 1 : 0);
+    }
+
+    @Override
+    public void onItemsAppended(int start, int count) {
+        notifyItemRangeInserted(start, count);
+    }
+
+    @Override
+    public void onItemsReloaded(int start, int count) {
+        notifyItemRangeChanged(start, count);
+    }
+
+    @Override
+    public void onItemsRemoved(int start, int count) {
+        notifyItemRangeRemoved(start, count);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        Log.e(TAG, "Could not load routes", t);
+        if (!showRetry) {
+            showRetry = true;
+            notifyItemInserted(source.getItemCount());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.EnvelopeReader;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+// GET /gyms with the list's ETag, streamed from the envelope without building a tree
+public class ApiGymSource implements GymSource {
+
+    private final ApiService apiService;
+
+    public ApiGymSource(ApiService apiService) {
+        this.apiService = apiService;
+    }
+
+    @Override
+    public Result fetchGyms(String eTag, String startAfter, int limit) throws IOException {
+        Response<ResponseBody> response = apiService.getAllGyms("application/json", eTag, startAfter, limit).execute();
+        try (ResponseBody body = response.isSuccessful() ? response.body() : response.errorBody()) {
+            if (response.code() == 304) {
+                return null;
+            }
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Call unsuccessful " + response.code());
+            }
+            try (JsonReader reader = new JsonReader(body.charStream())) {
+                return new Result(readGyms(reader), response.headers().get("ETag"));
+            }
+        }
+    }
+
+    static List<Gyms> readGyms(JsonReader reader) throws IOException {
+        final List<Gyms> result = new ArrayList<>();
+        EnvelopeReader.read(reader, "gyms", 1, ModelAdapters.GYMS, new EnvelopeReader.Sink<Gyms>() {
+            @Override
+            public void onItem(String[] keys, Gyms gym) {
+                gym.setId(keys[0]);
+                result.add(gym);
+            }
+        });
+        return Collections.unmodifiableList(result);
+    }
+}
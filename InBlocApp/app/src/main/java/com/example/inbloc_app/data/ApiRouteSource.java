@@ -0,0 +1,111 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.DataEnvelopeConverterFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+// GET /walls and the paged GET /routes. cancel() also cancels the call in flight, which frees
+// its NetworkDispatcher permit right away. Routes handed to a chunk listener of the calling
+// thread (see DataEnvelopeConverterFactory) already have their gymId and wallId.
+public class ApiRouteSource implements RouteSource {
+
+    private static final int WALLS_LIMIT = 1000;
+
+    private final ApiService apiService;
+    // requests in flight or waiting for the dispatcher
+    private final Set<Call<?>> calls = Collections.synchronizedSet(new HashSet<Call<?>>());
+    private volatile boolean canceled = false;
+
+    public ApiRouteSource(ApiService apiService) {
+        this.apiService = apiService;
+    }
+
+    @Override
+    public List<String> getWallIds(String gymId) throws IOException {
+        Response<List<Walls>> response = execute(apiService.getWalls("application/json", gymId, WALLS_LIMIT));
+        // 404 means "No walls found"
+        if (!response.isSuccessful() && response.code() != 404) {
+            throw new IOException("Call unsuccessful " + response.code());
+        }
+        List<String> wallIds = new ArrayList<>();
+        if (response.isSuccessful() && response.body() != null) {
+            for (Walls wall : response.body()) {
+                wallIds.add(wall.getId());
+            }
+        }
+        return wallIds;
+    }
+
+    @Override
+    public List<Route> getRoutes(final String gymId, final String wallId, String startAfter, int limit)
+            throws IOException {
+        final DataEnvelopeConverterFactory.ChunkListener listener = DataEnvelopeConverterFactory.getChunkListener();
+        if (listener != null) {
+            DataEnvelopeConverterFactory.setChunkListener(new DataEnvelopeConverterFactory.ChunkListener() {
+                @Override
+                public void onChunk(List<?> items) {
+                    for (Object item : items) {
+                        ((Route) item).setGymId(gymId);
+                        ((Route) item).setWallId(wallId);
+                    }
+                    listener.onChunk(items);
+                }
+            });
+        }
+        Response<List<Route>> response;
+        try {
+            response = execute(apiService.getRoutes("application/json", gymId, wallId, startAfter, limit));
+        } finally {
+            DataEnvelopeConverterFactory.setChunkListener(listener);
+        }
+        // 404 means "No routes found", i.e. this wall has nothing after startAfter
+        if (!response.isSuccessful() && response.code() != 404) {
+            throw new IOException("Call unsuccessful " + response.code());
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            return Collections.emptyList();
+        }
+        List<Route> routes = response.body();
+        if (listener == null) {
+            for (Route route : routes) {
+                route.setGymId(gymId);
+                route.setWallId(wallId);
+            }
+        }
+        return routes;
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+        synchronized (calls) {
+            for (Call<?> call : calls) {
+                call.cancel();
+            }
+        }
+    }
+
+    private <T> Response<T> execute(Call<T> call) throws IOException {
+        calls.add(call);
+        try {
+            if (canceled) {
+                throw new InterruptedIOException("Canceled");
+            }
+            return call.execute();
+        } finally {
+            calls.remove(call);
+        }
+    }
+}
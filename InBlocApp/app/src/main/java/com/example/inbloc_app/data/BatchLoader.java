@@ -0,0 +1,140 @@
+package com.example.inbloc_app.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces detail lookups by key. A key that is already requested or in flight gets the running
+// request's result instead of a new one, and keys requested within windowMs of each other are
+// fetched together with one multi-id call (at most maxBatch keys per call). Results are fanned out
+// to every caller on the callback executor. Nothing is cached once a fetch completed.
+public class BatchLoader<V> {
+
+    public interface Fetcher<V> {
+        // Loads all keys at once. Keys missing from the returned map do not exist.
+        Map<String, V> fetch(List<String> keys) throws IOException;
+    }
+
+    public interface Callback<V> {
+        // value is null if the key does not exist
+        void onLoaded(String key, V value);
+
+        void onError(String key, Throwable t);
+    }
+
+    private final Fetcher<V> fetcher;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+    private final long windowMs;
+    private final int maxBatch;
+
+    private final Object lock = new Object();
+    // keys waiting for the window to close, in request order
+    private Map<String, List<Callback<V>>> pending = new LinkedHashMap<>();
+    private final Map<String, List<Callback<V>>> inFlight = new HashMap<>();
+    private int fetchCount = 0;
+
+    // scheduler runs the window timer and the fetches, callbackExecutor delivers the results
+    public BatchLoader(Fetcher<V> fetcher, ScheduledExecutorService scheduler, Executor callbackExecutor,
+                       long windowMs, int maxBatch) {
+        this.fetcher = fetcher;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.windowMs = windowMs;
+        this.maxBatch = maxBatch;
+    }
+
+    public void load(String key, Callback<V> callback) {
+        synchronized (lock) {
+            List<Callback<V>> running = inFlight.get(key);
+            if (running != null) {
+                running.add(callback);
+                return;
+            }
+            List<Callback<V>> waiting = pending.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>(1);
+            waiting.add(callback);
+            pending.put(key, waiting);
+            if (pending.size() >= maxBatch) {
+                dispatchPending();
+            } else if (pending.size() == 1) {
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (lock) {
+                            dispatchPending();
+                        }
+                    }
+                }, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Number of fetches started so far, for tests and metrics
+    public int getFetchCount() {
+        synchronized (lock) {
+            return fetchCount;
+        }
+    }
+
+    // holds lock. A timer firing after a full batch was dispatched early finds nothing or a
+    // younger batch, which then simply goes out a bit sooner.
+    private void dispatchPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final Map<String, List<Callback<V>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        inFlight.putAll(batch);
+        fetchCount++;
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<String, V> result = null;
+                Throwable error = null;
+                try {
+                    result = fetcher.fetch(Collections.unmodifiableList(new ArrayList<>(batch.keySet())));
+                } catch (IOException | RuntimeException e) {
+                    error = e;
+                }
+                complete(batch, result, error);
+            }
+        });
+    }
+
+    private void complete(Map<String, List<Callback<V>>> batch, final Map<String, V> result, final Throwable error) {
+        for (final String key : batch.keySet()) {
+            final List<Callback<V>> callbacks;
+            synchronized (lock) {
+                // callers that joined while the fetch ran were added to this same list
+                callbacks = inFlight.remove(key);
+            }
+            if (callbacks == null) {
+                continue;
+            }
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (Callback<V> callback : callbacks) {
+                        if (error != null) {
+                            callback.onError(key, error);
+                        } else {
+                            callback.onLoaded(key, result != null ? result.get(key) : null);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.RouteFeature;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The user's climbing statistics, kept up to date one completion at a time instead of being
+// computed from the route history whenever the stats screen opens. Every completed route is one
+// slot in a set of parallel primitive arrays; the counters (grade pyramid, flashes, sends per
+// route feature, per gym and wall, sends per week) are adjusted by each change in O(1), and a
+// Summary copies them out for rendering.
+// Difficulties are the index into the gym's grade list, the last bucket takes everything above.
+// Not thread safe, StatsStore owns the instance.
+public final class ClimbStats {
+
+    public static final int DIFFICULTIES = 16;
+    // weeks of progress kept, older completions only count in the totals
+    public static final int WEEKS = 26;
+    // names of the RouteFeature bits, sendsByFeature is in this order
+    public static final String[] FEATURES = RouteFeature.names();
+
+    private static final int VERSION = 1;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int FLASHED = 1;
+
+    // one slot per completed route, a removed slot is filled with the last one
+    private final Map<String, Integer> slotByRoute = new HashMap<>();
+    private String[] routeKeys = new String[16];
+    private int[] gymOf = new int[16];
+    private int[] wallOf = new int[16];
+    private int[] difficultyOf = new int[16];
+    private int[] featuresOf = new int[16];
+    private int[] flagsOf = new int[16];
+    private long[] timeOf = new long[16];
+    private int size = 0;
+
+    // gym and wall ids are interned to dense indexes for the per-gym and per-wall counters
+    private final Map<String, Integer> gymIndex = new LinkedHashMap<>();
+    private final Map<String, Integer> wallIndex = new HashMap<>();
+    private int[] sendsByGym = new int[4];
+    private int[] sendsByWall = new int[16];
+    // DIFFICULTIES buckets per gym, gym after gym
+    private int[] pyramidByGym = new int[4 * DIFFICULTIES];
+
+    private int flashes = 0;
+    private long difficultySum = 0;
+    private final int[] pyramid = new int[DIFFICULTIES];
+    private final int[] flashPyramid = new int[DIFFICULTIES];
+    private final int[] sendsByFeature = new int[FEATURES.length];
+    // ring of the last WEEKS weeks, newestWeek is in slot newestWeek % WEEKS
+    private final int[] sendsByWeek = new int[WEEKS];
+    private final long[] difficultyByWeek = new long[WEEKS];
+    private long newestWeek = Long.MIN_VALUE;
+
+    // Returns false if the route was already completed
+    public boolean complete(String routeKey, String gymId, String wallId, int difficulty, String features,
+                            boolean flashed, long timeMs) {
+        return complete(routeKey, gymId, wallId, difficulty, RouteFeature.mask(features), flashed, timeMs);
+    }
+
+    // features as RouteFeature bits, Route.getFeatureMask()
+    public boolean complete(String routeKey, String gymId, String wallId, int difficulty, int features,
+                            boolean flashed, long timeMs) {
+        return add(routeKey, gymId, wallId, bucket(difficulty), features, flashed ? FLASHED : 0, timeMs);
+    }
+
+    private boolean add(String routeKey, String gymId, String wallId, int difficulty, int features, int flags,
+                        long timeMs) {
+        if (slotByRoute.containsKey(routeKey)) {
+            return false;
+        }
+        if (size == routeKeys.length) {
+            grow(size * 2);
+        }
+        int slot = size++;
+        slotByRoute.put(routeKey, slot);
+        routeKeys[slot] = routeKey;
+        gymOf[slot] = intern(gymIndex, gymId);
+        wallOf[slot] = intern(wallIndex, wallId);
+        difficultyOf[slot] = difficulty;
+        featuresOf[slot] = features;
+        flagsOf[slot] = flags;
+        timeOf[slot] = timeMs;
+        ensureGyms(gymIndex.size());
+        ensureWalls(wallIndex.size());
+        advanceTo(week(timeMs));
+        count(slot, 1);
+        return true;
+    }
+
+    // Returns false if the route was not completed
+    public boolean uncomplete(String routeKey) {
+        Integer slot = slotByRoute.remove(routeKey);
+        if (slot == null) {
+            return false;
+        }
+        count(slot, -1);
+        int last = --size;
+        if (slot != last) {
+            routeKeys[slot] = routeKeys[last];
+            gymOf[slot] = gymOf[last];
+            wallOf[slot] = wallOf[last];
+            difficultyOf[slot] = difficultyOf[last];
+            featuresOf[slot] = featuresOf[last];
+            flagsOf[slot] = flagsOf[last];
+            timeOf[slot] = timeOf[last];
+            slotByRoute.put(routeKeys[slot], slot);
+        }
+        routeKeys[last] = null;
+        return true;
+    }
+
+    // A sync brought a newer copy of a route, e.g. the setter regraded it. Returns false if the
+    // user never completed it or nothing that is counted changed.
+    public boolean routeChanged(String routeKey, int difficulty, String features) {
+        return routeChanged(routeKey, difficulty, RouteFeature.mask(features));
+    }
+
+    public boolean routeChanged(String routeKey, int difficulty, int mask) {
+        Integer slot = slotByRoute.get(routeKey);
+        if (slot == null) {
+            return false;
+        }
+        int bucket = bucket(difficulty);
+        if (difficultyOf[slot] == bucket && featuresOf[slot] == mask) {
+            return false;
+        }
+        count(slot, -1);
+        difficultyOf[slot] = bucket;
+        featuresOf[slot] = mask;
+        count(slot, 1);
+        return true;
+    }
+
+    public boolean isCompleted(String routeKey) {
+        return slotByRoute.containsKey(routeKey);
+    }
+
+    public int getCompleted() {
+        return size;
+    }
+
+    // Adds or takes away one slot from every counter it falls into
+    private void count(int slot, int delta) {
+        int difficulty = difficultyOf[slot];
+        boolean flashed = (flagsOf[slot] & FLASHED) != 0;
+        difficultySum += delta * difficulty;
+        pyramid[difficulty] += delta;
+        if (flashed) {
+            flashes += delta;
+            flashPyramid[difficulty] += delta;
+        }
+        for (int mask = featuresOf[slot]; mask != 0; mask &= mask - 1) {
+            sendsByFeature[Integer.numberOfTrailingZeros(mask)] += delta;
+        }
+        sendsByGym[gymOf[slot]] += delta;
+        pyramidByGym[gymOf[slot] * DIFFICULTIES + difficulty] += delta;
+        sendsByWall[wallOf[slot]] += delta;
+        long week = week(timeOf[slot]);
+        if (week <= newestWeek && week > newestWeek - WEEKS) {
+            int ring = ring(week);
+            sendsByWeek[ring] += delta;
+            difficultyByWeek[ring] += delta * difficulty;
+        }
+    }
+
+    // Moves the ring forward, clearing the weeks it skips over
+    private void advanceTo(long week) {
+        if (week <= newestWeek) {
+            return;
+        }
+        long from = newestWeek == Long.MIN_VALUE ? week - WEEKS : Math.max(newestWeek, week - WEEKS);
+        for (long w = from + 1; w <= week; w++) {
+            int ring = ring(w);
+            sendsByWeek[ring] = 0;
+            difficultyByWeek[ring] = 0;
+        }
+        newestWeek = week;
+    }
+
+    // Weeks start on Monday (UTC), the epoch was a Thursday
+    static long week(long timeMs) {
+        return (timeMs / DAY_MS + 3) / 7;
+    }
+
+    private static int ring(long week) {
+        return (int) (week % WEEKS);
+    }
+
+    private static int bucket(int difficulty) {
+        return Math.max(0, Math.min(difficulty, DIFFICULTIES - 1));
+    }
+
+    private static int intern(Map<String, Integer> index, String id) {
+        String key = id != null ? id : "";
+        Integer existing = index.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int next = index.size();
+        index.put(key, next);
+        return next;
+    }
+
+    private void grow(int capacity) {
+        routeKeys = Arrays.copyOf(routeKeys, capacity);
+        gymOf = Arrays.copyOf(gymOf, capacity);
+        wallOf = Arrays.copyOf(wallOf, capacity);
+        difficultyOf = Arrays.copyOf(difficultyOf, capacity);
+        featuresOf = Arrays.copyOf(featuresOf, capacity);
+        flagsOf = Arrays.copyOf(flagsOf, capacity);
+        timeOf = Arrays.copyOf(timeOf, capacity);
+    }
+
+    private void ensureGyms(int count) {
+        if (count > sendsByGym.length) {
+            sendsByGym = Arrays.copyOf(sendsByGym, count * 2);
+            pyramidByGym = Arrays.copyOf(pyramidByGym, count * 2 * DIFFICULTIES);
+        }
+    }
+
+    private void ensureWalls(int count) {
+        if (count > sendsByWall.length) {
+            sendsByWall = Arrays.copyOf(sendsByWall, count * 2);
+        }
+    }
+
+    // What the stats screen shows, copied out of the counters
+    public static final class Summary {
+        public final int completed;
+        public final int flashes;
+        public final double avgDifficulty;
+        public final int[] pyramid;
+        public final int[] flashPyramid;
+        // indexed like FEATURES
+        public final int[] sendsByFeature;
+        // gym id to sends, in the order the gyms were first climbed at
+        public final Map<String, Integer> sendsByGym;
+        // oldest week first, the last one is the week of nowMs
+        public final int[] sendsByWeek;
+        public final double[] avgDifficultyByWeek;
+
+        Summary(int completed, int flashes, double avgDifficulty, int[] pyramid, int[] flashPyramid,
+                int[] sendsByFeature, Map<String, Integer> sendsByGym, int[] sendsByWeek,
+                double[] avgDifficultyByWeek) {
+            this.completed = completed;
+            this.flashes = flashes;
+            this.avgDifficulty = avgDifficulty;
+            this.pyramid = pyramid;
+            this.flashPyramid = flashPyramid;
+            this.sendsByFeature = sendsByFeature;
+            this.sendsByGym = sendsByGym;
+            this.sendsByWeek = sendsByWeek;
+            this.avgDifficultyByWeek = avgDifficultyByWeek;
+        }
+    }
+
+    public Summary summarize(long nowMs) {
+        Map<String, Integer> gyms = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : gymIndex.entrySet()) {
+            int sends = sendsByGym[entry.getValue()];
+            if (sends > 0) {
+                gyms.put(entry.getKey(), sends);
+            }
+        }
+        long now = week(nowMs);
+        int[] weeks = new int[WEEKS];
+        double[] averages = new double[WEEKS];
+        for (int i = 0; i < WEEKS; i++) {
+            long week = now - (WEEKS - 1) + i;
+            if (week <= newestWeek && week > newestWeek - WEEKS) {
+                int ring = ring(week);
+                weeks[i] = sendsByWeek[ring];
+                averages[i] = weeks[i] > 0 ? (double) difficultyByWeek[ring] / weeks[i] : 0;
+            }
+        }
+        return new Summary(size, flashes, size > 0 ? (double) difficultySum / size : 0,
+                pyramid.clone(), flashPyramid.clone(), sendsByFeature.clone(), gyms, weeks, averages);
+    }
+
+    // Grade pyramid of one gym, zeros if the user never climbed there
+    public int[] getPyramid(String gymId) {
+        Integer gym = gymIndex.get(gymId);
+        int[] result = new int[DIFFICULTIES];
+        if (gym != null) {
+            System.arraycopy(pyramidByGym, gym * DIFFICULTIES, result, 0, DIFFICULTIES);
+        }
+        return result;
+    }
+
+    public int getSendsOnWall(String wallId) {
+        Integer wall = wallIndex.get(wallId);
+        return wall != null ? sendsByWall[wall] : 0;
+    }
+
+    // Only the completions are stored, the counters are rebuilt from them on read
+    public void writeTo(DataOutputStream out) throws IOException {
+        String[] gymIds = ids(gymIndex);
+        String[] wallIds = ids(wallIndex);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+        for (int slot = 0; slot < size; slot++) {
+            out.writeUTF(routeKeys[slot]);
+            out.writeUTF(gymIds[gymOf[slot]]);
+            out.writeUTF(wallIds[wallOf[slot]]);
+            out.writeByte(difficultyOf[slot]);
+            out.writeInt(featuresOf[slot]);
+            out.writeByte(flagsOf[slot]);
+            out.writeLong(timeOf[slot]);
+        }
+    }
+
+    public static ClimbStats readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != VERSION) {
+            throw new IOException("Unknown stats version");
+        }
+        ClimbStats stats = new ClimbStats();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            stats.add(in.readUTF(), in.readUTF(), in.readUTF(), bucket(in.readByte()), in.readInt(),
+                    in.readByte(), in.readLong());
+        }
+        return stats;
+    }
+
+    private static String[] ids(Map<String, Integer> index) {
+        String[] ids = new String[index.size()];
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            ids[entry.getValue()] = entry.getKey();
+        }
+        return ids;
+    }
+}
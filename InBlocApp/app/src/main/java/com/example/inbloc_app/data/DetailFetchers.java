@@ -0,0 +1,118 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Response;
+
+// BatchLoader fetchers for gym and wall details. A batch of one uses the detail endpoint,
+// anything larger one ids= call.
+public final class DetailFetchers {
+
+    private DetailFetchers() {}
+
+    // wall keys combine both ids, a wall only exists inside its gym
+    public static String wallKey(String gymId, String wallId) {
+        return gymId + "/" + wallId;
+    }
+
+    public static BatchLoader.Fetcher<Gyms> gyms(final ApiService apiService) {
+        return new BatchLoader.Fetcher<Gyms>() {
+            @Override
+            public Map<String, Gyms> fetch(List<String> gymIds) throws IOException {
+                Map<String, Gyms> result = new HashMap<>();
+                if (gymIds.size() == 1) {
+                    String gymId = gymIds.get(0);
+                    Gyms gym = body(apiService.getGym("application/json", gymId).execute());
+                    if (gym != null) {
+                        gym.setId(gymId);
+                        result.put(gymId, gym);
+                    }
+                    return result;
+                }
+                List<Gyms> gyms = body(apiService.getGyms("application/json", join(gymIds)).execute());
+                if (gyms != null) {
+                    for (Gyms gym : gyms) {
+                        result.put(gym.getId(), gym);
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    public static BatchLoader.Fetcher<Walls> walls(final ApiService apiService) {
+        return new BatchLoader.Fetcher<Walls>() {
+            @Override
+            public Map<String, Walls> fetch(List<String> keys) throws IOException {
+                // the backend batches per gym
+                Map<String, List<String>> wallIdsByGym = new LinkedHashMap<>();
+                for (String key : keys) {
+                    int slash = key.indexOf('/');
+                    String gymId = key.substring(0, slash);
+                    List<String> wallIds = wallIdsByGym.get(gymId);
+                    if (wallIds == null) {
+                        wallIds = new ArrayList<>();
+                        wallIdsByGym.put(gymId, wallIds);
+                    }
+                    wallIds.add(key.substring(slash + 1));
+                }
+
+                Map<String, Walls> result = new HashMap<>();
+                for (Map.Entry<String, List<String>> entry : wallIdsByGym.entrySet()) {
+                    String gymId = entry.getKey();
+                    List<String> wallIds = entry.getValue();
+                    List<Walls> walls = new ArrayList<>();
+                    if (wallIds.size() == 1) {
+                        Walls wall = body(apiService.getWall("application/json", wallIds.get(0), gymId).execute());
+                        if (wall != null) {
+                            wall.setId(wallIds.get(0));
+                            walls.add(wall);
+                        }
+                    } else {
+                        List<Walls> batch = body(apiService.getWallsByIds("application/json", gymId,
+                                join(wallIds)).execute());
+                        if (batch != null) {
+                            walls.addAll(batch);
+                        }
+                    }
+                    for (Walls wall : walls) {
+                        wall.setGymId(gymId);
+                        result.put(wallKey(gymId, wall.getId()), wall);
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    // null for 404, the backend's answer for ids that do not exist
+    private static <T> T body(Response<T> response) throws IOException {
+        if (response.code() == 404) {
+            return null;
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("Call unsuccessful " + response.code());
+        }
+        return response.body();
+    }
+
+    private static String join(List<String> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (String id : ids) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+}
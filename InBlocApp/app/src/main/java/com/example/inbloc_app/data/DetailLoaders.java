@@ -0,0 +1,62 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.RetrofitClient;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// App-wide coalescing loaders for gym and wall details, callbacks arrive on the main thread.
+// Screens opening together (e.g. a list and a detail fragment) share their requests.
+public class DetailLoaders {
+
+    // long enough to catch the binds of one RecyclerView layout pass, short enough to go unnoticed
+    private static final long BATCH_WINDOW_MS = 16;
+    private static final int MAX_BATCH = 100;
+
+    private static DetailLoaders instance;
+
+    private final BatchLoader<Gyms> gyms;
+    private final BatchLoader<Walls> walls;
+
+    public static synchronized DetailLoaders getInstance(Context context) {
+        if (instance == null) {
+            RetrofitClient.init(context);
+            instance = new DetailLoaders(ApiUtils.getApiService());
+        }
+        return instance;
+    }
+
+    private DetailLoaders(ApiService apiService) {
+        // two threads, so the timer of the next window is not stuck behind a running fetch
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        Executor mainExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mainHandler.post(command);
+            }
+        };
+        gyms = new BatchLoader<>(DetailFetchers.gyms(apiService), scheduler, mainExecutor,
+                BATCH_WINDOW_MS, MAX_BATCH);
+        walls = new BatchLoader<>(DetailFetchers.walls(apiService), scheduler, mainExecutor,
+                BATCH_WINDOW_MS, MAX_BATCH);
+    }
+
+    public BatchLoader<Gyms> gyms() {
+        return gyms;
+    }
+
+    // keys are DetailFetchers.wallKey(gymId, wallId)
+    public BatchLoader<Walls> walls() {
+        return walls;
+    }
+}
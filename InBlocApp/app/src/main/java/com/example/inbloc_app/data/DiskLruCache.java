@@ -0,0 +1,102 @@
+package com.example.inbloc_app.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Byte-bounded file cache, least recently used files are deleted first. Recency survives restarts
+// through the files' lastModified time.
+public class DiskLruCache {
+
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, File> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    public DiskLruCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        directory.mkdirs();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            entries.put(file.getName(), file);
+            size += file.length();
+        }
+    }
+
+    public synchronized File get(String key) {
+        File file = entries.get(fileName(key));
+        if (file == null) {
+            return null;
+        }
+        if (!file.exists()) {
+            entries.remove(file.getName());
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    public synchronized File put(String key, byte[] data) throws IOException {
+        String name = fileName(key);
+        File file = new File(directory, name);
+        File tmp = new File(directory, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+        }
+        File old = entries.remove(name);
+        if (old != null) {
+            size -= old.length();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not move " + tmp + " into the cache");
+        }
+        entries.put(name, file);
+        size += file.length();
+        trimToSize();
+        return file;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, File>> iterator = entries.entrySet().iterator();
+        while (size > maxBytes && iterator.hasNext()) {
+            File eldest = iterator.next().getValue();
+            size -= eldest.length();
+            eldest.delete();
+            iterator.remove();
+        }
+    }
+
+    // Firebase keys are mostly file-name safe already, anything else becomes '_'
+    private static String fileName(String key) {
+        StringBuilder sb = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+// The gyms the user marked as favourite. The backend has no favourites yet, so they live in
+// SharedPreferences on this device; they decide which gyms GymSyncWorker keeps offline.
+// Reads are served from an in-memory copy.
+public class FavoriteGyms {
+
+    private static final String PREFS_NAME = "favorite_gyms";
+    private static final String KEY_IDS = "ids";
+
+    private static FavoriteGyms instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Set<String> ids;
+
+    public static synchronized FavoriteGyms getInstance(Context context) {
+        if (instance == null) {
+            instance = new FavoriteGyms(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FavoriteGyms(Context context) {
+        this.context = context;
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        // the returned set must not be modified, copy it
+        ids = new HashSet<>(prefs.getStringSet(KEY_IDS, Collections.<String>emptySet()));
+    }
+
+    public synchronized boolean contains(String gymId) {
+        return ids.contains(gymId);
+    }
+
+    // A copy, safe to hand to other threads
+    public synchronized Set<String> getIds() {
+        return new HashSet<>(ids);
+    }
+
+    // Returns the new state. A new favourite is synced right away instead of at the next periodic run.
+    public synchronized boolean toggle(String gymId) {
+        boolean added = ids.add(gymId);
+        if (!added) {
+            ids.remove(gymId);
+        }
+        prefs.edit().putStringSet(KEY_IDS, new HashSet<>(ids)).apply();
+        if (added) {
+            GymSyncWorker.syncNow(context);
+        }
+        return added;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.inbloc_app.data;
+
+import java.util.Arrays;
+
+// Immutable k-d tree over gym coordinates for "near me" queries. Points are stored as unit
+// vectors on the sphere, so the straight-line (chord) distance orders them exactly like the
+// distance along the earth's surface and there is no special case at the poles or the date line.
+// The tree lives in flat primitive arrays: the median of every range is its node, the halves
+// before and after it are its children.
+public final class GeoIndex {
+
+    static final double EARTH_RADIUS_M = 6371008.8;
+
+    private final String[] ids;
+    // x, y, z of point i at 3 * i, in tree order
+    private final double[] points;
+
+    public static final class Result {
+        public final String[] ids;
+        // along the surface, ascending
+        public final double[] distancesM;
+
+        Result(String[] ids, double[] distancesM) {
+            this.ids = ids;
+            this.distancesM = distancesM;
+        }
+    }
+
+    // Ids and coordinates in degrees, all of the same length
+    public GeoIndex(String[] ids, double[] latitudes, double[] longitudes) {
+        int n = ids.length;
+        this.ids = ids.clone();
+        points = new double[3 * n];
+        for (int i = 0; i < n; i++) {
+            toVector(latitudes[i], longitudes[i], points, 3 * i);
+        }
+        build(0, n, 0);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // The k gyms closest to the point no further than maxM meters, closest first
+    public Result nearest(double latitude, double longitude, int k, double maxM) {
+        Search search = new Search(latitude, longitude, Math.min(k, ids.length), maxM);
+        search.nearest(0, ids.length, 0);
+        return search.result();
+    }
+
+    // Every gym within radiusM meters, closest first
+    public Result within(double latitude, double longitude, double radiusM) {
+        Search search = new Search(latitude, longitude, -1, radiusM);
+        search.nearest(0, ids.length, 0);
+        return search.result();
+    }
+
+    // Along the surface, for lists too short for an index
+    public static double distanceM(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double[] v = new double[6];
+        toVector(latitude1, longitude1, v, 0);
+        toVector(latitude2, longitude2, v, 3);
+        double dx = v[0] - v[3];
+        double dy = v[1] - v[4];
+        double dz = v[2] - v[5];
+        return meters(dx * dx + dy * dy + dz * dz);
+    }
+
+    private static void toVector(double latitude, double longitude, double[] out, int at) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        out[at] = Math.cos(lat) * Math.cos(lon);
+        out[at + 1] = Math.cos(lat) * Math.sin(lon);
+        out[at + 2] = Math.sin(lat);
+    }
+
+    // Squared chord on the unit sphere of a surface distance and back
+    static double chord2(double meters) {
+        double half = Math.min(meters / EARTH_RADIUS_M, Math.PI) / 2;
+        double chord = 2 * Math.sin(half);
+        return chord * chord;
+    }
+
+    static double meters(double chord2) {
+        return 2 * Math.asin(Math.min(1, Math.sqrt(chord2) / 2)) * EARTH_RADIUS_M;
+    }
+
+    // Puts the median of [from, to) along axis in the middle and recurses into both halves
+    private void build(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, axis);
+        int next = (axis + 1) % 3;
+        build(from, mid, next);
+        build(mid + 1, to, next);
+    }
+
+    // Quickselect: afterwards k holds the element that sorts there, smaller ones before it
+    private void select(int left, int right, int k, int axis) {
+        while (right > left) {
+            double pivot = points[3 * ((left + right) >>> 1) + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (points[3 * i + axis] < pivot) {
+                    i++;
+                }
+                while (points[3 * j + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        String id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (int c = 0; c < 3; c++) {
+            double v = points[3 * a + c];
+            points[3 * a + c] = points[3 * b + c];
+            points[3 * b + c] = v;
+        }
+    }
+
+    // One query: the best k so far in a max-heap on the squared chord. Without a k (-1) every
+    // point within the limit is collected and only ordered at the end.
+    private final class Search {
+        private final double x, y, z;
+        private final int k;
+        private double limit2;
+        private int[] heap;
+        private double[] heapD2;
+        private int size = 0;
+
+        Search(double latitude, double longitude, int k, double maxM) {
+            double[] v = new double[3];
+            toVector(latitude, longitude, v, 0);
+            x = v[0];
+            y = v[1];
+            z = v[2];
+            this.k = k;
+            limit2 = chord2(maxM);
+            heap = new int[k >= 0 ? k : 16];
+            heapD2 = new double[heap.length];
+        }
+
+        void nearest(int from, int to, int axis) {
+            if (from >= to || k == 0) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            double dx = points[3 * mid] - x;
+            double dy = points[3 * mid + 1] - y;
+            double dz = points[3 * mid + 2] - z;
+            double d2 = dx * dx + dy * dy + dz * dz;
+            if (d2 <= limit2) {
+                offer(mid, d2);
+            }
+            double diff = (axis == 0 ? x : axis == 1 ? y : z) - points[3 * mid + axis];
+            int next = (axis + 1) % 3;
+            // the side the point is on first, the other only if it can still hold something closer
+            if (diff < 0) {
+                nearest(from, mid, next);
+                if (diff * diff <= limit2) {
+                    nearest(mid + 1, to, next);
+                }
+            } else {
+                nearest(mid + 1, to, next);
+                if (diff * diff <= limit2) {
+                    nearest(from, mid, next);
+                }
+            }
+        }
+
+        private void offer(int point, double d2) {
+            if (k < 0) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, size * 2);
+                    heapD2 = Arrays.copyOf(heapD2, size * 2);
+                }
+                heap[size] = point;
+                heapD2[size++] = d2;
+            } else if (size < k) {
+                heap[size] = point;
+                heapD2[size] = d2;
+                siftUp(size++);
+                if (size == k) {
+                    limit2 = Math.min(limit2, heapD2[0]);
+                }
+            } else if (d2 < heapD2[0]) {
+                heap[0] = point;
+                heapD2[0] = d2;
+                siftDown(0);
+                limit2 = heapD2[0];
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (heapD2[parent] >= heapD2[i]) {
+                    return;
+                }
+                exchange(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                if (left < size && heapD2[left] > heapD2[largest]) {
+                    largest = left;
+                }
+                if (left + 1 < size && heapD2[left + 1] > heapD2[largest]) {
+                    largest = left + 1;
+                }
+                if (largest == i) {
+                    return;
+                }
+                exchange(i, largest);
+                i = largest;
+            }
+        }
+
+        private void exchange(int a, int b) {
+            int point = heap[a];
+            heap[a] = heap[b];
+            heap[b] = point;
+            double d2 = heapD2[a];
+            heapD2[a] = heapD2[b];
+            heapD2[b] = d2;
+        }
+
+        // Empties the heap from the back, which leaves the closest first
+        Result result() {
+            if (k < 0) {
+                for (int i = size / 2 - 1; i >= 0; i--) {
+                    siftDown(i);
+                }
+            }
+            String[] foundIds = new String[size];
+            double[] distances = new double[size];
+            for (int i = size - 1; i >= 0; i--) {
+                foundIds[i] = ids[heap[0]];
+                distances[i] = meters(heapD2[0]);
+                size--;
+                heap[0] = heap[size];
+                heapD2[0] = heapD2[size];
+                siftDown(0);
+            }
+            return new Result(foundIds, distances);
+        }
+    }
+}
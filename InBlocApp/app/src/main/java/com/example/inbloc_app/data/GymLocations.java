@@ -0,0 +1,270 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Coordinates of the gyms, which the backend only knows by their address. Each address is
+// geocoded once and the result kept on disk together with the address it came from, so a gym
+// is only looked up again when its address changes (or, if it was not found, after a day).
+// The coordinates are served from a GeoIndex that is rebuilt whenever they change.
+public class GymLocations {
+
+    private static final String TAG = "GymLocations";
+    private static final String LOCATIONS_FILE = "gym_locations.bin";
+    private static final int VERSION = 1;
+    private static final long RETRY_MS = 24 * 60 * 60 * 1000;
+    private static final int PUBLISH_EVERY = 20;
+
+    public interface Listener {
+        // main thread
+        void onLocationsChanged();
+    }
+
+    private static final class Entry {
+        final String address;
+        // NaN if the address could not be found
+        final double latitude;
+        final double longitude;
+        final long geocodedAt;
+
+        Entry(String address, double latitude, double longitude, long geocodedAt) {
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.geocodedAt = geocodedAt;
+        }
+
+        boolean isFound() {
+            return !Double.isNaN(latitude);
+        }
+    }
+
+    private static GymLocations instance;
+
+    private final Context context;
+    private final File file;
+    // geocoding is slow and rate limited, one gym at a time
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // executor only
+    private Map<String, Entry> entries;
+    private volatile GeoIndex index = new GeoIndex(new String[0], new double[0], new double[0]);
+    private volatile Map<String, double[]> coordinates = new HashMap<>();
+
+    public static synchronized GymLocations getInstance(Context context) {
+        if (instance == null) {
+            instance = new GymLocations(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GymLocations(Context context) {
+        this.context = context;
+        file = new File(context.getFilesDir(), LOCATIONS_FILE);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                entries = load();
+                publish();
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Gyms that could be placed, a new instance after every change
+    public GeoIndex getIndex() {
+        return index;
+    }
+
+    // {latitude, longitude}, null if the gym was not placed (yet)
+    public double[] getCoordinates(String gymId) {
+        return coordinates.get(gymId);
+    }
+
+    // Geocodes what is new or changed in this list of all gyms, and forgets gyms no longer in it
+    public void update(final List<Gyms> gyms) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Set<String> listed = new HashSet<>();
+                Geocoder geocoder = Geocoder.isPresent() ? new Geocoder(context, Locale.GERMANY) : null;
+                long now = System.currentTimeMillis();
+                int geocoded = 0;
+                for (Gyms gym : gyms) {
+                    String address = address(gym);
+                    if (gym.getId() == null || address == null) {
+                        continue;
+                    }
+                    listed.add(gym.getId());
+                    Entry entry = entries.get(gym.getId());
+                    boolean stale = entry == null || !entry.address.equals(address)
+                            || (!entry.isFound() && now - entry.geocodedAt > RETRY_MS);
+                    Entry looked = stale && geocoder != null ? geocode(geocoder, address, now) : null;
+                    if (looked != null) {
+                        entries.put(gym.getId(), looked);
+                        // the first run takes a while, show what is placed so far
+                        if (++geocoded % PUBLISH_EVERY == 0) {
+                            save();
+                            publish();
+                        }
+                    }
+                }
+                boolean removed = entries.keySet().retainAll(listed);
+                if (geocoded % PUBLISH_EVERY != 0 || removed) {
+                    save();
+                    publish();
+                }
+            }
+        });
+    }
+
+    // "Street 12, 33602 Bielefeld", null without a city or zip to go by
+    static String address(Gyms gym) {
+        if (isEmpty(gym.getCity()) && isEmpty(gym.getZip())) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        if (!isEmpty(gym.getStreet())) {
+            sb.append(gym.getStreet().trim());
+            if (!isEmpty(gym.getHouseNumber())) {
+                sb.append(' ').append(gym.getHouseNumber().trim());
+            }
+            sb.append(", ");
+        }
+        if (!isEmpty(gym.getZip())) {
+            sb.append(gym.getZip().trim()).append(' ');
+        }
+        if (!isEmpty(gym.getCity())) {
+            sb.append(gym.getCity().trim());
+        }
+        return sb.toString().trim();
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    // executor. An address that cannot be found is remembered as such and tried again after
+    // RETRY_MS; null if the geocoder could not be reached, the next update asks again.
+    private static Entry geocode(Geocoder geocoder, String address, long now) {
+        try {
+            List<Address> found = geocoder.getFromLocationName(address, 1);
+            if (found != null && !found.isEmpty() && found.get(0).hasLatitude() && found.get(0).hasLongitude()) {
+                return new Entry(address, found.get(0).getLatitude(), found.get(0).getLongitude(), now);
+            }
+        } catch (IOException e) {
+            Log.i(TAG, "Could not geocode " + address + ": " + e);
+            return null;
+        } catch (IllegalArgumentException e) {
+            Log.i(TAG, "Could not geocode " + address + ": " + e);
+        }
+        return new Entry(address, Double.NaN, Double.NaN, now);
+    }
+
+    // executor. Builds the index of the placed gyms and tells the listeners.
+    private void publish() {
+        List<String> ids = new ArrayList<>();
+        List<Entry> placed = new ArrayList<>();
+        Map<String, double[]> byId = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().isFound()) {
+                ids.add(entry.getKey());
+                placed.add(entry.getValue());
+                byId.put(entry.getKey(), new double[]{entry.getValue().latitude, entry.getValue().longitude});
+            }
+        }
+        double[] latitudes = new double[placed.size()];
+        double[] longitudes = new double[placed.size()];
+        for (int i = 0; i < placed.size(); i++) {
+            latitudes[i] = placed.get(i).latitude;
+            longitudes[i] = placed.get(i).longitude;
+        }
+        index = new GeoIndex(ids.toArray(new String[0]), latitudes, longitudes);
+        coordinates = byId;
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : listeners) {
+                    listener.onLocationsChanged();
+                }
+            }
+        });
+    }
+
+    // executor
+    private Map<String, Entry> load() {
+        Map<String, Entry> loaded = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return loaded;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String gymId = in.readUTF();
+                loaded.put(gymId, new Entry(in.readUTF(), in.readDouble(), in.readDouble(), in.readLong()));
+            }
+        } catch (FileNotFoundException e) {
+            return loaded;
+        } catch (IOException e) {
+            Log.e(TAG, "Locations file unreadable, geocoding again", e);
+            loaded.clear();
+        }
+        return loaded;
+    }
+
+    // executor. Written to a temp file first so a crash mid-write keeps the previous locations.
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().address);
+                out.writeDouble(entry.getValue().latitude);
+                out.writeDouble(entry.getValue().longitude);
+                out.writeLong(entry.getValue().geocodedAt);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not save locations", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Could not replace " + file);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The walk behind GymRepository's revalidation: reads the whole gym list from a GymSource in pages
+// of `limit` gyms, each starting after the last gymId of the one before, until a page comes back
+// short. Every page is revalidated with the ETag it had last time; a page that still matches is
+// taken from the cached list instead of being downloaded again. Called from one thread at a time.
+final class GymPages {
+
+    static final class Result {
+        // in gymId order, unmodifiable
+        final List<Gyms> gyms;
+        // one per page, the last page is the short one
+        final List<String> eTags;
+
+        Result(List<Gyms> gyms, List<String> eTags) {
+            this.gyms = gyms;
+            this.eTags = eTags;
+        }
+    }
+
+    private final GymSource source;
+    private final int limit;
+
+    GymPages(GymSource source, int limit) {
+        this.source = source;
+        this.limit = limit;
+    }
+
+    // cached and eTags are a previous Result's lists, empty if there is none. Returns null if
+    // every page still matched.
+    Result fetch(List<Gyms> cached, List<String> eTags) throws IOException {
+        List<Gyms> gyms = new ArrayList<>(cached.size());
+        List<String> newETags = new ArrayList<>(eTags.size());
+        boolean changed = false;
+        String startAfter = null;
+        for (int page = 0; ; page++) {
+            int from = page * limit;
+            // a cached page only matches if it starts after the same gym
+            boolean sameStart = page < eTags.size() && from <= cached.size()
+                    && (page == 0 || cached.get(from - 1).getId().equals(startAfter));
+            GymSource.Result result = source.fetchGyms(sameStart ? eTags.get(page) : null, startAfter, limit);
+            List<Gyms> pageGyms;
+            if (result == null) {
+                pageGyms = cached.subList(from, Math.min(from + limit, cached.size()));
+                newETags.add(eTags.get(page));
+            } else {
+                pageGyms = result.gyms;
+                newETags.add(result.eTag);
+                changed = true;
+            }
+            gyms.addAll(pageGyms);
+            if (pageGyms.size() < limit) {
+                break;
+            }
+            startAfter = pageGyms.get(pageGyms.size() - 1).getId();
+        }
+        // fewer pages than before means gyms were removed at the end
+        if (!changed && newETags.size() == eTags.size()) {
+            return null;
+        }
+        return new Result(Collections.unmodifiableList(gyms), Collections.unmodifiableList(newETags));
+    }
+
+    // The gym snapshot has room for one ETag, the pages' ETags go in one per line
+    static String joinETags(List<String> eTags) {
+        StringBuilder joined = new StringBuilder();
+        for (String eTag : eTags) {
+            if (joined.length() > 0) {
+                joined.append('\n');
+            }
+            joined.append(eTag != null ? eTag : "");
+        }
+        return joined.toString();
+    }
+
+    static List<String> splitETags(String joined) {
+        if (joined == null || joined.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> eTags = new ArrayList<>();
+        for (String eTag : joined.split("\n", -1)) {
+            eTags.add(eTag.isEmpty() ? null : eTag);
+        }
+        return eTags;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+import com.example.inbloc_app.retrofit.remote.RetrofitClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Sits between a GymSource (the backend) and the fragments. Serves the last known gym list from
+// memory or disk right away and revalidates it in the background (stale-while-revalidate),
+// page by page through GymPages since the backend answers at most GYMS_LIMIT gyms at a time.
+public class GymRepository {
+
+    private static final String TAG = "GymRepository";
+    private static final String CACHE_FILE = "gyms_cache.snapshot";
+    private static final String LEGACY_CACHE_FILE = "gyms_cache.json";
+    private static final int GYMS_LIMIT = 1000;
+
+    public interface Listener {
+        // fromCache is true for the immediate answer, false once the network copy arrived
+        void onGymsLoaded(List<Gyms> gyms, boolean fromCache);
+
+        void onError(Throwable t);
+    }
+
+    private static GymRepository instance;
+
+    private final File cacheFile;
+    private final File legacyCacheFile;
+    private final GymPages pages;
+    private final GymSearchDatabase searchDatabase;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile List<Gyms> gyms;
+    // one per page of gyms
+    private volatile List<String> eTags = Collections.emptyList();
+    private boolean diskLoaded = false;
+
+    public static synchronized GymRepository getInstance(Context context) {
+        if (instance == null) {
+            RetrofitClient.init(context);
+            instance = new GymRepository(new File(context.getApplicationContext().getFilesDir(), CACHE_FILE),
+                    new ApiGymSource(ApiUtils.getApiService()), GymSearchDatabase.getInstance(context));
+        }
+        return instance;
+    }
+
+    GymRepository(File cacheFile, GymSource source, GymSearchDatabase searchDatabase) {
+        this.cacheFile = cacheFile;
+        legacyCacheFile = new File(cacheFile.getParentFile(), LEGACY_CACHE_FILE);
+        pages = new GymPages(source, GYMS_LIMIT);
+        this.searchDatabase = searchDatabase;
+    }
+
+    // Returns the in-memory copy without touching disk or network, may be null
+    public List<Gyms> getCachedGyms() {
+        return gyms;
+    }
+
+    // Reads the disk cache into memory ahead of the first loadGyms, e.g. during app startup
+    public void warmUp() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Trace.beginSection("Startup.readGymCache");
+                try {
+                    if (gyms == null) {
+                        readFromDisk();
+                    }
+                } finally {
+                    Trace.endSection();
+                }
+            }
+        });
+    }
+
+    public void loadGyms(final Listener listener) {
+        final List<Gyms> current = gyms;
+        if (current != null) {
+            listener.onGymsLoaded(current, true);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean shown = current != null;
+                if (current == null) {
+                    // warmUp may have read the file between the check above and now
+                    List<Gyms> cached = gyms != null ? gyms : readFromDisk();
+                    if (cached != null) {
+                        postLoaded(listener, cached, true);
+                        updateSearchIndex(cached);
+                        shown = true;
+                    }
+                }
+                // with a list on screen the refresh can wait behind what the user asked for
+                NetworkDispatcher.setLane(shown ? NetworkDispatcher.LANE_PREFETCH : NetworkDispatcher.LANE_INTERACTIVE);
+                revalidate(listener);
+            }
+        });
+    }
+
+    // Runs on the executor, so only one revalidation can be in flight at a time
+    private void revalidate(Listener listener) {
+        try {
+            List<Gyms> current = gyms;
+            GymPages.Result result = pages.fetch(current != null ? current : Collections.<Gyms>emptyList(), eTags);
+            if (result == null) {
+                Log.i(TAG, "gym list not modified");
+                return;
+            }
+            gyms = result.gyms;
+            eTags = result.eTags;
+            writeToDisk(result.gyms, result.eTags);
+            postLoaded(listener, result.gyms, false);
+            updateSearchIndex(result.gyms);
+        } catch (IOException | RuntimeException e) {
+            Log.i(TAG, "No Response from API..." + e);
+            postError(listener, e);
+        }
+    }
+
+    // Only changed rows are written, so an unchanged list costs one query. The list is always
+    // complete, GymPages reads up to the first short page and the snapshot holds such a list.
+    private void updateSearchIndex(List<Gyms> list) {
+        try {
+            searchDatabase.update(list, true);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not update gym search index", e);
+        }
+    }
+
+    // The snapshot is mapped, gyms are decoded as the list and the search index touch them
+    private List<Gyms> readFromDisk() {
+        if (diskLoaded) {
+            return null;
+        }
+        diskLoaded = true;
+        // replaced by the snapshot, its data comes back with the next revalidation
+        legacyCacheFile.delete();
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try {
+            SnapshotFile snapshot = SnapshotFile.open(cacheFile);
+            eTags = GymPages.splitETags(snapshot.getETag());
+            gyms = snapshot.getGyms();
+            return gyms;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Could not read gym cache, dropping it", e);
+            cacheFile.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(List<Gyms> list, List<String> newETags) {
+        try {
+            SnapshotFile.write(cacheFile, GymPages.joinETags(newETags), list);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write gym cache", e);
+        }
+    }
+
+    private void postLoaded(final Listener listener, final List<Gyms> result, final boolean fromCache) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onGymsLoaded(result, fromCache);
+            }
+        });
+    }
+
+    private void postError(final Listener listener, final Throwable t) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onError(t);
+            }
+        });
+    }
+}
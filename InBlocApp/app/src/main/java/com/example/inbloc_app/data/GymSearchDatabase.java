@@ -0,0 +1,184 @@
+package com.example.inbloc_app.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Local copy of the searchable gym fields with an FTS4 index over them, so SearchFragment can
+// answer search-as-you-type offline. The FTS table uses gyms as external content and is kept in
+// sync by triggers. Call from background threads only.
+public class GymSearchDatabase extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "gym_search.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_GYMS = "gyms";
+    private static final String TABLE_FTS = "gyms_fts";
+
+    private static GymSearchDatabase instance;
+
+    public static synchronized GymSearchDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new GymSearchDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GymSearchDatabase(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // a null name keeps the database in memory
+    GymSearchDatabase(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_GYMS + " ("
+                + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "gym_id TEXT NOT NULL UNIQUE, "
+                + "name TEXT, city TEXT, zip TEXT, street TEXT, description TEXT, "
+                + "content_hash INTEGER NOT NULL)");
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_FTS + " USING fts4("
+                + "content=\"" + TABLE_GYMS + "\", name, city, zip, street, description, tokenize=unicode61)");
+
+        // keep the external content index in sync with the gyms table
+        db.execSQL("CREATE TRIGGER gyms_ai AFTER INSERT ON " + TABLE_GYMS + " BEGIN "
+                + "INSERT INTO " + TABLE_FTS + "(docid, name, city, zip, street, description) "
+                + "VALUES (new._id, new.name, new.city, new.zip, new.street, new.description); END");
+        db.execSQL("CREATE TRIGGER gyms_bu BEFORE UPDATE ON " + TABLE_GYMS + " BEGIN "
+                + "DELETE FROM " + TABLE_FTS + " WHERE docid = old._id; END");
+        db.execSQL("CREATE TRIGGER gyms_au AFTER UPDATE ON " + TABLE_GYMS + " BEGIN "
+                + "INSERT INTO " + TABLE_FTS + "(docid, name, city, zip, street, description) "
+                + "VALUES (new._id, new.name, new.city, new.zip, new.street, new.description); END");
+        db.execSQL("CREATE TRIGGER gyms_bd BEFORE DELETE ON " + TABLE_GYMS + " BEGIN "
+                + "DELETE FROM " + TABLE_FTS + " WHERE docid = old._id; END");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // only a cache of /gyms, simply rebuild it
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_GYMS);
+        onCreate(db);
+    }
+
+    // Brings the table in line with the given list, only rows that changed are written. Gyms
+    // missing from the list are only deleted if it is complete; a single page of /gyms is cut off
+    // at its limit and says nothing about the gyms after it.
+    public void update(List<Gyms> gyms, boolean complete) {
+        SQLiteDatabase db = getWritableDatabase();
+        Map<String, Integer> stored = new HashMap<>();
+        try (Cursor cursor = db.query(TABLE_GYMS, new String[]{"gym_id", "content_hash"},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                stored.put(cursor.getString(0), cursor.getInt(1));
+            }
+        }
+
+        Set<String> seen = new HashSet<>();
+        db.beginTransaction();
+        try {
+            for (Gyms gym : gyms) {
+                if (gym.getId() == null || !seen.add(gym.getId())) {
+                    continue;
+                }
+                int hash = contentHash(gym);
+                Integer storedHash = stored.get(gym.getId());
+                if (storedHash != null && storedHash == hash) {
+                    continue;
+                }
+                ContentValues values = new ContentValues();
+                values.put("name", gym.getName());
+                values.put("city", gym.getCity());
+                values.put("zip", gym.getZip());
+                values.put("street", gym.getStreet());
+                values.put("description", gym.getDescription());
+                values.put("content_hash", hash);
+                if (storedHash == null) {
+                    values.put("gym_id", gym.getId());
+                    db.insert(TABLE_GYMS, null, values);
+                } else {
+                    db.update(TABLE_GYMS, values, "gym_id = ?", new String[]{gym.getId()});
+                }
+            }
+            if (complete) {
+                for (String gymId : stored.keySet()) {
+                    if (!seen.contains(gymId)) {
+                        db.delete(TABLE_GYMS, "gym_id = ?", new String[]{gymId});
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Prefix search over all fields, "fels bad" finds Felsmeister in Bad Oeynhausen
+    public List<Gyms> search(String query, int limit) {
+        List<Gyms> result = new ArrayList<>();
+        String match = toMatchQuery(query);
+        if (match.isEmpty()) {
+            return result;
+        }
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT g.gym_id, g.name, g.city, g.zip, g.street, g.description "
+                + "FROM " + TABLE_FTS + " JOIN " + TABLE_GYMS + " g ON g._id = " + TABLE_FTS + ".docid "
+                + "WHERE " + TABLE_FTS + " MATCH ? ORDER BY g.name LIMIT ?",
+                new String[]{match, String.valueOf(limit)})) {
+            while (cursor.moveToNext()) {
+                Gyms gym = new Gyms();
+                gym.setId(cursor.getString(0));
+                gym.setName(cursor.getString(1));
+                gym.setCity(cursor.getString(2));
+                gym.setZip(cursor.getString(3));
+                gym.setStreet(cursor.getString(4));
+                gym.setDescription(cursor.getString(5));
+                result.add(gym);
+            }
+        }
+        return result;
+    }
+
+    // Every word becomes a prefix term, FTS syntax characters are dropped
+    static String toMatchQuery(String query) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : query.trim().split("\\s+")) {
+            StringBuilder term = new StringBuilder();
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    term.append(c);
+                }
+            }
+            if (term.length() > 0) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(term).append('*');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int contentHash(Gyms gym) {
+        int hash = 17;
+        for (String value : new String[]{gym.getName(), gym.getCity(), gym.getZip(), gym.getStreet(), gym.getDescription()}) {
+            hash = 31 * hash + (value == null ? 0 : value.hashCode());
+        }
+        return hash;
+    }
+}
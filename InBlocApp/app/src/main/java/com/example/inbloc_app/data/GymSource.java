@@ -0,0 +1,26 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.io.IOException;
+import java.util.List;
+
+// Where GymRepository revalidates the gym list from: the backend (ApiGymSource) or a fake
+// backend in load tests.
+public interface GymSource {
+
+    final class Result {
+        // with their ids set, unmodifiable
+        public final List<Gyms> gyms;
+        public final String eTag;
+
+        public Result(List<Gyms> gyms, String eTag) {
+            this.gyms = gyms;
+            this.eTag = eTag;
+        }
+    }
+
+    // At most limit gyms in gymId order after startAfter (null for the first page), or null if
+    // that page still matches eTag (which may be null)
+    Result fetchGyms(String eTag, String startAfter, int limit) throws IOException;
+}
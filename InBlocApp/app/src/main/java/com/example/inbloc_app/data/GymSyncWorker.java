@@ -0,0 +1,120 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+import com.example.inbloc_app.retrofit.remote.RetrofitClient;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Runs SyncEngine for the favourite gyms in the background. Periodic runs should only happen on
+// unmetered networks or while charging; WorkManager constraints can only be combined with AND,
+// so there is one periodic work per condition and a run is skipped if the other one fully synced
+// within MIN_INTERVAL_MS. syncNow runs once on any network, e.g. for a new favourite.
+public class GymSyncWorker extends Worker {
+
+    private static final String TAG = "GymSyncWorker";
+    private static final String WORK_UNMETERED = "gym_sync_unmetered";
+    private static final String WORK_CHARGING = "gym_sync_charging";
+    private static final String WORK_NOW = "gym_sync_now";
+    private static final long PERIOD_HOURS = 6;
+    private static final long MIN_INTERVAL_MS = 60 * 60 * 1000;
+
+    private static final String KEY_FORCE = "force";
+    public static final String KEY_DURATION_MS = "durationMs";
+    public static final String KEY_REQUESTS = "requests";
+    public static final String KEY_NOT_MODIFIED = "notModified";
+    public static final String KEY_BYTES = "bytes";
+    public static final String KEY_RECORDS = "records";
+    public static final String KEY_FAILURES = "failures";
+
+    public GymSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Safe to call on every start, existing periodic works are kept
+    public static void schedule(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniquePeriodicWork(WORK_UNMETERED, ExistingPeriodicWorkPolicy.KEEP,
+                periodic(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.UNMETERED)
+                        .build()));
+        workManager.enqueueUniquePeriodicWork(WORK_CHARGING, ExistingPeriodicWorkPolicy.KEEP,
+                periodic(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .setRequiresCharging(true)
+                        .build()));
+    }
+
+    public static void syncNow(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(GymSyncWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setInputData(new Data.Builder().putBoolean(KEY_FORCE, true).build())
+                .build();
+        // a run already going may have missed the newest favourite, queue another one behind it
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NOW, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    private static PeriodicWorkRequest periodic(Constraints constraints) {
+        return new PeriodicWorkRequest.Builder(GymSyncWorker.class, PERIOD_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        OfflineStore store = OfflineStore.getInstance(context);
+        if (!getInputData().getBoolean(KEY_FORCE, false)
+                && syncedRecently(store.getRecentRuns(1), getRunAttemptCount(), System.currentTimeMillis())) {
+            return Result.success();
+        }
+
+        Set<String> gymIds = FavoriteGyms.getInstance(context).getIds();
+        // WorkManager threads only run our workers, the lane can stay set
+        NetworkDispatcher.setLane(NetworkDispatcher.LANE_BACKGROUND);
+        RetrofitClient.init(context);
+        SyncEngine.RunMetrics run = new SyncEngine(ApiUtils.getApiService(), store).sync(gymIds);
+        Log.i(TAG, "Sync finished " + run);
+
+        Data output = new Data.Builder()
+                .putLong(KEY_DURATION_MS, run.durationMs)
+                .putInt(KEY_REQUESTS, run.requests)
+                .putInt(KEY_NOT_MODIFIED, run.notModified)
+                .putLong(KEY_BYTES, run.bytes)
+                .putInt(KEY_RECORDS, run.records)
+                .putInt(KEY_FAILURES, run.failures)
+                .build();
+        // gyms that failed keep their old data, a retry with backoff picks them up
+        return run.failures > 0 ? Result.retry() : Result.success(output);
+    }
+
+    // True if the last run was within MIN_INTERVAL_MS and complete. A retry is never skipped, the
+    // run it retries is the one that was just recorded.
+    static boolean syncedRecently(List<SyncEngine.RunMetrics> last, int runAttemptCount, long nowMs) {
+        if (runAttemptCount > 0 || last.isEmpty()) {
+            return false;
+        }
+        SyncEngine.RunMetrics run = last.get(0);
+        return run.failures == 0 && nowMs - run.startedAtMs < MIN_INTERVAL_MS;
+    }
+}
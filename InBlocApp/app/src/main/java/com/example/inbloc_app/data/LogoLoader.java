@@ -0,0 +1,291 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.inbloc_app.R;
+import com.example.inbloc_app.adapter.BundledLogos;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+import com.example.inbloc_app.retrofit.remote.RetrofitClient;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+// Loads gym logos from GET /gyms/:gymId/logo. The signed link is resolved and downloaded once
+// into a disk LRU, decoded off the main thread with inSampleSize for the target view and kept in
+// a byte-bounded memory LRU. Concurrent loads of the same gym share one job, and a view that is
+// recycled or rebound cancels its request. Everything except the job itself runs on the main thread.
+public class LogoLoader {
+
+    private static final String TAG = "LogoLoader";
+    private static final long DISK_CACHE_BYTES = 20L * 1024 * 1024;
+    private static final int THREADS = 3;
+
+    private static LogoLoader instance;
+
+    private final ApiService apiService;
+    private final OkHttpClient httpClient;
+    private final DiskLruCache diskCache;
+    private final LruCache<String, Bitmap> memoryCache;
+    // logos are requested for rows on screen, they go before prefetches but after the screen itself
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS,
+            NetworkDispatcher.threadFactory(TAG, NetworkDispatcher.LANE_VISIBLE_IMAGES));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // main thread only
+    private final Map<String, Job> jobs = new HashMap<>();
+    // gyms whose cached bitmap is the logo at full resolution, so it never needs a bigger decode
+    private final Set<String> fullResolution = new HashSet<>();
+
+    public static synchronized LogoLoader getInstance(Context context) {
+        if (instance == null) {
+            RetrofitClient.init(context);
+            instance = new LogoLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private LogoLoader(Context context) {
+        apiService = ApiUtils.getApiService();
+        httpClient = RetrofitClient.getOkHttpClient();
+        diskCache = new DiskLruCache(new File(context.getCacheDir(), "logos"), DISK_CACHE_BYTES);
+        // an eighth of the heap, measured in bytes of decoded pixels
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    private static class LogoRequest {
+        final String gymId;
+        final ImageView target;
+
+        LogoRequest(String gymId, ImageView target) {
+            this.gymId = gymId;
+            this.target = target;
+        }
+    }
+
+    public void load(String gymId, ImageView target, int sizePx, int placeholderRes) {
+        cancel(target);
+        Bitmap cached = memoryCache.get(gymId);
+        if (cached != null && (fullResolution.contains(gymId)
+                || Math.max(cached.getWidth(), cached.getHeight()) >= sizePx)) {
+            target.setImageBitmap(cached);
+            return;
+        }
+
+        target.setImageResource(placeholderRes);
+        LogoRequest request = new LogoRequest(gymId, target);
+        target.setTag(R.id.logo_request, request);
+
+        Job job = jobs.get(gymId);
+        if (job == null) {
+            job = new Job(gymId, sizePx);
+            jobs.put(gymId, job);
+            job.future = executor.submit(job);
+        } else if (sizePx > job.sizePx) {
+            // read by the job right before decoding, a bigger view joining late still gets a sharp logo
+            job.sizePx = sizePx;
+        }
+        job.requests.add(request);
+    }
+
+    // Drops the view's pending request, the download stops once no view waits for it any more
+    public void cancel(ImageView target) {
+        Object tag = target.getTag(R.id.logo_request);
+        if (!(tag instanceof LogoRequest)) {
+            return;
+        }
+        target.setTag(R.id.logo_request, null);
+        LogoRequest request = (LogoRequest) tag;
+        Job job = jobs.get(request.gymId);
+        if (job != null) {
+            job.requests.remove(request);
+            if (job.requests.isEmpty()) {
+                job.cancel();
+                jobs.remove(request.gymId);
+            }
+        }
+    }
+
+    // Puts a logo into the memory cache as if it had been downloaded at full resolution, so rows
+    // can be bound from a warm cache without the network
+    @VisibleForTesting
+    public void putInMemory(String gymId, Bitmap bitmap) {
+        memoryCache.put(gymId, bitmap);
+        fullResolution.add(gymId);
+    }
+
+    private void deliver(Job job, Bitmap bitmap, boolean isFullResolution) {
+        if (jobs.get(job.gymId) == job) {
+            jobs.remove(job.gymId);
+        }
+        if (bitmap == null || job.cancelled) {
+            return;
+        }
+        memoryCache.put(job.gymId, bitmap);
+        if (isFullResolution) {
+            fullResolution.add(job.gymId);
+        }
+        for (LogoRequest request : job.requests) {
+            if (request.target.getTag(R.id.logo_request) == request) {
+                request.target.setTag(R.id.logo_request, null);
+                request.target.setImageBitmap(bitmap);
+            }
+        }
+    }
+
+    private class Job implements Runnable {
+
+        final String gymId;
+        final List<LogoRequest> requests = new ArrayList<>();
+        volatile int sizePx;
+        volatile boolean cancelled = false;
+        // the request in flight or waiting for the dispatcher, cancelled with the job
+        volatile retrofit2.Call<ResponseBody> linkCall;
+        volatile Call call;
+        Future<?> future;
+
+        Job(String gymId, int sizePx) {
+            this.gymId = gymId;
+            this.sizePx = sizePx;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+            retrofit2.Call<ResponseBody> link = linkCall;
+            if (link != null) {
+                link.cancel();
+            }
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
+            boolean isFullResolution = false;
+            try {
+                File file = diskCache.get(gymId);
+                if (file == null && !cancelled) {
+                    file = download();
+                }
+                if (file != null && !cancelled) {
+                    BitmapFactory.Options options = new BitmapFactory.Options();
+                    options.inJustDecodeBounds = true;
+                    BitmapFactory.decodeFile(file.getPath(), options);
+                    options.inSampleSize = BundledLogos.calculateInSampleSize(options.outWidth, options.outHeight,
+                            sizePx, sizePx);
+                    options.inJustDecodeBounds = false;
+                    isFullResolution = options.inSampleSize == 1;
+                    bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!cancelled) {
+                    Log.i(TAG, "Could not load logo of " + gymId + " " + e);
+                }
+            }
+
+            final Bitmap result = bitmap;
+            final boolean full = isFullResolution;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(Job.this, result, full);
+                }
+            });
+        }
+
+        private File download() throws IOException {
+            retrofit2.Call<ResponseBody> logoCall = apiService.getGymLogo("application/json", gymId);
+            linkCall = logoCall;
+            if (cancelled) {
+                return null;
+            }
+            Response<ResponseBody> response = logoCall.execute();
+            if (response.code() == 404) {
+                // gym has no logo, keep the placeholder
+                return null;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Call unsuccessful " + response.code());
+            }
+            String link = readLogoLink(response.body());
+            if (link == null || cancelled) {
+                return null;
+            }
+
+            Call download = httpClient.newCall(new Request.Builder().url(link).build());
+            call = download;
+            if (cancelled) {
+                return null;
+            }
+            try (okhttp3.Response image = download.execute()) {
+                if (!image.isSuccessful() || image.body() == null) {
+                    throw new IOException("Logo download failed " + image.code());
+                }
+                return diskCache.put(gymId, image.body().bytes());
+            }
+        }
+    }
+
+    // {data:{logo:"..."}}
+    private static String readLogoLink(ResponseBody body) throws IOException {
+        String link = null;
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"data".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("logo".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                        link = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+        return link;
+    }
+}
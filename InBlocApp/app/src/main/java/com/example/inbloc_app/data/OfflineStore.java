@@ -0,0 +1,291 @@
+package com.example.inbloc_app.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.models.Walls;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Local copy of walls, routes, openings and holidays of the favourite gyms, filled by the
+// background sync (SyncEngine) so opening such a gym never waits for the network. ScheduleIndex
+// keeps the openings and holidays of other listed gyms here as well. Also keeps the
+// per-gym sync watermark and the metrics of the last sync runs. Call from background threads only.
+public class OfflineStore extends SQLiteOpenHelper implements SyncEngine.Store {
+
+    private static final String DATABASE_NAME = "offline_store.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final int KEPT_RUNS = 50;
+
+    public static final String DOCUMENT_OPENINGS = "openings";
+    public static final String DOCUMENT_HOLIDAYS = "holidays";
+
+    private static OfflineStore instance;
+
+    private final Context context;
+
+    // where the last sync of a gym left off
+    public static class SyncState {
+        public final String wallsETag;
+        // newest setDate (YYYY-MM-DD) among the stored walls, routes of older walls are not pulled again
+        public final String watermark;
+        public final long lastSyncMs;
+
+        SyncState(String wallsETag, String watermark, long lastSyncMs) {
+            this.wallsETag = wallsETag;
+            this.watermark = watermark;
+            this.lastSyncMs = lastSyncMs;
+        }
+    }
+
+    public static synchronized OfflineStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflineStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private OfflineStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE walls (gym_id TEXT NOT NULL, wall_id TEXT NOT NULL, "
+                + "features TEXT, set_date TEXT, PRIMARY KEY (gym_id, wall_id))");
+        db.execSQL("CREATE TABLE routes (gym_id TEXT NOT NULL, wall_id TEXT NOT NULL, route_id TEXT NOT NULL, "
+                + "features TEXT, difficulty INTEGER, user_ratings INTEGER, completed_count INTEGER, "
+                + "PRIMARY KEY (gym_id, wall_id, route_id))");
+        // raw {data:{...}} bodies of small per-gym resources, parsed where they are shown
+        db.execSQL("CREATE TABLE documents (gym_id TEXT NOT NULL, kind TEXT NOT NULL, etag TEXT, body TEXT, "
+                + "PRIMARY KEY (gym_id, kind))");
+        db.execSQL("CREATE TABLE sync_state (gym_id TEXT PRIMARY KEY, walls_etag TEXT, watermark TEXT, "
+                + "last_sync INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE sync_runs (_id INTEGER PRIMARY KEY AUTOINCREMENT, started_at INTEGER NOT NULL, "
+                + "duration_ms INTEGER NOT NULL, gyms INTEGER NOT NULL, requests INTEGER NOT NULL, "
+                + "not_modified INTEGER NOT NULL, bytes INTEGER NOT NULL, records INTEGER NOT NULL, "
+                + "failures INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // only a copy of server data, the next sync fills it again
+        for (String table : new String[]{"walls", "routes", "documents", "sync_state", "sync_runs"}) {
+            db.execSQL("DROP TABLE IF EXISTS " + table);
+        }
+        onCreate(db);
+    }
+
+    // True once a sync stored the walls of this gym, even if it has none
+    public boolean hasGym(String gymId) {
+        return getSyncState(gymId) != null;
+    }
+
+    @Override
+    public SyncState getSyncState(String gymId) {
+        try (Cursor cursor = getReadableDatabase().query("sync_state",
+                new String[]{"walls_etag", "watermark", "last_sync"}, "gym_id = ?", new String[]{gymId},
+                null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new SyncState(cursor.getString(0), cursor.getString(1), cursor.getLong(2));
+        }
+    }
+
+    @Override
+    public List<String> getWallIds(String gymId) {
+        List<String> wallIds = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("walls", new String[]{"wall_id"}, "gym_id = ?",
+                new String[]{gymId}, null, null, "wall_id")) {
+            while (cursor.moveToNext()) {
+                wallIds.add(cursor.getString(0));
+            }
+        }
+        return wallIds;
+    }
+
+    // Routes of one wall ordered by routeId, starting after startAfter (null for the first page)
+    public List<Route> getRoutes(String gymId, String wallId, String startAfter, int limit) {
+        List<Route> routes = new ArrayList<>();
+        String selection = "gym_id = ? AND wall_id = ?" + (startAfter != null ? " AND route_id > ?" : "");
+        String[] args = startAfter != null ? new String[]{gymId, wallId, startAfter} : new String[]{gymId, wallId};
+        try (Cursor cursor = getReadableDatabase().query("routes",
+                new String[]{"route_id", "features", "difficulty", "user_ratings", "completed_count"},
+                selection, args, null, null, "route_id", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                Route route = new Route();
+                route.setId(cursor.getString(0));
+                route.setGymId(gymId);
+                route.setWallId(wallId);
+                route.setFeatures(cursor.getString(1));
+                route.setDifficulty(cursor.getInt(2));
+                route.setUserRatings(cursor.getInt(3));
+                route.setCompletedCount(cursor.getInt(4));
+                routes.add(route);
+            }
+        }
+        return routes;
+    }
+
+    // Replaces the gym's walls in one transaction. routesByWall holds the fresh routes of the walls
+    // that changed, routes of the other walls are kept. Walls no longer listed lose their routes.
+    @Override
+    public void applyWallSync(String gymId, List<Walls> walls, Map<String, List<Route>> routesByWall,
+                              String wallsETag, String watermark) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            List<String> keep = new ArrayList<>();
+            for (Walls wall : walls) {
+                keep.add(wall.getId());
+            }
+            for (String stored : getWallIds(gymId)) {
+                if (!keep.contains(stored)) {
+                    db.delete("walls", "gym_id = ? AND wall_id = ?", new String[]{gymId, stored});
+                    db.delete("routes", "gym_id = ? AND wall_id = ?", new String[]{gymId, stored});
+                }
+            }
+            for (Walls wall : walls) {
+                ContentValues values = new ContentValues();
+                values.put("gym_id", gymId);
+                values.put("wall_id", wall.getId());
+                values.put("features", wall.getFeatures());
+                values.put("set_date", wall.getSetDate());
+                db.insertWithOnConflict("walls", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            for (Map.Entry<String, List<Route>> entry : routesByWall.entrySet()) {
+                db.delete("routes", "gym_id = ? AND wall_id = ?", new String[]{gymId, entry.getKey()});
+                for (Route route : entry.getValue()) {
+                    ContentValues values = new ContentValues();
+                    values.put("gym_id", gymId);
+                    values.put("wall_id", entry.getKey());
+                    values.put("route_id", route.getId());
+                    values.put("features", route.getFeatures());
+                    values.put("difficulty", route.getDifficulty());
+                    values.put("user_ratings", route.getUserRatings());
+                    values.put("completed_count", route.getCompletedCount());
+                    db.insert("routes", null, values);
+                }
+            }
+            ContentValues state = new ContentValues();
+            state.put("gym_id", gymId);
+            state.put("walls_etag", wallsETag);
+            state.put("watermark", watermark);
+            state.put("last_sync", System.currentTimeMillis());
+            db.insertWithOnConflict("sync_state", null, state, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        // regraded routes the user completed move in the stats
+        StatsStore.getInstance(context).onRoutesSynced(gymId, routesByWall);
+    }
+
+    // Optimistic change of a route's counter, a no-op for routes that are not stored
+    public void adjustCompletedCount(String gymId, String wallId, String routeId, int delta) {
+        getWritableDatabase().execSQL("UPDATE routes SET completed_count = MAX(0, completed_count + ?) "
+                + "WHERE gym_id = ? AND wall_id = ? AND route_id = ?", new Object[]{delta, gymId, wallId, routeId});
+    }
+
+    @Override
+    public void touchSyncState(String gymId) {
+        ContentValues values = new ContentValues();
+        values.put("last_sync", System.currentTimeMillis());
+        getWritableDatabase().update("sync_state", values, "gym_id = ?", new String[]{gymId});
+    }
+
+    // Returns {etag, body} or null
+    @Override
+    public String[] getDocument(String gymId, String kind) {
+        try (Cursor cursor = getReadableDatabase().query("documents", new String[]{"etag", "body"},
+                "gym_id = ? AND kind = ?", new String[]{gymId, kind}, null, null, null)) {
+            return cursor.moveToFirst() ? new String[]{cursor.getString(0), cursor.getString(1)} : null;
+        }
+    }
+
+    // body null means the gym has no such resource (404)
+    @Override
+    public void putDocument(String gymId, String kind, String eTag, String body) {
+        ContentValues values = new ContentValues();
+        values.put("gym_id", gymId);
+        values.put("kind", kind);
+        values.put("etag", eTag);
+        values.put("body", body);
+        getWritableDatabase().insertWithOnConflict("documents", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        if (DOCUMENT_OPENINGS.equals(kind) || DOCUMENT_HOLIDAYS.equals(kind)) {
+            ScheduleIndex.getInstance(context).onDocumentChanged(gymId);
+        }
+    }
+
+    // Drops everything of gyms that are no longer favourites
+    @Override
+    public void retainGyms(Collection<String> gymIds) {
+        SQLiteDatabase db = getWritableDatabase();
+        List<String> stored = new ArrayList<>();
+        try (Cursor cursor = db.query("sync_state", new String[]{"gym_id"}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                stored.add(cursor.getString(0));
+            }
+        }
+        db.beginTransaction();
+        try {
+            for (String gymId : stored) {
+                if (!gymIds.contains(gymId)) {
+                    String[] args = {gymId};
+                    for (String table : new String[]{"walls", "routes", "documents", "sync_state"}) {
+                        db.delete(table, "gym_id = ?", args);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void recordRun(SyncEngine.RunMetrics run) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("started_at", run.startedAtMs);
+        values.put("duration_ms", run.durationMs);
+        values.put("gyms", run.gyms);
+        values.put("requests", run.requests);
+        values.put("not_modified", run.notModified);
+        values.put("bytes", run.bytes);
+        values.put("records", run.records);
+        values.put("failures", run.failures);
+        db.insert("sync_runs", null, values);
+        db.delete("sync_runs", "_id <= (SELECT MAX(_id) FROM sync_runs) - " + KEPT_RUNS, null);
+    }
+
+    // Newest first
+    public List<SyncEngine.RunMetrics> getRecentRuns(int limit) {
+        List<SyncEngine.RunMetrics> runs = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("sync_runs",
+                new String[]{"started_at", "duration_ms", "gyms", "requests", "not_modified", "bytes", "records", "failures"},
+                null, null, null, null, "_id DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                SyncEngine.RunMetrics run = new SyncEngine.RunMetrics(cursor.getLong(0));
+                run.durationMs = cursor.getLong(1);
+                run.gyms = cursor.getInt(2);
+                run.requests = cursor.getInt(3);
+                run.notModified = cursor.getInt(4);
+                run.bytes = cursor.getLong(5);
+                run.records = cursor.getInt(6);
+                run.failures = cursor.getInt(7);
+                runs.add(run);
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Dates;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+// A gym's opening hours compiled from the backend's openings and holidays documents, so asking
+// whether it is open does not parse "9:00"/"22:30" strings again. The week is an array of merged
+// [start, end) intervals in minutes since Monday 00:00, holidays are sorted by day; a query
+// binary searches both. A day closing before it opens closes the next morning.
+// A holiday replaces its whole calendar day, including the early hours the evening before would
+// otherwise have covered, and the day after it only gets its own hours, not the weekly late night
+// of the holiday's weekday. Open and closed at the same time means closed that day.
+public final class OpeningHours {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final long DAY_MS = MINUTES_PER_DAY * MINUTE_MS;
+    private static final String[] DAYS = {"monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"};
+    // nothing repeats later than a week after the last holiday
+    private static final int SEARCH_DAYS = 8;
+
+    public static final OpeningHours UNKNOWN = new OpeningHours(new int[][]{new int[0], new int[0]},
+            new int[][]{new int[0], new int[0]}, new int[0], new int[0], new int[0]);
+
+    private final int[] starts;
+    private final int[] ends;
+    // starts and ends together, sorted, for finding the next change
+    private final int[] bounds;
+    // the same week with every day cut at midnight, for the day after a holiday
+    private final int[] ownStarts;
+    private final int[] ownEnds;
+    private final int[] ownBounds;
+    private final int[] holidayDays;
+    // minutes of the day, a close above MINUTES_PER_DAY is the next morning
+    private final int[] holidayOpens;
+    private final int[] holidayCloses;
+
+    private OpeningHours(int[][] week, int[][] ownWeek, int[] holidayDays, int[] holidayOpens, int[] holidayCloses) {
+        starts = week[0];
+        ends = week[1];
+        bounds = bounds(starts, ends);
+        ownStarts = ownWeek[0];
+        ownEnds = ownWeek[1];
+        ownBounds = bounds(ownStarts, ownEnds);
+        this.holidayDays = holidayDays;
+        this.holidayOpens = holidayOpens;
+        this.holidayCloses = holidayCloses;
+    }
+
+    private static int[] bounds(int[] starts, int[] ends) {
+        int[] bounds = new int[starts.length * 2];
+        System.arraycopy(starts, 0, bounds, 0, starts.length);
+        System.arraycopy(ends, 0, bounds, starts.length, ends.length);
+        Arrays.sort(bounds);
+        return bounds;
+    }
+
+    // Takes the raw {data:{openings:{...}}} and {data:{overriddenOpenings:{...}}} bodies, null for
+    // a gym without one. Days that cannot be read are treated as closed.
+    public static OpeningHours compile(String openingsBody, String holidaysBody) {
+        JsonObject openings = document(openingsBody, "openings");
+        JsonObject holidays = document(holidaysBody, "overriddenOpenings");
+        if (openings == null && holidays == null) {
+            return UNKNOWN;
+        }
+
+        List<int[]> week = new ArrayList<>();
+        List<int[]> ownWeek = new ArrayList<>();
+        for (int day = 0; openings != null && day < DAYS.length; day++) {
+            int[] hours = hours(openings.get(DAYS[day]));
+            if (hours != null) {
+                int start = day * MINUTES_PER_DAY + hours[0];
+                int end = day * MINUTES_PER_DAY + hours[1];
+                if (end > MINUTES_PER_WEEK) {
+                    // Sunday night into Monday morning
+                    week.add(new int[]{start, MINUTES_PER_WEEK});
+                    week.add(new int[]{0, end - MINUTES_PER_WEEK});
+                } else {
+                    week.add(new int[]{start, end});
+                }
+                ownWeek.add(new int[]{start, Math.min(end, (day + 1) * MINUTES_PER_DAY)});
+            }
+        }
+
+        List<long[]> days = new ArrayList<>();
+        if (holidays != null) {
+            for (Map.Entry<String, JsonElement> entry : holidays.entrySet()) {
+                long day = epochDay(entry.getKey());
+                if (day < 0) {
+                    continue;
+                }
+                int[] hours = hours(entry.getValue());
+                days.add(hours != null ? new long[]{day, hours[0], hours[1]} : new long[]{day, 0, 0});
+            }
+        }
+        long[][] sorted = days.toArray(new long[0][]);
+        Arrays.sort(sorted, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return Long.compare(a[0], b[0]);
+            }
+        });
+        int[] holidayDays = new int[sorted.length];
+        int[] holidayOpens = new int[sorted.length];
+        int[] holidayCloses = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            holidayDays[i] = (int) sorted[i][0];
+            holidayOpens[i] = (int) sorted[i][1];
+            holidayCloses[i] = (int) sorted[i][2];
+        }
+        // a holiday replaces its whole day, also the night of a holiday before it
+        for (int i = 0; i + 1 < sorted.length; i++) {
+            if (holidayDays[i + 1] == holidayDays[i] + 1) {
+                holidayCloses[i] = Math.min(holidayCloses[i], MINUTES_PER_DAY);
+            }
+        }
+        return new OpeningHours(merge(week), merge(ownWeek), holidayDays, holidayOpens, holidayCloses);
+    }
+
+    private static JsonObject document(String body, String field) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            JsonObject data = JsonParser.parseString(body).getAsJsonObject().getAsJsonObject("data");
+            return data != null && data.get(field) instanceof JsonObject ? data.getAsJsonObject(field) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // {open:"9:00", closed:"22:00"} as minutes of the day, null if closed that day
+    private static int[] hours(JsonElement day) {
+        if (!(day instanceof JsonObject)) {
+            return null;
+        }
+        int open = minutes(((JsonObject) day).get("open"));
+        int closed = minutes(((JsonObject) day).get("closed"));
+        if (open < 0 || closed < 0 || open == closed) {
+            return null;
+        }
+        return new int[]{open, closed < open ? closed + MINUTES_PER_DAY : closed};
+    }
+
+    // "H:MM" or "HH:MM", -1 if it is neither
+    static int minutes(JsonElement value) {
+        if (value == null || !value.isJsonPrimitive()) {
+            return -1;
+        }
+        return Dates.minutes(value.getAsString());
+    }
+
+    // Days since 1970-01-01 of a "YYYY-MM-DD" date, -1 if it is not one
+    static long epochDay(String date) {
+        return Dates.epochDay(date);
+    }
+
+    // Sorts and joins touching or overlapping intervals
+    private static int[][] merge(List<int[]> intervals) {
+        int[][] sorted = intervals.toArray(new int[0][]);
+        Arrays.sort(sorted, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return a[0] - b[0];
+            }
+        });
+        int[] starts = new int[sorted.length];
+        int[] ends = new int[sorted.length];
+        int count = 0;
+        for (int[] interval : sorted) {
+            if (count > 0 && interval[0] <= ends[count - 1]) {
+                ends[count - 1] = Math.max(ends[count - 1], interval[1]);
+            } else {
+                starts[count] = interval[0];
+                ends[count] = interval[1];
+                count++;
+            }
+        }
+        return new int[][]{Arrays.copyOf(starts, count), Arrays.copyOf(ends, count)};
+    }
+
+    // false if neither openings nor holidays are known
+    public boolean isKnown() {
+        return starts.length > 0 || holidayDays.length > 0;
+    }
+
+    public boolean isOpen(long timeMs, TimeZone zone) {
+        long local = timeMs + zone.getOffset(timeMs);
+        return isOpen(local / DAY_MS, (int) (local % DAY_MS / MINUTE_MS));
+    }
+
+    // timeMs if open then, -1 if it never opens again
+    public long nextOpening(long timeMs, TimeZone zone) {
+        return isOpen(timeMs, zone) ? timeMs : nextChange(timeMs, zone);
+    }
+
+    // When it next opens or closes after timeMs, -1 if it stays as it is
+    public long nextChange(long timeMs, TimeZone zone) {
+        long local = timeMs + zone.getOffset(timeMs);
+        long day = local / DAY_MS;
+        int minute = (int) (local % DAY_MS / MINUTE_MS);
+        boolean open = isOpen(day, minute);
+        long lastDay = day + SEARCH_DAYS;
+        if (holidayDays.length > 0) {
+            lastDay = Math.max(lastDay, holidayDays[holidayDays.length - 1] + SEARCH_DAYS);
+        }
+        while (day <= lastDay) {
+            minute = nextBound(day, minute);
+            if (minute >= MINUTES_PER_DAY) {
+                day++;
+                minute = 0;
+            }
+            if (isOpen(day, minute) != open) {
+                long changeLocal = day * DAY_MS + minute * MINUTE_MS;
+                return changeLocal - zone.getOffset(changeLocal - zone.getOffset(changeLocal));
+            }
+        }
+        return -1;
+    }
+
+    boolean isOpen(long day, int minute) {
+        int yesterday = Arrays.binarySearch(holidayDays, (int) (day - 1));
+        if (yesterday >= 0 && minute < holidayCloses[yesterday] - MINUTES_PER_DAY) {
+            return true;
+        }
+        int today = Arrays.binarySearch(holidayDays, (int) day);
+        if (today >= 0) {
+            return minute >= holidayOpens[today] && minute < holidayCloses[today];
+        }
+        int ofWeek = weekday(day) * MINUTES_PER_DAY + minute;
+        // the holiday's own late night replaces the weekly one
+        return yesterday >= 0 ? within(ownStarts, ownEnds, ofWeek) : within(starts, ends, ofWeek);
+    }
+
+    private static boolean within(int[] starts, int[] ends, int ofWeek) {
+        // last interval starting at or before ofWeek
+        int i = Arrays.binarySearch(starts, ofWeek);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i >= 0 && ofWeek < ends[i];
+    }
+
+    // The first minute after minute on day where the answer may change, MINUTES_PER_DAY for midnight
+    private int nextBound(long day, int minute) {
+        int next = MINUTES_PER_DAY;
+        int yesterday = Arrays.binarySearch(holidayDays, (int) (day - 1));
+        if (yesterday >= 0) {
+            next = after(minute, holidayCloses[yesterday] - MINUTES_PER_DAY, next);
+        }
+        int today = Arrays.binarySearch(holidayDays, (int) day);
+        if (today >= 0) {
+            next = after(minute, holidayOpens[today], next);
+            next = after(minute, holidayCloses[today], next);
+        } else {
+            int[] bounds = yesterday >= 0 ? ownBounds : this.bounds;
+            int dayStart = weekday(day) * MINUTES_PER_DAY;
+            // first bound after minute
+            int i = Arrays.binarySearch(bounds, dayStart + minute + 1);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i < bounds.length) {
+                next = after(minute, bounds[i] - dayStart, next);
+            }
+        }
+        return next;
+    }
+
+    private static int after(int minute, int candidate, int best) {
+        return candidate > minute && candidate < best ? candidate : best;
+    }
+
+    // Monday is 0, the epoch was a Thursday
+    private static int weekday(long day) {
+        return (int) ((day + 3) % 7);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.inbloc_app.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One queued write against a route. Writes to the same route and aspect (completion, rating,
+// comment) form an entity and are replayed strictly in order; the collapse rules decide what is
+// left of a chain before anything is sent.
+public final class PendingWrite {
+
+    public static final String COMPLETE = "complete";
+    public static final String UNCOMPLETE = "uncomplete";
+    public static final String RATE = "rate";
+    public static final String UNRATE = "unrate";
+    public static final String COMMENT = "comment";
+
+    // what replaying a write did
+    public static final int APPLIED = 0;
+    // could not be delivered yet, stays queued
+    public static final int RETRY = 1;
+    // the server refused it for good, sending it again will not help
+    public static final int REJECTED = 2;
+
+    // row id, 0 until stored; it is also the replay order
+    final long id;
+    final String kind;
+    final String gymId;
+    final String wallId;
+    final String routeId;
+    // "true"/"false" flashed for COMPLETE, the rating for RATE, the message for COMMENT
+    final String value;
+    // sent as Idempotency-Key, a replay after a lost answer is not applied twice
+    final String idempotencyKey;
+
+    PendingWrite(long id, String kind, String gymId, String wallId, String routeId, String value,
+                 String idempotencyKey) {
+        this.id = id;
+        this.kind = kind;
+        this.gymId = gymId;
+        this.wallId = wallId;
+        this.routeId = routeId;
+        this.value = value;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    static String routeKey(String gymId, String wallId, String routeId) {
+        return gymId + "/" + wallId + "/" + routeId;
+    }
+
+    String routeKey() {
+        return routeKey(gymId, wallId, routeId);
+    }
+
+    String entity() {
+        return routeKey() + "#" + aspect(kind);
+    }
+
+    private static String aspect(String kind) {
+        if (COMPLETE.equals(kind) || UNCOMPLETE.equals(kind)) {
+            return COMPLETE;
+        }
+        if (RATE.equals(kind) || UNRATE.equals(kind)) {
+            return RATE;
+        }
+        return kind;
+    }
+
+    // Decides how next joins the writes of its entity that are still waiting (none of them in
+    // flight), oldest first. Returns the waiting writes to drop; next itself is only stored if
+    // keepNext[0] is true afterwards.
+    static List<PendingWrite> collapse(List<PendingWrite> waiting, PendingWrite next, boolean[] keepNext) {
+        List<PendingWrite> drop = new ArrayList<>();
+        keepNext[0] = true;
+        if (waiting.isEmpty()) {
+            return drop;
+        }
+        PendingWrite last = waiting.get(waiting.size() - 1);
+        if (COMPLETE.equals(aspect(next.kind))) {
+            // complete and uncomplete toggle: the opposite of a waiting write cancels it out,
+            // the same write twice is sent once
+            if (!last.kind.equals(next.kind)) {
+                drop.add(last);
+            }
+            keepNext[0] = false;
+            return drop;
+        }
+        // ratings and comments overwrite each other on the server (one per user and route),
+        // only the newest one matters
+        drop.addAll(waiting);
+        return drop;
+    }
+
+    // Maps the server's answer to a replayed write. Completing an already completed route and
+    // removing something that is not there mean the write is already in effect.
+    static int outcome(String kind, int code) {
+        if (code >= 200 && code < 300) {
+            return APPLIED;
+        }
+        if (code == 401 || code == 408 || code == 429 || code >= 500) {
+            return RETRY;
+        }
+        if ((COMPLETE.equals(kind) || UNCOMPLETE.equals(kind)) && code == 400) {
+            return APPLIED;
+        }
+        if (UNRATE.equals(kind) && code == 404) {
+            return APPLIED;
+        }
+        return REJECTED;
+    }
+}
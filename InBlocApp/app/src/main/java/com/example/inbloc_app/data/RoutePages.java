@@ -0,0 +1,75 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Route;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The walk behind RoutePagingSource: fills fixed-size pages from a RouteSource, continuing with
+// the next wall when a wall runs out. Pages can be fetched again in any order from the cursor
+// they started at. Called from one thread at a time.
+final class RoutePages {
+
+    // where a page starts: index into the gym's walls and the last routeId before it
+    static final class Cursor {
+        final int wallIndex;
+        final String startAfter;
+
+        Cursor(int wallIndex, String startAfter) {
+            this.wallIndex = wallIndex;
+            this.startAfter = startAfter;
+        }
+    }
+
+    static final class Page {
+        final List<Route> routes;
+        // null after the last page
+        final Cursor next;
+
+        Page(List<Route> routes, Cursor next) {
+            this.routes = routes;
+            this.next = next;
+        }
+    }
+
+    static final Cursor FIRST = new Cursor(0, null);
+
+    private final RouteSource source;
+    private final String gymId;
+    // null for every wall of the gym
+    private final String wallId;
+    private List<String> wallIds;
+
+    RoutePages(RouteSource source, String gymId, String wallId) {
+        this.source = source;
+        this.gymId = gymId;
+        this.wallId = wallId;
+    }
+
+    Page fetch(Cursor cursor, int pageSize) throws IOException {
+        if (wallIds == null) {
+            wallIds = wallId != null ? Collections.singletonList(wallId) : source.getWallIds(gymId);
+        }
+        List<Route> result = new ArrayList<>(pageSize);
+        int wallIndex = cursor.wallIndex;
+        String startAfter = cursor.startAfter;
+
+        while (result.size() < pageSize && wallIndex < wallIds.size()) {
+            int wanted = pageSize - result.size();
+            List<Route> chunk = source.getRoutes(gymId, wallIds.get(wallIndex), startAfter, wanted);
+            result.addAll(chunk);
+
+            if (chunk.size() < wanted) {
+                wallIndex++;
+                startAfter = null;
+            } else {
+                startAfter = chunk.get(chunk.size() - 1).getId();
+            }
+        }
+
+        Cursor next = wallIndex < wallIds.size() ? new Cursor(wallIndex, startAfter) : null;
+        return new Page(Collections.unmodifiableList(result), next);
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.inbloc_app.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.DataEnvelopeConverterFactory;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Pages through all routes of a gym, wall after wall, in fixed-size pages (see RoutePages),
+// from the backend or any other RouteSource. Only the last MAX_CACHED_PAGES pages are kept
+// in memory, evicted pages are fetched again from their remembered start cursor. Gyms the
+// background sync keeps offline are paged from the OfflineStore without touching the network.
+// Given a wallId, only the routes of that wall are paged. The page at the end of the list is
+// appended in chunks while its response is still being read, so the first rows show before the
+// whole page is in.
+// All public methods must be called on the main thread.
+public class RoutePagingSource {
+
+    private static final String TAG = "RoutePagingSource";
+    public static final int PAGE_SIZE = 25;
+    public static final int PREFETCH_DISTANCE = 10;
+    private static final int MAX_CACHED_PAGES = 8;
+
+    public interface Listener {
+        // a new page was added at the end of the list
+        void onItemsAppended(int start, int count);
+
+        // a page that was evicted earlier is back in memory
+        void onItemsReloaded(int start, int count);
+
+        // a page that failed after some of it was shown came back shorter
+        void onItemsRemoved(int start, int count);
+
+        void onError(Throwable t);
+    }
+
+    private final RouteSource remote;
+    private final OfflineStore store;
+    private final String gymId;
+    // null for every wall of the gym
+    private final String wallId;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // only touched on the executor
+    private RoutePages routePages;
+
+    // only touched on the main thread
+    private final List<RoutePages.Cursor> pageStarts = new ArrayList<>();
+    private final Map<Integer, List<Route>> pages = new LinkedHashMap<Integer, List<Route>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Route>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    // pages whose last request failed, loaded again by retry()
+    private final Set<Integer> failed = new HashSet<>();
+    private int loadedPages = 0;
+    // routes of page loadedPages already shown from chunks, and how many of them the current
+    // attempt at the page has delivered; a retry replaces what a failed attempt showed
+    private List<Route> partialPage = new ArrayList<>();
+    private int attempt = 0;
+    private int attemptReceived = 0;
+    private int itemCount = 0;
+    private boolean endReached = false;
+    // also read by the executor before each request
+    private volatile boolean closed = false;
+    private Listener listener;
+
+    public RoutePagingSource(ApiService apiService, String gymId) {
+        this(apiService, null, gymId);
+    }
+
+    // store may be null, then everything comes from the network
+    public RoutePagingSource(ApiService apiService, OfflineStore store, String gymId) {
+        this(apiService, store, gymId, null);
+    }
+
+    public RoutePagingSource(ApiService apiService, OfflineStore store, String gymId, String wallId) {
+        this(new ApiRouteSource(apiService), store, gymId, wallId);
+    }
+
+    // remote is used unless the gym is kept in store, which may be null
+    public RoutePagingSource(RouteSource remote, OfflineStore store, String gymId, String wallId) {
+        this.remote = remote;
+        this.store = store;
+        this.gymId = gymId;
+        this.wallId = wallId;
+        pageStarts.add(RoutePages.FIRST);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    // Loads the first page if nothing is loaded yet
+    public void start() {
+        if (loadedPages == 0) {
+            loadPage(0, NetworkDispatcher.LANE_INTERACTIVE);
+        }
+    }
+
+    // Returns the route or null if its page is not in memory (a placeholder should be shown).
+    // Accessing an item close to the end prefetches the next page.
+    public Route getItem(int position) {
+        int pageIndex = position / PAGE_SIZE;
+        List<Route> page = pages.get(pageIndex);
+        if (page == null) {
+            // a placeholder is on screen
+            loadPage(pageIndex, NetworkDispatcher.LANE_INTERACTIVE);
+        }
+        if (!endReached && position >= itemCount - PREFETCH_DISTANCE) {
+            loadPage(loadedPages, NetworkDispatcher.LANE_PREFETCH);
+        }
+        if (page == null || position % PAGE_SIZE >= page.size()) {
+            return null;
+        }
+        return page.get(position % PAGE_SIZE);
+    }
+
+    // Loads the pages whose last request failed again, e.g. from a retry row
+    public void retry() {
+        List<Integer> retry = new ArrayList<>(failed);
+        failed.clear();
+        for (int pageIndex : retry) {
+            loadPage(pageIndex, NetworkDispatcher.LANE_INTERACTIVE);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        listener = null;
+        executor.shutdownNow();
+        remote.cancel();
+    }
+
+    private void loadPage(final int pageIndex, final int lane) {
+        if (closed || pageIndex >= pageStarts.size() || loading.contains(pageIndex)) {
+            return;
+        }
+        loading.add(pageIndex);
+        final RoutePages.Cursor cursor = pageStarts.get(pageIndex);
+        // only rows at the end can be shown before their page is complete
+        DataEnvelopeConverterFactory.ChunkListener chunks = null;
+        if (pageIndex == loadedPages) {
+            attempt++;
+            attemptReceived = 0;
+            final int pageAttempt = attempt;
+            chunks = new DataEnvelopeConverterFactory.ChunkListener() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void onChunk(final List<?> items) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onChunkLoaded(pageIndex, pageAttempt, (List<Route>) items);
+                        }
+                    });
+                }
+            };
+        }
+        final DataEnvelopeConverterFactory.ChunkListener pageChunks = chunks;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                NetworkDispatcher.setLane(lane);
+                DataEnvelopeConverterFactory.setChunkListener(pageChunks);
+                try {
+                    final RoutePages.Page page = fetchPage(cursor);
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPageLoaded(pageIndex, page);
+                        }
+                    });
+                } catch (final IOException | RuntimeException e) {
+                    Log.i(TAG, "Could not load routes page " + pageIndex + " " + e);
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            loading.remove(pageIndex);
+                            failed.add(pageIndex);
+                            if (listener != null) {
+                                listener.onError(e);
+                            }
+                        }
+                    });
+                } finally {
+                    DataEnvelopeConverterFactory.setChunkListener(null);
+                }
+            }
+        });
+    }
+
+    private void onChunkLoaded(int pageIndex, int pageAttempt, List<Route> routes) {
+        // the page may be complete already, or the chunk is from an attempt that failed
+        if (closed || pageIndex != loadedPages || pageAttempt != attempt || !loading.contains(pageIndex)) {
+            return;
+        }
+        int pageStart = itemCount - partialPage.size();
+        int changedFrom = attemptReceived;
+        int changed = 0;
+        int appended = 0;
+        for (Route route : routes) {
+            if (attemptReceived < partialPage.size()) {
+                partialPage.set(attemptReceived, route);
+                changed++;
+            } else if (partialPage.size() < PAGE_SIZE) {
+                partialPage.add(route);
+                appended++;
+            }
+            attemptReceived++;
+        }
+        pages.put(pageIndex, partialPage);
+        itemCount += appended;
+        if (listener != null && changed > 0) {
+            listener.onItemsReloaded(pageStart + changedFrom, changed);
+        }
+        if (listener != null && appended > 0) {
+            listener.onItemsAppended(itemCount - appended, appended);
+        }
+    }
+
+    private void onPageLoaded(int pageIndex, RoutePages.Page page) {
+        loading.remove(pageIndex);
+        failed.remove(pageIndex);
+        if (closed) {
+            return;
+        }
+        pages.put(pageIndex, page.routes);
+        if (pageIndex == loadedPages) {
+            int shown = partialPage.size();
+            int start = itemCount - shown;
+            partialPage = new ArrayList<>();
+            loadedPages++;
+            itemCount = start + page.routes.size();
+            if (page.next != null && page.routes.size() == PAGE_SIZE) {
+                pageStarts.add(page.next);
+            } else {
+                endReached = true;
+            }
+            if (listener == null) {
+                return;
+            }
+            // rows a failed attempt showed and this one did not deliver again
+            if (attemptReceived < shown) {
+                listener.onItemsReloaded(start, Math.min(shown, page.routes.size()));
+            }
+            if (page.routes.size() > shown) {
+                listener.onItemsAppended(start + shown, page.routes.size() - shown);
+            } else if (page.routes.size() < shown) {
+                listener.onItemsRemoved(start + page.routes.size(), shown - page.routes.size());
+            }
+        } else if (listener != null) {
+            listener.onItemsReloaded(pageIndex * PAGE_SIZE, page.routes.size());
+        }
+    }
+
+    // Runs on the executor. The gym's source is picked with the first page, the store may only
+    // answer once the background sync got to the gym.
+    private RoutePages.Page fetchPage(RoutePages.Cursor cursor) throws IOException {
+        if (closed) {
+            throw new InterruptedIOException("Closed");
+        }
+        if (routePages == null) {
+            RouteSource source = store != null && store.hasGym(gymId) ? new StoreRouteSource(store) : remote;
+            routePages = new RoutePages(source, gymId, wallId);
+        }
+        return routePages.fetch(cursor, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Route;
+
+import java.io.IOException;
+import java.util.List;
+
+// Where the route list pages from: the backend (ApiRouteSource), the gyms the background sync
+// keeps offline (StoreRouteSource), or a fake backend in load tests. An instance serves one list
+// and is called from one thread at a time.
+public interface RouteSource {
+
+    // The walls of the gym in the order their routes are listed, empty if it has none
+    List<String> getWallIds(String gymId) throws IOException;
+
+    // Up to limit routes of the wall ordered by routeId, starting after startAfter (null for the
+    // first), fewer once the wall runs out. The routes have their id, gymId and wallId set.
+    List<Route> getRoutes(String gymId, String wallId, String startAfter, int limit) throws IOException;
+
+    // Aborts what is being fetched and everything after, the list was closed. Any thread.
+    void cancel();
+}
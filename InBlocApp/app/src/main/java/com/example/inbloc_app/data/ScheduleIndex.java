@@ -0,0 +1,198 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+// Compiled OpeningHours of every gym the app knows, so lists can filter on "open now" without a
+// request per row. The openings and holidays documents live in OfflineStore next to the ones the
+// favourite sync keeps; refresh fetches the missing and stale ones with their ETag, and every
+// document that changes, whoever stored it, is compiled again here. Gyms whose hours are not
+// known yet count as closed.
+public class ScheduleIndex {
+
+    private static final String TAG = "ScheduleIndex";
+    private static final String JSON = "application/json";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // documents checked more recently are not asked for again, a 304 is still a round trip
+    private static final long REFRESH_MS = 6 * 60 * 60 * 1000;
+    private static final int FETCH_THREADS = 2;
+
+    public interface Listener {
+        // main thread
+        void onSchedulesChanged();
+    }
+
+    private static ScheduleIndex instance;
+
+    private final Context context;
+    private final Map<String, OpeningHours> schedules = new ConcurrentHashMap<>();
+    // when this process last asked the backend about a gym
+    private final Map<String, Long> checkedAt = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(FETCH_THREADS,
+            NetworkDispatcher.threadFactory(TAG, NetworkDispatcher.LANE_PREFETCH));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable notifyListeners = new Runnable() {
+        @Override
+        public void run() {
+            for (Listener listener : listeners) {
+                listener.onSchedulesChanged();
+            }
+        }
+    };
+
+    public static synchronized ScheduleIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new ScheduleIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ScheduleIndex(Context context) {
+        this.context = context;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // UNKNOWN until the gym's documents were read
+    public OpeningHours getSchedule(String gymId) {
+        OpeningHours schedule = schedules.get(gymId);
+        return schedule != null ? schedule : OpeningHours.UNKNOWN;
+    }
+
+    public boolean isOpen(String gymId, long timeMs) {
+        return getSchedule(gymId).isOpen(timeMs, TimeZone.getDefault());
+    }
+
+    // The gyms open at timeMs, in their order
+    public List<Gyms> filterOpen(List<Gyms> gyms, long timeMs) {
+        List<Gyms> open = new ArrayList<>();
+        TimeZone zone = TimeZone.getDefault();
+        for (Gyms gym : gyms) {
+            if (getSchedule(gym.getId()).isOpen(timeMs, zone)) {
+                open.add(gym);
+            }
+        }
+        return open;
+    }
+
+    // When any of the gyms next opens or closes, -1 if none ever does
+    public long nextChange(List<Gyms> gyms, long timeMs) {
+        long next = -1;
+        TimeZone zone = TimeZone.getDefault();
+        for (Gyms gym : gyms) {
+            long change = getSchedule(gym.getId()).nextChange(timeMs, zone);
+            if (change > 0 && (next < 0 || change < next)) {
+                next = change;
+            }
+        }
+        return next;
+    }
+
+    // Makes sure the hours of these gyms are compiled and not older than REFRESH_MS. Stored
+    // documents are used right away, the network only for gyms that were not checked lately.
+    public void refresh(List<Gyms> gyms) {
+        final long now = System.currentTimeMillis();
+        for (final Gyms gym : gyms) {
+            final String gymId = gym.getId();
+            if (gymId == null) {
+                continue;
+            }
+            Long checked = checkedAt.get(gymId);
+            if (checked != null && now - checked < REFRESH_MS) {
+                continue;
+            }
+            checkedAt.put(gymId, now);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!schedules.containsKey(gymId)) {
+                        compile(gymId);
+                    }
+                    try {
+                        fetch(gymId, OfflineStore.DOCUMENT_OPENINGS);
+                        fetch(gymId, OfflineStore.DOCUMENT_HOLIDAYS);
+                    } catch (IOException | RuntimeException e) {
+                        // ask again with the next refresh
+                        checkedAt.remove(gymId);
+                        Log.i(TAG, "Could not refresh hours of " + gymId + ": " + e);
+                    }
+                }
+            });
+        }
+    }
+
+    // Called by OfflineStore whenever a document of the gym was stored
+    void onDocumentChanged(final String gymId) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compile(gymId);
+            }
+        });
+    }
+
+    // executor
+    private void compile(String gymId) {
+        OfflineStore store = OfflineStore.getInstance(context);
+        String[] openings = store.getDocument(gymId, OfflineStore.DOCUMENT_OPENINGS);
+        String[] holidays = store.getDocument(gymId, OfflineStore.DOCUMENT_HOLIDAYS);
+        schedules.put(gymId, OpeningHours.compile(openings != null ? openings[1] : null,
+                holidays != null ? holidays[1] : null));
+        // one notification for a burst of gyms
+        mainHandler.removeCallbacks(notifyListeners);
+        mainHandler.post(notifyListeners);
+    }
+
+    // executor. Stores the document only if it changed, which compiles it again.
+    private void fetch(String gymId, String kind) throws IOException {
+        OfflineStore store = OfflineStore.getInstance(context);
+        String[] stored = store.getDocument(gymId, kind);
+        String eTag = stored != null ? stored[0] : null;
+        ApiService apiService = ApiUtils.getApiService();
+        Response<ResponseBody> response = OfflineStore.DOCUMENT_OPENINGS.equals(kind)
+                ? apiService.getOpenings(JSON, gymId, eTag).execute()
+                : apiService.getHolidays(JSON, gymId, eTag).execute();
+        try (ResponseBody body = response.isSuccessful() ? response.body() : response.errorBody()) {
+            if (response.code() == 304) {
+                return;
+            }
+            if (response.code() == 404) {
+                if (stored == null || stored[1] != null) {
+                    store.putDocument(gymId, kind, null, null);
+                }
+            } else if (!response.isSuccessful() || body == null) {
+                throw new IOException("Call unsuccessful " + response.code());
+            } else {
+                store.putDocument(gymId, kind, response.headers().get("ETag"), new String(body.bytes(), UTF_8));
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Versioned binary snapshot of the gym list, GymRepository's disk cache. Every string is stored
+// once in a dictionary and referenced by index, and all records have a fixed size, so record i is
+// found by arithmetic. The file is memory-mapped and only the records (and strings) that are
+// actually read get decoded. Walls and routes of the gyms kept offline live in OfflineStore.
+//
+//   header    magic, version, eTag, string and gym counts, length of the string data
+//   strings   (count + 1) offsets into the UTF-8 data, then the data
+//   gyms      10 string refs (id and the 9 fields)                      40 bytes each
+//
+// A string ref of -1 is null. A file with another magic or version is rejected, the caller
+// then drops it and loads from the network. Version 1 also had walls and routes sections.
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x49425331; // "IBS1"
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int GYM_BYTES = 40;
+    private static final int NULL = -1;
+
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    private final int stringOffsets;
+    private final int stringData;
+    private final AtomicReferenceArray<String> strings;
+    private final String eTag;
+    private final List<Gyms> gyms;
+
+    private SnapshotFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Snapshot version " + buffer.getShort(4) + ", expected " + VERSION);
+        }
+        stringCount = buffer.getInt(12);
+        int gymCount = buffer.getInt(16);
+        int stringBytes = buffer.getInt(20);
+        stringOffsets = HEADER_BYTES;
+        stringData = stringOffsets + 4 * (stringCount + 1);
+        int gymsStart = stringData + stringBytes;
+        if (stringCount < 0 || gymCount < 0 || stringBytes < 0
+                || (long) gymsStart + (long) gymCount * GYM_BYTES != buffer.capacity()) {
+            throw new IOException("Truncated snapshot");
+        }
+        strings = new AtomicReferenceArray<>(stringCount);
+        eTag = string(buffer.getInt(8));
+
+        gyms = new Records<Gyms>(gymsStart, GYM_BYTES, gymCount) {
+            @Override
+            Gyms decode(int at) {
+                Gyms gym = new Gyms();
+                gym.setId(string(buffer.getInt(at)));
+                gym.setName(string(buffer.getInt(at + 4)));
+                gym.setCity(string(buffer.getInt(at + 8)));
+                gym.setDescription(string(buffer.getInt(at + 12)));
+                gym.setEmail(string(buffer.getInt(at + 16)));
+                gym.setHouseNumber(string(buffer.getInt(at + 20)));
+                gym.setPhone(string(buffer.getInt(at + 24)));
+                gym.setStreet(string(buffer.getInt(at + 28)));
+                gym.setWebsite(string(buffer.getInt(at + 32)));
+                gym.setZip(string(buffer.getInt(at + 36)));
+                return gym;
+            }
+        };
+    }
+
+    // Maps the file read-only, nothing is decoded yet
+    public static SnapshotFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SnapshotFile(mapped);
+        }
+    }
+
+    // For snapshots that are already in memory, e.g. in tests
+    static SnapshotFile wrap(byte[] bytes) throws IOException {
+        return new SnapshotFile(ByteBuffer.wrap(bytes));
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    // The lists are read-only and decode a record the first time it is accessed. They can be
+    // shared between threads.
+    public List<Gyms> getGyms() {
+        return gyms;
+    }
+
+    private abstract class Records<T> extends AbstractList<T> implements RandomAccess {
+
+        private final int start;
+        private final int recordBytes;
+        private final AtomicReferenceArray<T> decoded;
+
+        Records(int start, int recordBytes, int count) {
+            this.start = start;
+            this.recordBytes = recordBytes;
+            decoded = new AtomicReferenceArray<>(count);
+        }
+
+        abstract T decode(int at);
+
+        @Override
+        public T get(int index) {
+            T item = decoded.get(index);
+            if (item == null) {
+                // two threads may both decode it, either copy is fine
+                item = decode(start + index * recordBytes);
+                decoded.set(index, item);
+            }
+            return item;
+        }
+
+        @Override
+        public int size() {
+            return decoded.length();
+        }
+    }
+
+    private String string(int ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        String value = strings.get(ref);
+        if (value == null) {
+            int from = buffer.getInt(stringOffsets + 4 * ref);
+            int to = buffer.getInt(stringOffsets + 4 * (ref + 1));
+            byte[] bytes = new byte[to - from];
+            // absolute reads, the buffer's position is shared by all threads
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(stringData + from + i);
+            }
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings.set(ref, value);
+        }
+        return value;
+    }
+
+    // Written to a temp file first so a crash mid-write never leaves a broken snapshot behind
+    public static void write(File file, String eTag, List<Gyms> gyms) throws IOException {
+        byte[] bytes = encode(eTag, gyms);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    static byte[] encode(String eTag, List<Gyms> gyms) {
+        Dictionary dictionary = new Dictionary();
+        int eTagRef = dictionary.ref(eTag);
+        int[] gymRefs = new int[gyms.size() * 10];
+        for (int i = 0; i < gyms.size(); i++) {
+            Gyms gym = gyms.get(i);
+            int at = i * 10;
+            gymRefs[at] = dictionary.ref(gym.getId());
+            gymRefs[at + 1] = dictionary.ref(gym.getName());
+            gymRefs[at + 2] = dictionary.ref(gym.getCity());
+            gymRefs[at + 3] = dictionary.ref(gym.getDescription());
+            gymRefs[at + 4] = dictionary.ref(gym.getEmail());
+            gymRefs[at + 5] = dictionary.ref(gym.getHouseNumber());
+            gymRefs[at + 6] = dictionary.ref(gym.getPhone());
+            gymRefs[at + 7] = dictionary.ref(gym.getStreet());
+            gymRefs[at + 8] = dictionary.ref(gym.getWebsite());
+            gymRefs[at + 9] = dictionary.ref(gym.getZip());
+        }
+
+        int stringCount = dictionary.encoded.size();
+        int size = HEADER_BYTES + 4 * (stringCount + 1) + dictionary.bytes + gyms.size() * GYM_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putInt(eTagRef).putInt(stringCount)
+                .putInt(gyms.size()).putInt(dictionary.bytes);
+        int offset = 0;
+        for (byte[] encoded : dictionary.encoded) {
+            out.putInt(offset);
+            offset += encoded.length;
+        }
+        out.putInt(offset);
+        for (byte[] encoded : dictionary.encoded) {
+            out.put(encoded);
+        }
+        for (int ref : gymRefs) {
+            out.putInt(ref);
+        }
+        return out.array();
+    }
+
+    // Every distinct string once, in order of first use
+    private static final class Dictionary {
+        final Map<String, Integer> refs = new HashMap<>();
+        final List<byte[]> encoded = new ArrayList<>();
+        int bytes = 0;
+
+        int ref(String value) {
+            if (value == null) {
+                return NULL;
+            }
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                ref = encoded.size();
+                refs.put(value, ref);
+                encoded.add(utf8);
+                bytes += utf8.length;
+            }
+            return ref;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.inbloc_app.retrofit.models.Route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps the ClimbStats of this device's user. Completions logged in the route list and route
+// changes brought by the sync are applied one by one on a single thread, then the stats are saved
+// and observers get a fresh Summary on the main thread. The stats screen never looks at routes.
+public class StatsStore {
+
+    private static final String TAG = "StatsStore";
+    private static final String STATS_FILE = "climb_stats.bin";
+
+    public interface Observer {
+        void onStatsChanged(ClimbStats.Summary summary);
+    }
+
+    private static StatsStore instance;
+
+    private final File file;
+    // owns stats, every read and change runs here in order
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+    private ClimbStats stats;
+
+    public static synchronized StatsStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new StatsStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StatsStore(Context context) {
+        file = new File(context.getFilesDir(), STATS_FILE);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                stats = load();
+            }
+        });
+    }
+
+    // Delivers the current summary right away, then after every change until removed
+    public void observe(final Observer observer) {
+        observers.add(observer);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                deliver(stats.summarize(System.currentTimeMillis()), observer);
+            }
+        });
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    public void setCompleted(final Route route, final boolean completed, final boolean flashed) {
+        final long now = System.currentTimeMillis();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String routeKey = PendingWrite.routeKey(route.getGymId(), route.getWallId(), route.getId());
+                boolean changed = completed
+                        ? stats.complete(routeKey, route.getGymId(), route.getWallId(), route.getDifficulty(),
+                        route.getFeatureMask(), flashed, now)
+                        : stats.uncomplete(routeKey);
+                if (changed) {
+                    saveAndNotify();
+                }
+            }
+        });
+    }
+
+    // The server refused a completion, it never counted
+    void forget(final String gymId, final String wallId, final String routeId) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (stats.uncomplete(PendingWrite.routeKey(gymId, wallId, routeId))) {
+                    saveAndNotify();
+                }
+            }
+        });
+    }
+
+    // Sync delta of one gym: completed routes that were regraded or got other features move
+    // between the counters. Routes are looked up by key, the history is not scanned.
+    void onRoutesSynced(final String gymId, final Map<String, List<Route>> routesByWall) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean changed = false;
+                for (Map.Entry<String, List<Route>> entry : routesByWall.entrySet()) {
+                    for (Route route : entry.getValue()) {
+                        String routeKey = PendingWrite.routeKey(gymId, entry.getKey(), route.getId());
+                        changed |= stats.routeChanged(routeKey, route.getDifficulty(), route.getFeatureMask());
+                    }
+                }
+                if (changed) {
+                    saveAndNotify();
+                }
+            }
+        });
+    }
+
+    // executor
+    private void saveAndNotify() {
+        save();
+        ClimbStats.Summary summary = stats.summarize(System.currentTimeMillis());
+        for (Observer observer : observers) {
+            deliver(summary, observer);
+        }
+    }
+
+    private void deliver(final ClimbStats.Summary summary, final Observer observer) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // may have been removed while this was queued
+                if (observers.contains(observer)) {
+                    observer.onStatsChanged(summary);
+                }
+            }
+        });
+    }
+
+    // executor
+    private ClimbStats load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return ClimbStats.readFrom(in);
+        } catch (FileNotFoundException e) {
+            return new ClimbStats();
+        } catch (IOException e) {
+            Log.e(TAG, "Stats file unreadable, starting over", e);
+            return new ClimbStats();
+        }
+    }
+
+    // executor. Written to a temp file first so a crash mid-write keeps the previous stats.
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            stats.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not save stats", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Could not replace " + file);
+        }
+    }
+}
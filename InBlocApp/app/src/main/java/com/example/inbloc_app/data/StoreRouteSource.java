@@ -0,0 +1,35 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Route;
+
+import java.util.List;
+
+// The routes of a gym the background sync keeps in the OfflineStore, no network involved
+public class StoreRouteSource implements RouteSource {
+
+    private final OfflineStore store;
+
+    public StoreRouteSource(OfflineStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<String> getWallIds(String gymId) {
+        return store.getWallIds(gymId);
+    }
+
+    @Override
+    public List<Route> getRoutes(String gymId, String wallId, String startAfter, int limit) {
+        List<Route> routes = store.getRoutes(gymId, wallId, startAfter, limit);
+        for (Route route : routes) {
+            route.setGymId(gymId);
+            route.setWallId(wallId);
+        }
+        return routes;
+    }
+
+    @Override
+    public void cancel() {
+        // a local query is over quickly
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.EnvelopeReader;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+// Brings the offline copy of the favourite gyms up to date. The backend has no change feed, so
+// deltas come from two things it does offer: ETags (a 304 for walls, openings or holidays costs
+// one empty round trip) and the walls' setDate. Routes are only fetched again for walls that are
+// new or were reset on or after the newest setDate seen in the last sync (the watermark); routes
+// of untouched walls stay as they are. Each gym is committed in one transaction once all its data
+// arrived, so an interrupted run never leaves a half-synced gym behind. Runs on a background
+// thread, e.g. GymSyncWorker's.
+public class SyncEngine {
+
+    private static final String JSON = "application/json";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final int WALLS_LIMIT = 1000;
+    static final int ROUTES_PAGE_SIZE = 200;
+
+    // what the engine needs from OfflineStore, a fake in tests
+    public interface Store {
+        OfflineStore.SyncState getSyncState(String gymId);
+
+        List<String> getWallIds(String gymId);
+
+        void applyWallSync(String gymId, List<Walls> walls, Map<String, List<Route>> routesByWall,
+                           String wallsETag, String watermark);
+
+        void touchSyncState(String gymId);
+
+        String[] getDocument(String gymId, String kind);
+
+        void putDocument(String gymId, String kind, String eTag, String body);
+
+        void retainGyms(Collection<String> gymIds);
+
+        void recordRun(RunMetrics run);
+    }
+
+    public static class RunMetrics {
+        public final long startedAtMs;
+        public long durationMs;
+        public int gyms;
+        public int requests;
+        // requests answered with 304
+        public int notModified;
+        // response bodies as received, -1 content lengths are not counted
+        public long bytes;
+        // walls and routes written
+        public int records;
+        // gyms that could not be synced this time
+        public int failures;
+
+        public RunMetrics(long startedAtMs) {
+            this.startedAtMs = startedAtMs;
+        }
+
+        @Override
+        public String toString() {
+            return "gyms=" + gyms + " requests=" + requests + " notModified=" + notModified
+                    + " bytes=" + bytes + " records=" + records + " failures=" + failures
+                    + " durationMs=" + durationMs;
+        }
+    }
+
+    private final ApiService apiService;
+    private final Store store;
+
+    public SyncEngine(ApiService apiService, Store store) {
+        this.apiService = apiService;
+        this.store = store;
+    }
+
+    // Syncs every given gym and drops stored gyms that are not among them. A failing gym is
+    // counted and skipped, it keeps its old data.
+    public RunMetrics sync(Collection<String> gymIds) {
+        RunMetrics run = new RunMetrics(System.currentTimeMillis());
+        long start = System.nanoTime();
+        for (String gymId : gymIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            run.gyms++;
+            try {
+                syncWalls(gymId, run);
+                syncDocument(gymId, OfflineStore.DOCUMENT_OPENINGS, run);
+                syncDocument(gymId, OfflineStore.DOCUMENT_HOLIDAYS, run);
+            } catch (IOException | RuntimeException e) {
+                run.failures++;
+            }
+        }
+        store.retainGyms(gymIds);
+        run.durationMs = (System.nanoTime() - start) / 1000000;
+        store.recordRun(run);
+        return run;
+    }
+
+    private void syncWalls(String gymId, RunMetrics run) throws IOException {
+        OfflineStore.SyncState state = store.getSyncState(gymId);
+        Response<ResponseBody> response = apiService.getWalls(JSON, gymId, WALLS_LIMIT,
+                state != null ? state.wallsETag : null).execute();
+        run.requests++;
+        List<Walls> walls;
+        try (ResponseBody body = response.isSuccessful() ? response.body() : response.errorBody()) {
+            if (response.code() == 304) {
+                run.notModified++;
+                store.touchSyncState(gymId);
+                return;
+            }
+            // 404 means "No walls found"
+            if (!response.isSuccessful() && response.code() != 404) {
+                throw new IOException("Call unsuccessful " + response.code());
+            }
+            walls = response.isSuccessful() && body != null
+                    ? readWalls(gymId, body, run) : Collections.<Walls>emptyList();
+        }
+
+        String watermark = state != null ? state.watermark : null;
+        Set<String> stored = new HashSet<>(store.getWallIds(gymId));
+        String newWatermark = watermark;
+        Map<String, List<Route>> routesByWall = new LinkedHashMap<>();
+        for (Walls wall : walls) {
+            String setDate = wall.getSetDate();
+            // YYYY-MM-DD compares correctly as a string. Walls reset on the watermark day itself
+            // are fetched again, the day may have had more resets after the last sync.
+            boolean changed = !stored.contains(wall.getId()) || watermark == null || setDate == null
+                    || setDate.compareTo(watermark) >= 0;
+            if (changed) {
+                routesByWall.put(wall.getId(), fetchRoutes(gymId, wall.getId(), run));
+            }
+            if (setDate != null && (newWatermark == null || setDate.compareTo(newWatermark) > 0)) {
+                newWatermark = setDate;
+            }
+        }
+        run.records += walls.size();
+        store.applyWallSync(gymId, walls, routesByWall, response.headers().get("ETag"), newWatermark);
+    }
+
+    private List<Walls> readWalls(final String gymId, ResponseBody body, RunMetrics run) throws IOException {
+        byte[] bytes = body.bytes();
+        run.bytes += bytes.length;
+        final List<Walls> walls = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), UTF_8))) {
+            EnvelopeReader.read(reader, "walls", 1, ModelAdapters.WALLS, new EnvelopeReader.Sink<Walls>() {
+                @Override
+                public void onItem(String[] keys, Walls wall) {
+                    wall.setId(keys[0]);
+                    wall.setGymId(gymId);
+                    walls.add(wall);
+                }
+            });
+        }
+        return walls;
+    }
+
+    // All routes of one wall, page after page
+    private List<Route> fetchRoutes(String gymId, String wallId, RunMetrics run) throws IOException {
+        List<Route> routes = new ArrayList<>();
+        String startAfter = null;
+        while (true) {
+            Response<List<Route>> response = apiService.getRoutes(JSON, gymId, wallId, startAfter,
+                    ROUTES_PAGE_SIZE).execute();
+            run.requests++;
+            run.bytes += Math.max(0, response.raw().body() != null ? response.raw().body().contentLength() : 0);
+            // 404 means "No routes found"
+            if (!response.isSuccessful()) {
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                if (response.code() == 404) {
+                    break;
+                }
+                throw new IOException("Call unsuccessful " + response.code());
+            }
+            List<Route> chunk = response.body() != null ? response.body() : Collections.<Route>emptyList();
+            for (Route route : chunk) {
+                route.setGymId(gymId);
+                route.setWallId(wallId);
+                routes.add(route);
+            }
+            if (chunk.size() < ROUTES_PAGE_SIZE) {
+                break;
+            }
+            startAfter = chunk.get(chunk.size() - 1).getId();
+        }
+        run.records += routes.size();
+        return routes;
+    }
+
+    private void syncDocument(String gymId, String kind, RunMetrics run) throws IOException {
+        String[] stored = store.getDocument(gymId, kind);
+        String eTag = stored != null ? stored[0] : null;
+        Response<ResponseBody> response = OfflineStore.DOCUMENT_OPENINGS.equals(kind)
+                ? apiService.getOpenings(JSON, gymId, eTag).execute()
+                : apiService.getHolidays(JSON, gymId, eTag).execute();
+        run.requests++;
+        try (ResponseBody body = response.isSuccessful() ? response.body() : response.errorBody()) {
+            if (response.code() == 304) {
+                run.notModified++;
+            } else if (response.code() == 404) {
+                store.putDocument(gymId, kind, null, null);
+            } else if (!response.isSuccessful() || body == null) {
+                throw new IOException("Call unsuccessful " + response.code());
+            } else {
+                byte[] bytes = body.bytes();
+                run.bytes += bytes.length;
+                store.putDocument(gymId, kind, response.headers().get("ETag"), new String(bytes, UTF_8));
+            }
+        }
+    }
+}
@@ -1,14 +0,0 @@
-package com.example.inbloc_app.data;
-
-public class Token {
-
-    private static String token;
-
-    public static String getToken() {
-        return token;
-    }
-
-    public static void setToken(String token) {
-        Token.token = token;
-    }
-}
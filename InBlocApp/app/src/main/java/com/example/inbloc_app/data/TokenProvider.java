@@ -0,0 +1,204 @@
+package com.example.inbloc_app.data;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.GetTokenResult;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Caches the Firebase ID token together with its expiry and refreshes it in the background
+// REFRESH_MARGIN_MS before it runs out, so requests practically never wait for a refresh.
+// Refreshes are single-flight: callers that find the token they hold already replaced get the
+// new one instead of starting another refresh. Only refreshes wait for the fetch, setToken and
+// clear (called on the main thread at sign-in and sign-out) never do. getToken and
+// refreshAfterUnauthorized may block, never call them on the main thread.
+public class TokenProvider {
+
+    private static final long REFRESH_MARGIN_MS = 5 * 60 * 1000;
+    private static final long FETCH_TIMEOUT_SECONDS = 20;
+
+    // where fresh tokens come from, Firebase in the app and a fake in tests
+    public interface Source {
+        // null if nobody is signed in
+        Result fetch(boolean forceRefresh) throws IOException;
+    }
+
+    public static final class Result {
+        final String token;
+        final long expiresAtMs;
+
+        public Result(String token, long expiresAtMs) {
+            this.token = token;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    private static TokenProvider instance;
+
+    private final Source source;
+    private final ScheduledExecutorService scheduler;
+    // guards current, generation and scheduledRefresh, never held during a fetch
+    private final Object lock = new Object();
+    // held for a whole refresh, so there is only one fetch at a time
+    private final Object refreshLock = new Object();
+    private final AtomicBoolean asyncRefreshPending = new AtomicBoolean(false);
+    // written under lock, read without it on the hot path
+    private volatile Result current = null;
+    private ScheduledFuture<?> scheduledRefresh = null;
+    // bumped by setToken and clear, a fetch that started before them is outdated
+    private long generation = 0;
+
+    public static synchronized TokenProvider getInstance() {
+        if (instance == null) {
+            instance = new TokenProvider(new FirebaseSource());
+        }
+        return instance;
+    }
+
+    TokenProvider(Source source) {
+        this.source = source;
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "TokenProvider");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // Hands over the token the login just received, saves the first request a round trip
+    public void setToken(String token, long expiresAtSeconds) {
+        synchronized (lock) {
+            generation++;
+            update(new Result(token, expiresAtSeconds * 1000));
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            generation++;
+            current = null;
+            cancelScheduledRefresh();
+        }
+    }
+
+    // The token to send, null if nobody is signed in. Blocks only if there is no usable token.
+    public String getToken() throws IOException {
+        Result cached = current;
+        long now = System.currentTimeMillis();
+        if (cached != null && now < cached.expiresAtMs) {
+            if (now >= cached.expiresAtMs - REFRESH_MARGIN_MS) {
+                // the scheduled refresh did not run, e.g. because the device slept
+                refreshAsync(cached.token);
+            }
+            return cached.token;
+        }
+        return refresh(cached != null ? cached.token : null, false);
+    }
+
+    // Called when the server rejected staleToken. Returns a new token or null if there is none.
+    public String refreshAfterUnauthorized(String staleToken) throws IOException {
+        return refresh(staleToken, true);
+    }
+
+    private String refresh(String staleToken, boolean force) throws IOException {
+        synchronized (refreshLock) {
+            Result now = current;
+            if (now != null && !now.token.equals(staleToken) && System.currentTimeMillis() < now.expiresAtMs) {
+                // someone else refreshed while we waited for the lock
+                return now.token;
+            }
+            long started;
+            synchronized (lock) {
+                started = generation;
+            }
+            Result fetched = source.fetch(force);
+            synchronized (lock) {
+                if (generation != started) {
+                    // signed in or out during the fetch, what that left behind wins
+                    Result latest = current;
+                    return latest != null ? latest.token : null;
+                }
+                if (fetched == null) {
+                    current = null;
+                    cancelScheduledRefresh();
+                    return null;
+                }
+                update(fetched);
+                return fetched.token;
+            }
+        }
+    }
+
+    private void refreshAsync(final String staleToken) {
+        if (!asyncRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh(staleToken, true);
+                } catch (IOException | RuntimeException e) {
+                    // the next request will try again
+                } finally {
+                    asyncRefreshPending.set(false);
+                }
+            }
+        });
+    }
+
+    // holds lock
+    private void update(final Result result) {
+        current = result;
+        cancelScheduledRefresh();
+        long delay = result.expiresAtMs - REFRESH_MARGIN_MS - System.currentTimeMillis();
+        if (delay > 0) {
+            scheduledRefresh = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    refreshAsync(result.token);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // holds lock
+    private void cancelScheduledRefresh() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+    }
+
+    private static class FirebaseSource implements Source {
+
+        @Override
+        public Result fetch(boolean forceRefresh) throws IOException {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                return null;
+            }
+            try {
+                GetTokenResult result = Tasks.await(user.getIdToken(forceRefresh),
+                        FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return new Result(result.getToken(), result.getExpirationTimestamp() * 1000);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IOException("Could not get ID token", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while getting ID token", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.User;
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.RetrofitClient;
+import com.example.inbloc_app.retrofit.remote.ServerSentEventReader;
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Keeps one long-lived GET /stream/users/:uid/ connection open while at least one observer is
+// registered and pushes every user snapshot to them. Dropped connections are reopened with
+// jittered exponential backoff and the last event id. Observers register in onStart and
+// unregister in onStop, so the stream pauses while the app is in the background; a short
+// grace period avoids reconnecting on configuration changes.
+// Public methods and observer callbacks run on the main thread.
+public class UserStream {
+
+    private static final String TAG = "UserStream";
+    private static final long INITIAL_RETRY_MS = 1000;
+    private static final long MAX_RETRY_MS = 60000;
+    // the server sends a heartbeat every 25s, two missed ones mean the connection is dead
+    private static final long READ_TIMEOUT_SECONDS = 60;
+    private static final long STOP_GRACE_MS = 5000;
+
+    public interface Observer {
+        // user is null if it has no data in /users yet
+        void onUserUpdated(User user);
+
+        void onConnectionChanged(boolean connected);
+    }
+
+    private static UserStream instance;
+
+    private final OkHttpClient streamClient;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Observer> observers = new ArrayList<>();
+    private final Runnable stopRunnable = new Runnable() {
+        @Override
+        public void run() {
+            stopConnection();
+        }
+    };
+
+    // main thread only
+    private String uid = null;
+    private User latest = null;
+    private boolean hasLatest = false;
+    private boolean connected = false;
+    private Connection connection = null;
+
+    public static synchronized UserStream getInstance(Context context) {
+        if (instance == null) {
+            RetrofitClient.init(context);
+            instance = new UserStream();
+        }
+        return instance;
+    }
+
+    private UserStream() {
+        // shares pool and dispatcher with Retrofit, only the read timeout and cache differ
+        streamClient = RetrofitClient.getOkHttpClient().newBuilder()
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                // no-cache only forces revalidation, the endless stream must not be copied to disk
+                .cache(null)
+                // a stream only ends when it is dropped, its duration says nothing about latency
+                .eventListener(EventListener.NONE)
+                .build();
+    }
+
+    // Registers the observer for the given user, it gets the last known snapshot right away
+    public void observe(String uid, Observer observer) {
+        if (!uid.equals(this.uid)) {
+            stopConnection();
+            this.uid = uid;
+            latest = null;
+            hasLatest = false;
+        }
+        mainHandler.removeCallbacks(stopRunnable);
+        if (!observers.contains(observer)) {
+            observers.add(observer);
+        }
+        observer.onConnectionChanged(connected);
+        if (hasLatest) {
+            observer.onUserUpdated(latest);
+        }
+        if (connection == null) {
+            connection = new Connection(uid);
+            connection.start();
+        }
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+        if (observers.isEmpty()) {
+            mainHandler.removeCallbacks(stopRunnable);
+            mainHandler.postDelayed(stopRunnable, STOP_GRACE_MS);
+        }
+    }
+
+    private void stopConnection() {
+        if (connection != null) {
+            connection.stop();
+            connection = null;
+        }
+        setConnected(null, false);
+    }
+
+    private void setConnected(Connection source, boolean value) {
+        if (source != connection || connected == value) {
+            return;
+        }
+        connected = value;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onConnectionChanged(value);
+        }
+    }
+
+    private void publish(Connection source, User user) {
+        if (source != connection) {
+            return;
+        }
+        latest = user;
+        hasLatest = true;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onUserUpdated(user);
+        }
+    }
+
+    // One reconnect loop on its own thread, replaced as a whole when the uid changes
+    private class Connection implements Runnable, ServerSentEventReader.Callback {
+
+        private final String uid;
+        private final Thread thread;
+        private final Random random = new Random();
+        private volatile boolean running = true;
+        private volatile Call call;
+        private String lastEventId = null;
+        private long retryMs = INITIAL_RETRY_MS;
+        private int attempt = 0;
+
+        Connection(String uid) {
+            this.uid = uid;
+            thread = new Thread(this, TAG);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    if (!stream()) {
+                        // the server refused the subscription, retrying will not help
+                        return;
+                    }
+                } catch (IOException e) {
+                    if (running) {
+                        Log.i(TAG, "Stream of " + uid + " dropped " + e);
+                    }
+                }
+                postConnected(false);
+                if (!running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(nextDelay());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        // Returns false if the server answered with an error that retrying cannot fix
+        private boolean stream() throws IOException {
+            Request.Builder request = new Request.Builder()
+                    .url(ApiUtils.getBaseUrl() + "/stream/users/" + uid + "/")
+                    // the backend checks Content-Type even on this GET
+                    .header("Content-Type", "text/event-stream")
+                    .header("Accept", "text/event-stream")
+                    .header("Cache-Control", "no-cache");
+            if (lastEventId != null) {
+                request.header("Last-Event-ID", lastEventId);
+            }
+            Call current = streamClient.newCall(request.build());
+            call = current;
+            if (!running) {
+                return true;
+            }
+
+            try (Response response = current.execute()) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    int code = response.code();
+                    Log.i(TAG, "Stream of " + uid + " rejected " + code);
+                    // 401 may be an expired token and 408/429/5xx are temporary, anything else is final
+                    return code == 401 || code == 408 || code == 429 || code >= 500;
+                }
+                postConnected(true);
+                ServerSentEventReader reader = new ServerSentEventReader(
+                        new BufferedReader(response.body().charStream()), lastEventId, this);
+                while (running && reader.processNext()) {
+                    lastEventId = reader.getLastEventId();
+                    // got a complete event, the connection is healthy again
+                    attempt = 0;
+                }
+            }
+            return true;
+        }
+
+        // "Equal jitter": half of the exponential delay is fixed, the other half random,
+        // so clients that dropped at the same time do not all come back at once
+        private long nextDelay() {
+            long delay = Math.min(MAX_RETRY_MS, retryMs << Math.min(attempt, 16));
+            attempt++;
+            return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+        }
+
+        @Override
+        public void onEvent(String id, String type, String data) throws IOException {
+            if (!"message".equals(type)) {
+                return;
+            }
+            final User user;
+            try (JsonReader reader = new JsonReader(new StringReader(data))) {
+                user = ModelAdapters.USER.read(reader);
+            } catch (IllegalStateException e) {
+                Log.i(TAG, "Unexpected user snapshot " + e);
+                return;
+            }
+            if (user != null) {
+                user.setId(uid);
+            }
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    publish(Connection.this, user);
+                }
+            });
+        }
+
+        @Override
+        public void onRetry(long retryMs) {
+            this.retryMs = Math.max(INITIAL_RETRY_MS, Math.min(MAX_RETRY_MS, retryMs));
+        }
+
+        private void postConnected(final boolean value) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    setConnected(Connection.this, value);
+                }
+            });
+        }
+    }
+}
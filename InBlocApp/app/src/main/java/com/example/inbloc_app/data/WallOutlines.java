@@ -0,0 +1,177 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Walls;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outlines of a gym's walls on its floor plan, for drawing them and telling which wall was
+// tapped. A wall's outline is "x,y x,y x,y ..." with the corners of its polygon relative to the
+// plan's width and height (0..1), so the plan image can be replaced by one of another
+// resolution. Walls without a valid outline are left out.
+public final class WallOutlines {
+
+    private static final int MIN_POINTS = 3;
+
+    private final String[] wallIds;
+    // the corners of wall i are points starts[i] until starts[i + 1]
+    private final int[] starts;
+    private final float[] xs;
+    private final float[] ys;
+    // minX, minY, maxX, maxY of wall i at 4 * i
+    private final float[] bounds;
+
+    private WallOutlines(String[] wallIds, int[] starts, float[] xs, float[] ys) {
+        this.wallIds = wallIds;
+        this.starts = starts;
+        this.xs = xs;
+        this.ys = ys;
+        bounds = new float[4 * wallIds.length];
+        for (int i = 0; i < wallIds.length; i++) {
+            float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+            for (int p = starts[i]; p < starts[i + 1]; p++) {
+                minX = Math.min(minX, xs[p]);
+                minY = Math.min(minY, ys[p]);
+                maxX = Math.max(maxX, xs[p]);
+                maxY = Math.max(maxY, ys[p]);
+            }
+            bounds[4 * i] = minX;
+            bounds[4 * i + 1] = minY;
+            bounds[4 * i + 2] = maxX;
+            bounds[4 * i + 3] = maxY;
+        }
+    }
+
+    public static WallOutlines of(List<Walls> walls) {
+        List<String> ids = new ArrayList<>();
+        List<float[]> outlines = new ArrayList<>();
+        int points = 0;
+        for (Walls wall : walls) {
+            float[] outline = parse(wall.getOutline());
+            if (wall.getId() != null && outline != null) {
+                ids.add(wall.getId());
+                outlines.add(outline);
+                points += outline.length / 2;
+            }
+        }
+        int[] starts = new int[ids.size() + 1];
+        float[] xs = new float[points];
+        float[] ys = new float[points];
+        int at = 0;
+        for (int i = 0; i < outlines.size(); i++) {
+            starts[i] = at;
+            float[] outline = outlines.get(i);
+            for (int p = 0; p < outline.length; p += 2) {
+                xs[at] = outline[p];
+                ys[at++] = outline[p + 1];
+            }
+        }
+        starts[ids.size()] = at;
+        return new WallOutlines(ids.toArray(new String[0]), starts, xs, ys);
+    }
+
+    // x0, y0, x1, y1, ...; null unless at least MIN_POINTS corners all within the plan
+    static float[] parse(String outline) {
+        if (outline == null) {
+            return null;
+        }
+        String[] corners = outline.trim().split("\\s+");
+        if (corners.length < MIN_POINTS) {
+            return null;
+        }
+        float[] points = new float[2 * corners.length];
+        try {
+            for (int i = 0; i < corners.length; i++) {
+                String[] xy = corners[i].split(",");
+                if (xy.length != 2) {
+                    return null;
+                }
+                points[2 * i] = Float.parseFloat(xy[0]);
+                points[2 * i + 1] = Float.parseFloat(xy[1]);
+                // also false for NaN
+                if (!(points[2 * i] >= 0 && points[2 * i] <= 1 && points[2 * i + 1] >= 0 && points[2 * i + 1] <= 1)) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return points;
+    }
+
+    public int size() {
+        return wallIds.length;
+    }
+
+    public String getWallId(int wall) {
+        return wallIds[wall];
+    }
+
+    public int getPointCount(int wall) {
+        return starts[wall + 1] - starts[wall];
+    }
+
+    public float getX(int wall, int point) {
+        return xs[starts[wall] + point];
+    }
+
+    public float getY(int wall, int point) {
+        return ys[starts[wall] + point];
+    }
+
+    // The wall at x, y (relative to the plan), or the one whose edge passes within slopX, slopY
+    // of it, which is how far a finger may be off in each direction. Of nested walls the
+    // smallest wins, e.g. a boulder standing inside a hall. -1 if none.
+    public int hit(float x, float y, float slopX, float slopY) {
+        int best = -1;
+        float bestArea = Float.MAX_VALUE;
+        for (int i = 0; i < wallIds.length; i++) {
+            if (x < bounds[4 * i] - slopX || x > bounds[4 * i + 2] + slopX
+                    || y < bounds[4 * i + 1] - slopY || y > bounds[4 * i + 3] + slopY) {
+                continue;
+            }
+            float area = (bounds[4 * i + 2] - bounds[4 * i]) * (bounds[4 * i + 3] - bounds[4 * i + 1]);
+            if (area < bestArea && (contains(i, x, y) || nearEdge(i, x, y, slopX, slopY))) {
+                best = i;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    // Even-odd rule: a ray to the right crosses the outline an odd number of times
+    private boolean contains(int wall, float x, float y) {
+        boolean inside = false;
+        int end = starts[wall + 1];
+        for (int p = starts[wall], q = end - 1; p < end; q = p++) {
+            if ((ys[p] > y) != (ys[q] > y)
+                    && x < (xs[q] - xs[p]) * (y - ys[p]) / (ys[q] - ys[p]) + xs[p]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    // Distance to the edges measured in slops, so the tolerance is an ellipse around the point
+    private boolean nearEdge(int wall, float x, float y, float slopX, float slopY) {
+        if (slopX <= 0 || slopY <= 0) {
+            return false;
+        }
+        int end = starts[wall + 1];
+        for (int p = starts[wall], q = end - 1; p < end; q = p++) {
+            float ax = (xs[q] - x) / slopX;
+            float ay = (ys[q] - y) / slopY;
+            float dx = (xs[p] - xs[q]) / slopX;
+            float dy = (ys[p] - ys[q]) / slopY;
+            float length2 = dx * dx + dy * dy;
+            // the closest point of the edge to the origin, which is the tap
+            float t = length2 > 0 ? Math.max(0, Math.min(1, -(ax * dx + ay * dy) / length2)) : 0;
+            float cx = ax + t * dx;
+            float cy = ay + t * dy;
+            if (cx * cx + cy * cy <= 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.inbloc_app.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+// Durable outbox for route writes (completions, ratings, comments). A write is applied to the
+// local state right away, so the UI never waits for the network, and stored on disk until
+// WriteQueueWorker replays it once there is a connection. Writes to the same entity are replayed
+// in order, different entities in parallel; redundant writes are collapsed before they are sent
+// (see PendingWrite.collapse). Every write carries an idempotency key, so a replay after a lost
+// answer is not applied twice.
+// The set methods and isCompleted may be called on the main thread, flush only in the background.
+public class WriteQueue extends SQLiteOpenHelper {
+
+    private static final String TAG = "WriteQueue";
+    private static final String DATABASE_NAME = "write_queue.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final String JSON = "application/json";
+    private static final int REPLAY_THREADS = 4;
+
+    private static WriteQueue instance;
+
+    private final Context context;
+    // disk writes in call order, off the main thread
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Object lock = new Object();
+    // ids of writes being replayed right now, they must not be collapsed away
+    private final Set<Long> inFlight = new HashSet<>();
+    // optimistic completion state by route key, what the UI shows
+    private final ConcurrentHashMap<String, Boolean> completed = new ConcurrentHashMap<>();
+
+    public static synchronized WriteQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new WriteQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WriteQueue(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                loadState();
+            }
+        });
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE writes (_id INTEGER PRIMARY KEY AUTOINCREMENT, kind TEXT NOT NULL, "
+                + "gym_id TEXT NOT NULL, wall_id TEXT NOT NULL, route_id TEXT NOT NULL, value TEXT, "
+                + "idempotency_key TEXT NOT NULL, created_at INTEGER NOT NULL)");
+        // the user's own state per route as far as this device knows it
+        db.execSQL("CREATE TABLE route_state (route_key TEXT PRIMARY KEY, completed INTEGER)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // no upgrade yet, queued writes must not be dropped once there is one
+    }
+
+    // null if unknown, e.g. completed on another device
+    public Boolean isCompleted(String gymId, String wallId, String routeId) {
+        return completed.get(PendingWrite.routeKey(gymId, wallId, routeId));
+    }
+
+    public void setCompleted(String gymId, String wallId, String routeId, boolean value, boolean flashed) {
+        String routeKey = PendingWrite.routeKey(gymId, wallId, routeId);
+        Boolean previous = completed.put(routeKey, value);
+        if (previous != null && previous == value) {
+            return;
+        }
+        enqueue(new PendingWrite(0, value ? PendingWrite.COMPLETE : PendingWrite.UNCOMPLETE,
+                gymId, wallId, routeId, String.valueOf(flashed), newKey()), value ? 1 : -1);
+    }
+
+    // rating -2..2, null removes it
+    public void setRating(String gymId, String wallId, String routeId, Integer rating) {
+        enqueue(new PendingWrite(0, rating != null ? PendingWrite.RATE : PendingWrite.UNRATE,
+                gymId, wallId, routeId, rating != null ? String.valueOf(rating) : null, newKey()), 0);
+    }
+
+    public void comment(String gymId, String wallId, String routeId, String message) {
+        enqueue(new PendingWrite(0, PendingWrite.COMMENT, gymId, wallId, routeId, message, newKey()), 0);
+    }
+
+    private static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    private void enqueue(final PendingWrite write, final int completedDelta) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                store(write);
+                if (completedDelta != 0) {
+                    saveCompleted(write.routeKey(), completedDelta > 0);
+                    // keeps the offline copy's counter in line until the next sync brings the real one
+                    OfflineStore.getInstance(context).adjustCompletedCount(write.gymId, write.wallId,
+                            write.routeId, completedDelta);
+                }
+                WriteQueueWorker.flushWhenOnline(context);
+            }
+        });
+    }
+
+    private void store(PendingWrite write) {
+        synchronized (lock) {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                List<PendingWrite> waiting = new ArrayList<>();
+                for (PendingWrite queued : readWrites()) {
+                    if (queued.entity().equals(write.entity()) && !inFlight.contains(queued.id)) {
+                        waiting.add(queued);
+                    }
+                }
+                boolean[] keep = new boolean[1];
+                for (PendingWrite dropped : PendingWrite.collapse(waiting, write, keep)) {
+                    db.delete("writes", "_id = ?", new String[]{String.valueOf(dropped.id)});
+                }
+                if (keep[0]) {
+                    ContentValues values = new ContentValues();
+                    values.put("kind", write.kind);
+                    values.put("gym_id", write.gymId);
+                    values.put("wall_id", write.wallId);
+                    values.put("route_id", write.routeId);
+                    values.put("value", write.value);
+                    values.put("idempotency_key", write.idempotencyKey);
+                    values.put("created_at", System.currentTimeMillis());
+                    db.insert("writes", null, values);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    // holds lock. Oldest first.
+    private List<PendingWrite> readWrites() {
+        List<PendingWrite> writes = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("writes",
+                new String[]{"_id", "kind", "gym_id", "wall_id", "route_id", "value", "idempotency_key"},
+                null, null, null, null, "_id")) {
+            while (cursor.moveToNext()) {
+                writes.add(new PendingWrite(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4), cursor.getString(5), cursor.getString(6)));
+            }
+        }
+        return writes;
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return readWrites().size();
+        }
+    }
+
+    // Replays everything queued. Returns PendingWrite.RETRY if something could not be delivered.
+    public int flush(final ApiService apiService) throws InterruptedException {
+        Map<String, List<PendingWrite>> chains = new LinkedHashMap<>();
+        synchronized (lock) {
+            for (PendingWrite write : readWrites()) {
+                if (inFlight.add(write.id)) {
+                    List<PendingWrite> chain = chains.get(write.entity());
+                    if (chain == null) {
+                        chain = new ArrayList<>();
+                        chains.put(write.entity(), chain);
+                    }
+                    chain.add(write);
+                }
+            }
+        }
+        if (chains.isEmpty()) {
+            return PendingWrite.APPLIED;
+        }
+
+        ExecutorService replay = Executors.newFixedThreadPool(Math.min(REPLAY_THREADS, chains.size()),
+                NetworkDispatcher.threadFactory(TAG, NetworkDispatcher.LANE_BACKGROUND));
+        List<List<PendingWrite>> submitted = new ArrayList<>(chains.values());
+        List<Future<Integer>> results = new ArrayList<>();
+        for (final List<PendingWrite> chain : submitted) {
+            results.add(replay.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return replayChain(apiService, chain);
+                }
+            }));
+        }
+        int result = PendingWrite.APPLIED;
+        // chains whose call returned, the others may have left ids in inFlight
+        boolean[] finished = new boolean[results.size()];
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    if (results.get(i).get() == PendingWrite.RETRY) {
+                        result = PendingWrite.RETRY;
+                    }
+                    finished[i] = true;
+                } catch (ExecutionException e) {
+                    // e.g. the database failed outside replayChain's try, the other chains still count
+                    result = PendingWrite.RETRY;
+                }
+            }
+        } finally {
+            // when interrupted, chains that never started are dropped here
+            replay.shutdownNow();
+            synchronized (lock) {
+                for (int i = 0; i < finished.length; i++) {
+                    if (!finished[i]) {
+                        for (PendingWrite write : submitted.get(i)) {
+                            inFlight.remove(write.id);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Sends one entity's writes in order, stops at the first one that has to wait
+    private int replayChain(ApiService apiService, List<PendingWrite> chain) {
+        for (int i = 0; i < chain.size(); i++) {
+            PendingWrite write = chain.get(i);
+            int outcome;
+            try {
+                outcome = send(apiService, write);
+            } catch (IOException | RuntimeException e) {
+                outcome = PendingWrite.RETRY;
+            }
+            synchronized (lock) {
+                if (outcome == PendingWrite.RETRY) {
+                    for (int j = i; j < chain.size(); j++) {
+                        inFlight.remove(chain.get(j).id);
+                    }
+                    return PendingWrite.RETRY;
+                }
+                getWritableDatabase().delete("writes", "_id = ?", new String[]{String.valueOf(write.id)});
+                inFlight.remove(write.id);
+            }
+            if (outcome == PendingWrite.REJECTED) {
+                Log.w(TAG, "Server rejected " + write.kind + " of " + write.routeKey());
+                forget(write);
+            }
+        }
+        return PendingWrite.APPLIED;
+    }
+
+    private static int send(ApiService apiService, PendingWrite write) throws IOException {
+        Call<ResponseBody> call;
+        switch (write.kind) {
+            case PendingWrite.COMPLETE:
+                call = apiService.completeRoute(JSON, write.idempotencyKey, write.routeId, write.gymId,
+                        write.wallId, Boolean.parseBoolean(write.value));
+                break;
+            case PendingWrite.UNCOMPLETE:
+                call = apiService.uncompleteRoute(JSON, write.idempotencyKey, write.routeId, write.gymId,
+                        write.wallId);
+                break;
+            case PendingWrite.RATE:
+                call = apiService.rateRoute(JSON, write.idempotencyKey, write.routeId, write.gymId,
+                        write.wallId, Collections.<String, Object>singletonMap("userRating",
+                                Integer.parseInt(write.value)));
+                break;
+            case PendingWrite.UNRATE:
+                call = apiService.unrateRoute(JSON, write.idempotencyKey, write.routeId, write.gymId,
+                        write.wallId);
+                break;
+            case PendingWrite.COMMENT:
+                call = apiService.commentRoute(JSON, write.idempotencyKey, write.routeId, write.gymId,
+                        write.wallId, Collections.<String, Object>singletonMap("comment",
+                                Collections.singletonMap("message", write.value)));
+                break;
+            default:
+                return PendingWrite.REJECTED;
+        }
+        Response<ResponseBody> response = call.execute();
+        ResponseBody body = response.isSuccessful() ? response.body() : response.errorBody();
+        if (body != null) {
+            body.close();
+        }
+        return PendingWrite.outcome(write.kind, response.code());
+    }
+
+    // A refused completion was never true, drop the optimistic state so the UI shows the server's
+    private void forget(final PendingWrite write) {
+        if (!PendingWrite.COMPLETE.equals(write.kind) && !PendingWrite.UNCOMPLETE.equals(write.kind)) {
+            return;
+        }
+        completed.remove(write.routeKey());
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getWritableDatabase().delete("route_state", "route_key = ?", new String[]{write.routeKey()});
+                OfflineStore.getInstance(context).adjustCompletedCount(write.gymId, write.wallId, write.routeId,
+                        PendingWrite.COMPLETE.equals(write.kind) ? -1 : 1);
+            }
+        });
+        if (PendingWrite.COMPLETE.equals(write.kind)) {
+            StatsStore.getInstance(context).forget(write.gymId, write.wallId, write.routeId);
+        }
+    }
+
+    // disk executor
+    private void saveCompleted(String routeKey, boolean value) {
+        ContentValues values = new ContentValues();
+        values.put("route_key", routeKey);
+        values.put("completed", value ? 1 : 0);
+        getWritableDatabase().insertWithOnConflict("route_state", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    // disk executor. Values set before the load finished are newer and win.
+    private void loadState() {
+        Map<String, Boolean> stored = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().query("route_state", new String[]{"route_key", "completed"},
+                "completed IS NOT NULL", null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                stored.put(cursor.getString(0), cursor.getInt(1) != 0);
+            }
+        }
+        for (Map.Entry<String, Boolean> entry : stored.entrySet()) {
+            completed.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.inbloc_app.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.inbloc_app.retrofit.remote.ApiUtils;
+import com.example.inbloc_app.retrofit.remote.NetworkDispatcher;
+import com.example.inbloc_app.retrofit.remote.RetrofitClient;
+
+import java.util.concurrent.TimeUnit;
+
+// Replays the WriteQueue as soon as there is a connection. WorkManager keeps the request across
+// process deaths and reboots and retries with backoff while the server cannot be reached.
+public class WriteQueueWorker extends Worker {
+
+    private static final String WORK_NAME = "write_queue_flush";
+    private static final long BACKOFF_SECONDS = 30;
+
+    public WriteQueueWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void flushWhenOnline(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(WriteQueueWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        // a flush already running may have read the queue before the newest write, run again after it
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        RetrofitClient.init(context);
+        // WorkManager threads only run our workers, the lane can stay set
+        NetworkDispatcher.setLane(NetworkDispatcher.LANE_BACKGROUND);
+        try {
+            int result = WriteQueue.getInstance(context).flush(ApiUtils.getApiService());
+            return result == PendingWrite.RETRY ? Result.retry() : Result.success();
+        } catch (InterruptedException e) {
+            // stopped by WorkManager, the writes are still queued
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.inbloc_app.retrofit.models;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+public class Comment {
+
+    // uid of the author, the key of the comment in /comments/{gymId}/{wallId}/{routeId}, the
+    // backend keeps one comment per user and route
+    private transient String userId;
+    @SerializedName("message")
+    @Expose
+    private String message;
+    // download URL of the attached image, null if there is none
+    @SerializedName("image")
+    @Expose
+    private String image;
+    // Date.now() of the backend as a string
+    @SerializedName("timestamp")
+    @Expose
+    private String timestamp;
+    // timestamp parsed once by setTimestamp, -1 if missing or invalid
+    private transient long timestampMs = -1;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public void setImage(String image) {
+        this.image = image;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+        long ms = -1;
+        if (timestamp != null) {
+            try {
+                ms = Long.parseLong(timestamp.trim());
+            } catch (NumberFormatException e) {
+                ms = -1;
+            }
+        }
+        timestampMs = ms >= 0 ? ms : -1;
+    }
+
+    public long getTimestampMs() {
+        return timestampMs;
+    }
+
+}
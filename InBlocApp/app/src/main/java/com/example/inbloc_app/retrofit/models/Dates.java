@@ -0,0 +1,91 @@
+package com.example.inbloc_app.retrofit.models;
+
+// Parsers for the date and time strings the backend sends, so models can turn them into numbers
+// once when they are read. All dates are UTC.
+public final class Dates {
+
+    public static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private Dates() {}
+
+    // Days since 1970-01-01 of a "YYYY-MM-DD" date, -1 if it is not one
+    public static long epochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return -1;
+        }
+        int year, month, day;
+        try {
+            year = Integer.parseInt(date.substring(0, 4));
+            month = Integer.parseInt(date.substring(5, 7));
+            day = Integer.parseInt(date.substring(8));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (year < 1970 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return -1;
+        }
+        // days from civil, with years starting in March so the leap day comes last
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    // Milliseconds since the epoch of "YYYY-MM-DD" (midnight) or of the
+    // "YYYY-MM-DDTHH:MM:SS[.sss]Z" a JavaScript Date is stored as, -1 if it is neither
+    public static long epochMs(String date) {
+        if (date == null || date.length() < 10) {
+            return -1;
+        }
+        long day = epochDay(date.substring(0, 10));
+        if (day < 0) {
+            return -1;
+        }
+        if (date.length() == 10) {
+            return day * DAY_MS;
+        }
+        // HH:MM:SS, then optional milliseconds, then Z
+        if (date.length() < 20 || date.charAt(10) != 'T' || date.charAt(13) != ':' || date.charAt(16) != ':'
+                || date.charAt(date.length() - 1) != 'Z') {
+            return -1;
+        }
+        try {
+            int hour = Integer.parseInt(date.substring(11, 13));
+            int minute = Integer.parseInt(date.substring(14, 16));
+            int second = Integer.parseInt(date.substring(17, 19));
+            int millis = 0;
+            if (date.length() == 24 && date.charAt(19) == '.') {
+                millis = Integer.parseInt(date.substring(20, 23));
+            } else if (date.length() != 20) {
+                return -1;
+            }
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+                return -1;
+            }
+            return day * DAY_MS + ((hour * 60L + minute) * 60 + second) * 1000 + millis;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // "H:MM" or "HH:MM" as minutes of the day, -1 if it is neither
+    public static int minutes(String time) {
+        if (time == null) {
+            return -1;
+        }
+        time = time.trim();
+        int colon = time.indexOf(':');
+        if (colon < 1 || colon > 2 || time.length() != colon + 3) {
+            return -1;
+        }
+        try {
+            int hour = Integer.parseInt(time.substring(0, colon));
+            int minute = Integer.parseInt(time.substring(colon + 1));
+            return hour < 24 && minute < 60 && hour >= 0 && minute >= 0 ? hour * 60 + minute : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.inbloc_app.retrofit.models;
+
+import java.util.Locale;
+
+// A gym's grades, the backend's /difficulties/{gymId} document: one "#RRGGBB" hold color per
+// difficulty 0, 1, 2, ... Colors are parsed once into ARGB ints ready for a View.
+public class Difficulties {
+
+    private int[] colors = new int[0];
+
+    public int size() {
+        return colors.length;
+    }
+
+    // opaque ARGB color of the difficulty, 0 (transparent) if the gym has no such grade
+    public int getColor(int difficulty) {
+        return difficulty >= 0 && difficulty < colors.length ? colors[difficulty] : 0;
+    }
+
+    public void setColors(int[] colors) {
+        this.colors = colors;
+    }
+
+    // "#RRGGBB" (or "RRGGBB", which the backend also accepts) as opaque ARGB, 0 if it is neither
+    public static int parseColor(String color) {
+        if (color == null) {
+            return 0;
+        }
+        String hex = color.startsWith("#") ? color.substring(1) : color;
+        if (hex.length() != 6) {
+            return 0;
+        }
+        int rgb = 0;
+        for (int i = 0; i < hex.length(); i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                return 0;
+            }
+            rgb = rgb << 4 | digit;
+        }
+        return 0xFF000000 | rgb;
+    }
+
+    // "#RRGGBB" of an ARGB color
+    public static String formatColor(int color) {
+        return String.format(Locale.ROOT, "#%06X", color & 0xFFFFFF);
+    }
+
+}
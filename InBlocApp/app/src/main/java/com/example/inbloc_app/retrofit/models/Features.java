@@ -0,0 +1,68 @@
+package com.example.inbloc_app.retrofit.models;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Comma separated feature lists as bitmasks, bit i is the enum constant with ordinal i
+final class Features {
+
+    private Features() {}
+
+    // Known names anywhere in the list, in any order and case; unknown ones are left out
+    static <E extends Enum<E>> int mask(String features, E[] values) {
+        if (features == null || features.isEmpty()) {
+            return 0;
+        }
+        int mask = 0;
+        for (String feature : features.split(",")) {
+            String name = feature.trim();
+            for (E value : values) {
+                if (value.name().equalsIgnoreCase(name)) {
+                    mask |= 1 << value.ordinal();
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    static <E extends Enum<E>> int mask(Set<E> features) {
+        int mask = 0;
+        for (E feature : features) {
+            mask |= 1 << feature.ordinal();
+        }
+        return mask;
+    }
+
+    static <E extends Enum<E>> EnumSet<E> set(int mask, Class<E> type) {
+        EnumSet<E> set = EnumSet.noneOf(type);
+        for (E value : type.getEnumConstants()) {
+            if ((mask & (1 << value.ordinal())) != 0) {
+                set.add(value);
+            }
+        }
+        return set;
+    }
+
+    // "SLOPER,CRIMPS" in enum order, as the backend validates lists, "" for none
+    static <E extends Enum<E>> String join(int mask, E[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (E value : values) {
+            if ((mask & (1 << value.ordinal())) != 0) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(value.name());
+            }
+        }
+        return sb.toString();
+    }
+
+    static <E extends Enum<E>> String[] names(E[] values) {
+        String[] names = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name();
+        }
+        return names;
+    }
+}
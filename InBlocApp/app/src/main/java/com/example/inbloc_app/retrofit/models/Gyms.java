@@ -4,6 +4,8 @@ import com.google.gson.annotations.SerializedName;
 
 public class Gyms {
 
+    // key of the gym in the backend's /gyms map, not part of the gym object itself
+    private transient String id;
     @SerializedName("city")
     @Expose
     private String city;
@@ -32,6 +34,14 @@ public class Gyms {
     @Expose
     private String zip;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getCity() {
         return city;
     }
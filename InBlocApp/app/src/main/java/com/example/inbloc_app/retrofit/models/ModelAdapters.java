@@ -0,0 +1,504 @@
+package com.example.inbloc_app.retrofit.models;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Hand-written Gson adapters for the models, so decoding needs no reflection and can run
+// on a streaming JsonReader. Unknown fields are skipped, ids are never part of the JSON.
+public final class ModelAdapters {
+
+    private ModelAdapters() {}
+
+    public static final TypeAdapter<Gyms> GYMS = new TypeAdapter<Gyms>() {
+        @Override
+        public void write(JsonWriter out, Gyms gym) throws IOException {
+            if (gym == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "city", gym.getCity());
+            writeString(out, "description", gym.getDescription());
+            writeString(out, "email", gym.getEmail());
+            writeString(out, "houseNumber", gym.getHouseNumber());
+            writeString(out, "name", gym.getName());
+            writeString(out, "phone", gym.getPhone());
+            writeString(out, "street", gym.getStreet());
+            writeString(out, "website", gym.getWebsite());
+            writeString(out, "zip", gym.getZip());
+            out.endObject();
+        }
+
+        @Override
+        public Gyms read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Gyms gym = new Gyms();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "city":
+                        gym.setCity(readString(in));
+                        break;
+                    case "description":
+                        gym.setDescription(readString(in));
+                        break;
+                    case "email":
+                        gym.setEmail(readString(in));
+                        break;
+                    case "houseNumber":
+                        gym.setHouseNumber(readString(in));
+                        break;
+                    case "name":
+                        gym.setName(readString(in));
+                        break;
+                    case "phone":
+                        gym.setPhone(readString(in));
+                        break;
+                    case "street":
+                        gym.setStreet(readString(in));
+                        break;
+                    case "website":
+                        gym.setWebsite(readString(in));
+                        break;
+                    case "zip":
+                        gym.setZip(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return gym;
+        }
+    };
+
+    public static final TypeAdapter<Walls> WALLS = new TypeAdapter<Walls>() {
+        @Override
+        public void write(JsonWriter out, Walls wall) throws IOException {
+            if (wall == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "features", wall.getFeatures());
+            writeString(out, "setDate", wall.getSetDate());
+            writeString(out, "outline", wall.getOutline());
+            out.endObject();
+        }
+
+        @Override
+        public Walls read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Walls wall = new Walls();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "features":
+                        wall.setFeatures(readString(in));
+                        break;
+                    case "setDate":
+                        wall.setSetDate(readString(in));
+                        break;
+                    case "outline":
+                        wall.setOutline(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return wall;
+        }
+    };
+
+    public static final TypeAdapter<Route> ROUTE = new TypeAdapter<Route>() {
+        @Override
+        public void write(JsonWriter out, Route route) throws IOException {
+            if (route == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "features", route.getFeatures());
+            out.name("difficulty").value(route.getDifficulty());
+            out.name("userRatings").value(route.getUserRatings());
+            out.name("completedCount").value(route.getCompletedCount());
+            out.endObject();
+        }
+
+        @Override
+        public Route read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Route route = new Route();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "features":
+                        route.setFeatures(readString(in));
+                        break;
+                    case "difficulty":
+                        route.setDifficulty(readInt(in));
+                        break;
+                    case "userRatings":
+                        route.setUserRatings(readInt(in));
+                        break;
+                    case "completedCount":
+                        route.setCompletedCount(readInt(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return route;
+        }
+    };
+
+    public static final TypeAdapter<User> USER = new TypeAdapter<User>() {
+        @Override
+        public void write(JsonWriter out, User user) throws IOException {
+            if (user == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "username", user.getUsername());
+            writeString(out, "email", user.getEmail());
+            writeString(out, "zip", user.getZip());
+            out.name("completedRoutes").value(user.getCompletedRoutes());
+            out.name("flashes").value(user.getFlashes());
+            out.name("avgDifficulty").value(user.getAvgDifficulty());
+            if (user.getCompletedFeatures() != null) {
+                out.name("completedFeatures").beginObject();
+                for (Map.Entry<String, Integer> entry : user.getCompletedFeatures().entrySet()) {
+                    out.name(entry.getKey()).value(entry.getValue());
+                }
+                out.endObject();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            User user = new User();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "username":
+                        user.setUsername(readString(in));
+                        break;
+                    case "email":
+                        user.setEmail(readString(in));
+                        break;
+                    case "zip":
+                        user.setZip(readString(in));
+                        break;
+                    case "completedRoutes":
+                        user.setCompletedRoutes(readInt(in));
+                        break;
+                    case "flashes":
+                        user.setFlashes(readInt(in));
+                        break;
+                    case "avgDifficulty":
+                        user.setAvgDifficulty(readDouble(in));
+                        break;
+                    case "completedFeatures":
+                        user.setCompletedFeatures(readCounts(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return user;
+        }
+    };
+
+    public static final TypeAdapter<Comment> COMMENT = new TypeAdapter<Comment>() {
+        @Override
+        public void write(JsonWriter out, Comment comment) throws IOException {
+            if (comment == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "message", comment.getMessage());
+            writeString(out, "image", comment.getImage());
+            writeString(out, "timestamp", comment.getTimestamp());
+            out.endObject();
+        }
+
+        @Override
+        public Comment read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Comment comment = new Comment();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "message":
+                        comment.setMessage(readString(in));
+                        break;
+                    case "image":
+                        comment.setImage(readString(in));
+                        break;
+                    case "timestamp":
+                        comment.setTimestamp(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return comment;
+        }
+    };
+
+    // {monday:{open, closed}, ...}, days without hours are left out
+    public static final TypeAdapter<Openings> OPENINGS = new TypeAdapter<Openings>() {
+        @Override
+        public void write(JsonWriter out, Openings openings) throws IOException {
+            if (openings == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (int day = 0; day < Openings.DAYS.length; day++) {
+                Openings.Day hours = openings.getDay(day);
+                if (hours != null) {
+                    out.name(Openings.DAYS[day]).beginObject();
+                    writeString(out, "open", hours.getOpen());
+                    writeString(out, "closed", hours.getClosed());
+                    out.endObject();
+                }
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Openings read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Openings openings = new Openings();
+            in.beginObject();
+            while (in.hasNext()) {
+                int day = Openings.dayOf(in.nextName());
+                if (day < 0 || in.peek() != JsonToken.BEGIN_OBJECT) {
+                    in.skipValue();
+                    continue;
+                }
+                Openings.Day hours = new Openings.Day();
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "open":
+                            hours.setOpen(readString(in));
+                            break;
+                        case "closed":
+                            hours.setClosed(readString(in));
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+                openings.setDay(day, hours);
+            }
+            in.endObject();
+            return openings;
+        }
+    };
+
+    // {"0":"#RRGGBB", "1":...}, which the Firebase database may also hand out as an array
+    public static final TypeAdapter<Difficulties> DIFFICULTIES = new TypeAdapter<Difficulties>() {
+        @Override
+        public void write(JsonWriter out, Difficulties difficulties) throws IOException {
+            if (difficulties == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (int i = 0; i < difficulties.size(); i++) {
+                out.name(String.valueOf(i)).value(Difficulties.formatColor(difficulties.getColor(i)));
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Difficulties read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int[] colors = new int[8];
+            int size = 0;
+            if (token == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    colors = grow(colors, size);
+                    colors[size++] = Difficulties.parseColor(readString(in));
+                }
+                in.endArray();
+            } else if (token == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    int difficulty;
+                    try {
+                        difficulty = Integer.parseInt(in.nextName());
+                    } catch (NumberFormatException e) {
+                        difficulty = -1;
+                    }
+                    // the backend only accepts 0..n-1, anything far off is not a grade
+                    if (difficulty < 0 || difficulty > 1000) {
+                        in.skipValue();
+                        continue;
+                    }
+                    colors = grow(colors, difficulty);
+                    colors[difficulty] = Difficulties.parseColor(readString(in));
+                    size = Math.max(size, difficulty + 1);
+                }
+                in.endObject();
+            } else {
+                in.skipValue();
+            }
+            Difficulties difficulties = new Difficulties();
+            difficulties.setColors(Arrays.copyOf(colors, size));
+            return difficulties;
+        }
+    };
+
+    // For a Gson instance, so even calls that are no @DataEnvelope decode the models without reflection
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return forClass((Class<T>) type.getRawType());
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public static <T> TypeAdapter<T> forClass(Class<T> type) {
+        if (type == Gyms.class) {
+            return (TypeAdapter<T>) GYMS;
+        }
+        if (type == Walls.class) {
+            return (TypeAdapter<T>) WALLS;
+        }
+        if (type == Route.class) {
+            return (TypeAdapter<T>) ROUTE;
+        }
+        if (type == User.class) {
+            return (TypeAdapter<T>) USER;
+        }
+        if (type == Comment.class) {
+            return (TypeAdapter<T>) COMMENT;
+        }
+        if (type == Openings.class) {
+            return (TypeAdapter<T>) OPENINGS;
+        }
+        if (type == Difficulties.class) {
+            return (TypeAdapter<T>) DIFFICULTIES;
+        }
+        return null;
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        // nextString also accepts numbers and booleans, e.g. a zip sent as number
+        return in.nextString();
+    }
+
+    static int readInt(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NUMBER) {
+            return (int) in.nextDouble();
+        }
+        if (token == JsonToken.STRING) {
+            try {
+                return (int) Double.parseDouble(in.nextString());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        in.skipValue();
+        return 0;
+    }
+
+    static double readDouble(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NUMBER) {
+            return in.nextDouble();
+        }
+        if (token == JsonToken.STRING) {
+            try {
+                return Double.parseDouble(in.nextString());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        in.skipValue();
+        return 0;
+    }
+
+    // {name:count}, entries that are no number count as 0
+    static Map<String, Integer> readCounts(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return null;
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            counts.put(name, readInt(in));
+        }
+        in.endObject();
+        return counts;
+    }
+
+    private static int[] grow(int[] array, int index) {
+        return index < array.length ? array : Arrays.copyOf(array, Math.max(2 * array.length, index + 1));
+    }
+
+    static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.inbloc_app.retrofit.models;
+
+// A gym's weekly opening hours, the backend's Openings interface. Days are indexed from
+// MONDAY = 0 like OpeningHours, a day without hours is null.
+public class Openings {
+
+    public static final String[] DAYS = {"monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday"};
+
+    private final Day[] days = new Day[DAYS.length];
+
+    public Day getDay(int day) {
+        return days[day];
+    }
+
+    public void setDay(int day, Day hours) {
+        days[day] = hours;
+    }
+
+    // index into DAYS, -1 if the name is no day
+    public static int dayOf(String name) {
+        for (int i = 0; i < DAYS.length; i++) {
+            if (DAYS[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static class Day {
+
+        // "9:00", "22:30"
+        private String open;
+        private String closed;
+        // both parsed once by their setters, minutes of the day or -1
+        private transient int openMinutes = -1;
+        private transient int closedMinutes = -1;
+
+        public String getOpen() {
+            return open;
+        }
+
+        public void setOpen(String open) {
+            this.open = open;
+            openMinutes = Dates.minutes(open);
+        }
+
+        public String getClosed() {
+            return closed;
+        }
+
+        public void setClosed(String closed) {
+            this.closed = closed;
+            closedMinutes = Dates.minutes(closed);
+        }
+
+        public int getOpenMinutes() {
+            return openMinutes;
+        }
+
+        public int getClosedMinutes() {
+            return closedMinutes;
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.example.inbloc_app.retrofit.models;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.EnumSet;
+
+public class Route {
+
+    // keys of the route in the backend's /routes/{gymId}/{wallId}/{routeId} tree
+    private transient String id;
+    private transient String gymId;
+    private transient String wallId;
+    @SerializedName("features")
+    @Expose
+    private String features;
+    // features parsed once by setFeatures, RouteFeature bits
+    private transient int featureMask;
+    @SerializedName("difficulty")
+    @Expose
+    private int difficulty;
+    @SerializedName("userRatings")
+    @Expose
+    private int userRatings;
+    @SerializedName("completedCount")
+    @Expose
+    private int completedCount;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getGymId() {
+        return gymId;
+    }
+
+    public void setGymId(String gymId) {
+        this.gymId = gymId;
+    }
+
+    public String getWallId() {
+        return wallId;
+    }
+
+    public void setWallId(String wallId) {
+        this.wallId = wallId;
+    }
+
+    public String getFeatures() {
+        return features;
+    }
+
+    public void setFeatures(String features) {
+        this.features = features;
+        featureMask = RouteFeature.mask(features);
+    }
+
+    public int getFeatureMask() {
+        return featureMask;
+    }
+
+    public EnumSet<RouteFeature> getFeatureSet() {
+        return RouteFeature.set(featureMask);
+    }
+
+    // true if the route has all features of the mask
+    public boolean hasFeatures(int mask) {
+        return (featureMask & mask) == mask;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(int difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public int getUserRatings() {
+        return userRatings;
+    }
+
+    public void setUserRatings(int userRatings) {
+        this.userRatings = userRatings;
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public void setCompletedCount(int completedCount) {
+        this.completedCount = completedCount;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.example.inbloc_app.retrofit.models;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Mirrors RouteFeatures in the backend's interfaces/Route.ts, the order is the bit order of a feature mask
+public enum RouteFeature {
+    SLOPER, CRIMPS, BALANCE, POWER, CAMPUS, BEGINNER, VOLUMES, COMP;
+
+    private static final RouteFeature[] VALUES = values();
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    // Known names in a comma separated list, unknown ones are left out
+    public static int mask(String features) {
+        return Features.mask(features, VALUES);
+    }
+
+    public static int mask(Set<RouteFeature> features) {
+        return Features.mask(features);
+    }
+
+    public static EnumSet<RouteFeature> set(int mask) {
+        return Features.set(mask, RouteFeature.class);
+    }
+
+    // The list the backend expects, "" for none
+    public static String join(int mask) {
+        return Features.join(mask, VALUES);
+    }
+
+    public static String[] names() {
+        return Features.names(VALUES);
+    }
+}
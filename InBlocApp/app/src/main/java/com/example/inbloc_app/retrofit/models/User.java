@@ -0,0 +1,99 @@
+package com.example.inbloc_app.retrofit.models;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Map;
+
+public class User {
+
+    // Firebase uid, the key of the user in /users, not part of the user object itself
+    private transient String id;
+    @SerializedName("username")
+    @Expose
+    private String username;
+    @SerializedName("email")
+    @Expose
+    private String email;
+    @SerializedName("zip")
+    @Expose
+    private String zip;
+    @SerializedName("completedRoutes")
+    @Expose
+    private int completedRoutes;
+    @SerializedName("flashes")
+    @Expose
+    private int flashes;
+    @SerializedName("avgDifficulty")
+    @Expose
+    private double avgDifficulty;
+    // feature name (e.g. CRIMPS, SLAB) -> number of completed routes with it
+    @SerializedName("completedFeatures")
+    @Expose
+    private Map<String, Integer> completedFeatures;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getZip() {
+        return zip;
+    }
+
+    public void setZip(String zip) {
+        this.zip = zip;
+    }
+
+    public int getCompletedRoutes() {
+        return completedRoutes;
+    }
+
+    public void setCompletedRoutes(int completedRoutes) {
+        this.completedRoutes = completedRoutes;
+    }
+
+    public int getFlashes() {
+        return flashes;
+    }
+
+    public void setFlashes(int flashes) {
+        this.flashes = flashes;
+    }
+
+    public double getAvgDifficulty() {
+        return avgDifficulty;
+    }
+
+    public void setAvgDifficulty(double avgDifficulty) {
+        this.avgDifficulty = avgDifficulty;
+    }
+
+    public Map<String, Integer> getCompletedFeatures() {
+        return completedFeatures;
+    }
+
+    public void setCompletedFeatures(Map<String, Integer> completedFeatures) {
+        this.completedFeatures = completedFeatures;
+    }
+
+}
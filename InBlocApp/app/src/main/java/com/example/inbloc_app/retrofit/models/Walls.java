@@ -3,14 +3,43 @@ package com.example.inbloc_app.retrofit.models;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
+import java.util.EnumSet;
+
 public class Walls {
 
+    // keys of the wall in the backend's /walls/{gymId}/{wallId} tree
+    private transient String id;
+    private transient String gymId;
     @SerializedName("features")
     @Expose
     private String features;
+    // features parsed once by setFeatures, WallFeature bits
+    private transient int featureMask;
     @SerializedName("setDate")
     @Expose
     private String setDate;
+    // setDate parsed once by setSetDate, -1 if missing or invalid
+    private transient long setDateMs = -1;
+    // corners on the gym's floor plan, see WallOutlines, null if the wall was not drawn in
+    @SerializedName("outline")
+    @Expose
+    private String outline;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getGymId() {
+        return gymId;
+    }
+
+    public void setGymId(String gymId) {
+        this.gymId = gymId;
+    }
 
     public String getFeatures() {
         return features;
@@ -18,6 +47,20 @@ public class Walls {
 
     public void setFeatures(String features) {
         this.features = features;
+        featureMask = WallFeature.mask(features);
+    }
+
+    public int getFeatureMask() {
+        return featureMask;
+    }
+
+    public EnumSet<WallFeature> getFeatureSet() {
+        return WallFeature.set(featureMask);
+    }
+
+    // true if the wall has all features of the mask
+    public boolean hasFeatures(int mask) {
+        return (featureMask & mask) == mask;
     }
 
     public String getSetDate() {
@@ -26,6 +69,19 @@ public class Walls {
 
     public void setSetDate(String setDate) {
         this.setDate = setDate;
+        setDateMs = Dates.epochMs(setDate);
+    }
+
+    public long getSetDateMs() {
+        return setDateMs;
+    }
+
+    public String getOutline() {
+        return outline;
+    }
+
+    public void setOutline(String outline) {
+        this.outline = outline;
     }
 
 }
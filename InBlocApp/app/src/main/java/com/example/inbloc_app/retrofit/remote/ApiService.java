@@ -1,31 +1,178 @@
 package com.example.inbloc_app.retrofit.remote;
 
+import com.example.inbloc_app.retrofit.models.Comment;
 import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.Openings;
+import com.example.inbloc_app.retrofit.models.Route;
 import com.example.inbloc_app.retrofit.models.Walls;
 
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
+import retrofit2.http.DELETE;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
 import retrofit2.http.POST;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 import java.util.List;
+import java.util.Map;
 
+// Authorization is added by RetrofitClient's interceptor, the methods only carry their own headers
 public interface ApiService {
 
     @GET("/gyms")
-    Call<ResponseBody> getAllGyms(@Header("Authorization") String deb,
-                              @Header("Content-Type") String type);
+    Call<ResponseBody> getAllGyms(@Header("Content-Type") String type);
 
-    @GET("/gyms/")
-    Call<Gyms> getSpecificGym();
+    // conditional variant, the backend answers with 304 if the ETag still matches.
+    // startAfter is the last gymId of the previous page or null for the first one
+    @Timeout(read = 30000)
+    @GET("/gyms")
+    Call<ResponseBody> getAllGyms(@Header("Content-Type") String type,
+                                  @Header("If-None-Match") String eTag,
+                                  @Query("startAfter") String startAfter,
+                                  @Query("limit") Integer limit);
+
+    // several gyms in one call, ids is a comma separated list of at most 100 gymIds
+    @DataEnvelope(value = "gyms")
+    @GET("/gyms")
+    Call<List<Gyms>> getGyms(@Header("Content-Type") String type,
+                             @Query("ids") String ids);
+
+    // answers {data:{gym:{...}}}, the id is not part of it
+    @DataEnvelope(value = "gym")
+    @GET("/gyms/{gymId}")
+    Call<Gyms> getGym(@Header("Content-Type") String type,
+                      @Path("gymId") String gymId);
+
+    // answers {data:{logo:"<signed download url>"}}
+    @GET("/gyms/{gymId}/logo")
+    Call<ResponseBody> getGymLogo(@Header("Content-Type") String type,
+                                  @Path("gymId") String gymId);
 
     @GET("/walls")
     Call<List<Walls>> getWalls();
 
+    @DataEnvelope(value = "walls")
+    @GET("/walls")
+    Call<List<Walls>> getWalls(@Header("Content-Type") String type,
+                               @Query("gymId") String gymId,
+                               @Query("limit") Integer limit);
+
+    // conditional variant for the background sync, 304 if the walls of the gym did not change
+    @GET("/walls")
+    Call<ResponseBody> getWalls(@Header("Content-Type") String type,
+                                @Query("gymId") String gymId,
+                                @Query("limit") Integer limit,
+                                @Header("If-None-Match") String eTag);
+
+    // answers {data:{openings:{...}}}, 404 if the gym has no opening hours
+    @GET("/gyms/{gymId}/openings")
+    Call<ResponseBody> getOpenings(@Header("Content-Type") String type,
+                                   @Path("gymId") String gymId,
+                                   @Header("If-None-Match") String eTag);
+
+    // typed variant for showing the hours, OpeningHours compiles the raw one above
+    @DataEnvelope(value = "openings")
+    @GET("/gyms/{gymId}/openings")
+    Call<Openings> getOpenings(@Header("Content-Type") String type,
+                               @Path("gymId") String gymId);
+
+    // answers {data:{<gymId>:{"0":"#RRGGBB", ...}}}, keyed by the gym so it is no @DataEnvelope;
+    // EnvelopeReader.readItem(reader, gymId, ModelAdapters.DIFFICULTIES) reads it
+    @GET("/gyms/{gymId}/difficulties")
+    Call<ResponseBody> getDifficulties(@Header("Content-Type") String type,
+                                       @Path("gymId") String gymId);
+
+    // answers {data:{overriddenOpenings:{...}}}, 404 if the gym has no holidays
+    @GET("/gyms/{gymId}/holidays")
+    Call<ResponseBody> getHolidays(@Header("Content-Type") String type,
+                                   @Path("gymId") String gymId,
+                                   @Header("If-None-Match") String eTag);
+
+    // routes of one wall, the backend answers {data:{routes:{routeId:{...}}}} ordered by routeId.
+    // startAfter is the last routeId of the previous page or null for the first one
+    @DataEnvelope(value = "routes")
+    @Timeout(read = 30000)
+    @GET("/routes")
+    Call<List<Route>> getRoutes(@Header("Content-Type") String type,
+                                @Query("gymId") String gymId,
+                                @Query("wallId") String wallId,
+                                @Query("startAfter") String startAfter,
+                                @Query("limit") Integer limit);
+
+    // routes of a whole gym, nested one level deeper by wallId
+    @DataEnvelope(value = "routes", nesting = 2)
+    @Timeout(read = 30000)
+    @GET("/routes")
+    Call<List<Route>> getRoutes(@Header("Content-Type") String type,
+                                @Query("gymId") String gymId,
+                                @Query("limit") Integer limit);
+
+    // several walls of one gym in one call, ids is a comma separated list of at most 100 wallIds
+    @DataEnvelope(value = "walls")
     @GET("/walls")
-    Call<Walls> getSpecificWall();
+    Call<List<Walls>> getWallsByIds(@Header("Content-Type") String type,
+                                    @Query("gymId") String gymId,
+                                    @Query("ids") String ids);
+
+    // answers {data:{wall:{...}}}, the ids are not part of it
+    @DataEnvelope(value = "wall")
+    @GET("/walls/{wallId}")
+    Call<Walls> getWall(@Header("Content-Type") String type,
+                        @Path("wallId") String wallId,
+                        @Query("gymId") String gymId);
+
+    // Writes replayed by WriteQueue. The backend answers 400 to completing a completed route
+    // (and the reverse) and 404 to removing a rating that is not there.
+    @POST("/routes/{routeId}/complete")
+    Call<ResponseBody> completeRoute(@Header("Content-Type") String type,
+                                     @Header("Idempotency-Key") String idempotencyKey,
+                                     @Path("routeId") String routeId,
+                                     @Query("gymId") String gymId,
+                                     @Query("wallId") String wallId,
+                                     @Query("flashed") boolean flashed);
+
+    @DELETE("/routes/{routeId}/complete")
+    Call<ResponseBody> uncompleteRoute(@Header("Content-Type") String type,
+                                       @Header("Idempotency-Key") String idempotencyKey,
+                                       @Path("routeId") String routeId,
+                                       @Query("gymId") String gymId,
+                                       @Query("wallId") String wallId);
+
+    // body {userRating: -2..2}
+    @POST("/routes/{routeId}/userRatings")
+    Call<ResponseBody> rateRoute(@Header("Content-Type") String type,
+                                 @Header("Idempotency-Key") String idempotencyKey,
+                                 @Path("routeId") String routeId,
+                                 @Query("gymId") String gymId,
+                                 @Query("wallId") String wallId,
+                                 @Body Map<String, Object> body);
+
+    @DELETE("/routes/{routeId}/userRatings")
+    Call<ResponseBody> unrateRoute(@Header("Content-Type") String type,
+                                   @Header("Idempotency-Key") String idempotencyKey,
+                                   @Path("routeId") String routeId,
+                                   @Query("gymId") String gymId,
+                                   @Query("wallId") String wallId);
+
+    // answers {data:{comments:{uid:{...}}}}, 404 if the route has no comments
+    @DataEnvelope(value = "comments")
+    @GET("/routes/{routeId}/comments")
+    Call<List<Comment>> getComments(@Header("Content-Type") String type,
+                                    @Path("routeId") String routeId,
+                                    @Query("gymId") String gymId,
+                                    @Query("wallId") String wallId);
+
+    // body {comment:{message}}, the backend keeps one comment per user and route
+    @POST("/routes/{routeId}/comments")
+    Call<ResponseBody> commentRoute(@Header("Content-Type") String type,
+                                    @Header("Idempotency-Key") String idempotencyKey,
+                                    @Path("routeId") String routeId,
+                                    @Query("gymId") String gymId,
+                                    @Query("wallId") String wallId,
+                                    @Body Map<String, Object> body);
 
 }
@@ -6,9 +6,20 @@ public class ApiUtils {
 
     public static final String BASE_URL = "https://flamtkzx.flamtky.dev";
 
+    // e.g. a local fake backend for load tests, set before the first request
+    private static volatile String baseUrl = BASE_URL;
+
+    public static String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public static void setBaseUrl(String url) {
+        baseUrl = url;
+    }
+
     public static ApiService getApiService(){
 
-        return RetrofitClient.getClient(BASE_URL).create(ApiService.class);
+        return RetrofitClient.getClient(baseUrl).create(ApiService.class);
 
     }
 
@@ -0,0 +1,19 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks an ApiService method returning List<Gyms|Walls|Route> whose body is the backend's
+// {data:{<value>:{...}}} map. nesting is how many map levels sit above each item.
+// A method returning a single Gyms|Walls|Route reads {data:{<value>:item}}, nesting is ignored.
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DataEnvelope {
+    String value();
+
+    int nesting() default 1;
+}
@@ -0,0 +1,178 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import com.example.inbloc_app.retrofit.models.Comment;
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+// Streaming converter for methods annotated with @DataEnvelope. Registered before the
+// GsonConverterFactory, every other method still goes through plain Gson.
+// A list can also be handed out in chunks while it is read, see setChunkListener.
+public class DataEnvelopeConverterFactory extends Converter.Factory {
+
+    public static final int CHUNK_SIZE = 8;
+
+    public interface ChunkListener {
+        // Up to CHUNK_SIZE items in list order, with their keys bound. The converter does not
+        // touch them again, the list it returns holds the same objects.
+        void onChunk(List<?> items);
+    }
+
+    private static final ThreadLocal<ChunkListener> chunkListener = new ThreadLocal<>();
+
+    public static DataEnvelopeConverterFactory create() {
+        return new DataEnvelopeConverterFactory();
+    }
+
+    private DataEnvelopeConverterFactory() {}
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        DataEnvelope envelope = null;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof DataEnvelope) {
+                envelope = (DataEnvelope) annotation;
+            }
+        }
+        if (envelope == null) {
+            return null;
+        }
+        if (type instanceof Class) {
+            TypeAdapter<?> adapter = ModelAdapters.forClass((Class<?>) type);
+            return adapter != null ? new ItemConverter<>(envelope.value(), adapter) : null;
+        }
+        if (!(type instanceof ParameterizedType) || ((ParameterizedType) type).getRawType() != List.class) {
+            return null;
+        }
+        Type itemType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        if (!(itemType instanceof Class)) {
+            return null;
+        }
+        TypeAdapter<?> adapter = ModelAdapters.forClass((Class<?>) itemType);
+        if (adapter == null) {
+            return null;
+        }
+        return new ListConverter<>(envelope.value(), envelope.nesting(), adapter);
+    }
+
+    // Sets the listener for the list responses the current thread converts from now on, so the
+    // first items can be shown before the rest of the body arrived. Null stops it. Returns the
+    // previous listener.
+    public static ChunkListener setChunkListener(ChunkListener listener) {
+        ChunkListener previous = chunkListener.get();
+        chunkListener.set(listener);
+        return previous;
+    }
+
+    public static ChunkListener getChunkListener() {
+        return chunkListener.get();
+    }
+
+    // Copies the map keys above an item into its id fields, innermost key is the item's own id
+    public static void bindKeys(Object item, String[] keys) {
+        int last = keys.length - 1;
+        if (item instanceof Gyms) {
+            ((Gyms) item).setId(keys[last]);
+        } else if (item instanceof Walls) {
+            Walls wall = (Walls) item;
+            wall.setId(keys[last]);
+            if (last >= 1) {
+                wall.setGymId(keys[last - 1]);
+            }
+        } else if (item instanceof Comment) {
+            ((Comment) item).setUserId(keys[last]);
+        } else if (item instanceof Route) {
+            Route route = (Route) item;
+            route.setId(keys[last]);
+            if (last >= 1) {
+                route.setWallId(keys[last - 1]);
+            }
+            if (last >= 2) {
+                route.setGymId(keys[last - 2]);
+            }
+        }
+    }
+
+    private static class ListConverter<T> implements Converter<ResponseBody, List<T>> {
+
+        private final String field;
+        private final int nesting;
+        private final TypeAdapter<T> adapter;
+
+        ListConverter(String field, int nesting, TypeAdapter<T> adapter) {
+            this.field = field;
+            this.nesting = nesting;
+            this.adapter = adapter;
+        }
+
+        @Override
+        public List<T> convert(ResponseBody value) throws IOException {
+            ChunkingSink<T> sink = new ChunkingSink<>(chunkListener.get());
+            try (JsonReader reader = new JsonReader(value.charStream())) {
+                EnvelopeReader.read(reader, field, nesting, adapter, sink);
+            }
+            sink.flush();
+            return sink.items;
+        }
+    }
+
+    private static class ChunkingSink<T> implements EnvelopeReader.Sink<T> {
+
+        final List<T> items = new ArrayList<>();
+        private final ChunkListener listener;
+        private int delivered = 0;
+
+        ChunkingSink(ChunkListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onItem(String[] keys, T item) {
+            bindKeys(item, keys);
+            items.add(item);
+            if (items.size() - delivered == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (listener != null && delivered < items.size()) {
+                listener.onChunk(new ArrayList<>(items.subList(delivered, items.size())));
+            }
+            delivered = items.size();
+        }
+    }
+
+    // The body holds no key for a single item, the caller knows the id it asked for
+    private static class ItemConverter<T> implements Converter<ResponseBody, T> {
+
+        private final String field;
+        private final TypeAdapter<T> adapter;
+
+        ItemConverter(String field, TypeAdapter<T> adapter) {
+            this.field = field;
+            this.adapter = adapter;
+        }
+
+        @Override
+        public T convert(ResponseBody value) throws IOException {
+            try (JsonReader reader = new JsonReader(value.charStream())) {
+                return EnvelopeReader.readItem(reader, field, adapter);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+// Streams the backend's {data:{<field>:{key:{key:{...}}}}} envelope item by item instead of
+// buffering the body into a String and building the whole tree before the first item is usable.
+public final class EnvelopeReader {
+
+    private EnvelopeReader() {}
+
+    public interface Sink<T> {
+        // keys holds the map keys from the outermost level down to the item's own id.
+        // The array is reused for every item, copy it if it has to outlive the call.
+        void onItem(String[] keys, T item) throws IOException;
+    }
+
+    // Reads the whole envelope, returns the number of items handed to the sink
+    public static <T> int read(JsonReader in, String field, int nesting, TypeAdapter<T> adapter,
+                               Sink<T> sink) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return 0;
+        }
+        int count = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!"data".equals(in.nextName()) || in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                continue;
+            }
+            in.beginObject();
+            while (in.hasNext()) {
+                if (field.equals(in.nextName())) {
+                    count += readNested(in, nesting, adapter, sink);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+        in.endObject();
+        return count;
+    }
+
+    // Reads {data:{<field>:{...}}} where the field is the item itself, e.g. GET /gyms/:gymId.
+    // Returns null if the field is missing.
+    public static <T> T readItem(JsonReader in, String field, TypeAdapter<T> adapter) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return null;
+        }
+        T item = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!"data".equals(in.nextName()) || in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                continue;
+            }
+            in.beginObject();
+            while (in.hasNext()) {
+                if (field.equals(in.nextName())) {
+                    item = adapter.read(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+        in.endObject();
+        return item;
+    }
+
+    // Reads a bare map nested `nesting` levels deep, e.g. {gymId:{wallId:{routeId:route}}} is 3
+    public static <T> int readNested(JsonReader in, int nesting, TypeAdapter<T> adapter,
+                                     Sink<T> sink) throws IOException {
+        return readLevel(in, new String[nesting], 0, adapter, sink);
+    }
+
+    private static <T> int readLevel(JsonReader in, String[] keys, int level, TypeAdapter<T> adapter,
+                                     Sink<T> sink) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            // null or an unexpected primitive where a map should be
+            in.skipValue();
+            return 0;
+        }
+        int count = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            keys[level] = in.nextName();
+            if (level == keys.length - 1) {
+                T item = adapter.read(in);
+                if (item != null) {
+                    sink.onItem(keys, item);
+                    count++;
+                }
+            } else {
+                count += readLevel(in, keys, level + 1, adapter, sink);
+            }
+        }
+        in.endObject();
+        return count;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// The last CAPACITY finished calls of the shared OkHttpClient, recorded by HttpMetricsListener.
+// Writers claim a slot with one getAndIncrement and never wait for each other or for a reader;
+// a reader skips slots that were overwritten while it was reading. Everything per endpoint
+// (histograms, percentiles, ratios) is computed from the samples when asked for.
+public final class HttpMetrics {
+
+    // power of two, the sequence number is mapped to a slot with a mask
+    static final int CAPACITY = 512;
+    private static final int MASK = CAPACITY - 1;
+
+    // how the response was served
+    public static final int NETWORK = 0;
+    // straight from the disk cache, no request was sent
+    public static final int CACHE_HIT = 1;
+    // the server answered 304, to OkHttp's cache validation or to our own If-None-Match
+    public static final int NOT_MODIFIED = 2;
+
+    public static final int PHASE_DNS = 0;
+    public static final int PHASE_CONNECT = 1;
+    public static final int PHASE_TLS = 2;
+    public static final int PHASE_TTFB = 3;
+    public static final int PHASE_BODY = 4;
+    public static final int PHASE_TOTAL = 5;
+    static final String[] PHASE_NAMES = {"dns", "connect", "tls", "ttfb", "body", "total"};
+
+    // upper bounds of the histogram buckets in ms, the last bucket takes everything above
+    static final long[] BUCKET_BOUNDS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    private static final HttpMetrics instance = new HttpMetrics();
+
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong nextSequence = new AtomicLong();
+    // samples before this sequence number were cleared
+    private volatile long floor = 0;
+
+    public static HttpMetrics getInstance() {
+        return instance;
+    }
+
+    HttpMetrics() {}
+
+    // One finished call. Phases that did not happen (e.g. DNS on a reused connection) are -1.
+    public static final class Sample {
+        public final String endpoint;
+        public final long startedAtMs;
+        // indexed by PHASE_*
+        final long[] phasesMs;
+        public final long requestBytes;
+        public final long responseBytes;
+        // the last network answer, 0 if the call failed before one arrived or was a cache hit
+        public final int code;
+        public final int servedBy;
+        // exception class name if the call failed
+        public final String error;
+
+        public Sample(String endpoint, long startedAtMs, long[] phasesMs, long requestBytes, long responseBytes,
+                      int code, int servedBy, String error) {
+            this.endpoint = endpoint;
+            this.startedAtMs = startedAtMs;
+            this.phasesMs = phasesMs.clone();
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.code = code;
+            this.servedBy = servedBy;
+            this.error = error;
+        }
+
+        public long phaseMs(int phase) {
+            return phasesMs[phase];
+        }
+
+        public boolean isError() {
+            return error != null || code >= 400;
+        }
+    }
+
+    private static final class Slot {
+        final long sequence;
+        final Sample sample;
+
+        Slot(long sequence, Sample sample) {
+            this.sequence = sequence;
+            this.sample = sample;
+        }
+    }
+
+    public void record(Sample sample) {
+        long sequence = nextSequence.getAndIncrement();
+        slots.set((int) (sequence & MASK), new Slot(sequence, sample));
+    }
+
+    public void clear() {
+        floor = nextSequence.get();
+    }
+
+    // Oldest first. A slot whose writer has not finished yet, or that already holds a newer
+    // sample, is left out.
+    public List<Sample> snapshot() {
+        long end = nextSequence.get();
+        long start = Math.max(floor, end - CAPACITY);
+        List<Sample> samples = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Slot slot = slots.get((int) (sequence & MASK));
+            if (slot != null && slot.sequence == sequence) {
+                samples.add(slot.sample);
+            }
+        }
+        return samples;
+    }
+
+    public static final class EndpointSummary {
+        public final String endpoint;
+        public int count;
+        public int errors;
+        public int cacheHits;
+        public int notModified;
+        public long requestBytes;
+        public long responseBytes;
+        // [phase][bucket], bucket i counts durations up to BUCKET_BOUNDS_MS[i]
+        final int[][] histograms = new int[PHASE_NAMES.length][BUCKET_BOUNDS_MS.length + 1];
+        final long[] p50Ms = new long[PHASE_NAMES.length];
+        final long[] p95Ms = new long[PHASE_NAMES.length];
+
+        EndpointSummary(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public double errorRate() {
+            return count == 0 ? 0 : (double) errors / count;
+        }
+
+        // answered without transferring the body again
+        public double cacheHitRatio() {
+            return count == 0 ? 0 : (double) (cacheHits + notModified) / count;
+        }
+
+        // -1 if the phase never happened for this endpoint
+        public long p50Ms(int phase) {
+            return p50Ms[phase];
+        }
+
+        public long p95Ms(int phase) {
+            return p95Ms[phase];
+        }
+
+        public int[] histogram(int phase) {
+            return histograms[phase].clone();
+        }
+    }
+
+    // Slowest endpoint (by p95 of the whole call) first
+    public List<EndpointSummary> summarize() {
+        return summarize(snapshot());
+    }
+
+    static List<EndpointSummary> summarize(List<Sample> samples) {
+        Map<String, List<Sample>> byEndpoint = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            List<Sample> list = byEndpoint.get(sample.endpoint);
+            if (list == null) {
+                list = new ArrayList<>();
+                byEndpoint.put(sample.endpoint, list);
+            }
+            list.add(sample);
+        }
+
+        List<EndpointSummary> summaries = new ArrayList<>(byEndpoint.size());
+        for (Map.Entry<String, List<Sample>> entry : byEndpoint.entrySet()) {
+            EndpointSummary summary = new EndpointSummary(entry.getKey());
+            long[][] durations = new long[PHASE_NAMES.length][entry.getValue().size()];
+            int[] counts = new int[PHASE_NAMES.length];
+            for (Sample sample : entry.getValue()) {
+                summary.count++;
+                if (sample.isError()) {
+                    summary.errors++;
+                }
+                if (sample.servedBy == CACHE_HIT) {
+                    summary.cacheHits++;
+                } else if (sample.servedBy == NOT_MODIFIED) {
+                    summary.notModified++;
+                }
+                summary.requestBytes += sample.requestBytes;
+                summary.responseBytes += sample.responseBytes;
+                for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                    long ms = sample.phasesMs[phase];
+                    if (ms >= 0) {
+                        durations[phase][counts[phase]++] = ms;
+                        summary.histograms[phase][bucket(ms)]++;
+                    }
+                }
+            }
+            for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                long[] sorted = Arrays.copyOf(durations[phase], counts[phase]);
+                Arrays.sort(sorted);
+                summary.p50Ms[phase] = percentile(sorted, 50);
+                summary.p95Ms[phase] = percentile(sorted, 95);
+            }
+            summaries.add(summary);
+        }
+        Collections.sort(summaries, new Comparator<EndpointSummary>() {
+            @Override
+            public int compare(EndpointSummary a, EndpointSummary b) {
+                return Long.compare(b.p95Ms[PHASE_TOTAL], a.p95Ms[PHASE_TOTAL]);
+            }
+        });
+        return summaries;
+    }
+
+    static int bucket(long ms) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (ms <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    // nearest rank
+    static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    // {"bucketsMs": [...], "endpoints": [...], "samples": [...]}, the summary and the raw
+    // samples it was computed from
+    public void writeJson(Writer out) throws IOException {
+        List<Sample> samples = snapshot();
+        JsonWriter writer = new JsonWriter(out);
+        writer.setIndent("  ");
+        writer.beginObject();
+        writer.name("bucketsMs").beginArray();
+        for (long bound : BUCKET_BOUNDS_MS) {
+            writer.value(bound);
+        }
+        writer.endArray();
+
+        writer.name("endpoints").beginArray();
+        for (EndpointSummary summary : summarize(samples)) {
+            writer.beginObject();
+            writer.name("endpoint").value(summary.endpoint);
+            writer.name("count").value(summary.count);
+            writer.name("errorRate").value(summary.errorRate());
+            writer.name("cacheHits").value(summary.cacheHits);
+            writer.name("notModified").value(summary.notModified);
+            writer.name("cacheHitRatio").value(summary.cacheHitRatio());
+            writer.name("requestBytes").value(summary.requestBytes);
+            writer.name("responseBytes").value(summary.responseBytes);
+            writer.name("phases").beginObject();
+            for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                writer.name(PHASE_NAMES[phase]).beginObject();
+                writer.name("p50").value(summary.p50Ms[phase]);
+                writer.name("p95").value(summary.p95Ms[phase]);
+                writer.name("histogram").beginArray();
+                for (int count : summary.histograms[phase]) {
+                    writer.value(count);
+                }
+                writer.endArray();
+                writer.endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+        }
+        writer.endArray();
+
+        writer.name("samples").beginArray();
+        for (Sample sample : samples) {
+            writer.beginObject();
+            writer.name("endpoint").value(sample.endpoint);
+            writer.name("startedAt").value(sample.startedAtMs);
+            for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                if (sample.phasesMs[phase] >= 0) {
+                    writer.name(PHASE_NAMES[phase]).value(sample.phasesMs[phase]);
+                }
+            }
+            writer.name("requestBytes").value(sample.requestBytes);
+            writer.name("responseBytes").value(sample.responseBytes);
+            writer.name("code").value(sample.code);
+            writer.name("servedBy").value(sample.servedBy == CACHE_HIT ? "cache"
+                    : sample.servedBy == NOT_MODIFIED ? "notModified" : "network");
+            if (sample.error != null) {
+                writer.name("error").value(sample.error);
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+}
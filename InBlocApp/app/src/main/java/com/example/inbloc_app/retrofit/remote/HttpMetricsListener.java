@@ -0,0 +1,171 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+// Times the phases of one call from OkHttp's events and records it in HttpMetrics when the call
+// ends. A call OkHttp answers from its cache sends no request, so a call that ends without any
+// response headers was a cache hit. Phases repeated by a retry or the token refresh are added up,
+// TTFB and body are those of the last attempt.
+// Events of one call arrive one after another, never concurrently, so the fields need no locking.
+final class HttpMetricsListener extends EventListener {
+
+    static final EventListener.Factory FACTORY = new EventListener.Factory() {
+        @Override
+        public EventListener create(Call call) {
+            return new HttpMetricsListener(HttpMetrics.getInstance());
+        }
+    };
+
+    private final HttpMetrics metrics;
+    private final long[] phasesMs = new long[HttpMetrics.PHASE_NAMES.length];
+    private long startedAtMs;
+    private long callStartNs;
+    private long dnsStartNs;
+    private long connectStartNs;
+    private long secureConnectStartNs;
+    private long requestStartNs;
+    private long responseHeadersEndNs;
+    private long requestBytes = 0;
+    private long responseBytes = 0;
+    private int code = 0;
+    private boolean sentRequest = false;
+
+    HttpMetricsListener(HttpMetrics metrics) {
+        this.metrics = metrics;
+        Arrays.fill(phasesMs, -1);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        startedAtMs = System.currentTimeMillis();
+        callStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        add(HttpMetrics.PHASE_DNS, dnsStartNs);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStartNs = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        add(HttpMetrics.PHASE_TLS, secureConnectStartNs);
+    }
+
+    // connect includes the TLS handshake
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        add(HttpMetrics.PHASE_CONNECT, connectStartNs);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                              IOException ioe) {
+        add(HttpMetrics.PHASE_CONNECT, connectStartNs);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStartNs = System.nanoTime();
+        sentRequest = true;
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        // the request line and headers, roughly as they go over HTTP/1.1
+        requestBytes += request.headers().byteCount() + request.url().toString().length();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        requestBytes += byteCount;
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        phasesMs[HttpMetrics.PHASE_TTFB] = elapsedMs(requestStartNs);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        responseHeadersEndNs = System.nanoTime();
+        code = response.code();
+    }
+
+    // the bytes read from the connection, before gzip is undone
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        phasesMs[HttpMetrics.PHASE_BODY] = elapsedMs(responseHeadersEndNs);
+        responseBytes += byteCount;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record(call, null);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        record(call, ioe.getClass().getSimpleName());
+    }
+
+    private void record(Call call, String error) {
+        phasesMs[HttpMetrics.PHASE_TOTAL] = elapsedMs(callStartNs);
+        int servedBy;
+        if (!sentRequest && error == null) {
+            servedBy = HttpMetrics.CACHE_HIT;
+        } else if (code == 304) {
+            servedBy = HttpMetrics.NOT_MODIFIED;
+        } else {
+            servedBy = HttpMetrics.NETWORK;
+        }
+        metrics.record(new HttpMetrics.Sample(endpoint(call.request()), startedAtMs, phasesMs, requestBytes,
+                responseBytes, code, servedBy, error));
+    }
+
+    // The ApiService method that made the call, so "/gyms/abc/openings" and "/gyms/xyz/openings"
+    // count as one endpoint. Calls made without Retrofit (logo downloads) are grouped by host.
+    static String endpoint(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            return invocation.method().getName();
+        }
+        return request.method() + " " + request.url().host();
+    }
+
+    private void add(int phase, long startNs) {
+        long ms = elapsedMs(startNs);
+        phasesMs[phase] = phasesMs[phase] < 0 ? ms : phasesMs[phase] + ms;
+    }
+
+    private static long elapsedMs(long startNs) {
+        return (System.nanoTime() - startNs) / 1000000;
+    }
+}
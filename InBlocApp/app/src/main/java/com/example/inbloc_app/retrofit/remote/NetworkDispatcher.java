@@ -0,0 +1,210 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import java.io.InterruptedIOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Decides which request may go on the wire next. All calls are made with execute() on the
+// executors of the loaders, so OkHttp's own Dispatcher never sees them; instead every request
+// takes a permit here before it is sent and gives it back once its body is closed.
+// Waiting requests start strictly by lane, then in arrival order. A lane may only start while
+// fewer than its limit are running, so images, prefetches and sync always leave room for the
+// request the user is waiting for. No host gets more than MAX_PER_HOST at a time.
+// The lane of a request is the lane of the thread that executes it, see setLane.
+public final class NetworkDispatcher {
+
+    // the screen the user just opened is waiting for it
+    public static final int LANE_INTERACTIVE = 0;
+    // logos of rows that are on screen
+    public static final int LANE_VISIBLE_IMAGES = 1;
+    // ahead of the user, e.g. the next page of routes
+    public static final int LANE_PREFETCH = 2;
+    // WorkManager jobs: favourite sync, write queue
+    public static final int LANE_BACKGROUND = 3;
+
+    static final int MAX_REQUESTS = 6;
+    static final int MAX_PER_HOST = 4;
+    // how many requests may be running in total for a lane to start one more
+    private static final int[] LANE_LIMITS = {MAX_REQUESTS, MAX_REQUESTS - 1, 3, 2};
+    // a cancelled call is not signalled to us, a waiter checks this often
+    private static final long CANCEL_POLL_MS = 100;
+
+    private static final NetworkDispatcher instance = new NetworkDispatcher(MAX_REQUESTS, MAX_PER_HOST, LANE_LIMITS);
+    private static final ThreadLocal<Integer> threadLane = new ThreadLocal<>();
+
+    public interface Cancellable {
+        boolean isCanceled();
+    }
+
+    private static final class Waiter {
+        final String host;
+        final int lane;
+        final long sequence;
+        boolean granted = false;
+
+        Waiter(String host, int lane, long sequence) {
+            this.host = host;
+            this.lane = lane;
+            this.sequence = sequence;
+        }
+    }
+
+    private final int maxRequests;
+    private final int maxPerHost;
+    private final int[] laneLimits;
+    // guarded by this
+    private final TreeSet<Waiter> waiting = new TreeSet<>(new Comparator<Waiter>() {
+        @Override
+        public int compare(Waiter a, Waiter b) {
+            if (a.lane != b.lane) {
+                return a.lane - b.lane;
+            }
+            return Long.compare(a.sequence, b.sequence);
+        }
+    });
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    private int running = 0;
+    private long nextSequence = 0;
+
+    public static NetworkDispatcher getInstance() {
+        return instance;
+    }
+
+    NetworkDispatcher(int maxRequests, int maxPerHost, int[] laneLimits) {
+        this.maxRequests = maxRequests;
+        this.maxPerHost = maxPerHost;
+        this.laneLimits = laneLimits;
+    }
+
+    // Lane of the requests the calling thread executes from now on, returns the previous one so
+    // it can be restored. Threads that never set one are interactive.
+    public static int setLane(int lane) {
+        int previous = currentLane();
+        threadLane.set(lane);
+        return previous;
+    }
+
+    public static int currentLane() {
+        Integer lane = threadLane.get();
+        return lane != null ? lane : LANE_INTERACTIVE;
+    }
+
+    // For executors whose tasks all belong to one lane
+    public static ThreadFactory threadFactory(final String name, final int lane) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        setLane(lane);
+                        r.run();
+                    }
+                }, name + "-" + count.incrementAndGet());
+            }
+        };
+    }
+
+    // Given back exactly once, further release calls do nothing
+    public final class Permit {
+        private final String host;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(String host) {
+            this.host = host;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                NetworkDispatcher.this.release(host);
+            }
+        }
+    }
+
+    // Blocks until the request may start. Throws if the call is cancelled or the thread is
+    // interrupted (e.g. its executor shut down) while it waits.
+    public Permit acquire(String host, int lane, Cancellable call) throws InterruptedIOException {
+        synchronized (this) {
+            Waiter waiter = new Waiter(host, Math.max(0, Math.min(lane, laneLimits.length - 1)), nextSequence++);
+            waiting.add(waiter);
+            promote();
+            try {
+                while (!waiter.granted) {
+                    if (call != null && call.isCanceled()) {
+                        throw new InterruptedIOException("Canceled");
+                    }
+                    wait(CANCEL_POLL_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                giveUp(waiter);
+                throw new InterruptedIOException("Interrupted while waiting for the network");
+            } catch (InterruptedIOException e) {
+                giveUp(waiter);
+                throw e;
+            }
+        }
+        return new Permit(host);
+    }
+
+    synchronized int getRunning() {
+        return running;
+    }
+
+    synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    private void giveUp(Waiter waiter) {
+        if (waiter.granted) {
+            // granted in the same moment, hand the slot on
+            release(waiter.host);
+        } else {
+            waiting.remove(waiter);
+        }
+    }
+
+    private synchronized void release(String host) {
+        running--;
+        Integer count = runningPerHost.get(host);
+        if (count == null || count <= 1) {
+            runningPerHost.remove(host);
+        } else {
+            runningPerHost.put(host, count - 1);
+        }
+        promote();
+    }
+
+    // Starts waiters best lane first. Lane limits only shrink towards the lower lanes, so once one
+    // waiter is held back by the total, all after it are too; a waiter held back by its host
+    // does not block requests to other hosts.
+    private void promote() {
+        boolean granted = false;
+        Iterator<Waiter> it = waiting.iterator();
+        while (it.hasNext()) {
+            Waiter waiter = it.next();
+            if (running >= Math.min(maxRequests, laneLimits[waiter.lane])) {
+                break;
+            }
+            Integer count = runningPerHost.get(waiter.host);
+            if (count != null && count >= maxPerHost) {
+                continue;
+            }
+            it.remove();
+            waiter.granted = true;
+            running++;
+            runningPerHost.put(waiter.host, count == null ? 1 : count + 1);
+            granted = true;
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+}
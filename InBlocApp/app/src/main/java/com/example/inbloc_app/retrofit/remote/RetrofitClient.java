@@ -1,20 +1,235 @@
 package com.example.inbloc_app.retrofit.remote;
 
+import android.content.Context;
+
+import com.example.inbloc_app.data.TokenProvider;
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Authenticator;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.Route;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import retrofit2.Invocation;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class RetrofitClient {
 
-    private static Retrofit retrofit = null;
+    private static final long CACHE_SIZE = 10L * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 15;
+    private static final long WRITE_TIMEOUT_SECONDS = 15;
+
+    private static final Map<String, Retrofit> clients = new HashMap<>();
+    private static OkHttpClient okHttpClient = null;
+    private static File cacheDir = null;
+
+    private RetrofitClient() {}
+
+    // Enables the on-disk response cache, call before the first request (e.g. in onCreate)
+    public static synchronized void init(Context context) {
+        if (cacheDir != null) {
+            return;
+        }
+        cacheDir = new File(context.getApplicationContext().getCacheDir(), "http");
+        if (okHttpClient != null) {
+            // a client without cache was already handed out, rebuild so later calls get the cache
+            okHttpClient = null;
+            clients.clear();
+        }
+    }
+
+    // One OkHttpClient for the whole app so every Retrofit instance shares pool, cache and dispatcher
+    public static synchronized OkHttpClient getOkHttpClient() {
+        if (okHttpClient == null) {
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .retryOnConnectionFailure(true)
+                    // first, so a request waiting for its turn holds nothing else yet
+                    .addInterceptor(new DispatchInterceptor(NetworkDispatcher.getInstance()))
+                    .addInterceptor(new TimeoutInterceptor())
+                    .addInterceptor(new AuthInterceptor())
+                    .authenticator(new TokenAuthenticator())
+                    // latency, size and cache numbers for the diagnostics in SettingsFragment
+                    .eventListenerFactory(HttpMetricsListener.FACTORY);
+            // OkHttp sends Accept-Encoding: gzip and unzips transparently as long as we don't set the header ourselves
+            if (cacheDir != null) {
+                builder.cache(new Cache(cacheDir, CACHE_SIZE));
+            }
+            okHttpClient = builder.build();
+        }
+        return okHttpClient;
+    }
 
-    public static Retrofit getClient(String baseURL){
+    public static synchronized Retrofit getClient(String baseURL){
+        Retrofit retrofit = clients.get(baseURL);
         if (retrofit == null){
             retrofit = new Retrofit.Builder()
                     .baseUrl(baseURL)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .client(getOkHttpClient())
+                    .addConverterFactory(DataEnvelopeConverterFactory.create())
+                    .addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+                            .registerTypeAdapterFactory(ModelAdapters.FACTORY)
+                            .create()))
                     .build();
+            clients.put(baseURL, retrofit);
         }
         return retrofit;
     }
 
+    // Holds a NetworkDispatcher permit from before the request is sent until its body is closed.
+    // Retrofit reads and closes bodies inside execute(), raw OkHttp callers close the Response.
+    private static class DispatchInterceptor implements Interceptor {
+
+        private final NetworkDispatcher dispatcher;
+
+        DispatchInterceptor(NetworkDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public Response intercept(final Chain chain) throws IOException {
+            Request request = chain.request();
+            // a live stream would hold its permit for as long as the screen is open
+            if ("text/event-stream".equals(request.header("Accept"))) {
+                return chain.proceed(request);
+            }
+            final NetworkDispatcher.Permit permit = dispatcher.acquire(request.url().host(),
+                    NetworkDispatcher.currentLane(), new NetworkDispatcher.Cancellable() {
+                        @Override
+                        public boolean isCanceled() {
+                            return chain.call().isCanceled();
+                        }
+                    });
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException | RuntimeException e) {
+                permit.release();
+                throw e;
+            }
+            final ResponseBody body = response.body();
+            if (body == null) {
+                permit.release();
+                return response;
+            }
+            final BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+                @Override
+                public void close() throws IOException {
+                    permit.release();
+                    super.close();
+                }
+            });
+            return response.newBuilder().body(new ResponseBody() {
+                @Override
+                public MediaType contentType() {
+                    return body.contentType();
+                }
+
+                @Override
+                public long contentLength() {
+                    return body.contentLength();
+                }
+
+                @Override
+                public BufferedSource source() {
+                    return source;
+                }
+            }).build();
+        }
+    }
+
+    // Applies the @Timeout of the called ApiService method to this one call
+    private static class TimeoutInterceptor implements Interceptor {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Invocation invocation = chain.request().tag(Invocation.class);
+            Timeout timeout = invocation != null ? invocation.method().getAnnotation(Timeout.class) : null;
+            if (timeout == null) {
+                return chain.proceed(chain.request());
+            }
+
+            Chain tuned = chain;
+            if (timeout.connect() > 0) {
+                tuned = tuned.withConnectTimeout(timeout.connect(), TimeUnit.MILLISECONDS);
+            }
+            if (timeout.read() > 0) {
+                tuned = tuned.withReadTimeout(timeout.read(), TimeUnit.MILLISECONDS);
+            }
+            if (timeout.write() > 0) {
+                tuned = tuned.withWriteTimeout(timeout.write(), TimeUnit.MILLISECONDS);
+            }
+            return tuned.proceed(tuned.request());
+        }
+    }
+
+    // Only requests to our backend get the ID token, never e.g. the signed logo download links
+    private static boolean isApiHost(HttpUrl url) {
+        HttpUrl api = HttpUrl.parse(ApiUtils.getBaseUrl());
+        return api != null && api.host().equals(url.host());
+    }
+
+    // Adds the current ID token to every backend request that has no Authorization yet
+    private static class AuthInterceptor implements Interceptor {
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            if (request.header("Authorization") != null || !isApiHost(request.url())) {
+                return chain.proceed(request);
+            }
+            String token = TokenProvider.getInstance().getToken();
+            if (token == null) {
+                return chain.proceed(request);
+            }
+            return chain.proceed(request.newBuilder().header("Authorization", "Bearer " + token).build());
+        }
+    }
+
+    // Retries a 401 once with a refreshed token. TokenProvider refreshes single-flight, so a burst
+    // of calls failing with the same expired token causes only one refresh.
+    private static class TokenAuthenticator implements Authenticator {
+
+        @Override
+        public Request authenticate(Route route, Response response) throws IOException {
+            String header = response.request().header("Authorization");
+            if (header == null || !header.startsWith("Bearer ") || response.priorResponse() != null) {
+                // not our token or already retried once
+                return null;
+            }
+            String stale = header.substring("Bearer ".length());
+            String fresh = TokenProvider.getInstance().refreshAfterUnauthorized(stale);
+            if (fresh == null || fresh.equals(stale)) {
+                return null;
+            }
+            return response.request().newBuilder().header("Authorization", "Bearer " + fresh).build();
+        }
+    }
+
 }
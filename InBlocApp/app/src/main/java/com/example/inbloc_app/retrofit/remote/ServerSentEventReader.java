@@ -0,0 +1,104 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// Incremental text/event-stream parser. Each event is dispatched as soon as its terminating
+// blank line arrives, so nothing but the current event is buffered. Follows the field rules of
+// the HTML EventSource spec: data lines are joined with \n, comments (":...") are ignored and
+// an id is remembered for the Last-Event-ID header of the next connection.
+public final class ServerSentEventReader {
+
+    public interface Callback {
+        void onEvent(String id, String type, String data) throws IOException;
+
+        // the server asked for a different reconnection delay
+        void onRetry(long retryMs);
+    }
+
+    private final BufferedReader reader;
+    private final Callback callback;
+    private final StringBuilder data = new StringBuilder();
+    private String eventType = null;
+    private String lastEventId = null;
+
+    public ServerSentEventReader(BufferedReader reader, String lastEventId, Callback callback) {
+        this.reader = reader;
+        this.lastEventId = lastEventId;
+        this.callback = callback;
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    // Reads and dispatches one event, returns false once the stream ended.
+    // BufferedReader.readLine already splits on \n, \r\n and \r like the spec asks.
+    public boolean processNext() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (dispatch()) {
+                    return true;
+                }
+                continue;
+            }
+            if (line.charAt(0) == ':') {
+                // comment, used by the server as heartbeat
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = "";
+            if (colon >= 0) {
+                int start = colon + 1;
+                if (start < line.length() && line.charAt(start) == ' ') {
+                    start++;
+                }
+                value = line.substring(start);
+            }
+            processField(field, value);
+        }
+        // an event without its closing blank line is incomplete and dropped
+        return false;
+    }
+
+    private void processField(String field, String value) {
+        switch (field) {
+            case "data":
+                data.append(value).append('\n');
+                break;
+            case "event":
+                eventType = value;
+                break;
+            case "id":
+                if (value.indexOf('\0') < 0) {
+                    lastEventId = value;
+                }
+                break;
+            case "retry":
+                try {
+                    callback.onRetry(Long.parseLong(value));
+                } catch (NumberFormatException ignored) {
+                    // not all digits, ignore the field
+                }
+                break;
+            default:
+                // unknown fields are ignored
+        }
+    }
+
+    private boolean dispatch() throws IOException {
+        if (data.length() == 0) {
+            eventType = null;
+            return false;
+        }
+        data.setLength(data.length() - 1);
+        String payload = data.toString();
+        String type = eventType == null ? "message" : eventType;
+        data.setLength(0);
+        eventType = null;
+        callback.onEvent(lastEventId, type, payload);
+        return true;
+    }
+}
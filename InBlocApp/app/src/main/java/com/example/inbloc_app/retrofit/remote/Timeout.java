@@ -0,0 +1,19 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Per-endpoint timeouts in milliseconds for ApiService methods, 0 keeps the client default
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timeout {
+    int connect() default 0;
+
+    int read() default 0;
+
+    int write() default 0;
+}
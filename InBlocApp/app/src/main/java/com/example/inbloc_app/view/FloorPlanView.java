@@ -0,0 +1,517 @@
+package com.example.inbloc_app.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.example.inbloc_app.R;
+import com.example.inbloc_app.data.WallOutlines;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// A gym's floor plan that can be panned and zoomed, with its walls drawn on top. The plan is
+// never decoded in full: a preview no larger than the screen is always drawn, and once zoomed
+// in further, tiles of TILE pixels are cut from the image with BitmapRegionDecoder at the
+// power-of-two sample size that fits the zoom. Only the tiles a screen can show at once are
+// cached, so memory depends on the view's size and not on the plan's resolution.
+// All public methods must be called on the main thread.
+public class FloorPlanView extends View {
+
+    private static final String TAG = "FloorPlanView";
+    private static final int TILE = 256;
+    // screen pixels per plan pixel at full zoom
+    private static final float MAX_ZOOM = 4;
+    private static final float DOUBLE_TAP_ZOOM = 2.5f;
+    // evicted tiles whose bitmaps are decoded into again
+    private static final int POOL_SIZE = 8;
+
+    // decoding is one region at a time anyway, shared by all plans
+    private static final ExecutorService decoder = Executors.newSingleThreadExecutor();
+
+    public interface OnWallClickListener {
+        // wallId null if the tap was beside every wall
+        void onWallClick(String wallId);
+    }
+
+    private static final class Tile {
+        final Bitmap bitmap;
+        // of the region in it, edge tiles are smaller than the bitmap
+        final int width;
+        final int height;
+
+        Tile(Bitmap bitmap, int width, int height) {
+            this.bitmap = bitmap;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+    private final int touchSlop;
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint wallPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint selectedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path wallPath = new Path();
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    private int planRes = 0;
+    // bumped whenever the plan is opened or let go, decodes of an older one are dropped
+    private int planGeneration = 0;
+    private BitmapRegionDecoder regionDecoder;
+    private int imageWidth;
+    private int imageHeight;
+    private Bitmap preview;
+    private int previewSample;
+
+    private LruCache<Long, Tile> tiles;
+    private final ArrayDeque<Bitmap> pool = new ArrayDeque<>();
+    private final Set<Long> pending = new HashSet<>();
+    // the tiles of the last frame, read by the decoder to skip those scrolled away meanwhile
+    private volatile Set<Long> wanted = Collections.emptySet();
+
+    // screen = plan * scale + translation
+    private float scale;
+    private float minScale;
+    private float translateX;
+    private float translateY;
+
+    private WallOutlines outlines;
+    private String selectedWallId;
+    private OnWallClickListener wallClickListener;
+
+    public FloorPlanView(Context context) {
+        this(context, null);
+    }
+
+    public FloorPlanView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        wallPaint.setStyle(Paint.Style.STROKE);
+        wallPaint.setStrokeWidth(2 * density);
+        wallPaint.setColor(ContextCompat.getColor(context, R.color.teal_700));
+        selectedPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        selectedPaint.setStrokeWidth(2 * density);
+        selectedPaint.setColor(ContextCompat.getColor(context, R.color.brighter_red));
+        selectedPaint.setAlpha(0x80);
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomTo(scale * detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return preview != null;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                // a pinch moves the plan with its focus already
+                if (scaleDetector.isInProgress()) {
+                    return true;
+                }
+                translateX -= distanceX;
+                translateY -= distanceY;
+                clampTranslation();
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                float maxScale = Math.max(minScale, MAX_ZOOM);
+                zoomTo(scale * DOUBLE_TAP_ZOOM > maxScale && scale >= maxScale ? minScale : scale * DOUBLE_TAP_ZOOM,
+                        e.getX(), e.getY());
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapConfirmed(MotionEvent e) {
+                onTap(e.getX(), e.getY());
+                return true;
+            }
+        });
+    }
+
+    // A drawable or raw resource holding a PNG, JPEG or WebP
+    public void setPlan(int resId) {
+        if (resId == planRes) {
+            return;
+        }
+        release();
+        planRes = resId;
+        if (isAttachedToWindow()) {
+            open();
+        }
+    }
+
+    public void setWallOutlines(WallOutlines outlines) {
+        this.outlines = outlines;
+        invalidate();
+    }
+
+    // Highlighted, null for none
+    public void setSelectedWall(String wallId) {
+        selectedWallId = wallId;
+        invalidate();
+    }
+
+    public void setOnWallClickListener(OnWallClickListener listener) {
+        wallClickListener = listener;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (planRes != 0 && regionDecoder == null) {
+            open();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        release();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // a tile is shown at more than half its size, so this many fit on the screen at most
+        int columns = w / (TILE / 2) + 2;
+        int rows = h / (TILE / 2) + 2;
+        if (tiles != null) {
+            tiles.evictAll();
+        }
+        tiles = new LruCache<Long, Tile>(Math.max(1, columns * rows + columns + rows)) {
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, Tile oldValue, Tile newValue) {
+                recycle(oldValue.bitmap);
+            }
+        };
+        fit();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (preview == null) {
+            return;
+        }
+        // beneath the tiles so nothing is blank while they decode
+        dst.set(translateX, translateY, translateX + imageWidth * scale, translateY + imageHeight * scale);
+        canvas.drawBitmap(preview, null, dst, bitmapPaint);
+        int sample = sampleSize(scale);
+        if (sample < previewSample) {
+            drawTiles(canvas, sample);
+        } else if (!wanted.isEmpty()) {
+            wanted = Collections.emptySet();
+        }
+        drawWalls(canvas);
+    }
+
+    private void drawTiles(Canvas canvas, int sample) {
+        int span = TILE * sample;
+        int fromColumn = (int) (Math.max(0, -translateX / scale) / span);
+        int fromRow = (int) (Math.max(0, -translateY / scale) / span);
+        int toColumn = (int) Math.min((imageWidth - 1) / span, (getWidth() - translateX) / scale / span);
+        int toRow = (int) Math.min((imageHeight - 1) / span, (getHeight() - translateY) / scale / span);
+        Set<Long> visible = new HashSet<>();
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                long key = key(sample, column, row);
+                visible.add(key);
+                Tile tile = tiles.get(key);
+                if (tile == null) {
+                    continue;
+                }
+                src.set(0, 0, tile.width, tile.height);
+                float left = translateX + column * span * scale;
+                float top = translateY + row * span * scale;
+                dst.set(left, top, left + tile.width * sample * scale, top + tile.height * sample * scale);
+                canvas.drawBitmap(tile.bitmap, src, dst, bitmapPaint);
+            }
+        }
+        wanted = visible;
+        for (long key : visible) {
+            if (tiles.get(key) == null) {
+                request(key, sample, (int) (key >>> 24) & 0xffffff, (int) key & 0xffffff);
+            }
+        }
+    }
+
+    private void drawWalls(Canvas canvas) {
+        if (outlines == null) {
+            return;
+        }
+        float width = imageWidth * scale;
+        float height = imageHeight * scale;
+        for (int wall = 0; wall < outlines.size(); wall++) {
+            wallPath.rewind();
+            for (int point = 0; point < outlines.getPointCount(wall); point++) {
+                float x = translateX + outlines.getX(wall, point) * width;
+                float y = translateY + outlines.getY(wall, point) * height;
+                if (point == 0) {
+                    wallPath.moveTo(x, y);
+                } else {
+                    wallPath.lineTo(x, y);
+                }
+            }
+            wallPath.close();
+            canvas.drawPath(wallPath, outlines.getWallId(wall).equals(selectedWallId) ? selectedPaint : wallPaint);
+        }
+    }
+
+    // level, column and row of a tile in one key, a plan has fewer than 2^24 tiles per side
+    private static long key(int sample, int column, int row) {
+        return ((long) sample << 48) | ((long) column << 24) | row;
+    }
+
+    // The coarsest power of two that still has a plan pixel for every screen pixel
+    static int sampleSize(float scale) {
+        int sample = 1;
+        while (sample * 2 * scale <= 1) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private void request(final long key, final int sample, final int column, final int row) {
+        if (!pending.add(key)) {
+            return;
+        }
+        final int generation = planGeneration;
+        final BitmapRegionDecoder source = regionDecoder;
+        final Bitmap reuse = pool.poll();
+        final int span = TILE * sample;
+        final Rect region = new Rect(column * span, row * span,
+                Math.min(imageWidth, (column + 1) * span), Math.min(imageHeight, (row + 1) * span));
+        decoder.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+                // scrolled or zoomed away while waiting
+                if (wanted.contains(key) && !source.isRecycled()) {
+                    bitmap = decode(source, region, sample, reuse);
+                }
+                final Bitmap decoded = bitmap;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        pending.remove(key);
+                        if (decoded != reuse) {
+                            recycle(reuse);
+                        }
+                        if (generation != planGeneration || decoded == null) {
+                            recycle(decoded);
+                            return;
+                        }
+                        tiles.put(key, new Tile(decoded, (region.width() + sample - 1) / sample,
+                                (region.height() + sample - 1) / sample));
+                        invalidate();
+                    }
+                });
+            }
+        });
+    }
+
+    // decoder thread. Into reuse if it fits, a region decoder leaves the rest of it untouched.
+    private static Bitmap decode(BitmapRegionDecoder source, Rect region, int sample, Bitmap reuse) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sample;
+        options.inMutable = true;
+        options.inBitmap = reuse;
+        try {
+            return source.decodeRegion(region, options);
+        } catch (IllegalArgumentException e) {
+            // reuse did not fit after all
+            options.inBitmap = null;
+            try {
+                return source.decodeRegion(region, options);
+            } catch (IllegalArgumentException | IllegalStateException e2) {
+                Log.i(TAG, "Could not decode " + region + ": " + e2);
+                return null;
+            }
+        } catch (IllegalStateException e) {
+            // released meanwhile
+            return null;
+        }
+    }
+
+    // Only full-size tile bitmaps can take any other tile
+    private void recycle(Bitmap bitmap) {
+        if (bitmap != null && bitmap != preview && bitmap.getWidth() == TILE && bitmap.getHeight() == TILE
+                && pool.size() < POOL_SIZE) {
+            pool.add(bitmap);
+        }
+    }
+
+    // Opens the plan on the decoder thread with a preview sampled down to the screen's short side
+    private void open() {
+        final int generation = ++planGeneration;
+        final int resId = planRes;
+        final Resources resources = getResources();
+        final int previewSize = Math.min(resources.getDisplayMetrics().widthPixels,
+                resources.getDisplayMetrics().heightPixels);
+        decoder.execute(new Runnable() {
+            @Override
+            public void run() {
+                final BitmapRegionDecoder opened;
+                final Bitmap openedPreview;
+                final int sample;
+                try (InputStream in = resources.openRawResource(resId)) {
+                    opened = BitmapRegionDecoder.newInstance(in, false);
+                } catch (IOException | Resources.NotFoundException e) {
+                    Log.e(TAG, "Could not open floor plan", e);
+                    return;
+                }
+                int longSide = Math.max(opened.getWidth(), opened.getHeight());
+                int previewSample = 1;
+                while (longSide / previewSample > previewSize) {
+                    previewSample *= 2;
+                }
+                sample = previewSample;
+                openedPreview = decode(opened, new Rect(0, 0, opened.getWidth(), opened.getHeight()), sample, null);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != planGeneration || openedPreview == null) {
+                            decoder.execute(recycler(opened));
+                            return;
+                        }
+                        regionDecoder = opened;
+                        imageWidth = opened.getWidth();
+                        imageHeight = opened.getHeight();
+                        preview = openedPreview;
+                        previewSample = sample;
+                        scale = 0;
+                        fit();
+                    }
+                });
+            }
+        });
+    }
+
+    // Lets go of the decoder and every bitmap, open() starts over
+    private void release() {
+        planGeneration++;
+        if (regionDecoder != null) {
+            // after the decodes already queued for it
+            decoder.execute(recycler(regionDecoder));
+            regionDecoder = null;
+        }
+        if (tiles != null) {
+            tiles.evictAll();
+        }
+        pool.clear();
+        pending.clear();
+        wanted = Collections.emptySet();
+        preview = null;
+    }
+
+    private static Runnable recycler(final BitmapRegionDecoder regionDecoder) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                regionDecoder.recycle();
+            }
+        };
+    }
+
+    // Shows the whole plan, or keeps the zoom the user chose but within the new bounds
+    private void fit() {
+        if (preview == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        boolean fitted = scale <= minScale;
+        minScale = Math.min((float) getWidth() / imageWidth, (float) getHeight() / imageHeight);
+        if (fitted) {
+            scale = minScale;
+        }
+        scale = Math.max(minScale, Math.min(Math.max(minScale, MAX_ZOOM), scale));
+        clampTranslation();
+        invalidate();
+    }
+
+    // Keeps the point under the focus where it is
+    private void zoomTo(float newScale, float focusX, float focusY) {
+        if (preview == null) {
+            return;
+        }
+        newScale = Math.max(minScale, Math.min(Math.max(minScale, MAX_ZOOM), newScale));
+        translateX = focusX - (focusX - translateX) * newScale / scale;
+        translateY = focusY - (focusY - translateY) * newScale / scale;
+        scale = newScale;
+        clampTranslation();
+        invalidate();
+    }
+
+    // A plan smaller than the view is centered, a larger one cannot be dragged past its edges
+    private void clampTranslation() {
+        translateX = clamp(translateX, getWidth(), imageWidth * scale);
+        translateY = clamp(translateY, getHeight(), imageHeight * scale);
+    }
+
+    private static float clamp(float translation, float viewSize, float planSize) {
+        if (planSize <= viewSize) {
+            return (viewSize - planSize) / 2;
+        }
+        return Math.max(viewSize - planSize, Math.min(0, translation));
+    }
+
+    private void onTap(float x, float y) {
+        if (preview == null || wallClickListener == null) {
+            return;
+        }
+        String wallId = null;
+        if (outlines != null) {
+            float width = imageWidth * scale;
+            float height = imageHeight * scale;
+            int wall = outlines.hit((x - translateX) / width, (y - translateY) / height,
+                    touchSlop / width, touchSlop / height);
+            wallId = wall >= 0 ? outlines.getWallId(wall) : null;
+        }
+        wallClickListener.onWallClick(wallId);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.inbloc_app.viewmodel;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.inbloc_app.data.GymRepository;
+import com.example.inbloc_app.data.ScheduleIndex;
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.util.List;
+
+// Holds the gym list of MyGymsFragment across view recreation and drawer switches. The list is
+// loaded once per ViewModel, a returning fragment gets the last value without any disk or
+// network access. With "open now" on, only the gyms open at the moment are published.
+public class MyGymsViewModel extends AndroidViewModel {
+
+    private static final String TAG = "MyGymsViewModel";
+
+    private final MutableLiveData<List<Gyms>> gyms = new MutableLiveData<>();
+    private final OpenNowFilter openNow;
+    private boolean loadStarted = false;
+
+    public MyGymsViewModel(@NonNull Application application) {
+        super(application);
+        openNow = new OpenNowFilter(ScheduleIndex.getInstance(application), gyms);
+    }
+
+    public LiveData<List<Gyms>> getGyms() {
+        if (!loadStarted) {
+            loadStarted = true;
+            load();
+        }
+        return gyms;
+    }
+
+    // GymRepository answers on the main thread, first from its cache, then after revalidation
+    private void load() {
+        GymRepository.getInstance(getApplication()).loadGyms(new GymRepository.Listener() {
+            @Override
+            public void onGymsLoaded(List<Gyms> loaded, boolean fromCache) {
+                openNow.setSource(loaded);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                Log.i(TAG, "Could not refresh gyms " + t);
+            }
+        });
+    }
+
+    public boolean isOpenNow() {
+        return openNow.isEnabled();
+    }
+
+    public void setOpenNow(boolean enabled) {
+        openNow.setEnabled(enabled);
+    }
+
+    @Override
+    protected void onCleared() {
+        openNow.close();
+    }
+}
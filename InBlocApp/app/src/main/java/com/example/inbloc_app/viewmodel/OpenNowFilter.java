@@ -0,0 +1,84 @@
+package com.example.inbloc_app.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.inbloc_app.data.ScheduleIndex;
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.util.List;
+
+// The "open now" switch of a gym list. Publishes the source list or only its open gyms, and
+// filters again when compiled hours change and at the moment one of the listed gyms opens or
+// closes. Everything it asks is answered from ScheduleIndex's memory. Main thread only.
+final class OpenNowFilter implements ScheduleIndex.Listener {
+
+    // a little after the change, so the gym is already on the other side of it
+    private static final long CHANGE_SLACK_MS = 1000;
+
+    private final ScheduleIndex index;
+    private final MutableLiveData<List<Gyms>> output;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable reapply = new Runnable() {
+        @Override
+        public void run() {
+            apply();
+        }
+    };
+    private List<Gyms> source;
+    private boolean enabled = false;
+
+    OpenNowFilter(ScheduleIndex index, MutableLiveData<List<Gyms>> output) {
+        this.index = index;
+        this.output = output;
+        index.addListener(this);
+    }
+
+    void setSource(List<Gyms> gyms) {
+        source = gyms;
+        index.refresh(gyms);
+        apply();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            apply();
+        }
+    }
+
+    @Override
+    public void onSchedulesChanged() {
+        if (enabled) {
+            apply();
+        }
+    }
+
+    private void apply() {
+        mainHandler.removeCallbacks(reapply);
+        if (source == null) {
+            return;
+        }
+        if (!enabled) {
+            output.setValue(source);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        output.setValue(index.filterOpen(source, now));
+        long next = index.nextChange(source, now);
+        if (next > 0) {
+            mainHandler.postDelayed(reapply, next - now + CHANGE_SLACK_MS);
+        }
+    }
+
+    void close() {
+        index.removeListener(this);
+        mainHandler.removeCallbacks(reapply);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.inbloc_app.viewmodel;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.inbloc_app.data.GeoIndex;
+import com.example.inbloc_app.data.GymLocations;
+import com.example.inbloc_app.data.GymRepository;
+import com.example.inbloc_app.data.GymSearchDatabase;
+import com.example.inbloc_app.data.ScheduleIndex;
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Query and results of SearchFragment. Outlives the fragment's view, so switching away from the
+// search and back shows the last results instead of running the query again. "Open now" narrows
+// the results without searching again. "Near me" orders the results by distance, and with an
+// empty query shows the nearest gyms; every location update is answered from GymLocations'
+// index in memory.
+public class SearchViewModel extends AndroidViewModel {
+
+    private static final String TAG = "SearchViewModel";
+    private static final long DEBOUNCE_MS = 150;
+    private static final int MAX_RESULTS = 50;
+    private static final int NEAR_ME_RESULTS = 50;
+    private static final double NEAR_ME_RADIUS_M = 100000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final GymSearchDatabase searchDatabase;
+    private final MutableLiveData<List<Gyms>> results = new MutableLiveData<>();
+    private final OpenNowFilter openNow;
+    private final GymLocations locations;
+    private String query = "";
+    // what the query found, before near me reorders it
+    private List<Gyms> searched;
+    private boolean nearMe = false;
+    private boolean located = false;
+    private double latitude;
+    private double longitude;
+    // every gym by id, for turning the index's ids into rows
+    private Map<String, Gyms> gymsById = new HashMap<>();
+    private final GymLocations.Listener locationsListener = new GymLocations.Listener() {
+        @Override
+        public void onLocationsChanged() {
+            if (nearMe) {
+                publish();
+            }
+        }
+    };
+    // bumped on every keystroke, results of older queries are dropped
+    private int querySequence = 0;
+    private Runnable pendingSearch;
+
+    public SearchViewModel(@NonNull Application application) {
+        super(application);
+        searchDatabase = GymSearchDatabase.getInstance(application);
+        openNow = new OpenNowFilter(ScheduleIndex.getInstance(application), results);
+        locations = GymLocations.getInstance(application);
+        locations.addListener(locationsListener);
+    }
+
+    public LiveData<List<Gyms>> getResults() {
+        return results;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public boolean isOpenNow() {
+        return openNow.isEnabled();
+    }
+
+    public void setOpenNow(boolean enabled) {
+        openNow.setEnabled(enabled);
+    }
+
+    public boolean isNearMe() {
+        return nearMe;
+    }
+
+    // Loads all gyms to place the new and moved ones, GymRepository answers from its cache first
+    public void setNearMe(boolean enabled) {
+        if (nearMe == enabled) {
+            return;
+        }
+        nearMe = enabled;
+        if (enabled) {
+            GymRepository.getInstance(getApplication()).loadGyms(new GymRepository.Listener() {
+                @Override
+                public void onGymsLoaded(List<Gyms> gyms, boolean fromCache) {
+                    Map<String, Gyms> byId = new HashMap<>();
+                    for (Gyms gym : gyms) {
+                        byId.put(gym.getId(), gym);
+                    }
+                    gymsById = byId;
+                    locations.update(gyms);
+                    publish();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    Log.i(TAG, "Could not refresh gyms " + t);
+                }
+            });
+        }
+        publish();
+    }
+
+    public void setLocation(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        located = true;
+        if (nearMe) {
+            publish();
+        }
+    }
+
+    // Waits until typing pauses for DEBOUNCE_MS, then queries the index on the executor.
+    // The same query again (e.g. the EditText restoring its text) is not searched twice.
+    public void setQuery(final String newQuery) {
+        if (newQuery.equals(query) && results.getValue() != null) {
+            return;
+        }
+        query = newQuery;
+        if (pendingSearch != null) {
+            mainHandler.removeCallbacks(pendingSearch);
+        }
+        final int sequence = ++querySequence;
+        pendingSearch = new Runnable() {
+            @Override
+            public void run() {
+                searchExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<Gyms> found;
+                        try {
+                            found = searchDatabase.search(newQuery, MAX_RESULTS);
+                        } catch (RuntimeException e) {
+                            Log.w(TAG, "Search failed", e);
+                            found = Collections.emptyList();
+                        }
+                        final List<Gyms> searched = found;
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (sequence == querySequence) {
+                                    SearchViewModel.this.searched = searched;
+                                    publish();
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+        };
+        mainHandler.postDelayed(pendingSearch, DEBOUNCE_MS);
+    }
+
+    private void publish() {
+        if (nearMe && located && query.trim().isEmpty()) {
+            GeoIndex.Result nearest = locations.getIndex().nearest(latitude, longitude, NEAR_ME_RESULTS,
+                    NEAR_ME_RADIUS_M);
+            List<Gyms> gyms = new ArrayList<>();
+            for (String id : nearest.ids) {
+                Gyms gym = gymsById.get(id);
+                if (gym != null) {
+                    gyms.add(gym);
+                }
+            }
+            openNow.setSource(gyms);
+        } else if (nearMe && located && searched != null) {
+            openNow.setSource(byDistance(searched));
+        } else {
+            openNow.setSource(searched != null ? searched : Collections.<Gyms>emptyList());
+        }
+    }
+
+    // Closest first, gyms that could not be placed at the end in their order
+    private List<Gyms> byDistance(List<Gyms> gyms) {
+        final Map<String, Double> distances = new HashMap<>();
+        for (Gyms gym : gyms) {
+            double[] at = locations.getCoordinates(gym.getId());
+            distances.put(gym.getId(), at != null
+                    ? GeoIndex.distanceM(latitude, longitude, at[0], at[1]) : Double.MAX_VALUE);
+        }
+        List<Gyms> sorted = new ArrayList<>(gyms);
+        Collections.sort(sorted, new Comparator<Gyms>() {
+            @Override
+            public int compare(Gyms a, Gyms b) {
+                return Double.compare(distances.get(a.getId()), distances.get(b.getId()));
+            }
+        });
+        return sorted;
+    }
+
+    @Override
+    protected void onCleared() {
+        if (pendingSearch != null) {
+            mainHandler.removeCallbacks(pendingSearch);
+        }
+        querySequence++;
+        searchExecutor.shutdownNow();
+        openNow.close();
+        locations.removeListener(locationsListener);
+    }
+}
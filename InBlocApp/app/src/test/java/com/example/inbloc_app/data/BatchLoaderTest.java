@@ -0,0 +1,146 @@
+package com.example.inbloc_app.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BatchLoaderTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    // answers "value-<key>" for every key except "missing", remembers each batch
+    private static class RecordingFetcher implements BatchLoader.Fetcher<String> {
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+        volatile boolean fail = false;
+
+        @Override
+        public Map<String, String> fetch(List<String> keys) throws IOException {
+            batches.add(keys);
+            if (fail) {
+                throw new IOException("offline");
+            }
+            Map<String, String> result = new HashMap<>();
+            for (String key : keys) {
+                if (!"missing".equals(key)) {
+                    result.put(key, "value-" + key);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class Results implements BatchLoader.Callback<String> {
+        final Map<String, String> values = Collections.synchronizedMap(new HashMap<String, String>());
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch;
+
+        Results(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onLoaded(String key, String value) {
+            values.put(key, value);
+            latch.countDown();
+        }
+
+        @Override
+        public void onError(String key, Throwable t) {
+            errors.add(key);
+            latch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("callbacks missing", latch.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private BatchLoader<String> loader(RecordingFetcher fetcher, int maxBatch) {
+        return new BatchLoader<>(fetcher, Executors.newScheduledThreadPool(2), DIRECT, 20, maxBatch);
+    }
+
+    @Test
+    public void keysWithinWindowShareOneFetch() throws InterruptedException {
+        RecordingFetcher fetcher = new RecordingFetcher();
+        BatchLoader<String> loader = loader(fetcher, 100);
+        Results results = new Results(31);
+
+        for (int i = 0; i < 30; i++) {
+            loader.load("gym" + i, results);
+        }
+        loader.load("missing", results);
+        results.await();
+
+        assertEquals(1, fetcher.batches.size());
+        assertEquals(31, fetcher.batches.get(0).size());
+        assertEquals("value-gym7", results.values.get("gym7"));
+        assertTrue(results.values.containsKey("missing"));
+        assertNull(results.values.get("missing"));
+    }
+
+    @Test
+    public void duplicateKeysAreFetchedOnceAndFannedOut() throws InterruptedException {
+        RecordingFetcher fetcher = new RecordingFetcher();
+        BatchLoader<String> loader = loader(fetcher, 100);
+        Results first = new Results(1);
+        Results second = new Results(1);
+
+        loader.load("gym1", first);
+        loader.load("gym1", second);
+        first.await();
+        second.await();
+
+        assertEquals(1, fetcher.batches.size());
+        assertEquals(Collections.singletonList("gym1"), fetcher.batches.get(0));
+        assertEquals("value-gym1", second.values.get("gym1"));
+    }
+
+    @Test
+    public void fullBatchIsDispatchedWithoutWaiting() throws InterruptedException {
+        RecordingFetcher fetcher = new RecordingFetcher();
+        BatchLoader<String> loader = loader(fetcher, 10);
+        Results results = new Results(25);
+
+        for (int i = 0; i < 25; i++) {
+            loader.load("gym" + i, results);
+        }
+        results.await();
+
+        assertEquals(3, fetcher.batches.size());
+        assertEquals(10, fetcher.batches.get(0).size());
+        assertEquals(10, fetcher.batches.get(1).size());
+        assertEquals(5, fetcher.batches.get(2).size());
+    }
+
+    @Test
+    public void failureReachesEveryCaller() throws InterruptedException {
+        RecordingFetcher fetcher = new RecordingFetcher();
+        fetcher.fail = true;
+        BatchLoader<String> loader = loader(fetcher, 100);
+        Results results = new Results(3);
+
+        loader.load("a", results);
+        loader.load("a", results);
+        loader.load("b", results);
+        results.await();
+
+        assertEquals(3, results.errors.size());
+        assertEquals(1, loader.getFetchCount());
+    }
+}
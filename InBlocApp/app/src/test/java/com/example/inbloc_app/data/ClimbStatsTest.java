@@ -0,0 +1,142 @@
+package com.example.inbloc_app.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ClimbStatsTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    // Monday 2022-05-09 12:00 UTC
+    private static final long MONDAY = 1652097600000L;
+
+    private final ClimbStats stats = new ClimbStats();
+
+    @Test
+    public void completionsFillPyramidFeaturesAndGyms() {
+        stats.complete("g1/w1/r1", "g1", "w1", 3, "CRIMPS,POWER", false, MONDAY);
+        stats.complete("g1/w1/r2", "g1", "w1", 3, "CRIMPS", true, MONDAY);
+        stats.complete("g2/w9/r3", "g2", "w9", 5, "SLOPER,UNKNOWN", false, MONDAY);
+
+        ClimbStats.Summary summary = stats.summarize(MONDAY);
+
+        assertEquals(3, summary.completed);
+        assertEquals(1, summary.flashes);
+        assertEquals(11 / 3d, summary.avgDifficulty, 1e-9);
+        assertEquals(2, summary.pyramid[3]);
+        assertEquals(1, summary.pyramid[5]);
+        assertEquals(1, summary.flashPyramid[3]);
+        assertEquals(2, summary.sendsByFeature[1]);
+        assertEquals(1, summary.sendsByFeature[3]);
+        assertEquals(1, summary.sendsByFeature[0]);
+        assertEquals(Integer.valueOf(2), summary.sendsByGym.get("g1"));
+        assertEquals(2, stats.getSendsOnWall("w1"));
+        assertEquals(1, stats.getPyramid("g2")[5]);
+        assertEquals(0, stats.getPyramid("g1")[5]);
+    }
+
+    @Test
+    public void completingTwiceCountsOnceAndUncompleteUndoesIt() {
+        assertTrue(stats.complete("a", "g1", "w1", 2, "BALANCE", true, MONDAY));
+        assertFalse(stats.complete("a", "g1", "w1", 2, "BALANCE", true, MONDAY));
+        stats.complete("b", "g1", "w2", 4, null, false, MONDAY);
+
+        assertTrue(stats.uncomplete("a"));
+        assertFalse(stats.uncomplete("a"));
+
+        ClimbStats.Summary summary = stats.summarize(MONDAY);
+        assertEquals(1, summary.completed);
+        assertEquals(0, summary.flashes);
+        assertEquals(0, summary.pyramid[2]);
+        assertEquals(0, summary.sendsByFeature[2]);
+        assertEquals(4, summary.avgDifficulty, 1e-9);
+        // the slot that moved into the freed one is still found
+        assertTrue(stats.uncomplete("b"));
+        assertTrue(stats.summarize(MONDAY).sendsByGym.isEmpty());
+    }
+
+    @Test
+    public void regradedRouteMovesBetweenBuckets() {
+        stats.complete("a", "g1", "w1", 2, "SLOPER", false, MONDAY);
+
+        assertTrue(stats.routeChanged("a", 6, "CAMPUS"));
+        assertFalse(stats.routeChanged("a", 6, "CAMPUS"));
+        assertFalse(stats.routeChanged("unknown", 1, null));
+
+        ClimbStats.Summary summary = stats.summarize(MONDAY);
+        assertEquals(0, summary.pyramid[2]);
+        assertEquals(1, summary.pyramid[6]);
+        assertEquals(0, summary.sendsByFeature[0]);
+        assertEquals(1, summary.sendsByFeature[4]);
+        assertEquals(1, summary.sendsByWeek[ClimbStats.WEEKS - 1]);
+        assertEquals(6, summary.avgDifficultyByWeek[ClimbStats.WEEKS - 1], 1e-9);
+    }
+
+    @Test
+    public void weeksRollOver() {
+        stats.complete("old", "g1", "w1", 1, null, false, MONDAY - 7 * DAY * ClimbStats.WEEKS);
+        stats.complete("lastWeek", "g1", "w1", 2, null, false, MONDAY - DAY);
+        stats.complete("sunday", "g1", "w1", 4, null, false, MONDAY + 6 * DAY);
+        stats.complete("monday", "g1", "w1", 6, null, false, MONDAY);
+
+        ClimbStats.Summary summary = stats.summarize(MONDAY + 6 * DAY);
+
+        int thisWeek = ClimbStats.WEEKS - 1;
+        assertEquals(2, summary.sendsByWeek[thisWeek]);
+        assertEquals(5, summary.avgDifficultyByWeek[thisWeek], 1e-9);
+        assertEquals(1, summary.sendsByWeek[thisWeek - 1]);
+        // out of the window, but still in the totals
+        int sum = 0;
+        for (int sends : summary.sendsByWeek) {
+            sum += sends;
+        }
+        assertEquals(3, sum);
+        assertEquals(4, summary.completed);
+
+        // nothing climbed for two weeks
+        assertEquals(0, stats.summarize(MONDAY + 14 * DAY).sendsByWeek[thisWeek]);
+        assertEquals(2, stats.summarize(MONDAY + 14 * DAY).sendsByWeek[thisWeek - 2]);
+
+        assertTrue(stats.uncomplete("old"));
+        assertEquals(3, stats.summarize(MONDAY).completed);
+    }
+
+    @Test
+    public void manyCompletionsGrowTheArrays() {
+        for (int i = 0; i < 1000; i++) {
+            stats.complete("r" + i, "g" + (i % 40), "w" + (i % 300), i % 20, "VOLUMES", i % 10 == 0, MONDAY);
+        }
+
+        ClimbStats.Summary summary = stats.summarize(MONDAY);
+        assertEquals(1000, summary.completed);
+        assertEquals(100, summary.flashes);
+        assertEquals(40, summary.sendsByGym.size());
+        // grades above the last bucket land in it
+        assertEquals(50 * 5, summary.pyramid[ClimbStats.DIFFICULTIES - 1]);
+        assertEquals(1000, summary.sendsByFeature[6]);
+    }
+
+    @Test
+    public void survivesAWriteAndRead() throws IOException {
+        stats.complete("a", "g1", "w1", 3, "CRIMPS,COMP", true, MONDAY);
+        stats.complete("b", "g2", "w2", 1, null, false, MONDAY - DAY);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stats.writeTo(new DataOutputStream(bytes));
+
+        ClimbStats read = ClimbStats.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        ClimbStats.Summary summary = read.summarize(MONDAY);
+        assertEquals(2, summary.completed);
+        assertEquals(1, summary.flashPyramid[3]);
+        assertEquals(1, summary.sendsByFeature[7]);
+        assertEquals(1, summary.sendsByWeek[ClimbStats.WEEKS - 1]);
+        assertEquals(1, summary.sendsByWeek[ClimbStats.WEEKS - 2]);
+        assertTrue(read.isCompleted("b"));
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.DataEnvelopeConverterFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the detail fetchers behind a BatchLoader against a stand-in for the backend that knows
+ * gym0..gym49 with walls wall0..wall9 each, and counts the requests it gets.
+ */
+public class DetailFetchersTest {
+
+    private MockWebServer server;
+    private ApiService apiService;
+    private ScheduledExecutorService scheduler;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.add(request.getPath());
+                return answer(request.getRequestUrl());
+            }
+        });
+        server.start();
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addConverterFactory(DataEnvelopeConverterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiService.class);
+        scheduler = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        server.shutdown();
+    }
+
+    // the relevant part of gymRoutes.ts and wallRoutes.ts
+    private static MockResponse answer(HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        String ids = url.queryParameter("ids");
+        if (segments.size() == 1 && segments.get(0).equals("gyms") && ids != null) {
+            StringBuilder gyms = new StringBuilder();
+            for (String id : ids.split(",")) {
+                if (knownGym(id)) {
+                    gyms.append(gyms.length() > 0 ? "," : "").append('"').append(id).append("\":").append(gymJson(id));
+                }
+            }
+            return json("{\"data\":{\"gyms\":{" + gyms + "}}}");
+        }
+        if (segments.size() == 2 && segments.get(0).equals("gyms")) {
+            String id = segments.get(1);
+            return knownGym(id) ? json("{\"data\":{\"gym\":" + gymJson(id) + "}}")
+                    : new MockResponse().setResponseCode(404).setBody("{\"error\":\"Gym not found\"}");
+        }
+        if (segments.size() == 1 && segments.get(0).equals("walls") && ids != null) {
+            StringBuilder walls = new StringBuilder();
+            for (String id : ids.split(",")) {
+                walls.append(walls.length() > 0 ? "," : "").append('"').append(id).append("\":{\"features\":\"SLAB\"}");
+            }
+            return json("{\"data\":{\"walls\":{" + walls + "}}}");
+        }
+        if (segments.size() == 2 && segments.get(0).equals("walls")) {
+            return json("{\"data\":{\"wall\":{\"features\":\"ROOF\"}}}");
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    private static boolean knownGym(String id) {
+        return id.matches("gym([0-9]|[1-4][0-9])");
+    }
+
+    private static String gymJson(String id) {
+        return "{\"name\":\"Name of " + id + "\",\"city\":\"Bielefeld\"}";
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private static <V> Map<String, V> loadAll(BatchLoader<V> loader, List<String> keys) throws InterruptedException {
+        final Map<String, V> values = Collections.synchronizedMap(new HashMap<String, V>());
+        final CountDownLatch latch = new CountDownLatch(keys.size());
+        BatchLoader.Callback<V> callback = new BatchLoader.Callback<V>() {
+            @Override
+            public void onLoaded(String key, V value) {
+                values.put(key, value);
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(String key, Throwable t) {
+                fail(key + " " + t);
+            }
+        };
+        for (String key : keys) {
+            loader.load(key, callback);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        return values;
+    }
+
+    @Test
+    public void listToDetailNeedsOneRequestInsteadOfOnePerGym() throws InterruptedException {
+        BatchLoader<Gyms> loader = new BatchLoader<>(DetailFetchers.gyms(apiService), scheduler, DIRECT, 20, 100);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add("gym" + i);
+            // a second screen asking for the same gyms at the same time
+            ids.add("gym" + i);
+        }
+        ids.add("gym404");
+
+        Map<String, Gyms> gyms = loadAll(loader, ids);
+
+        assertEquals(1, requests.size());
+        assertTrue(requests.get(0).startsWith("/gyms?ids="));
+        assertEquals("Name of gym12", gyms.get("gym12").getName());
+        assertEquals("gym12", gyms.get("gym12").getId());
+        assertNull(gyms.get("gym404"));
+    }
+
+    @Test
+    public void singleKeyUsesDetailEndpoint() throws InterruptedException {
+        BatchLoader<Gyms> loader = new BatchLoader<>(DetailFetchers.gyms(apiService), scheduler, DIRECT, 20, 100);
+
+        Map<String, Gyms> gyms = loadAll(loader, Collections.singletonList("gym3"));
+
+        assertEquals(Collections.singletonList("/gyms/gym3"), requests);
+        assertEquals("gym3", gyms.get("gym3").getId());
+        assertEquals("Bielefeld", gyms.get("gym3").getCity());
+    }
+
+    @Test
+    public void wallsAreBatchedPerGym() throws InterruptedException {
+        BatchLoader<Walls> loader = new BatchLoader<>(DetailFetchers.walls(apiService), scheduler, DIRECT, 20, 100);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(DetailFetchers.wallKey("gym1", "wall" + i));
+        }
+        keys.add(DetailFetchers.wallKey("gym2", "wall0"));
+
+        Map<String, Walls> walls = loadAll(loader, keys);
+
+        assertEquals(2, requests.size());
+        Walls wall = walls.get(DetailFetchers.wallKey("gym1", "wall4"));
+        assertEquals("SLAB", wall.getFeatures());
+        assertEquals("gym1", wall.getGymId());
+        assertEquals("wall4", wall.getId());
+        assertEquals("ROOF", walls.get(DetailFetchers.wallKey("gym2", "wall0")).getFeatures());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.remote.EnvelopeReader;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for the backend with generated data: gyms gym000000.. and, in every gym,
+ * walls wall000.. holding the gym's routes r000000.. spread evenly. Nothing is stored, items are
+ * derived from their index, so the fake itself takes no memory worth measuring. Every answer
+ * waits latencyMs, is written as the backend's JSON envelope and read back with the app's
+ * streaming readers, so decoding costs what it costs on the device. Like the backend it answers
+ * at most MAX_LIMIT gyms at a time, pages gyms by gymId and routes by routeId, and gives every page
+ * of gyms its own ETag.
+ */
+class FakeBackend implements GymSource {
+
+    static final int MAX_LIMIT = 1000;
+
+    private final int gymCount;
+    private final int wallsPerGym;
+    private final int routesPerGym;
+    private final long latencyMs;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    FakeBackend(int gymCount, int wallsPerGym, int routesPerGym, long latencyMs) {
+        this.gymCount = gymCount;
+        this.wallsPerGym = wallsPerGym;
+        this.routesPerGym = routesPerGym;
+        this.latencyMs = latencyMs;
+    }
+
+    int getRequests() {
+        return requests.get();
+    }
+
+    static String gymId(int gym) {
+        return String.format(Locale.ROOT, "gym%06d", gym);
+    }
+
+    static String wallId(int wall) {
+        return String.format(Locale.ROOT, "wall%03d", wall);
+    }
+
+    // the gyms don't change, so a page is identified by where it starts and ends
+    static String eTag(int from, int to) {
+        return "\"fake-" + from + "-" + to + "\"";
+    }
+
+    @Override
+    public Result fetchGyms(String eTag, String startAfter, int limit) throws IOException {
+        answer();
+        if (limit > MAX_LIMIT) {
+            throw new IOException("Call unsuccessful 400");
+        }
+        int from = startAfter != null ? Integer.parseInt(startAfter.substring(3)) + 1 : 0;
+        int to = Math.min(gymCount, from + limit);
+        if (eTag(from, to).equals(eTag)) {
+            return null;
+        }
+        StringWriter json = new StringWriter();
+        JsonWriter writer = new JsonWriter(json);
+        writer.beginObject().name("data").beginObject().name("gyms").beginObject();
+        for (int i = from; i < to; i++) {
+            Gyms gym = new Gyms();
+            gym.setName("Gym " + i);
+            gym.setCity("City " + (i % 100));
+            gym.setZip(String.format(Locale.ROOT, "%05d", 10000 + i % 90000));
+            gym.setStreet("Street " + (i % 500));
+            gym.setHouseNumber(String.valueOf(1 + i % 200));
+            gym.setDescription("Bouldering and lead climbing, " + (i % 40) + " walls");
+            writer.name(gymId(i));
+            ModelAdapters.GYMS.write(writer, gym);
+        }
+        writer.endObject().endObject().endObject().close();
+        return new Result(ApiGymSource.readGyms(new JsonReader(new StringReader(json.toString()))), eTag(from, to));
+    }
+
+    // One per list, like ApiRouteSource
+    RouteSource routeSource() {
+        return new RouteSource() {
+            private volatile boolean canceled = false;
+
+            @Override
+            public List<String> getWallIds(String gymId) throws IOException {
+                answer();
+                check(canceled);
+                List<String> wallIds = new ArrayList<>();
+                for (int wall = 0; wall < wallsPerGym; wall++) {
+                    wallIds.add(wallId(wall));
+                }
+                return wallIds;
+            }
+
+            @Override
+            public List<Route> getRoutes(final String gymId, final String wallId, String startAfter, int limit)
+                    throws IOException {
+                answer();
+                check(canceled);
+                int wall = Integer.parseInt(wallId.substring(4));
+                // the first walls take the remainder
+                int count = routesPerGym / wallsPerGym + (wall < routesPerGym % wallsPerGym ? 1 : 0);
+                int from = startAfter != null ? Integer.parseInt(startAfter.substring(1)) + 1 : 0;
+                int to = Math.min(count, from + limit);
+
+                StringWriter json = new StringWriter();
+                JsonWriter writer = new JsonWriter(json);
+                writer.beginObject().name("data").beginObject().name("routes").beginObject();
+                for (int i = from; i < to; i++) {
+                    Route route = new Route();
+                    route.setFeatures(i % 3 == 0 ? "SLOPER,CRIMPS" : "BALANCE");
+                    route.setDifficulty(i % 12);
+                    route.setUserRatings(i % 5);
+                    route.setCompletedCount(i % 50);
+                    writer.name(String.format(Locale.ROOT, "r%06d", i));
+                    ModelAdapters.ROUTE.write(writer, route);
+                }
+                writer.endObject().endObject().endObject().close();
+
+                final List<Route> routes = new ArrayList<>(to - from);
+                EnvelopeReader.read(new JsonReader(new StringReader(json.toString())), "routes", 1,
+                        ModelAdapters.ROUTE, new EnvelopeReader.Sink<Route>() {
+                            @Override
+                            public void onItem(String[] keys, Route route) {
+                                route.setId(keys[0]);
+                                route.setGymId(gymId);
+                                route.setWallId(wallId);
+                                routes.add(route);
+                            }
+                        });
+                return routes;
+            }
+
+            @Override
+            public void cancel() {
+                canceled = true;
+            }
+        };
+    }
+
+    private void answer() throws InterruptedIOException {
+        requests.incrementAndGet();
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private static void check(boolean canceled) throws InterruptedIOException {
+        if (canceled) {
+            throw new InterruptedIOException("Canceled");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.inbloc_app.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeoIndexTest {
+
+    private static final int GYMS = 5000;
+
+    private final String[] ids = new String[GYMS];
+    private final double[] latitudes = new double[GYMS];
+    private final double[] longitudes = new double[GYMS];
+
+    public GeoIndexTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < GYMS; i++) {
+            ids[i] = "gym" + i;
+            // roughly Germany
+            latitudes[i] = 47 + random.nextDouble() * 8;
+            longitudes[i] = 6 + random.nextDouble() * 9;
+        }
+    }
+
+    // haversine, what the index has to agree with
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * Math.asin(Math.sqrt(a)) * GeoIndex.EARTH_RADIUS_M;
+    }
+
+    private double[] sortedDistances(double lat, double lon) {
+        double[] distances = new double[GYMS];
+        for (int i = 0; i < GYMS; i++) {
+            distances[i] = distance(lat, lon, latitudes[i], longitudes[i]);
+        }
+        Arrays.sort(distances);
+        return distances;
+    }
+
+    @Test
+    public void nearestMatchesAFullScan() {
+        GeoIndex index = new GeoIndex(ids, latitudes, longitudes);
+        Random random = new Random(3);
+        for (int q = 0; q < 50; q++) {
+            double lat = 46 + random.nextDouble() * 10;
+            double lon = 5 + random.nextDouble() * 11;
+            double[] expected = sortedDistances(lat, lon);
+
+            GeoIndex.Result result = index.nearest(lat, lon, 10, Double.MAX_VALUE);
+
+            assertEquals(10, result.ids.length);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected[i], result.distancesM[i], 0.5);
+                int gym = Integer.parseInt(result.ids[i].substring(3));
+                assertEquals(result.distancesM[i], distance(lat, lon, latitudes[gym], longitudes[gym]), 0.5);
+            }
+        }
+    }
+
+    @Test
+    public void withinMatchesAFullScan() {
+        GeoIndex index = new GeoIndex(ids, latitudes, longitudes);
+        double lat = 52.02;
+        double lon = 8.53;
+        double[] expected = sortedDistances(lat, lon);
+        int inside = 0;
+        while (expected[inside] <= 30000) {
+            inside++;
+        }
+
+        GeoIndex.Result result = index.within(lat, lon, 30000);
+
+        assertTrue(inside > 10);
+        assertEquals(inside, result.ids.length);
+        for (int i = 1; i < result.distancesM.length; i++) {
+            assertTrue(result.distancesM[i - 1] <= result.distancesM[i]);
+        }
+    }
+
+    @Test
+    public void nearestStopsAtTheLimit() {
+        GeoIndex index = new GeoIndex(new String[]{"bielefeld", "berlin"},
+                new double[]{52.02, 52.52}, new double[]{8.53, 13.40});
+
+        GeoIndex.Result result = index.nearest(52.0, 8.5, 5, 50000);
+
+        assertArrayEquals(new String[]{"bielefeld"}, result.ids);
+        assertEquals(0, index.nearest(0, 0, 5, 1000).ids.length);
+    }
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        GeoIndex index = new GeoIndex(new String[0], new double[0], new double[0]);
+
+        assertEquals(0, index.nearest(52, 8, 3, Double.MAX_VALUE).ids.length);
+        assertEquals(0, index.within(52, 8, 1000).ids.length);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.inbloc_app.data;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GymSyncWorkerTest {
+
+    private static final long NOW = 1652054400000L;
+    private static final long MINUTE_MS = 60 * 1000;
+
+    private static List<SyncEngine.RunMetrics> lastRun(long minutesAgo, int failures) {
+        SyncEngine.RunMetrics run = new SyncEngine.RunMetrics(NOW - minutesAgo * MINUTE_MS);
+        run.failures = failures;
+        return Collections.singletonList(run);
+    }
+
+    @Test
+    public void skipsWhenTheOtherWorkJustSynced() {
+        assertTrue(GymSyncWorker.syncedRecently(lastRun(10, 0), 0, NOW));
+        assertFalse(GymSyncWorker.syncedRecently(lastRun(61, 0), 0, NOW));
+        assertFalse(GymSyncWorker.syncedRecently(Collections.<SyncEngine.RunMetrics>emptyList(), 0, NOW));
+    }
+
+    @Test
+    public void aRetryAfterFailuresSyncsAgain() {
+        // the failed run was recorded a moment ago, the backoff retry must not be skipped for it
+        assertFalse(GymSyncWorker.syncedRecently(lastRun(0, 2), 1, NOW));
+        // neither may the other periodic work skip the gyms that failed
+        assertFalse(GymSyncWorker.syncedRecently(lastRun(10, 2), 0, NOW));
+        assertFalse(GymSyncWorker.syncedRecently(lastRun(10, 0), 1, NOW));
+    }
+}
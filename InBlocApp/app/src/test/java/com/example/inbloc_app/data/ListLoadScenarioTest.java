@@ -0,0 +1,239 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.Route;
+import com.sun.management.ThreadMXBean;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Loads the route list of a gym from FakeBackend at 10, 1k and 100k routes the way
+ * RoutePagingSource does, and the gym list at 10, 1k and 100k gyms the way GymRepository does:
+ * paged past GYMS_LIMIT by GymPages, written to the snapshot, shown from the mapped snapshot on
+ * the next start and revalidated page by page. Checks that every item arrives once, that requests
+ * grow with pages and not with the list, and that the first page does not wait for the rest.
+ * Time to the first page, time for everything and the bytes allocated per item (counted by the
+ * JVM for this thread, not guessed from the free heap) go to REPORT, one line per scenario, for
+ * comparing runs. The bounds are loose enough for a busy CI machine.
+ */
+public class ListLoadScenarioTest {
+
+    private static final int WALLS = 20;
+    // RoutePagingSource.PAGE_SIZE
+    private static final int PAGE_SIZE = 25;
+    // GymRepository.GYMS_LIMIT
+    private static final int GYMS_LIMIT = 1000;
+    // far above what decoding costs, catches a change that copies every item again and again
+    private static final long MAX_BYTES_PER_ITEM = 64 * 1024;
+    private static final File REPORT = new File(System.getProperty("listLoad.report", "build/reports/list-load.tsv"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startReport() throws IOException {
+        REPORT.getParentFile().mkdirs();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(REPORT), StandardCharsets.UTF_8)) {
+            out.write("list\titems\tfirst page ms\tall ms\trequests\tallocated bytes/item\n");
+        }
+    }
+
+    private static void report(String list, int items, long firstPageNs, long allNs, int requests, long bytesPerItem)
+            throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(REPORT, true), StandardCharsets.UTF_8)) {
+            out.write(String.format(Locale.ROOT, "%s\t%d\t%.1f\t%.1f\t%d\t%d%n",
+                    list, items, firstPageNs / 1e6, allNs / 1e6, requests, bytesPerItem));
+        }
+    }
+
+    // What this thread allocated so far, including garbage; exact, unlike free heap deltas.
+    // Skips the test on a JVM that does not count.
+    private static long allocatedBytes() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private void loadRoutes(int count) throws IOException {
+        FakeBackend backend = new FakeBackend(1, WALLS, count, 0);
+        RoutePages pages = new RoutePages(backend.routeSource(), FakeBackend.gymId(0), null);
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        RoutePages.Page page = pages.fetch(RoutePages.FIRST, PAGE_SIZE);
+        long firstPageNs = System.nanoTime() - start;
+        List<Route> routes = new ArrayList<>(page.routes);
+        int pageCount = 1;
+        while (page.next != null) {
+            page = pages.fetch(page.next, PAGE_SIZE);
+            routes.addAll(page.routes);
+            pageCount++;
+        }
+        long allNs = System.nanoTime() - start;
+        // the fake's JSON writing included, it stands in for the bytes the socket would bring
+        long bytesPerRoute = (allocatedBytes() - bytesBefore) / count;
+        report("routes", count, firstPageNs, allNs, backend.getRequests(), bytesPerRoute);
+
+        assertEquals(count, routes.size());
+        Set<String> keys = new HashSet<>();
+        for (Route route : routes) {
+            assertTrue(keys.add(route.getWallId() + "/" + route.getId()));
+        }
+        // one request per page, plus one per wall that ran out mid-page, plus the wall list
+        assertTrue(backend.getRequests() <= pageCount + WALLS + 1);
+        // the first page does not grow with the gym
+        assertTrue("first page took " + firstPageNs / 1e6 + " ms", firstPageNs < 1000000000L);
+        assertTrue(bytesPerRoute + " bytes per route", bytesPerRoute < MAX_BYTES_PER_ITEM);
+    }
+
+    @Test
+    public void routeListOf10() throws IOException {
+        loadRoutes(10);
+    }
+
+    @Test
+    public void routeListOf1k() throws IOException {
+        loadRoutes(1000);
+    }
+
+    @Test
+    public void routeListOf100k() throws IOException {
+        loadRoutes(100000);
+    }
+
+    private void loadGyms(int count) throws IOException {
+        FakeBackend backend = new FakeBackend(count, 0, 0, 0);
+        GymPages pages = new GymPages(backend, GYMS_LIMIT);
+        File cache = folder.newFile();
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        // first start: nothing cached, every page from the network, then written to the snapshot
+        GymPages.Result result = pages.fetch(Collections.<Gyms>emptyList(), Collections.<String>emptyList());
+        SnapshotFile.write(cache, GymPages.joinETags(result.eTags), result.gyms);
+        long allNs = System.nanoTime() - start;
+        long bytesPerGym = (allocatedBytes() - bytesBefore) / count;
+        int requests = backend.getRequests();
+
+        // next start: the first screen comes from the mapped snapshot, then every page revalidates
+        start = System.nanoTime();
+        SnapshotFile snapshot = SnapshotFile.open(cache);
+        List<Gyms> cached = snapshot.getGyms();
+        for (int i = 0; i < Math.min(PAGE_SIZE, cached.size()); i++) {
+            assertNotNull(cached.get(i).getName());
+        }
+        long firstPageNs = System.nanoTime() - start;
+        GymPages.Result unchanged = pages.fetch(cached, GymPages.splitETags(snapshot.getETag()));
+        report("gyms", count, firstPageNs, allNs, requests, bytesPerGym);
+
+        assertEquals(count, result.gyms.size());
+        assertEquals(count, cached.size());
+        Set<String> ids = new HashSet<>();
+        for (Gyms gym : result.gyms) {
+            assertTrue(ids.add(gym.getId()));
+        }
+        assertEquals(FakeBackend.gymId(0), cached.get(0).getId());
+        assertEquals(FakeBackend.gymId(count - 1), cached.get(count - 1).getId());
+        // pages of GYMS_LIMIT until a short one, which is empty if count is a multiple
+        int pageCount = count / GYMS_LIMIT + 1;
+        assertEquals(pageCount, requests);
+        assertNull(unchanged);
+        assertEquals(2 * pageCount, backend.getRequests());
+        assertTrue("first page took " + firstPageNs / 1e6 + " ms", firstPageNs < 1000000000L);
+        assertTrue(bytesPerGym + " bytes per gym", bytesPerGym < MAX_BYTES_PER_ITEM);
+    }
+
+    @Test
+    public void gymListOf10() throws IOException {
+        loadGyms(10);
+    }
+
+    @Test
+    public void gymListOf1k() throws IOException {
+        loadGyms(1000);
+    }
+
+    // more than the backend answers at once
+    @Test
+    public void gymListOf100k() throws IOException {
+        loadGyms(100000);
+    }
+
+    @Test
+    public void aChangedPageIsTheOnlyOneDownloaded() throws IOException {
+        FakeBackend backend = new FakeBackend(2500, 0, 0, 0);
+        GymPages pages = new GymPages(backend, GYMS_LIMIT);
+        GymPages.Result result = pages.fetch(Collections.<Gyms>emptyList(), Collections.<String>emptyList());
+        List<String> eTags = new ArrayList<>(result.eTags);
+        eTags.set(1, "\"stale\"");
+
+        GymPages.Result refreshed = pages.fetch(result.gyms, eTags);
+
+        assertEquals(result.gyms.size(), refreshed.gyms.size());
+        assertEquals(result.eTags, refreshed.eTags);
+        // the unchanged pages are the cached objects
+        assertSame(result.gyms.get(0), refreshed.gyms.get(0));
+        assertNotSame(result.gyms.get(1000), refreshed.gyms.get(1000));
+        assertSame(result.gyms.get(2000), refreshed.gyms.get(2000));
+    }
+
+    @Test
+    public void latencyIsPaidPerRequest() throws IOException {
+        // 10 routes over 20 walls: the first page asks every wall, most of them empty
+        FakeBackend backend = new FakeBackend(1, WALLS, 10, 5);
+        RoutePages pages = new RoutePages(backend.routeSource(), FakeBackend.gymId(0), null);
+        long start = System.nanoTime();
+
+        RoutePages.Page page = pages.fetch(RoutePages.FIRST, PAGE_SIZE);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(10, page.routes.size());
+        assertNull(page.next);
+        assertEquals(WALLS + 1, backend.getRequests());
+        assertTrue(elapsedMs >= 5 * (WALLS + 1));
+    }
+
+    @Test
+    public void aSingleWallSkipsTheWallList() throws IOException {
+        FakeBackend backend = new FakeBackend(1, WALLS, 1000, 0);
+        RoutePages pages = new RoutePages(backend.routeSource(), FakeBackend.gymId(0), FakeBackend.wallId(3));
+
+        RoutePages.Page page = pages.fetch(RoutePages.FIRST, PAGE_SIZE);
+
+        assertEquals(PAGE_SIZE, page.routes.size());
+        assertEquals(FakeBackend.wallId(3), page.routes.get(0).getWallId());
+        assertEquals(1, backend.getRequests());
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void aCanceledSourceStops() throws IOException {
+        FakeBackend backend = new FakeBackend(1, WALLS, 1000, 0);
+        RouteSource source = backend.routeSource();
+        RoutePages pages = new RoutePages(source, FakeBackend.gymId(0), null);
+        RoutePages.Page page = pages.fetch(RoutePages.FIRST, PAGE_SIZE);
+
+        source.cancel();
+        pages.fetch(page.next, PAGE_SIZE);
+    }
+}
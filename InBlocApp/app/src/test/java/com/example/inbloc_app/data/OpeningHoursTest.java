@@ -0,0 +1,178 @@
+package com.example.inbloc_app.data;
+
+import com.google.gson.JsonPrimitive;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class OpeningHoursTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    // Monday 2022-05-09 00:00 UTC
+    private static final long MONDAY = 1652054400000L;
+
+    private static final String WEEK = "{\"data\":{\"openings\":{"
+            + "\"monday\":{\"open\":\"9:00\",\"closed\":\"22:00\"},"
+            + "\"tuesday\":{\"open\":\"09:00\",\"closed\":\"22:00\"},"
+            + "\"wednesday\":{},"
+            + "\"thursday\":{\"open\":\"10:00\",\"closed\":\"10:00\"},"
+            + "\"friday\":{\"open\":\"18:00\",\"closed\":\"2:00\"},"
+            + "\"saturday\":{\"open\":\"12:30\",\"closed\":\"20:00\"},"
+            + "\"sunday\":{\"open\":\"20:00\",\"closed\":\"1:00\"}}}}";
+
+    private static long at(int day, int hour, int minute) {
+        return MONDAY + day * DAY + hour * HOUR + minute * MINUTE;
+    }
+
+    @Test
+    public void answersFromTheWeeklyHours() {
+        OpeningHours hours = OpeningHours.compile(WEEK, null);
+
+        assertTrue(hours.isKnown());
+        assertFalse(hours.isOpen(at(0, 8, 59), UTC));
+        assertTrue(hours.isOpen(at(0, 9, 0), UTC));
+        assertFalse(hours.isOpen(at(0, 22, 0), UTC));
+        assertFalse(hours.isOpen(at(2, 12, 0), UTC));
+        // open and closed at the same time
+        assertFalse(hours.isOpen(at(3, 10, 0), UTC));
+        assertTrue(hours.isOpen(at(5, 12, 30), UTC));
+    }
+
+    @Test
+    public void lateNightsRunIntoTheNextMorning() {
+        OpeningHours hours = OpeningHours.compile(WEEK, null);
+
+        assertTrue(hours.isOpen(at(4, 23, 0), UTC));
+        assertTrue(hours.isOpen(at(5, 1, 59), UTC));
+        assertFalse(hours.isOpen(at(5, 2, 0), UTC));
+        // Sunday night into Monday, across the end of the week
+        assertTrue(hours.isOpen(at(6, 23, 0), UTC));
+        assertTrue(hours.isOpen(at(7, 0, 30), UTC));
+        assertFalse(hours.isOpen(at(7, 1, 0), UTC));
+    }
+
+    @Test
+    public void holidaysReplaceTheirDay() {
+        String holidays = "{\"data\":{\"overriddenOpenings\":{"
+                + "\"2022-05-09\":{\"open\":\"14:00\",\"closed\":\"18:00\"},"
+                + "\"2022-05-10\":{\"open\":\"0:00\",\"closed\":\"0:00\"},"
+                + "\"2022-05-11\":{\"open\":\"22:00\",\"closed\":\"3:00\"},"
+                + "\"not a date\":{\"open\":\"0:00\",\"closed\":\"23:00\"}}}}";
+        OpeningHours hours = OpeningHours.compile(WEEK, holidays);
+
+        assertFalse(hours.isOpen(at(0, 10, 0), UTC));
+        assertTrue(hours.isOpen(at(0, 15, 0), UTC));
+        assertFalse(hours.isOpen(at(1, 12, 0), UTC));
+        assertTrue(hours.isOpen(at(2, 23, 0), UTC));
+        assertTrue(hours.isOpen(at(3, 2, 59), UTC));
+        assertFalse(hours.isOpen(at(3, 3, 0), UTC));
+        // the regular Monday a week later
+        assertTrue(hours.isOpen(at(7, 10, 0), UTC));
+    }
+
+    @Test
+    public void aClosedHolidayCutsOffTheNightBefore() {
+        String holidays = "{\"data\":{\"overriddenOpenings\":{"
+                // a late night holiday, then one closed all day
+                + "\"2022-05-11\":{\"open\":\"22:00\",\"closed\":\"3:00\"},"
+                + "\"2022-05-12\":{},"
+                // the Saturday after the regular late Friday
+                + "\"2022-05-14\":{\"open\":\"12:00\",\"closed\":\"20:00\"}}}}";
+        OpeningHours hours = OpeningHours.compile(WEEK, holidays);
+
+        assertTrue(hours.isOpen(at(2, 23, 59), UTC));
+        assertFalse(hours.isOpen(at(3, 1, 0), UTC));
+        assertTrue(hours.isOpen(at(4, 23, 0), UTC));
+        assertFalse(hours.isOpen(at(5, 1, 0), UTC));
+        assertTrue(hours.isOpen(at(5, 12, 0), UTC));
+        // closes at midnight instead of 2:00
+        assertEquals(at(3, 0, 0), hours.nextChange(at(2, 23, 0), UTC));
+        assertEquals(at(5, 0, 0), hours.nextChange(at(4, 20, 0), UTC));
+    }
+
+    @Test
+    public void aHolidayDropsItsWeekdaysLateNight() {
+        // Friday and Sunday, both late nights in the week
+        String holidays = "{\"data\":{\"overriddenOpenings\":{"
+                + "\"2022-05-13\":{},"
+                + "\"2022-05-15\":{}}}}";
+        OpeningHours hours = OpeningHours.compile(WEEK, holidays);
+
+        assertFalse(hours.isOpen(at(4, 23, 0), UTC));
+        assertFalse(hours.isOpen(at(5, 1, 0), UTC));
+        assertTrue(hours.isOpen(at(5, 12, 30), UTC));
+        assertFalse(hours.isOpen(at(7, 0, 30), UTC));
+        assertTrue(hours.isOpen(at(7, 9, 0), UTC));
+        assertEquals(at(5, 12, 30), hours.nextChange(at(4, 12, 0), UTC));
+        assertEquals(at(7, 9, 0), hours.nextChange(at(6, 12, 0), UTC));
+    }
+
+    @Test
+    public void aShortHolidayKeepsOnlyItsOwnHours() {
+        String holidays = "{\"data\":{\"overriddenOpenings\":{"
+                // Friday until 23:00 instead of 2:00
+                + "\"2022-05-13\":{\"open\":\"19:00\",\"closed\":\"23:00\"},"
+                // Sunday until 0:30 instead of 1:00
+                + "\"2022-05-15\":{\"open\":\"20:00\",\"closed\":\"0:30\"}}}}";
+        OpeningHours hours = OpeningHours.compile(WEEK, holidays);
+
+        assertFalse(hours.isOpen(at(4, 18, 30), UTC));
+        assertTrue(hours.isOpen(at(4, 22, 59), UTC));
+        assertFalse(hours.isOpen(at(4, 23, 0), UTC));
+        assertFalse(hours.isOpen(at(5, 1, 0), UTC));
+        assertTrue(hours.isOpen(at(7, 0, 29), UTC));
+        assertFalse(hours.isOpen(at(7, 0, 30), UTC));
+        assertEquals(at(4, 23, 0), hours.nextChange(at(4, 20, 0), UTC));
+        assertEquals(at(5, 12, 30), hours.nextChange(at(4, 23, 0), UTC));
+        assertEquals(at(7, 0, 30), hours.nextChange(at(6, 23, 0), UTC));
+    }
+
+    @Test
+    public void findsTheNextChange() {
+        OpeningHours hours = OpeningHours.compile(WEEK, null);
+
+        assertEquals(at(0, 9, 0), hours.nextChange(at(0, 7, 0), UTC));
+        assertEquals(at(0, 22, 0), hours.nextChange(at(0, 9, 0), UTC));
+        // closed Wednesday and Thursday
+        assertEquals(at(4, 18, 0), hours.nextChange(at(1, 22, 0), UTC));
+        assertEquals(at(5, 2, 0), hours.nextChange(at(4, 20, 0), UTC));
+        assertEquals(at(0, 12, 0), hours.nextOpening(at(0, 12, 0), UTC));
+        assertEquals(at(7, 9, 0), hours.nextOpening(at(7, 1, 0), UTC));
+    }
+
+    @Test
+    public void usesTheLocalTime() {
+        OpeningHours hours = OpeningHours.compile(WEEK, null);
+
+        // 7:30 UTC is 9:30 in Berlin in May
+        assertFalse(hours.isOpen(at(0, 7, 30), UTC));
+        assertTrue(hours.isOpen(at(0, 7, 30), BERLIN));
+        assertEquals(at(0, 7, 0), hours.nextChange(at(0, 6, 0), BERLIN));
+    }
+
+    @Test
+    public void unknownHoursNeverOpen() {
+        OpeningHours hours = OpeningHours.compile(null, "{\"error\":\"No overridden openings found\"}");
+
+        assertFalse(hours.isKnown());
+        assertFalse(hours.isOpen(at(0, 12, 0), UTC));
+        assertEquals(-1, hours.nextOpening(at(0, 12, 0), UTC));
+    }
+
+    @Test
+    public void parsesDatesAndTimes() {
+        assertEquals(0, OpeningHours.epochDay("1970-01-01"));
+        assertEquals(MONDAY / DAY, OpeningHours.epochDay("2022-05-09"));
+        assertEquals(1, OpeningHours.epochDay("2020-03-01") - OpeningHours.epochDay("2020-02-29"));
+        assertEquals(-1, OpeningHours.epochDay("2022-13-01"));
+        assertEquals(-1, OpeningHours.minutes(new JsonPrimitive("24:00")));
+        assertEquals(9 * 60 + 5, OpeningHours.minutes(new JsonPrimitive("9:05")));
+    }
+}
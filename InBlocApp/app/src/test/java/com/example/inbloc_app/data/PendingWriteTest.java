@@ -0,0 +1,83 @@
+package com.example.inbloc_app.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PendingWriteTest {
+
+    private long nextId = 1;
+
+    private PendingWrite write(String kind, String routeId, String value) {
+        return new PendingWrite(nextId++, kind, "gym1", "wall1", routeId, value, "key" + nextId);
+    }
+
+    @Test
+    public void completeThenUncompleteCancelsOut() {
+        PendingWrite complete = write(PendingWrite.COMPLETE, "r1", "false");
+        boolean[] keep = new boolean[1];
+
+        List<PendingWrite> drop = PendingWrite.collapse(Collections.singletonList(complete),
+                write(PendingWrite.UNCOMPLETE, "r1", null), keep);
+
+        assertEquals(Collections.singletonList(complete), drop);
+        assertFalse(keep[0]);
+    }
+
+    @Test
+    public void repeatedCompleteIsSentOnce() {
+        boolean[] keep = new boolean[1];
+
+        List<PendingWrite> drop = PendingWrite.collapse(Collections.singletonList(write(PendingWrite.COMPLETE, "r1", "false")),
+                write(PendingWrite.COMPLETE, "r1", "true"), keep);
+
+        assertTrue(drop.isEmpty());
+        assertFalse(keep[0]);
+    }
+
+    @Test
+    public void newestRatingReplacesWaitingOnes() {
+        List<PendingWrite> waiting = Arrays.asList(write(PendingWrite.RATE, "r1", "1"), write(PendingWrite.RATE, "r1", "2"));
+        boolean[] keep = new boolean[1];
+
+        // removing the rating must still be sent, the server may hold an older one
+        List<PendingWrite> drop = PendingWrite.collapse(waiting, write(PendingWrite.UNRATE, "r1", null), keep);
+
+        assertEquals(waiting, drop);
+        assertTrue(keep[0]);
+    }
+
+    @Test
+    public void firstWriteIsKept() {
+        boolean[] keep = new boolean[1];
+
+        assertTrue(PendingWrite.collapse(new ArrayList<PendingWrite>(), write(PendingWrite.COMMENT, "r1", "nice"), keep).isEmpty());
+        assertTrue(keep[0]);
+    }
+
+    @Test
+    public void aspectsOfOneRouteAreSeparateEntities() {
+        assertEquals(write(PendingWrite.COMPLETE, "r1", "false").entity(), write(PendingWrite.UNCOMPLETE, "r1", null).entity());
+        assertEquals(write(PendingWrite.RATE, "r1", "1").entity(), write(PendingWrite.UNRATE, "r1", null).entity());
+        assertNotEquals(write(PendingWrite.COMPLETE, "r1", "false").entity(), write(PendingWrite.RATE, "r1", "1").entity());
+        assertNotEquals(write(PendingWrite.COMPLETE, "r1", "false").entity(), write(PendingWrite.COMPLETE, "r2", "false").entity());
+    }
+
+    @Test
+    public void answersThatMeanAlreadyInEffectCountAsApplied() {
+        assertEquals(PendingWrite.APPLIED, PendingWrite.outcome(PendingWrite.COMPLETE, 200));
+        assertEquals(PendingWrite.APPLIED, PendingWrite.outcome(PendingWrite.COMPLETE, 400));
+        assertEquals(PendingWrite.APPLIED, PendingWrite.outcome(PendingWrite.UNCOMPLETE, 400));
+        assertEquals(PendingWrite.APPLIED, PendingWrite.outcome(PendingWrite.UNRATE, 404));
+        assertEquals(PendingWrite.REJECTED, PendingWrite.outcome(PendingWrite.RATE, 400));
+        assertEquals(PendingWrite.REJECTED, PendingWrite.outcome(PendingWrite.COMPLETE, 404));
+        assertEquals(PendingWrite.RETRY, PendingWrite.outcome(PendingWrite.COMMENT, 503));
+        assertEquals(PendingWrite.RETRY, PendingWrite.outcome(PendingWrite.COMPLETE, 401));
+        assertEquals(PendingWrite.RETRY, PendingWrite.outcome(PendingWrite.RATE, 429));
+    }
+}
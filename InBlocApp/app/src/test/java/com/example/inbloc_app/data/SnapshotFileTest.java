@@ -0,0 +1,122 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnapshotFileTest {
+
+    private static Gyms gym(String id, String name, String city) {
+        Gyms gym = new Gyms();
+        gym.setId(id);
+        gym.setName(name);
+        gym.setCity(city);
+        gym.setZip("33602");
+        return gym;
+    }
+
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        Gyms full = gym("gym2", "Zenit", "Osnabrück");
+        full.setDescription("Bouldern auf 1000 m²");
+        full.setEmail("info@zenit.de");
+        full.setHouseNumber("12a");
+        full.setPhone("0541 123456");
+        full.setStreet("Hafenstraße");
+        full.setWebsite("https://zenit.de");
+        List<Gyms> gyms = Arrays.asList(gym("gym1", "Felsmeister", "Bad Oeynhausen"), full);
+
+        SnapshotFile snapshot = SnapshotFile.wrap(SnapshotFile.encode("\"e1\"", gyms));
+
+        assertEquals("\"e1\"", snapshot.getETag());
+        assertEquals(2, snapshot.getGyms().size());
+        Gyms felsmeister = snapshot.getGyms().get(0);
+        assertEquals("gym1", felsmeister.getId());
+        assertEquals("Bad Oeynhausen", felsmeister.getCity());
+        assertNull(felsmeister.getPhone());
+        Gyms zenit = snapshot.getGyms().get(1);
+        assertEquals("gym2", zenit.getId());
+        assertEquals("Zenit", zenit.getName());
+        assertEquals("Osnabrück", zenit.getCity());
+        assertEquals("Bouldern auf 1000 m²", zenit.getDescription());
+        assertEquals("info@zenit.de", zenit.getEmail());
+        assertEquals("12a", zenit.getHouseNumber());
+        assertEquals("0541 123456", zenit.getPhone());
+        assertEquals("Hafenstraße", zenit.getStreet());
+        assertEquals("https://zenit.de", zenit.getWebsite());
+        assertEquals("33602", zenit.getZip());
+    }
+
+    @Test
+    public void repeatedStringsAreStoredOnce() {
+        List<Gyms> gyms = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            gyms.add(gym("gym" + i, "Boulderhalle", "Bad Oeynhausen"));
+        }
+        List<Gyms> single = Collections.singletonList(gyms.get(0));
+
+        int perGym = (SnapshotFile.encode(null, gyms).length - SnapshotFile.encode(null, single).length) / 999;
+
+        // the record, the gym id and its offset; name, city and zip are shared
+        assertTrue("bytes per gym " + perGym, perGym <= 40 + 6 + 4);
+    }
+
+    @Test
+    public void anEmptyListHasNoETag() throws IOException {
+        SnapshotFile snapshot = SnapshotFile.wrap(SnapshotFile.encode(null, Collections.<Gyms>emptyList()));
+
+        assertTrue(snapshot.getGyms().isEmpty());
+        assertNull(snapshot.getETag());
+    }
+
+    @Test
+    public void recordsAreDecodedOnce() throws IOException {
+        SnapshotFile snapshot = SnapshotFile.wrap(SnapshotFile.encode(null,
+                Collections.singletonList(gym("gym1", "Felsmeister", "Bielefeld"))));
+
+        assertSame(snapshot.getGyms().get(0), snapshot.getGyms().get(0));
+    }
+
+    @Test
+    public void otherVersionsAndTruncatedFilesAreRejected() {
+        byte[] bytes = SnapshotFile.encode("\"e1\"", Collections.singletonList(gym("gym1", "a", "b")));
+        byte[] newer = bytes.clone();
+        newer[5] = (byte) (SnapshotFile.VERSION + 1);
+
+        try {
+            SnapshotFile.wrap(newer);
+            fail("newer version was read");
+        } catch (IOException expected) {
+        }
+        try {
+            SnapshotFile.wrap(Arrays.copyOf(bytes, bytes.length - 1));
+            fail("truncated file was read");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void writesAndMapsAFile() throws IOException {
+        File file = File.createTempFile("gyms", ".snapshot");
+        try {
+            SnapshotFile.write(file, "\"e2\"", Collections.singletonList(gym("gym1", "Felsmeister", "Bielefeld")));
+
+            SnapshotFile snapshot = SnapshotFile.open(file);
+
+            assertEquals("\"e2\"", snapshot.getETag());
+            assertEquals("Felsmeister", snapshot.getGyms().get(0).getName());
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.DataEnvelopeConverterFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Syncs gym1 from a stand-in for the backend that answers If-None-Match with 304, once from an
+ * empty store and then again after the walls did or did not change.
+ */
+public class SyncEngineTest {
+
+    private MockWebServer server;
+    private SyncEngine engine;
+    private final FakeStore store = new FakeStore();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    // the backend's walls of gym1, wallId -> setDate
+    private final Map<String, String> walls = Collections.synchronizedMap(new HashMap<String, String>());
+    private volatile String wallsETag = "\"w1\"";
+
+    @Before
+    public void setUp() throws IOException {
+        walls.put("wallA", "2022-03-01");
+        walls.put("wallB", "2022-05-10");
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.add(request.getPath());
+                return answer(request.getRequestUrl(), request.getHeader("If-None-Match"));
+            }
+        });
+        server.start();
+        ApiService apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addConverterFactory(DataEnvelopeConverterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiService.class);
+        engine = new SyncEngine(apiService, store);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    // the relevant part of wallRoutes.ts, routeRoutes.ts and gymRoutes.ts
+    private MockResponse answer(HttpUrl url, String ifNoneMatch) {
+        List<String> segments = url.pathSegments();
+        if (segments.equals(Collections.singletonList("walls"))) {
+            if (wallsETag.equals(ifNoneMatch)) {
+                return new MockResponse().setResponseCode(304);
+            }
+            StringBuilder body = new StringBuilder();
+            synchronized (walls) {
+                for (Map.Entry<String, String> wall : walls.entrySet()) {
+                    body.append(body.length() > 0 ? "," : "").append('"').append(wall.getKey())
+                            .append("\":{\"features\":\"SLAB\",\"setDate\":\"").append(wall.getValue()).append("\"}");
+                }
+            }
+            return json("{\"data\":{\"walls\":{" + body + "}}}").setHeader("ETag", wallsETag);
+        }
+        if (segments.equals(Collections.singletonList("routes"))) {
+            return json("{\"data\":{\"routes\":{"
+                    + "\"r0\":{\"difficulty\":3},\"r1\":{\"difficulty\":5},\"r2\":{\"difficulty\":7}}}}");
+        }
+        if (segments.size() == 3 && segments.get(2).equals("openings")) {
+            if ("\"o1\"".equals(ifNoneMatch)) {
+                return new MockResponse().setResponseCode(304);
+            }
+            return json("{\"data\":{\"openings\":{\"MONDAY\":{\"open\":\"10:00\",\"close\":\"22:00\"}}}}")
+                    .setHeader("ETag", "\"o1\"");
+        }
+        return new MockResponse().setResponseCode(404).setBody("{\"error\":\"No holidays found\"}");
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private int routeRequests() {
+        int count = 0;
+        for (String path : requests) {
+            if (path.startsWith("/routes")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void firstSyncStoresEverything() {
+        SyncEngine.RunMetrics run = engine.sync(Collections.singletonList("gym1"));
+
+        assertEquals(0, run.failures);
+        // walls, routes of both walls, openings, holidays
+        assertEquals(5, run.requests);
+        assertEquals(2 + 6, run.records);
+        assertTrue(run.bytes > 0);
+        assertEquals(2, store.walls.get("gym1").size());
+        assertEquals(3, store.routes.get("gym1/wallB").size());
+        assertEquals("wallB", store.routes.get("gym1/wallB").get(0).getWallId());
+        assertEquals("2022-05-10", store.states.get("gym1").watermark);
+        assertEquals("\"w1\"", store.states.get("gym1").wallsETag);
+        assertTrue(store.documents.get("gym1/openings")[1].contains("MONDAY"));
+        assertNull(store.documents.get("gym1/holidays")[1]);
+        assertSame(run, store.runs.get(0));
+    }
+
+    @Test
+    public void unchangedGymOnlyCostsConditionalRequests() {
+        engine.sync(Collections.singletonList("gym1"));
+        requests.clear();
+
+        SyncEngine.RunMetrics run = engine.sync(Collections.singletonList("gym1"));
+
+        assertEquals(3, run.requests);
+        assertEquals(2, run.notModified);
+        assertEquals(0, run.records);
+        assertEquals(0, routeRequests());
+        assertEquals(3, store.routes.get("gym1/wallA").size());
+    }
+
+    @Test
+    public void onlyWallsResetSinceTheWatermarkAreFetchedAgain() {
+        engine.sync(Collections.singletonList("gym1"));
+        requests.clear();
+        walls.put("wallB", "2022-06-01");
+        walls.put("wallC", "2021-01-01");
+        wallsETag = "\"w2\"";
+
+        SyncEngine.RunMetrics run = engine.sync(Collections.singletonList("gym1"));
+
+        // wallB was reset and wallC is new, wallA is older than the watermark
+        assertEquals(2, routeRequests());
+        assertEquals(3 + 6, run.records);
+        assertEquals("2022-06-01", store.states.get("gym1").watermark);
+        assertEquals(3, store.routes.get("gym1/wallA").size());
+        assertEquals(3, store.routes.get("gym1/wallC").size());
+    }
+
+    @Test
+    public void gymsThatAreNoLongerFavouritesAreDropped() {
+        engine.sync(Collections.singletonList("gym1"));
+
+        engine.sync(Collections.<String>emptyList());
+
+        assertFalse(store.states.containsKey("gym1"));
+        assertFalse(store.walls.containsKey("gym1"));
+    }
+
+    // in-memory stand-in for OfflineStore with the same semantics
+    private static class FakeStore implements SyncEngine.Store {
+
+        final Map<String, OfflineStore.SyncState> states = new HashMap<>();
+        final Map<String, List<String>> walls = new HashMap<>();
+        // gymId/wallId -> routes
+        final Map<String, List<Route>> routes = new HashMap<>();
+        // gymId/kind -> {etag, body}
+        final Map<String, String[]> documents = new HashMap<>();
+        final List<SyncEngine.RunMetrics> runs = new ArrayList<>();
+
+        @Override
+        public OfflineStore.SyncState getSyncState(String gymId) {
+            return states.get(gymId);
+        }
+
+        @Override
+        public List<String> getWallIds(String gymId) {
+            List<String> wallIds = walls.get(gymId);
+            return wallIds != null ? wallIds : Collections.<String>emptyList();
+        }
+
+        @Override
+        public void applyWallSync(String gymId, List<Walls> synced, Map<String, List<Route>> routesByWall,
+                                  String wallsETag, String watermark) {
+            List<String> wallIds = new ArrayList<>();
+            for (Walls wall : synced) {
+                wallIds.add(wall.getId());
+            }
+            walls.put(gymId, wallIds);
+            for (Map.Entry<String, List<Route>> entry : routesByWall.entrySet()) {
+                routes.put(gymId + "/" + entry.getKey(), entry.getValue());
+            }
+            states.put(gymId, new OfflineStore.SyncState(wallsETag, watermark, System.currentTimeMillis()));
+        }
+
+        @Override
+        public void touchSyncState(String gymId) {
+            OfflineStore.SyncState state = states.get(gymId);
+            states.put(gymId, new OfflineStore.SyncState(state.wallsETag, state.watermark, System.currentTimeMillis()));
+        }
+
+        @Override
+        public String[] getDocument(String gymId, String kind) {
+            return documents.get(gymId + "/" + kind);
+        }
+
+        @Override
+        public void putDocument(String gymId, String kind, String eTag, String body) {
+            documents.put(gymId + "/" + kind, new String[]{eTag, body});
+        }
+
+        @Override
+        public void retainGyms(Collection<String> gymIds) {
+            states.keySet().retainAll(gymIds);
+            walls.keySet().retainAll(gymIds);
+        }
+
+        @Override
+        public void recordRun(SyncEngine.RunMetrics run) {
+            runs.add(0, run);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.inbloc_app.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TokenProviderTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+
+    // hands out token-1, token-2, ... and counts how often it was asked
+    private static class CountingSource implements TokenProvider.Source {
+        final AtomicInteger fetches = new AtomicInteger();
+        volatile long lifetimeMs = HOUR_MS;
+
+        @Override
+        public TokenProvider.Result fetch(boolean forceRefresh) throws IOException {
+            int n = fetches.incrementAndGet();
+            try {
+                // slow enough that concurrent callers pile up behind the refresh
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new TokenProvider.Result("token-" + n, System.currentTimeMillis() + lifetimeMs);
+        }
+    }
+
+    @Test
+    public void cachesTokenUntilItIsAboutToExpire() throws IOException {
+        CountingSource source = new CountingSource();
+        TokenProvider provider = new TokenProvider(source);
+
+        assertEquals("token-1", provider.getToken());
+        assertEquals("token-1", provider.getToken());
+        assertEquals(1, source.fetches.get());
+    }
+
+    @Test
+    public void nearExpiryReturnsCachedTokenAndRefreshesInBackground() throws Exception {
+        CountingSource source = new CountingSource();
+        TokenProvider provider = new TokenProvider(source);
+        provider.setToken("login", (System.currentTimeMillis() + 60 * 1000) / 1000);
+
+        assertEquals("login", provider.getToken());
+        for (int i = 0; i < 50 && source.fetches.get() == 0; i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        assertEquals(1, source.fetches.get());
+        assertEquals("token-1", provider.getToken());
+    }
+
+    @Test
+    public void concurrentUnauthorizedCallsRefreshOnce() throws Exception {
+        final CountingSource source = new CountingSource();
+        final TokenProvider provider = new TokenProvider(source);
+        provider.setToken("expired", System.currentTimeMillis() / 1000 + 3600);
+
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final String[] results = new String[threads];
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results[index] = provider.refreshAfterUnauthorized("expired");
+                    } catch (Exception e) {
+                        results[index] = e.toString();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertEquals(1, source.fetches.get());
+        for (String result : results) {
+            assertEquals("token-1", result);
+        }
+    }
+
+    // the fetch only ends after setToken, a setToken waiting for it would never return
+    @Test(timeout = 5000)
+    public void signInDoesNotWaitForARunningFetch() throws Exception {
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TokenProvider provider = new TokenProvider(new TokenProvider.Source() {
+            @Override
+            public TokenProvider.Result fetch(boolean forceRefresh) throws IOException {
+                fetching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return new TokenProvider.Result("fetched", System.currentTimeMillis() + HOUR_MS);
+            }
+        });
+        final String[] result = new String[1];
+        Thread refresher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = provider.getToken();
+                } catch (IOException e) {
+                    result[0] = e.toString();
+                }
+            }
+        });
+        refresher.start();
+        fetching.await();
+
+        long start = System.nanoTime();
+        provider.setToken("login", System.currentTimeMillis() / 1000 + 3600);
+        long waitedMs = (System.nanoTime() - start) / 1000000;
+        release.countDown();
+        refresher.join();
+
+        assertTrue("setToken waited " + waitedMs + " ms", waitedMs < 1000);
+        // the fetch started before the sign-in and must not replace its token
+        assertEquals("login", result[0]);
+        assertEquals("login", provider.getToken());
+    }
+}
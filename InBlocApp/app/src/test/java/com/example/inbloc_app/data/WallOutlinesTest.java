@@ -0,0 +1,74 @@
+package com.example.inbloc_app.data;
+
+import com.example.inbloc_app.retrofit.models.Walls;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class WallOutlinesTest {
+
+    private static Walls wall(String id, String outline) {
+        Walls wall = new Walls();
+        wall.setId(id);
+        wall.setOutline(outline);
+        return wall;
+    }
+
+    private static WallOutlines hall() {
+        return WallOutlines.of(Arrays.asList(
+                // an L along the left and bottom of the plan
+                wall("lead", "0,0 0.2,0 0.2,0.8 1,0.8 1,1 0,1"),
+                wall("hall", "0.3,0.1 0.9,0.1 0.9,0.7 0.3,0.7"),
+                // a boulder standing inside the hall
+                wall("boulder", "0.5,0.3 0.7,0.3 0.6,0.5")));
+    }
+
+    @Test
+    public void findsTheWallUnderTheFinger() {
+        WallOutlines outlines = hall();
+
+        assertEquals("lead", outlines.getWallId(outlines.hit(0.1f, 0.5f, 0, 0)));
+        assertEquals("lead", outlines.getWallId(outlines.hit(0.9f, 0.9f, 0, 0)));
+        assertEquals("hall", outlines.getWallId(outlines.hit(0.4f, 0.2f, 0, 0)));
+        // inside the L's bounding box but not the L
+        assertEquals(-1, outlines.hit(0.25f, 0.75f, 0, 0));
+    }
+
+    @Test
+    public void theSmallestOfNestedWallsWins() {
+        WallOutlines outlines = hall();
+
+        assertEquals("boulder", outlines.getWallId(outlines.hit(0.6f, 0.35f, 0, 0)));
+        // beside the triangle's slanted edge, still the hall
+        assertEquals("hall", outlines.getWallId(outlines.hit(0.52f, 0.45f, 0, 0)));
+    }
+
+    @Test
+    public void aTapJustOutsideStillCounts() {
+        WallOutlines outlines = hall();
+
+        assertEquals(-1, outlines.hit(0.23f, 0.5f, 0.01f, 0.01f));
+        assertEquals("lead", outlines.getWallId(outlines.hit(0.23f, 0.5f, 0.04f, 0.01f)));
+        // the slop is per direction, a wide plan has a smaller one across
+        assertEquals(-1, outlines.hit(0.23f, 0.5f, 0.01f, 0.04f));
+    }
+
+    @Test
+    public void skipsWallsWithoutAValidOutline() {
+        WallOutlines outlines = WallOutlines.of(Arrays.asList(
+                wall("none", null),
+                wall("line", "0,0 1,1"),
+                wall("outside", "0,0 1.5,0 0,1"),
+                wall("garbage", "0,0 a,b 1,1"),
+                wall("ok", " 0,0  1,0\n0,1 ")));
+
+        assertEquals(1, outlines.size());
+        assertEquals("ok", outlines.getWallId(0));
+        assertEquals(3, outlines.getPointCount(0));
+        assertEquals(1f, outlines.getX(0, 1), 0);
+        assertEquals(1f, outlines.getY(0, 2), 0);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.inbloc_app.retrofit.models;
+
+import com.example.inbloc_app.retrofit.remote.DataEnvelopeConverterFactory;
+import com.example.inbloc_app.retrofit.remote.EnvelopeReader;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ModelAdaptersTest {
+
+    // Monday 2022-05-09 00:00 UTC
+    private static final long MONDAY = 1652054400000L;
+
+    private static <T> T read(String json, TypeAdapter<T> adapter) throws IOException {
+        return adapter.read(new JsonReader(new StringReader(json)));
+    }
+
+    @Test
+    public void featuresAreParsedOnceIntoAMask() throws IOException {
+        Route route = read("{\"features\":\"SLOPER,POWER\",\"difficulty\":3}", ModelAdapters.ROUTE);
+
+        assertEquals(RouteFeature.SLOPER.bit() | RouteFeature.POWER.bit(), route.getFeatureMask());
+        assertEquals(EnumSet.of(RouteFeature.SLOPER, RouteFeature.POWER), route.getFeatureSet());
+        assertTrue(route.hasFeatures(RouteFeature.POWER.bit()));
+        assertFalse(route.hasFeatures(RouteFeature.POWER.bit() | RouteFeature.CRIMPS.bit()));
+        assertTrue(route.hasFeatures(0));
+        // the string stays as it came, for writing it back
+        assertEquals("SLOPER,POWER", route.getFeatures());
+
+        route.setFeatures(" power ,BOULDER,Crimps");
+        assertEquals(EnumSet.of(RouteFeature.CRIMPS, RouteFeature.POWER), route.getFeatureSet());
+        route.setFeatures(null);
+        assertEquals(0, route.getFeatureMask());
+    }
+
+    @Test
+    public void featureMasksRoundTrip() {
+        int mask = RouteFeature.mask(EnumSet.of(RouteFeature.COMP, RouteFeature.CRIMPS));
+
+        assertEquals("CRIMPS,COMP", RouteFeature.join(mask));
+        assertEquals(mask, RouteFeature.mask(RouteFeature.join(mask)));
+        assertEquals("", WallFeature.join(0));
+        assertEquals(WallFeature.ROOF.bit(), WallFeature.mask("ROOF"));
+        assertArrayEquals(new String[]{"SLAB", "ROOF", "POSITIVE", "NEGATIVE"}, WallFeature.names());
+    }
+
+    @Test
+    public void wallSetDateIsAnEpochValue() throws IOException {
+        Walls wall = read("{\"features\":\"SLAB,NEGATIVE\",\"setDate\":\"2022-05-09\"}", ModelAdapters.WALLS);
+
+        assertEquals(MONDAY, wall.getSetDateMs());
+        assertEquals(EnumSet.of(WallFeature.SLAB, WallFeature.NEGATIVE), wall.getFeatureSet());
+        // what PATCH /walls/{wallId}/setDate stores, a JavaScript Date
+        wall.setSetDate("2022-05-09T13:45:30.250Z");
+        assertEquals(MONDAY + ((13 * 60 + 45) * 60 + 30) * 1000L + 250, wall.getSetDateMs());
+        wall.setSetDate("2022-05-09T13:45:30Z");
+        assertEquals(MONDAY + ((13 * 60 + 45) * 60 + 30) * 1000L, wall.getSetDateMs());
+        wall.setSetDate("09.05.2022");
+        assertEquals(-1, wall.getSetDateMs());
+        wall.setSetDate("2022-05-09T25:00:00Z");
+        assertEquals(-1, wall.getSetDateMs());
+        wall.setSetDate(null);
+        assertEquals(-1, wall.getSetDateMs());
+    }
+
+    @Test
+    public void readsCommentsWithTheirAuthor() throws IOException {
+        String json = "{\"data\":{\"comments\":{"
+                + "\"uid1\":{\"message\":\"Great start\",\"timestamp\":\"1652054400000\"},"
+                + "\"uid2\":{\"message\":\"Pics\",\"image\":\"https://img/2.jpg\",\"timestamp\":\"soon\"}}}}";
+        final List<Comment> comments = new ArrayList<>();
+
+        EnvelopeReader.read(new JsonReader(new StringReader(json)), "comments", 1, ModelAdapters.COMMENT,
+                new EnvelopeReader.Sink<Comment>() {
+                    @Override
+                    public void onItem(String[] keys, Comment item) {
+                        DataEnvelopeConverterFactory.bindKeys(item, keys);
+                        comments.add(item);
+                    }
+                });
+
+        assertEquals(2, comments.size());
+        assertEquals("uid1", comments.get(0).getUserId());
+        assertEquals("Great start", comments.get(0).getMessage());
+        assertNull(comments.get(0).getImage());
+        assertEquals(MONDAY, comments.get(0).getTimestampMs());
+        assertEquals("https://img/2.jpg", comments.get(1).getImage());
+        assertEquals(-1, comments.get(1).getTimestampMs());
+    }
+
+    @Test
+    public void readsOpeningsAsMinutes() throws IOException {
+        Openings openings = read("{\"monday\":{\"open\":\"9:00\",\"closed\":\"22:30\"},"
+                + "\"wednesday\":{},\"funday\":{\"open\":\"1:00\"},\"sunday\":\"closed\"}", ModelAdapters.OPENINGS);
+
+        assertEquals(9 * 60, openings.getDay(0).getOpenMinutes());
+        assertEquals(22 * 60 + 30, openings.getDay(0).getClosedMinutes());
+        assertNull(openings.getDay(1));
+        assertEquals(-1, openings.getDay(2).getOpenMinutes());
+        assertNull(openings.getDay(6));
+
+        Openings again = read(ModelAdapters.OPENINGS.toJson(openings), ModelAdapters.OPENINGS);
+        assertEquals("22:30", again.getDay(0).getClosed());
+    }
+
+    @Test
+    public void readsDifficultiesAsColors() throws IOException {
+        Difficulties difficulties = read("{\"1\":\"#00ff00\",\"0\":\"#FF0000\",\"2\":\"0000ff\",\"x\":\"#000000\"}",
+                ModelAdapters.DIFFICULTIES);
+
+        assertEquals(3, difficulties.size());
+        assertEquals(0xFFFF0000, difficulties.getColor(0));
+        assertEquals(0xFF00FF00, difficulties.getColor(1));
+        assertEquals(0xFF0000FF, difficulties.getColor(2));
+        assertEquals(0, difficulties.getColor(3));
+        assertEquals(0, Difficulties.parseColor("#-12345"));
+
+        // Firebase hands out 0..n-1 keys as an array
+        Difficulties array = read("[\"#FF0000\",\"#00FF00\"]", ModelAdapters.DIFFICULTIES);
+        assertEquals(2, array.size());
+        assertEquals("{\"0\":\"#FF0000\",\"1\":\"#00FF00\"}", ModelAdapters.DIFFICULTIES.toJson(array));
+    }
+
+    @Test
+    public void gsonUsesTheAdaptersThroughTheFactory() {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(ModelAdapters.FACTORY).create();
+
+        Route route = gson.fromJson("{\"features\":\"CRIMPS\",\"difficulty\":2}", Route.class);
+
+        // reflection would have set the field without the mask
+        assertEquals(RouteFeature.CRIMPS.bit(), route.getFeatureMask());
+        assertEquals("{\"features\":\"CRIMPS\",\"difficulty\":2,\"userRatings\":0,\"completedCount\":0}",
+                gson.toJson(route));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.Route;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the streaming envelope reader and the list converter's chunks. How soon the first rows
+ * arrive compared to reflection is measured in the benchmark module (DecodeBenchmark).
+ */
+public class EnvelopeReaderTest {
+
+    private static final int GYMS = 4;
+    private static final int WALLS = 10;
+    private static final int ROUTES_PER_WALL = 25;
+
+    @Test
+    public void streamsAllRoutesWithKeys() throws IOException {
+        final List<Route> routes = new ArrayList<>();
+        int count = EnvelopeReader.read(new JsonReader(new StringReader(routesJson())), "routes", 3,
+                ModelAdapters.ROUTE, new EnvelopeReader.Sink<Route>() {
+                    @Override
+                    public void onItem(String[] keys, Route item) {
+                        DataEnvelopeConverterFactory.bindKeys(item, keys);
+                        routes.add(item);
+                    }
+                });
+
+        assertEquals(GYMS * WALLS * ROUTES_PER_WALL, count);
+        assertEquals(count, routes.size());
+        Route first = routes.get(0);
+        assertEquals("gym0", first.getGymId());
+        assertEquals("wall0", first.getWallId());
+        assertEquals("route0", first.getId());
+        assertEquals("SLOPER,CRIMPS", first.getFeatures());
+        assertEquals(3, first.getDifficulty());
+    }
+
+    @Test
+    public void skipsUnknownFieldsAndNullData() throws IOException {
+        String json = "{\"data\":{\"other\":[1,2],\"routes\":{\"r1\":{\"features\":\"POWER\",\"extra\":{\"a\":1},"
+                + "\"difficulty\":\"5\"},\"r2\":null}}}";
+        final List<Route> routes = new ArrayList<>();
+        EnvelopeReader.read(new JsonReader(new StringReader(json)), "routes", 1, ModelAdapters.ROUTE,
+                new EnvelopeReader.Sink<Route>() {
+                    @Override
+                    public void onItem(String[] keys, Route item) {
+                        routes.add(item);
+                    }
+                });
+        assertEquals(1, routes.size());
+        assertEquals(5, routes.get(0).getDifficulty());
+
+        int none = EnvelopeReader.read(new JsonReader(new StringReader("{\"data\":null}")), "routes", 1,
+                ModelAdapters.ROUTE, null);
+        assertEquals(0, none);
+    }
+
+    @Test
+    public void listsAreHandedOutInChunksWhileRead() throws IOException, NoSuchMethodException {
+        Method getRoutes = ApiService.class.getMethod("getRoutes", String.class, String.class, Integer.class);
+        Type listType = ((ParameterizedType) getRoutes.getGenericReturnType()).getActualTypeArguments()[0];
+        @SuppressWarnings("unchecked")
+        Converter<ResponseBody, List<Route>> converter = (Converter<ResponseBody, List<Route>>)
+                DataEnvelopeConverterFactory.create().responseBodyConverter(listType, getRoutes.getAnnotations(), null);
+        // a gym's routes, {wallId:{routeId:route}}
+        String json = "{\"data\":{\"routes\":" + wallsJson() + "}}";
+        final List<List<?>> chunks = new ArrayList<>();
+
+        DataEnvelopeConverterFactory.setChunkListener(new DataEnvelopeConverterFactory.ChunkListener() {
+            @Override
+            public void onChunk(List<?> items) {
+                chunks.add(items);
+            }
+        });
+        List<Route> routes;
+        try {
+            routes = converter.convert(ResponseBody.create(MediaType.parse("application/json"), json));
+        } finally {
+            DataEnvelopeConverterFactory.setChunkListener(null);
+        }
+
+        List<Object> chunked = new ArrayList<>();
+        for (List<?> chunk : chunks) {
+            assertTrue(chunk.size() <= DataEnvelopeConverterFactory.CHUNK_SIZE);
+            chunked.addAll(chunk);
+        }
+        // the same objects in the same order, keys already bound
+        assertEquals(routes, chunked);
+        assertSame(routes.get(0), chunks.get(0).get(0));
+        assertEquals("wall0", routes.get(0).getWallId());
+        assertEquals("route0", routes.get(0).getId());
+        assertEquals(DataEnvelopeConverterFactory.CHUNK_SIZE, chunks.get(0).size());
+
+        chunks.clear();
+        converter.convert(ResponseBody.create(MediaType.parse("application/json"), json));
+        assertTrue(chunks.isEmpty());
+    }
+
+    static String routesJson() {
+        StringBuilder sb = new StringBuilder("{\"data\":{\"routes\":{");
+        for (int g = 0; g < GYMS; g++) {
+            sb.append(g == 0 ? "" : ",").append("\"gym").append(g).append("\":").append(wallsJson());
+        }
+        return sb.append("}}}").toString();
+    }
+
+    // the walls of one gym with their routes
+    private static String wallsJson() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int w = 0; w < WALLS; w++) {
+            sb.append(w == 0 ? "" : ",").append("\"wall").append(w).append("\":{");
+            for (int r = 0; r < ROUTES_PER_WALL; r++) {
+                sb.append(r == 0 ? "" : ",").append("\"route").append(r).append("\":{")
+                        .append("\"features\":\"SLOPER,CRIMPS\",\"difficulty\":").append(3 + r % 5)
+                        .append(",\"userRatings\":").append(r % 3).append(",\"completedCount\":").append(r)
+                        .append('}');
+            }
+            sb.append('}');
+        }
+        return sb.append('}').toString();
+    }
+}
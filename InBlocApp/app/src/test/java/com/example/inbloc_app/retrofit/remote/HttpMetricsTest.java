@@ -0,0 +1,130 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class HttpMetricsTest {
+
+    private final HttpMetrics metrics = new HttpMetrics();
+
+    private static HttpMetrics.Sample sample(String endpoint, long totalMs, long ttfbMs, int code, int servedBy) {
+        long[] phases = new long[HttpMetrics.PHASE_NAMES.length];
+        Arrays.fill(phases, -1);
+        phases[HttpMetrics.PHASE_TOTAL] = totalMs;
+        phases[HttpMetrics.PHASE_TTFB] = ttfbMs;
+        return new HttpMetrics.Sample(endpoint, 0, phases, 100, 1000, code, servedBy, null);
+    }
+
+    @Test
+    public void keepsOnlyTheNewestSamples() {
+        for (int i = 0; i < HttpMetrics.CAPACITY + 10; i++) {
+            metrics.record(sample("e" + i, i, -1, 200, HttpMetrics.NETWORK));
+        }
+
+        List<HttpMetrics.Sample> samples = metrics.snapshot();
+
+        assertEquals(HttpMetrics.CAPACITY, samples.size());
+        assertEquals("e10", samples.get(0).endpoint);
+        assertEquals("e" + (HttpMetrics.CAPACITY + 9), samples.get(samples.size() - 1).endpoint);
+    }
+
+    @Test
+    public void clearDropsWhatWasRecordedSoFar() {
+        metrics.record(sample("old", 1, -1, 200, HttpMetrics.NETWORK));
+        metrics.clear();
+        metrics.record(sample("new", 1, -1, 200, HttpMetrics.NETWORK));
+
+        List<HttpMetrics.Sample> samples = metrics.snapshot();
+
+        assertEquals(1, samples.size());
+        assertEquals("new", samples.get(0).endpoint);
+    }
+
+    @Test
+    public void concurrentWritersLoseNothing() throws InterruptedException {
+        final int threads = 4;
+        final int perThread = HttpMetrics.CAPACITY / threads;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        metrics.record(sample("e", i, -1, 200, HttpMetrics.NETWORK));
+                    }
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(threads * perThread, metrics.snapshot().size());
+    }
+
+    @Test
+    public void summarizesPerEndpointSlowestFirst() {
+        for (int i = 1; i <= 20; i++) {
+            metrics.record(sample("getAllGyms", i * 10, i * 5, 200, HttpMetrics.NETWORK));
+        }
+        metrics.record(sample("getRoutes", 5000, 4000, 200, HttpMetrics.NETWORK));
+        metrics.record(sample("getRoutes", 10, -1, 0, HttpMetrics.CACHE_HIT));
+        metrics.record(sample("getRoutes", 80, 70, 304, HttpMetrics.NOT_MODIFIED));
+        metrics.record(sample("getRoutes", 90, 80, 500, HttpMetrics.NETWORK));
+
+        List<HttpMetrics.EndpointSummary> summaries = metrics.summarize();
+
+        assertEquals("getRoutes", summaries.get(0).endpoint);
+        HttpMetrics.EndpointSummary routes = summaries.get(0);
+        assertEquals(4, routes.count);
+        assertEquals(0.25, routes.errorRate(), 1e-9);
+        assertEquals(0.5, routes.cacheHitRatio(), 1e-9);
+        assertEquals(400, routes.requestBytes);
+        assertEquals(4000, routes.responseBytes);
+
+        HttpMetrics.EndpointSummary gyms = summaries.get(1);
+        assertEquals(100, gyms.p50Ms(HttpMetrics.PHASE_TOTAL));
+        assertEquals(190, gyms.p95Ms(HttpMetrics.PHASE_TOTAL));
+        assertEquals(-1, gyms.p50Ms(HttpMetrics.PHASE_DNS));
+        // up to 10, 25, 50, 100 and 250 ms
+        assertArrayEquals(new int[]{1, 1, 3, 5, 10, 0, 0, 0, 0, 0}, gyms.histogram(HttpMetrics.PHASE_TOTAL));
+    }
+
+    @Test
+    public void exportsSummaryAndSamplesAsJson() throws IOException {
+        metrics.record(sample("getAllGyms", 120, 60, 200, HttpMetrics.NETWORK));
+        metrics.record(sample("getAllGyms", 15, -1, 0, HttpMetrics.CACHE_HIT));
+        StringWriter out = new StringWriter();
+
+        metrics.writeJson(out);
+
+        JsonObject json = JsonParser.parseString(out.toString()).getAsJsonObject();
+        JsonObject endpoint = json.getAsJsonArray("endpoints").get(0).getAsJsonObject();
+        assertEquals("getAllGyms", endpoint.get("endpoint").getAsString());
+        assertEquals(0.5, endpoint.get("cacheHitRatio").getAsDouble(), 1e-9);
+        assertEquals(120, endpoint.getAsJsonObject("phases").getAsJsonObject("total").get("p95").getAsLong());
+        assertEquals(2, json.getAsJsonArray("samples").size());
+        assertEquals("cache", json.getAsJsonArray("samples").get(1).getAsJsonObject().get("servedBy").getAsString());
+        assertFalse(json.getAsJsonArray("samples").get(1).getAsJsonObject().has("ttfb"));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class NetworkDispatcherTest {
+
+    private static final String API = "api.example.com";
+    private static final String STORAGE = "storage.example.com";
+
+    // 2 requests in total, 2 per host, lanes 2 and 3 only while nothing else runs
+    private final NetworkDispatcher dispatcher = new NetworkDispatcher(2, 2, new int[]{2, 2, 1, 1});
+    private final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+    // Waits for a permit on its own thread and records when it got one
+    private Thread request(final String name, final String host, final int lane, final AtomicBoolean canceled,
+                           final List<NetworkDispatcher.Permit> permits) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    NetworkDispatcher.Permit permit = dispatcher.acquire(host, lane, new NetworkDispatcher.Cancellable() {
+                        @Override
+                        public boolean isCanceled() {
+                            return canceled != null && canceled.get();
+                        }
+                    });
+                    started.add(name);
+                    permits.add(permit);
+                } catch (InterruptedIOException e) {
+                    started.add(name + " canceled");
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void awaitWaiting(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.getWaiting() != count) {
+            assertTrue("waiting " + dispatcher.getWaiting(), System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void interactiveGoesBeforeQueuedPrefetchAndSync() throws Exception {
+        List<NetworkDispatcher.Permit> permits = Collections.synchronizedList(new ArrayList<NetworkDispatcher.Permit>());
+        NetworkDispatcher.Permit first = dispatcher.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+        NetworkDispatcher.Permit second = dispatcher.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+        request("sync", API, NetworkDispatcher.LANE_BACKGROUND, null, permits);
+        awaitWaiting(1);
+        request("prefetch", API, NetworkDispatcher.LANE_PREFETCH, null, permits);
+        awaitWaiting(2);
+        Thread tap = request("tap", API, NetworkDispatcher.LANE_INTERACTIVE, null, permits);
+        awaitWaiting(3);
+
+        first.release();
+        tap.join(5000);
+
+        assertEquals(Collections.singletonList("tap"), started);
+        // prefetch and sync may only start with nothing else running
+        assertEquals(2, dispatcher.getRunning());
+        assertEquals(2, dispatcher.getWaiting());
+
+        second.release();
+        permits.get(0).release();
+        awaitWaiting(1);
+        while (started.size() < 2) {
+            Thread.sleep(5);
+        }
+        assertEquals("prefetch", started.get(1));
+    }
+
+    @Test
+    public void busyHostDoesNotBlockOtherHosts() throws Exception {
+        NetworkDispatcher dispatcher = new NetworkDispatcher(3, 1, new int[]{3, 3, 3, 3});
+        dispatcher.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+        final CountDownLatch apiStarted = new CountDownLatch(1);
+        final NetworkDispatcher gate = dispatcher;
+        Thread second = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    gate.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+                    apiStarted.countDown();
+                } catch (InterruptedIOException ignored) {
+                }
+            }
+        });
+        second.setDaemon(true);
+        second.start();
+        while (dispatcher.getWaiting() != 1) {
+            Thread.sleep(5);
+        }
+
+        dispatcher.acquire(STORAGE, NetworkDispatcher.LANE_VISIBLE_IMAGES, null);
+
+        assertEquals(2, dispatcher.getRunning());
+        assertFalse(apiStarted.await(50, TimeUnit.MILLISECONDS));
+        second.interrupt();
+    }
+
+    @Test
+    public void canceledCallStopsWaiting() throws Exception {
+        List<NetworkDispatcher.Permit> permits = Collections.synchronizedList(new ArrayList<NetworkDispatcher.Permit>());
+        dispatcher.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+        dispatcher.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+        AtomicBoolean canceled = new AtomicBoolean();
+        Thread waiter = request("logo", STORAGE, NetworkDispatcher.LANE_VISIBLE_IMAGES, canceled, permits);
+        awaitWaiting(1);
+
+        canceled.set(true);
+        waiter.join(5000);
+
+        assertEquals(Collections.singletonList("logo canceled"), started);
+        assertEquals(0, dispatcher.getWaiting());
+        assertEquals(2, dispatcher.getRunning());
+    }
+
+    @Test
+    public void permitIsReleasedOnce() throws Exception {
+        NetworkDispatcher.Permit permit = dispatcher.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+        dispatcher.acquire(API, NetworkDispatcher.LANE_INTERACTIVE, null);
+
+        permit.release();
+        permit.release();
+
+        assertEquals(1, dispatcher.getRunning());
+    }
+
+    @Test
+    public void laneIsPerThread() throws Exception {
+        final int[] seen = new int[1];
+        Thread thread = NetworkDispatcher.threadFactory("test", NetworkDispatcher.LANE_BACKGROUND).newThread(new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = NetworkDispatcher.currentLane();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertEquals(NetworkDispatcher.LANE_BACKGROUND, seen[0]);
+        assertEquals(NetworkDispatcher.LANE_INTERACTIVE, NetworkDispatcher.currentLane());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.inbloc_app.retrofit.remote;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ServerSentEventReaderTest {
+
+    private final List<String> events = new ArrayList<>();
+    private long retry = -1;
+
+    private ServerSentEventReader reader(String stream, String lastEventId) {
+        return new ServerSentEventReader(new BufferedReader(new StringReader(stream)), lastEventId,
+                new ServerSentEventReader.Callback() {
+                    @Override
+                    public void onEvent(String id, String type, String data) {
+                        events.add(id + "|" + type + "|" + data);
+                    }
+
+                    @Override
+                    public void onRetry(long retryMs) {
+                        retry = retryMs;
+                    }
+                });
+    }
+
+    @Test
+    public void dispatchesOneEventPerBlankLine() throws IOException {
+        ServerSentEventReader reader = reader("\nid: 1\ndata: {\"flashes\":1}\n\n:\n\nid: 2\ndata: {\"flashes\":2}\n\n", null);
+
+        assertTrue(reader.processNext());
+        assertEquals(1, events.size());
+        assertEquals("1|message|{\"flashes\":1}", events.get(0));
+        assertTrue(reader.processNext());
+        assertEquals("2|message|{\"flashes\":2}", events.get(1));
+        assertFalse(reader.processNext());
+        assertEquals("2", reader.getLastEventId());
+    }
+
+    @Test
+    public void joinsDataLinesAndHandlesCrLf() throws IOException {
+        ServerSentEventReader reader = reader("event: update\r\ndata:a\r\ndata: b\r\n\r\n", "7");
+
+        assertTrue(reader.processNext());
+        assertEquals("7|update|a\nb", events.get(0));
+    }
+
+    @Test
+    public void appliesRetryAndIgnoresIncompleteEvent() throws IOException {
+        ServerSentEventReader reader = reader("retry: 3000\nretry: soon\n\ndata: cut off", null);
+
+        assertFalse(reader.processNext());
+        assertEquals(3000, retry);
+        assertTrue(events.isEmpty());
+    }
+}
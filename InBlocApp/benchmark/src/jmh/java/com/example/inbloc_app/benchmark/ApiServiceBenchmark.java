@@ -0,0 +1,80 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.DataEnvelopeConverterFactory;
+import com.google.gson.GsonBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+// Request building and full calls through ApiService against a local MockWebServer, with the
+// converters RetrofitClient registers. The server answers from memory, so the numbers are the
+// client's overhead plus loopback I/O.
+@State(Scope.Benchmark)
+public class ApiServiceBenchmark {
+
+    @Param({"10", "1000"})
+    public int entries;
+
+    private MockWebServer server;
+    private ApiService apiService;
+
+    @Setup
+    public void setUp() throws IOException {
+        final String walls = Payloads.wallsJson(entries);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setHeader("Content-Type", "application/json").setBody(walls);
+            }
+        });
+        server.start();
+
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addConverterFactory(DataEnvelopeConverterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+                        .registerTypeAdapterFactory(ModelAdapters.FACTORY)
+                        .create()))
+                .build()
+                .create(ApiService.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    // annotation parsing is cached by Retrofit, this is the per-call cost of building the Request
+    @Benchmark
+    public Request buildRoutesRequest() {
+        return apiService.getRoutes("application/json", "gym000001", "wall000001", "route000024", 25).request();
+    }
+
+    @Benchmark
+    public List<Walls> getWalls() throws IOException {
+        Response<List<Walls>> response = apiService.getWalls("application/json", "gym000001", entries).execute();
+        return response.body();
+    }
+}
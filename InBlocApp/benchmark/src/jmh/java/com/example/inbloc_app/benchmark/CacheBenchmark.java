@@ -0,0 +1,67 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.data.DiskLruCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+// Lookups in the logo DiskLruCache: hits, misses and a put that has to evict
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final int ENTRIES = 200;
+    private static final int LOGO_BYTES = 20 * 1024;
+
+    private File directory;
+    private DiskLruCache cache;
+    private byte[] logo;
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("logo-cache").toFile();
+        // room for exactly ENTRIES logos, every further put evicts the oldest one
+        cache = new DiskLruCache(directory, (long) ENTRIES * LOGO_BYTES);
+        logo = new byte[LOGO_BYTES];
+        new Random(42).nextBytes(logo);
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(Payloads.gymId(i), logo);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public File hit() {
+        next = (next + 1) % ENTRIES;
+        return cache.get(Payloads.gymId(next));
+    }
+
+    @Benchmark
+    public File miss() {
+        return cache.get("unknown");
+    }
+
+    @Benchmark
+    public File putEvicting() throws IOException {
+        next++;
+        return cache.put(Payloads.gymId(ENTRIES + next), logo);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.models.Walls;
+import com.example.inbloc_app.retrofit.remote.ApiService;
+import com.example.inbloc_app.retrofit.remote.DataEnvelopeConverterFactory;
+import com.example.inbloc_app.retrofit.remote.EnvelopeReader;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+// Decoding of /gyms and /walls bodies: the streaming EnvelopeReader with the hand-written
+// adapters against what GsonConverterFactory did before, reflection into nested maps.
+// For a /routes page, how soon the route list gets its first rows: the ListConverter handing out
+// its first chunk against reflection, which has the whole tree to build before the first route
+// exists. The gc profiler's gc.alloc.rate.norm is the bytes each of them allocates until then.
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+
+    static class GymsEnvelope {
+        Data data;
+
+        static class Data {
+            Map<String, Gyms> gyms;
+        }
+    }
+
+    static class WallsEnvelope {
+        Data data;
+
+        static class Data {
+            Map<String, Walls> walls;
+        }
+    }
+
+    static class RoutesEnvelope {
+        Data data;
+
+        static class Data {
+            Map<String, Route> routes;
+        }
+    }
+
+    // thrown by the chunk listener to stop reading, without a stack trace to fill in
+    private static final class FirstChunk extends RuntimeException {
+        List<?> items;
+
+        FirstChunk() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Type GYMS_ENVELOPE = new TypeToken<GymsEnvelope>() {}.getType();
+    private static final Type WALLS_ENVELOPE = new TypeToken<WallsEnvelope>() {}.getType();
+    private static final Type ROUTES_ENVELOPE = new TypeToken<RoutesEnvelope>() {}.getType();
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Param({"10", "100", "1000", "10000"})
+    public int entries;
+
+    private String gymsJson;
+    private String wallsJson;
+    private byte[] routesBody;
+    private Converter<ResponseBody, List<Route>> routesConverter;
+    private final Gson gson = new Gson();
+    private final FirstChunk firstChunk = new FirstChunk();
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException, NoSuchMethodException {
+        gymsJson = Payloads.gymsJson(entries);
+        wallsJson = Payloads.wallsJson(entries);
+        routesBody = Payloads.routesJson(entries).getBytes(StandardCharsets.UTF_8);
+        // the converter Retrofit picks for the route list's page request
+        Method getRoutes = ApiService.class.getMethod("getRoutes", String.class, String.class, String.class,
+                String.class, Integer.class);
+        Type listType = ((ParameterizedType) getRoutes.getGenericReturnType()).getActualTypeArguments()[0];
+        routesConverter = (Converter<ResponseBody, List<Route>>) DataEnvelopeConverterFactory.create()
+                .responseBodyConverter(listType, getRoutes.getAnnotations(), null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        DataEnvelopeConverterFactory.setChunkListener(null);
+    }
+
+    @Benchmark
+    public int streamingGyms(final Blackhole blackhole) throws IOException {
+        return EnvelopeReader.read(new JsonReader(new StringReader(gymsJson)), "gyms", 1, ModelAdapters.GYMS,
+                new EnvelopeReader.Sink<Gyms>() {
+                    @Override
+                    public void onItem(String[] keys, Gyms item) {
+                        DataEnvelopeConverterFactory.bindKeys(item, keys);
+                        blackhole.consume(item);
+                    }
+                });
+    }
+
+    @Benchmark
+    public Object reflectionGyms() {
+        GymsEnvelope envelope = gson.fromJson(gymsJson, GYMS_ENVELOPE);
+        return envelope.data.gyms;
+    }
+
+    @Benchmark
+    public int streamingWalls(final Blackhole blackhole) throws IOException {
+        return EnvelopeReader.read(new JsonReader(new StringReader(wallsJson)), "walls", 1, ModelAdapters.WALLS,
+                new EnvelopeReader.Sink<Walls>() {
+                    @Override
+                    public void onItem(String[] keys, Walls item) {
+                        DataEnvelopeConverterFactory.bindKeys(item, keys);
+                        blackhole.consume(item);
+                    }
+                });
+    }
+
+    @Benchmark
+    public Object reflectionWalls() {
+        WallsEnvelope envelope = gson.fromJson(wallsJson, WALLS_ENVELOPE);
+        return envelope.data.walls;
+    }
+
+    // Until the first CHUNK_SIZE routes could be posted to the list, then the read stops
+    @Benchmark
+    public Object firstRoutesStreaming() throws IOException {
+        DataEnvelopeConverterFactory.setChunkListener(new DataEnvelopeConverterFactory.ChunkListener() {
+            @Override
+            public void onChunk(List<?> items) {
+                firstChunk.items = items;
+                throw firstChunk;
+            }
+        });
+        try {
+            return routesConverter.convert(ResponseBody.create(JSON, routesBody));
+        } catch (FirstChunk chunk) {
+            return chunk.items;
+        } finally {
+            DataEnvelopeConverterFactory.setChunkListener(null);
+        }
+    }
+
+    @Benchmark
+    public Object firstRoutesReflection() {
+        RoutesEnvelope envelope = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(routesBody),
+                StandardCharsets.UTF_8), ROUTES_ENVELOPE);
+        return envelope.data.routes.values().iterator().next();
+    }
+
+    // The whole page with chunks handed out on the way, what the chunking costs on top of a read
+    @Benchmark
+    public List<Route> allRoutesChunked(final Blackhole blackhole) throws IOException {
+        DataEnvelopeConverterFactory.setChunkListener(new DataEnvelopeConverterFactory.ChunkListener() {
+            @Override
+            public void onChunk(List<?> items) {
+                blackhole.consume(items);
+            }
+        });
+        try {
+            return routesConverter.convert(ResponseBody.create(JSON, routesBody));
+        } finally {
+            DataEnvelopeConverterFactory.setChunkListener(null);
+        }
+    }
+
+    @Benchmark
+    public List<Route> allRoutes() throws IOException {
+        return routesConverter.convert(ResponseBody.create(JSON, routesBody));
+    }
+}
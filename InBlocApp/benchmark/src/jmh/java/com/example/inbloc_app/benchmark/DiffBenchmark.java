@@ -0,0 +1,50 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.adapter.GymsDiff;
+import com.example.inbloc_app.retrofit.models.Gyms;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The per-item work GymsAdapter's DiffUtil callback does on a refresh of /gyms, where the new
+// list is a freshly decoded copy of the old one with a few gyms edited. DiffUtil itself only
+// ships inside the Android AAR, so the comparisons are measured over the matching pairs it
+// would visit for such a list.
+@State(Scope.Benchmark)
+public class DiffBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int entries;
+
+    private List<Gyms> oldList;
+    private List<Gyms> newList;
+
+    @Setup
+    public void setUp() {
+        oldList = Payloads.gyms(entries);
+        // equal but distinct objects, like a new response
+        newList = new ArrayList<>(Payloads.gyms(entries));
+        for (int i = 0; i < entries; i += 100) {
+            newList.get(i).setDescription("changed " + i);
+        }
+    }
+
+    @Benchmark
+    public int changedItems() {
+        int changed = 0;
+        for (int i = 0; i < oldList.size(); i++) {
+            Gyms oldItem = oldList.get(i);
+            Gyms newItem = newList.get(i);
+            if (GymsDiff.sameItem(oldItem, newItem) && !GymsDiff.sameContents(oldItem, newItem)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
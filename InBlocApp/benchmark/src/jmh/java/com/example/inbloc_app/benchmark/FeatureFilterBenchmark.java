@@ -0,0 +1,66 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.retrofit.models.Route;
+import com.example.inbloc_app.retrofit.models.RouteFeature;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+// Counting the routes with CRIMPS and POWER: the feature mask Route parses once when it is read,
+// against splitting and comparing the features string of every route on every filter.
+@State(Scope.Benchmark)
+public class FeatureFilterBenchmark {
+
+    private static final String[] WANTED = {"CRIMPS", "POWER"};
+    private static final int WANTED_MASK = RouteFeature.CRIMPS.bit() | RouteFeature.POWER.bit();
+
+    @Param({"1000", "100000"})
+    public int entries;
+
+    private Route[] routes;
+
+    @Setup
+    public void setUp() {
+        List<Route> list = Payloads.routes(entries);
+        routes = list.toArray(new Route[0]);
+    }
+
+    @Benchmark
+    public int mask() {
+        int count = 0;
+        for (Route route : routes) {
+            if (route.hasFeatures(WANTED_MASK)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int string() {
+        int count = 0;
+        for (Route route : routes) {
+            String[] features = route.getFeatures().split(",");
+            boolean all = true;
+            for (String wanted : WANTED) {
+                boolean found = false;
+                for (String feature : features) {
+                    if (feature.equals(wanted)) {
+                        found = true;
+                        break;
+                    }
+                }
+                all &= found;
+            }
+            if (all) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.data.GeoIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// "Near me" over 50k synthetic gyms spread over Germany: building the GeoIndex, the ten closest
+// and everything within 25 km, against a scan over every gym. Each query starts from another of
+// 1024 fixed points so the branch predictor does not learn a single one.
+@State(Scope.Benchmark)
+public class GeoIndexBenchmark {
+
+    private static final int GYMS = 50000;
+    private static final int QUERIES = 1024;
+    private static final int NEAREST = 10;
+    private static final double RADIUS_M = 25000;
+
+    private String[] ids;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] queries;
+    private GeoIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new String[GYMS];
+        latitudes = new double[GYMS];
+        longitudes = new double[GYMS];
+        for (int i = 0; i < GYMS; i++) {
+            ids[i] = "gym" + i;
+            latitudes[i] = 47.3 + random.nextDouble() * 7.7;
+            longitudes[i] = 5.9 + random.nextDouble() * 9.1;
+        }
+        queries = new double[2 * QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[2 * i] = 47.3 + random.nextDouble() * 7.7;
+            queries[2 * i + 1] = 5.9 + random.nextDouble() * 9.1;
+        }
+        index = new GeoIndex(ids, latitudes, longitudes);
+    }
+
+    private int nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return 2 * next;
+    }
+
+    @Benchmark
+    public GeoIndex build() {
+        return new GeoIndex(ids, latitudes, longitudes);
+    }
+
+    @Benchmark
+    public GeoIndex.Result nearest10() {
+        int q = nextQuery();
+        return index.nearest(queries[q], queries[q + 1], NEAREST, Double.MAX_VALUE);
+    }
+
+    @Benchmark
+    public GeoIndex.Result within25km() {
+        int q = nextQuery();
+        return index.within(queries[q], queries[q + 1], RADIUS_M);
+    }
+
+    // What SearchViewModel would do without the index: the distance to every gym, keeping the
+    // ten closest in a sorted array
+    @Benchmark
+    public String[] nearest10Scan() {
+        int q = nextQuery();
+        double[] best = new double[NEAREST];
+        String[] bestIds = new String[NEAREST];
+        Arrays.fill(best, Double.MAX_VALUE);
+        for (int i = 0; i < GYMS; i++) {
+            double d = GeoIndex.distanceM(queries[q], queries[q + 1], latitudes[i], longitudes[i]);
+            if (d < best[NEAREST - 1]) {
+                int j = NEAREST - 1;
+                while (j > 0 && best[j - 1] > d) {
+                    best[j] = best[j - 1];
+                    bestIds[j] = bestIds[j - 1];
+                    j--;
+                }
+                best[j] = d;
+                bestIds[j] = ids[i];
+            }
+        }
+        return bestIds;
+    }
+}
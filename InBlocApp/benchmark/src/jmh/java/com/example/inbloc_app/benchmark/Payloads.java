@@ -0,0 +1,162 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.models.Route;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Backend-shaped test data. Everything is derived from a fixed seed, so every run and every
+// release benchmarks exactly the same bytes.
+final class Payloads {
+
+    private static final long SEED = 42;
+    private static final String[] CITIES = {"Bielefeld", "Bad Oeynhausen", "Osnabrück", "Hannover", "Münster"};
+    private static final String[] ROUTE_FEATURES = {"SLOPER", "CRIMPS", "BALANCE", "POWER", "CAMPUS", "BEGINNER", "VOLUMES", "COMP"};
+    private static final String[] WALL_FEATURES = {"SLAB", "ROOF", "POSITIVE", "NEGATIVE"};
+
+    private Payloads() {}
+
+    static String gymId(int i) {
+        return String.format("gym%06d", i);
+    }
+
+    // {data:{gyms:{gymId:{...}}}} like GET /gyms
+    static String gymsJson(int count) throws IOException {
+        Random random = new Random(SEED);
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject().name("data").beginObject().name("gyms").beginObject();
+        for (int i = 0; i < count; i++) {
+            writer.name(gymId(i)).beginObject()
+                    .name("city").value(CITIES[random.nextInt(CITIES.length)])
+                    .name("description").value(sentence(random, 12))
+                    .name("email").value("info@gym" + i + ".de")
+                    .name("houseNumber").value(String.valueOf(1 + random.nextInt(200)))
+                    .name("name").value("Boulderhalle " + i)
+                    .name("phone").value("0521 " + (100000 + random.nextInt(900000)))
+                    .name("street").value(sentence(random, 1) + "straße")
+                    .name("website").value("https://gym" + i + ".de")
+                    .name("zip").value(String.valueOf(10000 + random.nextInt(89999)))
+                    .endObject();
+        }
+        writer.endObject().endObject().endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    // {data:{walls:{wallId:{...}}}} like GET /walls?gymId=...
+    static String wallsJson(int count) throws IOException {
+        Random random = new Random(SEED);
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject().name("data").beginObject().name("walls").beginObject();
+        for (int i = 0; i < count; i++) {
+            writer.name(String.format("wall%06d", i)).beginObject()
+                    .name("features").value(features(random, WALL_FEATURES))
+                    .name("setDate").value(String.format("2022-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)))
+                    .endObject();
+        }
+        writer.endObject().endObject().endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    // {data:{routes:{routeId:{...}}}} like a page of GET /routes?gymId=...&wallId=..., the routes
+    // of routes(count)
+    static String routesJson(int count) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject().name("data").beginObject().name("routes").beginObject();
+        for (Route route : routes(count)) {
+            writer.name(route.getId());
+            ModelAdapters.ROUTE.write(writer, route);
+        }
+        writer.endObject().endObject().endObject();
+        writer.close();
+        return out.toString();
+    }
+
+    static List<Gyms> gyms(int count) {
+        Random random = new Random(SEED);
+        List<Gyms> gyms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Gyms gym = new Gyms();
+            gym.setId(gymId(i));
+            gym.setName("Boulderhalle " + i);
+            gym.setCity(CITIES[random.nextInt(CITIES.length)]);
+            gym.setDescription(sentence(random, 12));
+            gym.setStreet(sentence(random, 1) + "straße");
+            gym.setHouseNumber(String.valueOf(1 + random.nextInt(200)));
+            gym.setZip(String.valueOf(10000 + random.nextInt(89999)));
+            gym.setPhone("0521 " + (100000 + random.nextInt(900000)));
+            gym.setEmail("info@gym" + i + ".de");
+            gym.setWebsite("https://gym" + i + ".de");
+            gyms.add(gym);
+        }
+        return gyms;
+    }
+
+    // count routes spread over gyms of 20 walls with 25 routes each, ids like Firebase push ids
+    static List<Route> routes(int count) {
+        Random random = new Random(SEED);
+        List<Route> routes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Route route = new Route();
+            route.setId(pushId(random));
+            route.setGymId(gymId(i / 500));
+            route.setWallId(String.format("wall%06d", i / 25));
+            route.setFeatures(routeFeatures(random));
+            route.setDifficulty(random.nextInt(10));
+            route.setUserRatings(random.nextInt(50));
+            route.setCompletedCount(random.nextInt(500));
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    private static String pushId(Random random) {
+        String chars = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+        StringBuilder sb = new StringBuilder("-N");
+        for (int c = 0; c < 18; c++) {
+            sb.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return sb.toString();
+    }
+
+    static String routeFeatures(Random random) {
+        return features(random, ROUTE_FEATURES);
+    }
+
+    private static String features(Random random, String[] all) {
+        StringBuilder sb = new StringBuilder();
+        for (String feature : all) {
+            if (random.nextInt(3) == 0) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(feature);
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : all[0];
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                sb.append(' ');
+            }
+            int length = 3 + random.nextInt(8);
+            for (int c = 0; c < length; c++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.inbloc_app.benchmark;
+
+import com.example.inbloc_app.data.SnapshotFile;
+import com.example.inbloc_app.retrofit.models.Gyms;
+import com.example.inbloc_app.retrofit.models.ModelAdapters;
+import com.example.inbloc_app.retrofit.remote.EnvelopeReader;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+// Loading 10k cached gyms: the JSON cache GymRepository kept before (the /gyms body, read with
+// the streaming adapters) against the binary SnapshotFile, fully and for the first page only.
+// The size of both files is reported as the jsonBytes and snapshotBytes counters.
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    private static final int GYMS = 10000;
+    // RoutePagingSource.PAGE_SIZE, about a screen of rows
+    private static final int FIRST_PAGE = 25;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FileSizes {
+        public long jsonBytes;
+        public long snapshotBytes;
+    }
+
+    private File directory;
+    private File json;
+    private File snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot").toFile();
+        json = new File(directory, "gyms.json");
+        snapshot = new File(directory, "gyms.snapshot");
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(json), StandardCharsets.UTF_8)) {
+            writer.write(Payloads.gymsJson(GYMS));
+        }
+        SnapshotFile.write(snapshot, null, Payloads.gyms(GYMS));
+    }
+
+    @TearDown
+    public void tearDown() {
+        json.delete();
+        snapshot.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public int jsonAll(final Blackhole blackhole, FileSizes sizes) throws IOException {
+        sizes.jsonBytes = json.length();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(json), StandardCharsets.UTF_8))) {
+            return EnvelopeReader.read(reader, "gyms", 1, ModelAdapters.GYMS, new EnvelopeReader.Sink<Gyms>() {
+                @Override
+                public void onItem(String[] keys, Gyms gym) {
+                    gym.setId(keys[0]);
+                    blackhole.consume(gym);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public int snapshotAll(Blackhole blackhole, FileSizes sizes) throws IOException {
+        sizes.snapshotBytes = snapshot.length();
+        List<Gyms> gyms = SnapshotFile.open(snapshot).getGyms();
+        for (int i = 0; i < gyms.size(); i++) {
+            blackhole.consume(gyms.get(i));
+        }
+        return gyms.size();
+    }
+
+    // what the gym list needs before its first frame
+    @Benchmark
+    public int snapshotFirstPage(Blackhole blackhole) throws IOException {
+        List<Gyms> gyms = SnapshotFile.open(snapshot).getGyms();
+        for (int i = 0; i < FIRST_PAGE; i++) {
+            blackhole.consume(gyms.get(i));
+        }
+        return gyms.size();
+    }
+}
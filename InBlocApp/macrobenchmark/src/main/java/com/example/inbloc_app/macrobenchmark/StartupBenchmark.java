@@ -0,0 +1,61 @@
+package com.example.inbloc_app.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
+
+/**
+ * Cold starts of the benchmark build. Sign in once on the device before running: with a cached
+ * session the app skips the login screen, so timeToFullDisplayMs is the time to the first gym
+ * list (StartupPipeline.reportFirstGymList). Without one only the login screen is measured.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final String PACKAGE = "com.example.inbloc_app";
+    private static final int ITERATIONS = 10;
+    private static final long GYM_LIST_TIMEOUT_MS = 10000;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void coldStartToFirstGymList() {
+        benchmarkRule.measureRepeated(PACKAGE,
+                Collections.singletonList(new StartupTimingMetric()),
+                new CompilationMode.None(),
+                StartupMode.COLD,
+                ITERATIONS,
+                new Function1<MacrobenchmarkScope, Unit>() {
+                    @Override
+                    public Unit invoke(MacrobenchmarkScope scope) {
+                        scope.pressHome();
+                        return Unit.INSTANCE;
+                    }
+                },
+                new Function1<MacrobenchmarkScope, Unit>() {
+                    @Override
+                    public Unit invoke(MacrobenchmarkScope scope) {
+                        scope.startActivityAndWait();
+                        // the iteration ends with the list on screen, not with the first frame
+                        scope.getDevice().wait(Until.hasObject(By.res(PACKAGE, "recView_myGyms")),
+                                GYM_LIST_TIMEOUT_MS);
+                        return Unit.INSTANCE;
+                    }
+                });
+    }
+}